@@ -0,0 +1,103 @@
+package concesionario.bench;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+import concesionario.servicio.Datos;
+import concesionario.servicio.Puesto;
+import concesionario.servicio.Resumen;
+
+/**
+ * Consultas sobre el histórico de ventas: por intervalo de fechas y por día (con el
+ * índice por fechas), por cliente y por moto (recorriendo los objetos {@link Venta}
+ * o el almacén columnar) y clasificaciones (con los contadores de cada alta; las
+ * recientes, con una ventana de 30 días).
+ * <p>Ejecución: {@code java -jar target/benchmarks.jar Analitica -p columnar=false,true}</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AnaliticaBenchmark {
+
+    /** Número de ventas. */
+    @Param({"1000000"})
+    public int ventas;
+
+    /** Si se activa {@link Datos#setAlmacenColumnar(boolean)}. */
+    @Param({"false", "true"})
+    public boolean columnar;
+
+    private Datos datos;
+    private final LocalDate desde = LocalDate.of(2018, 1, 1);
+    private final LocalDate hasta = LocalDate.of(2019, 12, 31);
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random r = new Random(17);
+        datos = new Datos();
+        datos.setAlmacenColumnar(columnar);
+        datos.setVentanaClasificacion(30);
+        List<Cliente> clientes = Catalogos.clientes(Math.max(10, ventas / 10), r);
+        for (Cliente c : clientes) datos.addCliente(c);
+        List<Moto> motos = Catalogos.motos(1000, r);
+        for (Moto m : motos) datos.addMoto(m);
+        LocalDate inicio = LocalDate.of(2015, 1, 1);
+        for (int i = 0; i < ventas; i++) {
+            List<Moto> sel = new ArrayList<>(2);
+            for (int k = 1 + r.nextInt(2); k > 0; k--) sel.add(motos.get(r.nextInt(motos.size())));
+            datos.addVenta(new Venta(clientes.get(r.nextInt(clientes.size())), sel, inicio.plusDays(r.nextInt(3650))));
+        }
+    }
+
+    @Benchmark
+    public long totalEntreFechas() { return datos.totalVentasEntreCentimos(desde, hasta); }
+
+    @Benchmark
+    public Resumen resumenTrimestre() { return datos.resumenVentasEntre(LocalDate.of(2021, 4, 1), LocalDate.of(2021, 6, 30)); }
+
+    @Benchmark
+    public int ventasDeUnaSemana() { return datos.ventasEntre(LocalDate.of(2021, 4, 5), LocalDate.of(2021, 4, 11)).size(); }
+
+    @Benchmark
+    public long[] totalesPorDia() { return datos.totalesPorDiaCentimos(desde, hasta); }
+
+    @Benchmark
+    public Map<String, Long> totalesPorCliente() { return datos.totalesPorClienteCentimos(desde, hasta); }
+
+    @Benchmark
+    public long[] unidadesPorMoto() { return datos.unidadesPorMoto(desde, hasta); }
+
+    @Benchmark
+    public List<Puesto<Moto>> motosMasVendidas() { return datos.motosMasVendidas(20); }
+
+    @Benchmark
+    public List<Puesto<Cliente>> mejoresClientes() { return datos.mejoresClientes(20); }
+
+    @Benchmark
+    public List<Puesto<Moto>> motosMasVendidasRecientes() { return datos.motosMasVendidasRecientes(20); }
+}
@@ -0,0 +1,71 @@
+package concesionario.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import concesionario.modelo.Moto;
+import concesionario.servicio.Datos;
+
+/**
+ * Latencia de {@link Datos#buscarMotosPorTexto(String)} con el índice de trigramas
+ * frente al recorrido lineal anterior, para catálogos de 10 mil a 1 millón de motos.
+ * <p>Ejecución: {@code mvn -Pbenchmark package && java -jar target/benchmarks.jar BusquedaMotos}</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BusquedaMotosBenchmark {
+
+    /** Número de motos del catálogo. */
+    @Param({"10000", "100000", "1000000"})
+    public int tamano;
+
+    /** Consulta: selectiva ("xsr 7"), frecuente ("scram") y corta ("z"). */
+    @Param({"xsr 7", "scram", "z"})
+    public String consulta;
+
+    private Datos datos;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        datos = new Datos();
+        for (Moto m : Catalogos.motos(tamano, new Random(7))) datos.addMoto(m);
+    }
+
+    @Benchmark
+    public List<Moto> indiceTrigramas() {
+        return datos.buscarMotosPorTexto(consulta);
+    }
+
+    @Benchmark
+    public List<Moto> recorridoLineal() {
+        List<Moto> res = new ArrayList<>();
+        String s = consulta.toLowerCase();
+        for (Moto m : datos.getMotos()) {
+            if (m.getMarca().toLowerCase().contains(s) || m.getModelo().toLowerCase().contains(s)) {
+                res.add(m);
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,115 @@
+package concesionario.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import concesionario.modelo.Moto;
+import concesionario.servicio.CatalogoDirecto;
+import concesionario.servicio.Datos;
+
+/**
+ * Catálogo de motos en {@link Datos} (un {@link Moto} por modelo en una lista, más el
+ * índice de trigramas) frente a {@link CatalogoDirecto} (buffers fuera del montón).
+ * <p>Al preparar cada caso se muestra el montón ocupado tras una recolección completa y
+ * la memoria directa reservada. {@code recoleccionCompleta} mide la pausa de un
+ * {@code System.gc()} con el catálogo vivo, que crece con el número de objetos a marcar.</p>
+ * <p>Ejecución: {@code java -jar target/benchmarks.jar CatalogoDirecto -prof gc}</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CatalogoDirectoBenchmark {
+
+    /** Dónde se guarda el catálogo: {@code lista} (Datos) o {@code directo} (CatalogoDirecto). */
+    @Param({"lista", "directo"})
+    public String catalogo;
+
+    /** Número de motos del catálogo. */
+    @Param({"2000000"})
+    public int tamano;
+
+    private Datos datos;
+    private CatalogoDirecto directo;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random r = new Random(7);
+        List<Moto> motos = Catalogos.motos(tamano, r);
+        if (catalogo.equals("lista")) {
+            datos = new Datos();
+            for (Moto m : motos) datos.addMoto(m);
+        } else {
+            directo = new CatalogoDirecto();
+            for (Moto m : motos) directo.addMoto(m);
+        }
+        motos = null;
+        System.gc();
+        MemoryUsage monton = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        System.out.printf("%nmontón ocupado: %d MB, memoria directa: %d MB%n", monton.getUsed() >> 20,
+                directo == null ? 0 : directo.bytesReservados() >> 20);
+    }
+
+    private int azar() { return ThreadLocalRandom.current().nextInt(tamano); }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void recoleccionCompleta() { System.gc(); }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int buscarMotosPorTexto() {
+        return directo == null ? datos.buscarMotosPorTexto("xsr 7").size() : directo.buscarMotosPorTexto("xsr 7").size();
+    }
+
+    @Benchmark
+    public boolean descontarYReponer() {
+        int i = azar();
+        int j = azar();
+        if (directo == null) {
+            boolean ok = datos.descontarStock(List.of(datos.buscarMotoPorIndice(i), datos.buscarMotoPorIndice(j)));
+            if (ok) {
+                datos.reponerStockPorIndice(i, 1);
+                datos.reponerStockPorIndice(j, 1);
+            }
+            return ok;
+        }
+        boolean ok = directo.descontarStock(i, j);
+        if (ok) {
+            directo.reponerStockPorIndice(i, 1);
+            directo.reponerStockPorIndice(j, 1);
+        }
+        return ok;
+    }
+
+    @Benchmark
+    public long leerPrecioYStock() {
+        if (directo == null) {
+            Moto m = datos.buscarMotoPorIndice(azar());
+            return m.getPrecioCentimos() + m.getStock();
+        }
+        CatalogoDirecto.VistaMoto v = directo.buscarMotoPorIndice(azar());
+        return v.getPrecioCentimos() + v.getStock();
+    }
+}
@@ -0,0 +1,75 @@
+package concesionario.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+
+/**
+ * Generador de catálogos y clientes sintéticos para los benchmarks.
+ * @author Víctor
+ * @version 1.0
+ */
+final class Catalogos {
+    private static final String[] MARCAS = {
+            "Honda", "Yamaha", "Ducati", "Triumph", "Fantic", "Benelli", "Husqvarna",
+            "Royal Enfield", "Kawasaki", "Suzuki", "KTM", "BMW", "Aprilia", "Moto Guzzi"
+    };
+    private static final String[] FAMILIAS = {
+            "Scrambler", "XSR", "CL", "Svartpilen", "Leoncino", "Caballero", "Scram",
+            "Bonneville", "Tracer", "Africa Twin", "Duke", "Tuono", "V7", "Z"
+    };
+    private static final String[] NOMBRES = {
+            "Ana", "Carlos", "Lucía", "Javier", "Marta", "Pablo", "Elena", "Sergio", "Nuria", "Diego"
+    };
+    private static final String[] APELLIDOS = {
+            "López", "García", "Ruiz", "Martín", "Sánchez", "Pérez", "Gómez", "Díaz", "Moreno", "Álvarez"
+    };
+
+    private Catalogos() { }
+
+    /**
+     * Crea {@code n} motos con marcas reales y modelos variados.
+     * @param n número de motos
+     * @param r generador aleatorio (con semilla fija para repetir resultados)
+     * @return lista de motos
+     */
+    static List<Moto> motos(int n, Random r) {
+        List<Moto> res = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String marca = MARCAS[r.nextInt(MARCAS.length)];
+            String modelo = FAMILIAS[r.nextInt(FAMILIAS.length)] + " " + (100 + r.nextInt(1200))
+                    + " " + Integer.toString(i, 36).toUpperCase();
+            double precio = 3000 + r.nextInt(20000) + r.nextInt(100) / 100.0;
+            res.add(new Moto(marca, modelo, precio, 1 + r.nextInt(10)));
+        }
+        return res;
+    }
+
+    /**
+     * Crea {@code n} clientes con DNI distintos ({@link #dni(int)}) y nombres repetidos.
+     * @param n número de clientes
+     * @param r generador aleatorio (con semilla fija para repetir resultados)
+     * @return lista de clientes
+     */
+    static List<Cliente> clientes(int n, Random r) {
+        List<Cliente> res = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String nombre = NOMBRES[r.nextInt(NOMBRES.length)] + " " + APELLIDOS[r.nextInt(APELLIDOS.length)]
+                    + " " + APELLIDOS[r.nextInt(APELLIDOS.length)];
+            res.add(new Cliente(nombre, dni(i), "600" + (100000 + r.nextInt(900000)), "c" + i + "@ex.com"));
+        }
+        return res;
+    }
+
+    /**
+     * @param i número de cliente
+     * @return DNI sintético del cliente {@code i} (8 cifras y letra)
+     */
+    static String dni(int i) {
+        String num = Integer.toString(i);
+        return "00000000".substring(num.length()) + num + "TRWAGMYFPDXBNJZSQVHLCKE".charAt(i % 23);
+    }
+}
@@ -0,0 +1,121 @@
+package concesionario.bench;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+import concesionario.servicio.Cursor;
+import concesionario.servicio.Datos;
+import concesionario.servicio.DatosParticionados;
+import concesionario.servicio.Pagina;
+
+/**
+ * Operaciones que comparan textos sin distinguir mayúsculas: búsquedas por DNI y por
+ * texto, altas de ventas (indexadas por DNI), totales por cliente, páginas por nombre y
+ * el listado por nombre de {@link DatosParticionados} (que mezcla las particiones).
+ * <p>Lo interesante es la memoria reservada por operación: ejecutar con el perfilador de
+ * GC, {@code java -jar target/benchmarks.jar Claves -prof gc}, y mirar
+ * {@code gc.alloc.rate.norm} (bytes por operación).</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ClavesBenchmark {
+    private static final int VENTAS = 100_000;
+
+    private Datos datos;
+    private DatosParticionados particionados;
+    private String[] dnis;
+    private String[] nombres;
+    private Venta[] ventas;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random r = new Random(31);
+        datos = new Datos();
+        particionados = new DatosParticionados(4);
+        List<Cliente> clientes = Catalogos.clientes(VENTAS / 10, r);
+        for (Cliente c : clientes) {
+            datos.addCliente(c);
+            particionados.addCliente(c);
+        }
+        List<Moto> motos = Catalogos.motos(1000, r);
+        for (Moto m : motos) {
+            datos.addMoto(m);
+            particionados.addMoto(m);
+        }
+        LocalDate inicio = LocalDate.of(2015, 1, 1);
+        ventas = new Venta[VENTAS];
+        for (int i = 0; i < VENTAS; i++) {
+            List<Moto> sel = new ArrayList<>(2);
+            for (int k = 1 + r.nextInt(2); k > 0; k--) sel.add(motos.get(r.nextInt(motos.size())));
+            ventas[i] = new Venta(clientes.get(r.nextInt(clientes.size())), sel, inicio.plusDays(r.nextInt(3650)));
+            datos.addVenta(ventas[i]);
+        }
+        dnis = new String[clientes.size()];
+        nombres = new String[clientes.size()];
+        for (int i = 0; i < dnis.length; i++) {
+            dnis[i] = clientes.get(i).getDni();
+            nombres[i] = clientes.get(i).getNombre();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() { particionados.close(); }
+
+    private static int azar(int n) { return ThreadLocalRandom.current().nextInt(n); }
+
+    @Benchmark
+    public Cliente buscarClientePorDni() { return datos.buscarClientePorDni(dnis[azar(dnis.length)]); }
+
+    @Benchmark
+    public List<Moto> buscarMotosPorTexto() { return datos.buscarMotosPorTexto("xsr 7"); }
+
+    @Benchmark
+    public void addVenta() {
+        datos.addVenta(ventas[siguiente]);
+        if (++siguiente == ventas.length) siguiente = 0;
+    }
+
+    @Benchmark
+    public long totalVentasCliente() { return datos.totalVentasClienteCentimos(dnis[azar(dnis.length)]); }
+
+    @Benchmark
+    public Pagina<Cliente> paginaClientesPorNombre() {
+        return datos.paginaClientesPorNombre(Cursor.desde(nombres[azar(nombres.length)]), 20);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Map<String, Long> totalesPorCliente() { return datos.totalesPorClienteCentimos(null, null); }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Cliente> clientesOrdenadosParticionados() { return particionados.clientesOrdenadosPorNombre(); }
+}
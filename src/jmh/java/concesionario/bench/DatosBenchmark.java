@@ -0,0 +1,144 @@
+package concesionario.bench;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+import concesionario.servicio.Cursor;
+import concesionario.servicio.Datos;
+import concesionario.servicio.DatosConcurrentes;
+import concesionario.servicio.Metricas;
+import concesionario.servicio.Pagina;
+import concesionario.servicio.Reserva;
+
+/**
+ * Operaciones principales de {@link Datos} y {@link Venta#getImporte()} sobre un mismo
+ * conjunto de datos, para detectar regresiones entre versiones.
+ * <p>{@code tamano} es el número de ventas; hay {@code tamano / 10} clientes y
+ * {@code tamano / 100} motos (al menos 10 de cada). Con varios hilos ({@code -t N})
+ * hay que usar {@code implementacion=DatosConcurrentes}.</p>
+ * <p>Ejecución: {@code java -jar target/benchmarks.jar Datos -p tamano=1000,100000 -t 4
+ * -p implementacion=DatosConcurrentes}. Los resultados se guardan en JSON (ver {@link Suite}).</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DatosBenchmark {
+
+    /** Número de ventas del conjunto de datos. */
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int tamano;
+
+    /** Servicio medido. */
+    @Param({"Datos", "DatosConcurrentes"})
+    public String implementacion;
+
+    /**
+     * Muestreo de {@link Metricas} (0 para no activarlas). Para medir su coste:
+     * {@code -p muestreo=0,1,16}.
+     */
+    @Param({"0"})
+    public int muestreo;
+
+    private Datos datos;
+    private String[] dnis;
+    private String[] nombres;
+    private Moto[] motos;
+    private Venta[] ventas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random r = new Random(13);
+        datos = implementacion.equals("Datos") ? new Datos() : new DatosConcurrentes();
+        if (muestreo > 0) datos.setMetricas(new Metricas(muestreo));
+        List<Cliente> clientes = Catalogos.clientes(Math.max(10, tamano / 10), r);
+        for (Cliente c : clientes) datos.addCliente(c);
+        List<Moto> catalogo = Catalogos.motos(Math.max(10, tamano / 100), r);
+        for (Moto m : catalogo) {
+            m.anadirStock(1_000_000_000);      // suficiente para no agotarse durante la medida
+            datos.addMoto(m);
+        }
+        LocalDate inicio = LocalDate.of(2015, 1, 1);
+        ventas = new Venta[Math.min(tamano, 1 << 16)];
+        for (int i = 0; i < tamano; i++) {
+            List<Moto> sel = new ArrayList<>(2);
+            for (int k = 1 + r.nextInt(2); k > 0; k--) sel.add(catalogo.get(r.nextInt(catalogo.size())));
+            Venta v = new Venta(clientes.get(r.nextInt(clientes.size())), sel, inicio.plusDays(r.nextInt(3650)));
+            datos.addVenta(v);
+            if (i < ventas.length) ventas[i] = v;
+        }
+        dnis = new String[Math.min(clientes.size(), 1 << 16)];
+        for (int i = 0; i < dnis.length; i++) dnis[i] = clientes.get(r.nextInt(clientes.size())).getDni();
+        nombres = new String[dnis.length];
+        for (int i = 0; i < nombres.length; i++) nombres[i] = clientes.get(r.nextInt(clientes.size())).getNombre();
+        motos = catalogo.toArray(new Moto[0]);
+    }
+
+    private static int azar(int n) { return ThreadLocalRandom.current().nextInt(n); }
+
+    @Benchmark
+    public Cliente buscarClientePorDni() { return datos.buscarClientePorDni(dnis[azar(dnis.length)]); }
+
+    @Benchmark
+    public List<Moto> buscarMotosPorTexto() { return datos.buscarMotosPorTexto("xsr 7"); }
+
+    @Benchmark
+    public List<Venta> ventasPorDni() { return datos.ventasPorDni(dnis[azar(dnis.length)]); }
+
+    @Benchmark
+    public double totalVentas() { return datos.totalVentas(); }
+
+    @Benchmark
+    public boolean descontarStock() { return datos.descontarStock(List.of(motos[azar(motos.length)])); }
+
+    /** Selección de 1 a 3 motos, con repetidos (las de varias motos se aplican de una en una). */
+    @Benchmark
+    public boolean descontarStockVarias() {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        List<Moto> sel = new ArrayList<>(3);
+        for (int k = 1 + r.nextInt(3); k > 0; k--) sel.add(motos[r.nextInt(motos.length)]);
+        return datos.descontarStock(sel);
+    }
+
+    @Benchmark
+    public boolean reservarYCancelar() {
+        Reserva r = datos.reservar(motos[azar(motos.length)], 1);
+        return datos.cancelarReserva(r);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Cliente> clientesOrdenadosPorNombre() { return datos.clientesOrdenadosPorNombre(); }
+
+    @Benchmark
+    public Pagina<Cliente> paginaClientesPorNombre() {
+        return datos.paginaClientesPorNombre(Cursor.desde(nombres[azar(nombres.length)]), 50);
+    }
+
+    @Benchmark
+    public double ventaGetImporte() { return ventas[azar(ventas.length)].getImporte(); }
+}
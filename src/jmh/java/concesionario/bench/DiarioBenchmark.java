@@ -0,0 +1,75 @@
+package concesionario.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import concesionario.modelo.Moto;
+import concesionario.servicio.DatosConcurrentes;
+import concesionario.servicio.Diario;
+
+/**
+ * Modificaciones por segundo con el diario activo: reposiciones de stock anotadas
+ * desde 8 hilos, con durabilidad síncrona (group commit) y asíncrona.
+ * <p>Ejecución: {@code java -jar target/benchmarks.jar Diario}</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class DiarioBenchmark {
+
+    @Param({"SINCRONA", "ASINCRONA"})
+    public Diario.Durabilidad durabilidad;
+
+    private Path fichero;
+    private Diario diario;
+    private DatosConcurrentes datos;
+    private int motos;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        fichero = Files.createTempFile("concesionario", ".diario");
+        diario = Diario.abrir(fichero, durabilidad);
+        datos = new DatosConcurrentes();
+        datos.setDiario(diario);
+        for (Moto m : Catalogos.motos(1000, new Random(5))) datos.addMoto(m);
+        motos = datos.getMotos().size();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        diario.close();
+        Files.deleteIfExists(fichero);
+    }
+
+    @Benchmark
+    public boolean reponerStock() {
+        int idx = ThreadLocalRandom.current().nextInt(motos);
+        return datos.reponerStockPorIndice(idx, 1);
+    }
+
+}
@@ -0,0 +1,73 @@
+package concesionario.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import concesionario.modelo.Moto;
+import concesionario.servicio.BusEventos;
+import concesionario.servicio.DatosConcurrentes;
+
+/**
+ * Coste de publicar en un {@link BusEventos} en el camino de una venta: el descuento de
+ * stock de {@link DatosConcurrentes} sin bus y con bus (con o sin suscriptores).
+ * <p>Ejecución: {@code java -jar target/benchmarks.jar Eventos -t 4 -prof gc}. Con
+ * {@code -prof gc}, {@code gc.alloc.rate.norm} debe ser igual con y sin bus.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventosBenchmark {
+
+    /** Suscriptores del bus (-1: sin bus). */
+    @Param({"-1", "0", "1"})
+    public int suscriptores;
+
+    private DatosConcurrentes datos;
+    private BusEventos bus;
+    private List<Moto> seleccion;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        datos = new DatosConcurrentes();
+        Moto m = new Moto("Honda", "CL500", 6790.00, 0);
+        m.anadirStock(Integer.MAX_VALUE / 2);     // suficiente para no agotarse durante la medida
+        datos.addMoto(m);
+        seleccion = List.of(m);
+        if (suscriptores < 0) return;
+        bus = new BusEventos(1 << 16);
+        datos.setBusEventos(bus);
+        for (int i = 0; i < suscriptores; i++) {
+            bus.suscribir("suscriptor-" + i, (e, fin) -> Blackhole.consumeCPU(1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        if (bus == null) return;
+        bus.close();
+        System.out.println("publicados: " + bus.getPublicados() + ", descartados: " + bus.getDescartados());
+    }
+
+    @Benchmark
+    public boolean descontarStock() { return datos.descontarStock(seleccion); }
+}
@@ -0,0 +1,84 @@
+package concesionario.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+import concesionario.servicio.Datos;
+import concesionario.servicio.Instantanea;
+
+/**
+ * Tiempo de arranque cargando una instantánea con millones de ventas.
+ * <p>Ejecución: {@code java -Xmx4g -jar target/benchmarks.jar Instantanea}</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InstantaneaBenchmark {
+
+    /** Número de ventas de la instantánea. */
+    @Param({"5000000"})
+    public int ventas;
+
+    private Path fichero;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        Random r = new Random(11);
+        Datos datos = new Datos();
+        List<Cliente> clientes = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            Cliente c = new Cliente("Cliente " + i, String.format("%08dX", i), "600000000", "c" + i + "@ex.com");
+            clientes.add(c);
+            datos.addCliente(c);
+        }
+        List<Moto> motos = Catalogos.motos(10_000, r);
+        for (Moto m : motos) datos.addMoto(m);
+        LocalDate inicio = LocalDate.of(2015, 1, 1);
+        for (int i = 0; i < ventas; i++) {
+            int n = 1 + r.nextInt(2);
+            List<Moto> sel = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) sel.add(motos.get(r.nextInt(motos.size())));
+            datos.addVenta(new Venta(clientes.get(r.nextInt(clientes.size())), sel, inicio.plusDays(r.nextInt(3650))));
+        }
+        fichero = Files.createTempFile("concesionario", ".inst");
+        Instantanea.escribir(datos, fichero);
+    }
+
+    @TearDown(Level.Trial)
+    public void borrar() throws IOException { Files.deleteIfExists(fichero); }
+
+    @Benchmark
+    public Datos cargar() throws IOException {
+        Datos datos = new Datos();
+        Instantanea.cargar(fichero, datos);
+        return datos;
+    }
+}
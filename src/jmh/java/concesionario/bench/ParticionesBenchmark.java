@@ -0,0 +1,106 @@
+package concesionario.bench;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+import concesionario.servicio.DatosParticionados;
+import concesionario.servicio.Resumen;
+
+/**
+ * {@link DatosParticionados} con distinto número de particiones: altas de ventas y
+ * consultas de un cliente (una sola partición) y recorridos de todas las ventas (en
+ * paralelo). Con {@code particiones=1} equivale a un único {@code DatosConcurrentes}.
+ * <p>Ejecución: {@code java -jar target/benchmarks.jar Particiones -t 8 -p particiones=1,8}
+ * (el número de hilos y de particiones debería acercarse al de procesadores).</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParticionesBenchmark {
+
+    /** Número de particiones. */
+    @Param({"1", "4"})
+    public int particiones;
+
+    /** Número de ventas cargadas antes de medir. */
+    @Param({"1000000"})
+    public int ventas;
+
+    private DatosParticionados datos;
+    private Cliente[] clientes;
+    private Moto[] motos;
+    private final LocalDate desde = LocalDate.of(2018, 1, 1);
+    private final LocalDate hasta = LocalDate.of(2019, 12, 31);
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random r = new Random(23);
+        datos = new DatosParticionados(particiones);
+        List<Cliente> lista = Catalogos.clientes(Math.max(10, ventas / 10), r);
+        for (Cliente c : lista) datos.addCliente(c);
+        List<Moto> catalogo = Catalogos.motos(1000, r);
+        for (Moto m : catalogo) datos.addMoto(m);
+        LocalDate inicio = LocalDate.of(2015, 1, 1);
+        for (int i = 0; i < ventas; i++) {
+            List<Moto> sel = new ArrayList<>(2);
+            for (int k = 1 + r.nextInt(2); k > 0; k--) sel.add(catalogo.get(r.nextInt(catalogo.size())));
+            datos.addVenta(new Venta(lista.get(r.nextInt(lista.size())), sel, inicio.plusDays(r.nextInt(3650))));
+        }
+        clientes = lista.toArray(new Cliente[0]);
+        motos = catalogo.toArray(new Moto[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() { datos.close(); }
+
+    private static int azar(int n) { return ThreadLocalRandom.current().nextInt(n); }
+
+    @Benchmark
+    public void addVenta() {
+        datos.addVenta(new Venta(clientes[azar(clientes.length)], List.of(motos[azar(motos.length)]), LocalDate.of(2024, 6, 1)));
+    }
+
+    @Benchmark
+    public int ventasPorDni() { return datos.ventasPorDni(clientes[azar(clientes.length)].getDni()).size(); }
+
+    @Benchmark
+    public long totalVentas() { return datos.totalVentasCentimos(); }
+
+    @Benchmark
+    public Resumen resumenVentasEntre() { return datos.resumenVentasEntre(desde, hasta); }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long[] unidadesPorMoto() { return datos.unidadesPorMoto(desde, hasta); }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Map<String, Long> totalesPorCliente() { return datos.totalesPorClienteCentimos(desde, hasta); }
+}
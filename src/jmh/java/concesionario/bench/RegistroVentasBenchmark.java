@@ -0,0 +1,105 @@
+package concesionario.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+import concesionario.servicio.DatosConcurrentes;
+import concesionario.servicio.Diario;
+import concesionario.servicio.PeticionVenta;
+
+/**
+ * Ventas por segundo al subir un lote de {@value #LOTE} ventas: una a una
+ * ({@code descontarStock} + {@code addVenta}) frente a {@code registrarVentas}.
+ * Sin diario y con diario síncrono (donde el lote comparte un único fsync).
+ * <p>Ejecución: {@code java -jar target/benchmarks.jar RegistroVentas}</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistroVentasBenchmark {
+    private static final int LOTE = 100;
+
+    /** {@code NINGUNO} o una {@link Diario.Durabilidad}. */
+    @Param({"NINGUNO", "SINCRONA"})
+    public String diario;
+
+    private Path fichero;
+    private Diario abierto;
+    private DatosConcurrentes datos;
+    private final List<PeticionVenta> lote = new ArrayList<>();
+
+    @Setup(Level.Iteration)
+    public void preparar() throws IOException {
+        datos = new DatosConcurrentes();
+        if (!diario.equals("NINGUNO")) {
+            fichero = Files.createTempFile("concesionario", ".diario");
+            abierto = Diario.abrir(fichero, Diario.Durabilidad.valueOf(diario));
+            datos.setDiario(abierto);
+        }
+        Random r = new Random(3);
+        List<Moto> motos = Catalogos.motos(1000, r);
+        for (Moto m : motos) {
+            m.anadirStock(1_000_000_000);
+            datos.addMoto(m);
+        }
+        Cliente cliente = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        datos.addCliente(cliente);
+        lote.clear();
+        for (int i = 0; i < LOTE; i++) {
+            List<Moto> sel = new ArrayList<>();
+            for (int k = 1 + r.nextInt(3); k > 0; k--) sel.add(motos.get(r.nextInt(motos.size())));
+            lote.add(new PeticionVenta(cliente, sel));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void cerrar() throws IOException {
+        if (abierto != null) abierto.close();
+        if (fichero != null) Files.deleteIfExists(fichero);
+        abierto = null;
+        fichero = null;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public void unaAUna(Blackhole bh) {
+        for (PeticionVenta p : lote) {
+            if (datos.descontarStock(p.getMotos())) datos.addVenta(new Venta(p.getCliente(), p.getMotos()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public void enLote(Blackhole bh) {
+        bh.consume(datos.registrarVentas(lote));
+    }
+}
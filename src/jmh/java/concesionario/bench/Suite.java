@@ -0,0 +1,47 @@
+package concesionario.bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de {@code benchmarks.jar}: acepta las mismas opciones que JMH pero,
+ * si no se indica {@code -rf}, guarda los resultados en JSON en
+ * {@value #RESULTADOS} para poder compararlos entre versiones.
+ * <p>Ejemplos: {@code java -jar target/benchmarks.jar} (toda la suite),
+ * {@code java -jar target/benchmarks.jar Datos -t 8 -rff datos-8h.json}.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Suite {
+    private static final String RESULTADOS = "jmh-resultados.json";
+
+    private Suite() { }
+
+    /**
+     * @param args opciones de línea de comandos de JMH
+     * @throws RunnerException si falla la ejecución de los benchmarks
+     * @throws CommandLineOptionException si las opciones no son válidas
+     * @throws IOException si falla el listado de benchmarks o de opciones
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams()
+                || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        OptionsBuilder opciones = new OptionsBuilder();
+        opciones.parent(cli);
+        if (!cli.getResultFormat().hasValue()) opciones.resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue()) opciones.result(RESULTADOS);
+        Options o = opciones.build();
+        new Runner(o).run();
+    }
+}
@@ -0,0 +1,87 @@
+package concesionario.bench;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import concesionario.modelo.Dinero;
+
+/**
+ * Suma de importes con {@code double} (camino anterior), con céntimos en {@code long}
+ * y con {@link BigDecimal} (la conciliación que se hacía después).
+ * <p>Al terminar cada prueba se imprime la desviación del {@code double} respecto
+ * a la suma exacta en céntimos.</p>
+ * <p>Ejecución: {@code java -jar target/benchmarks.jar SumaImportes}</p>
+ * @author Víctor
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SumaImportesBenchmark {
+
+    /** Número de importes sumados en cada operación. */
+    @Param({"1000000", "10000000"})
+    public int tamano;
+
+    private double[] euros;
+    private long[] centimos;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random r = new Random(3);
+        euros = new double[tamano];
+        centimos = new long[tamano];
+        for (int i = 0; i < tamano; i++) {
+            centimos[i] = 300_000 + r.nextInt(2_000_000);
+            euros[i] = centimos[i] / 100.0;
+        }
+    }
+
+    @Benchmark
+    public double sumaDouble() {
+        double t = 0.0;
+        for (double e : euros) t += e;
+        return t;
+    }
+
+    @Benchmark
+    public long sumaCentimos() {
+        long t = 0;
+        for (long c : centimos) t += c;
+        return t;
+    }
+
+    @Benchmark
+    public BigDecimal sumaBigDecimal() {
+        BigDecimal t = BigDecimal.ZERO;
+        for (double e : euros) t = t.add(BigDecimal.valueOf(e));
+        return t;
+    }
+
+    @TearDown(Level.Trial)
+    public void informarExactitud() {
+        long exacto = sumaCentimos();
+        BigDecimal conDouble = new BigDecimal(sumaDouble());
+        BigDecimal desviacion = conDouble.subtract(BigDecimal.valueOf(exacto, 2));
+        System.out.println("\nSuma exacta: " + Dinero.formatear(exacto) + " €, con double: "
+                + conDouble.toPlainString() + " € (desviación " + desviacion.toPlainString() + " €)");
+    }
+}
@@ -1,11 +1,34 @@
 package concesionario;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import javax.management.JMException;
 
 import concesionario.modelo.Cliente;
+import concesionario.modelo.Dinero;
 import concesionario.modelo.Moto;
 import concesionario.modelo.Venta;
-import concesionario.servicio.Datos;
+import concesionario.http.ServidorHttp;
+import concesionario.servicio.Cursor;
+import concesionario.servicio.DatosConcurrentes;
+import concesionario.servicio.Diario;
+import concesionario.servicio.ExportadorVentas;
+import concesionario.servicio.ImportadorCsv;
+import concesionario.servicio.Instantanea;
+import concesionario.servicio.Metricas;
+import concesionario.servicio.Pagina;
+import concesionario.servicio.Replica;
+import concesionario.servicio.Reserva;
+import concesionario.servicio.ServidorReplicacion;
 
 /**
  * Aplicación de consola para la gestión del concesionario.
@@ -17,14 +40,150 @@ import concesionario.servicio.Datos;
  */
 public class Main {
     private static final Scanner sc = new Scanner(System.in);
-    private static final Datos datos = new Datos();
+    private static final DatosConcurrentes datos = new DatosConcurrentes();
+    private static final StringBuilder salida = new StringBuilder(8192);
+    private static int tamanoPagina = 20;
 
     /**
      * Punto de entrada del programa. Ejecuta el bucle del menú principal
      * hasta que el usuario elige la opción de salida.
-     * @param args argumentos de línea de comandos (no usados)
+     * <p>Con {@code --diario <fichero>} los datos se guardan en un diario y se
+     * recuperan al volver a arrancar. Con {@code --instantanea <fichero>} además se
+     * carga la instantánea al arrancar (si existe), se aplica solo la cola del diario
+     * y se guarda una instantánea nueva al salir. Con {@code --importar-clientes <csv>} y
+     * {@code --importar-motos <csv>} se importan esos ficheros antes de mostrar el menú.
+     * Con {@code --servidor <puerto>} se atiende además la API HTTP mientras el menú
+     * sigue disponible en la consola. Con {@code --metricas <muestreo>} se miden las
+     * operaciones del servicio (una de cada {@code muestreo} llamadas) y se publican por
+     * JMX; al salir se muestra un resumen. Con {@code --pagina <filas>} se cambia el
+     * número de filas por página de los listados (20 por defecto).</p>
+     * <p>Con {@code --replicacion <puerto>} (junto con {@code --diario}) se envía el diario
+     * a las réplicas que se conecten. Con {@code --replica <host:puerto>} el programa
+     * arranca como réplica de ese primario: no muestra el menú, solo su estado, y con
+     * {@code --servidor} atiende la API HTTP en modo de solo lectura.</p>
+     * @param args argumentos de línea de comandos
+     * @throws IOException si no se puede abrir o leer el diario o la instantánea
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        Path rutaDiario = null;
+        Path rutaInstantanea = null;
+        Path importarClientes = null;
+        Path importarMotos = null;
+        int puerto = -1;
+        int puertoReplicacion = -1;
+        String primario = null;
+        int muestreo = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--diario")) rutaDiario = Path.of(args[i + 1]);
+            else if (args[i].equals("--instantanea")) rutaInstantanea = Path.of(args[i + 1]);
+            else if (args[i].equals("--importar-clientes")) importarClientes = Path.of(args[i + 1]);
+            else if (args[i].equals("--importar-motos")) importarMotos = Path.of(args[i + 1]);
+            else if (args[i].equals("--servidor")) puerto = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--metricas")) muestreo = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--pagina")) tamanoPagina = Math.max(1, Integer.parseInt(args[i + 1]));
+            else if (args[i].equals("--replicacion")) puertoReplicacion = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--replica")) primario = args[i + 1];
+        }
+        if (primario != null) {
+            ejecutarReplica(primario, puerto);
+            return;
+        }
+        long desde = 0;
+        if (rutaInstantanea != null && Files.exists(rutaInstantanea)) {
+            desde = Instantanea.cargar(rutaInstantanea, datos);
+            System.out.println("Instantánea cargada: " + datos.getVentas().size() + " ventas.");
+        }
+        Diario diario = null;
+        if (rutaDiario != null) {
+            diario = Diario.abrir(rutaDiario);
+            long n = diario.reproducir(datos, desde);
+            datos.setDiario(diario);
+            System.out.println("Diario cargado: " + n + " operaciones recuperadas.");
+        }
+        if (muestreo > 0) {
+            Metricas metricas = new Metricas(muestreo);
+            datos.setMetricas(metricas);
+            try {
+                metricas.registrarJmx();
+            } catch (JMException e) {
+                System.out.println("No se pudieron publicar las métricas por JMX: " + e.getMessage());
+            }
+        }
+        ServidorHttp servidor = null;
+        ServidorReplicacion replicacion = null;
+        datos.iniciarCaducidadReservas(Duration.ofSeconds(1));
+        try {
+            if (puertoReplicacion >= 0) {
+                if (diario == null) {
+                    System.out.println("La replicación necesita --diario; no se inicia.");
+                } else {
+                    replicacion = ServidorReplicacion.iniciar(diario, puertoReplicacion);
+                    System.out.println("Replicación escuchando en el puerto " + replicacion.getPuerto() + ".");
+                }
+            }
+            ImportadorCsv importador = new ImportadorCsv(datos);
+            if (importarClientes != null) informarImportacion("Clientes", importador.importarClientes(importarClientes));
+            if (importarMotos != null) informarImportacion("Motos", importador.importarMotos(importarMotos));
+            if (puerto >= 0) {
+                servidor = ServidorHttp.iniciar(datos, puerto);
+                System.out.println("API HTTP escuchando en http://localhost:" + servidor.getPuerto() + "/");
+            }
+            bucleMenuPrincipal();
+            if (servidor != null) {
+                servidor.close();
+                servidor = null;
+            }
+            if (rutaInstantanea != null) Instantanea.escribir(datos, rutaInstantanea);
+            if (datos.getMetricas().isActivas()) System.out.print("Métricas:\n" + datos.getMetricas());
+        } finally {
+            datos.detenerCaducidadReservas();
+            if (servidor != null) servidor.close();
+            if (replicacion != null) replicacion.close();
+            if (diario != null) diario.close();
+        }
+    }
+
+    /**
+     * Modo réplica: aplica el diario del primario y atiende consultas hasta que se pulsa
+     * {@code q}. Cada Enter muestra el estado de la replicación.
+     */
+    private static void ejecutarReplica(String primario, int puerto) throws IOException {
+        int dosPuntos = primario.lastIndexOf(':');
+        if (dosPuntos < 0) {
+            System.out.println("Formato de --replica no válido (host:puerto).");
+            return;
+        }
+        String host = primario.substring(0, dosPuntos);
+        int puertoPrimario = Integer.parseInt(primario.substring(dosPuntos + 1));
+        ServidorHttp servidor = null;
+        try (Replica replica = Replica.iniciar(datos, host, puertoPrimario)) {
+            if (puerto >= 0) {
+                servidor = ServidorHttp.iniciarSoloLectura(datos, puerto);
+                System.out.println("API HTTP (solo lectura) escuchando en http://localhost:" + servidor.getPuerto() + "/");
+            }
+            String linea;
+            do {
+                System.out.println("Réplica de " + primario + (replica.isConectada() ? " (conectada)" : " (sin conexión)")
+                        + ": LSN " + replica.getLsnAplicado() + " de " + replica.getLsnPrimario()
+                        + ", retraso " + replica.getRetrasoRegistros() + " registros / " + replica.getRetrasoMillis() + " ms.");
+                if (replica.getError() != null) System.out.println("Detenida: " + replica.getError());
+                System.out.print("Enter: actualizar, q: salir ");
+                linea = sc.hasNextLine() ? sc.nextLine().trim() : "q";
+            } while (!linea.equalsIgnoreCase("q"));
+        } finally {
+            if (servidor != null) servidor.close();
+        }
+    }
+
+    private static void informarImportacion(String que, ImportadorCsv.Resultado r) {
+        System.out.println(que + " importados: " + r);
+        for (ImportadorCsv.ErrorFila e : r.getErrores()) System.out.println("  " + e);
+        if (r.getErroneas() > r.getErrores().size()) {
+            System.out.println("  ... y " + (r.getErroneas() - r.getErrores().size()) + " errores más.");
+        }
+    }
+
+    private static void bucleMenuPrincipal() {
         int opcion;
         do {
             imprimirMenuPrincipal();
@@ -77,6 +236,7 @@ public class Main {
         System.out.println("2. Listado de Ventas");
         System.out.println("3. Búsqueda por Cliente");
         System.out.println("4. Mostrar Totales Ventas");
+        System.out.println("5. Exportar Ventas (CSV/JSONL)");
         System.out.println("0. Volver al Menú Principal");
     }
 
@@ -124,6 +284,7 @@ public class Main {
                 case 2 -> listarVentas();
                 case 3 -> buscarVentas();
                 case 4 -> mostrarTotalesVentas();
+                case 5 -> exportarVentas();
                 case 0 -> { return; }
                 default -> System.out.println("Opción no válida.");
             }
@@ -134,43 +295,71 @@ public class Main {
     // --- Listados ---
 
     private static void listarClientes() {
-        List<Cliente> lista = datos.getClientes();
-        if (lista.isEmpty()) {
-            System.out.println("\nNo hay clientes.");
-            esperarEnter();
-            return;
-        }
-        System.out.println("\nClientes:");
-        for (int i = 0; i < lista.size(); i++) {
-            System.out.println((i + 1) + ") " + lista.get(i));
-        }
+        listarPaginado("Clientes:", "\nNo hay clientes.", datos::paginaClientes,
+                (sb, c) -> sb.append(c), null);
     }
 
     private static void listarMotos() {
-        List<Moto> lista = datos.getMotos();
-        if (lista.isEmpty()) {
-            System.out.println("\nNo hay motos.");
-            esperarEnter();
-            return;
-        }
-        System.out.println("\nMotos:");
-        for (int i = 0; i < lista.size(); i++) {
-            System.out.println((i + 1) + ") " + vistaMotoConStock(lista.get(i)));
-        }
+        listarPaginado("Motos:", "\nNo hay motos.", datos::paginaMotos, Main::anadirMotoConStock, null);
     }
 
     private static void listarVentas() {
-        List<Venta> lv = datos.getVentas();
-        if (lv.isEmpty()) {
-            System.out.println("No hay ventas registradas.");
+        listarPaginado("Ventas:", "No hay ventas registradas.", datos::paginaVentas,
+                (sb, v) -> sb.append(v), null);
+    }
+
+    /**
+     * Muestra un listado por páginas de {@code tamanoPagina} filas. Cada página se
+     * compone en un único {@link StringBuilder} reutilizado y se escribe de una vez.
+     * @param titulo cabecera del listado
+     * @param vacio  mensaje si no hay elementos
+     * @param leer   lectura de una página a partir de un cursor
+     * @param fila   escritura de un elemento en el buffer
+     * @param pie    línea final de cada página (o {@code null})
+     */
+    private static <T> void listarPaginado(String titulo, String vacio, BiFunction<Cursor, Integer, Pagina<T>> leer,
+                                           BiConsumer<StringBuilder, T> fila, String pie) {
+        Pagina<T> pagina = leer.apply(null, tamanoPagina);
+        if (pagina.getElementos().isEmpty()) {
+            System.out.println(vacio);
             esperarEnter();
             return;
         }
-        System.out.println("\nVentas:");
-        for (int i = 0; i < lv.size(); i++) {
-            System.out.println((i + 1) + ") " + lv.get(i));
+        long primero = 1;    // número de la primera fila de la página
+        while (true) {
+            salida.setLength(0);
+            salida.append('\n').append(titulo).append('\n');
+            List<T> elementos = pagina.getElementos();
+            for (int i = 0; i < elementos.size(); i++) {
+                salida.append(primero + i).append(") ");
+                fila.accept(salida, elementos.get(i));
+                salida.append('\n');
+            }
+            if (pie != null) salida.append(pie).append('\n');
+            if (!pagina.hayAnterior() && !pagina.haySiguiente()) {
+                System.out.print(salida);
+                esperarEnter();
+                return;
+            }
+            salida.append('[');
+            if (pagina.haySiguiente()) salida.append("Enter: siguiente  ");
+            if (pagina.hayAnterior()) salida.append("a: anterior  ");
+            salida.append("q: salir] ");
+            System.out.print(salida);
+            System.out.flush();
+
+            String orden = sc.nextLine().trim().toLowerCase();
+            if (orden.equals("q")) return;
+            if (orden.equals("a") && pagina.hayAnterior()) {
+                pagina = leer.apply(pagina.getAnterior(), tamanoPagina);
+                primero = pagina.hayAnterior() ? Math.max(1, primero - pagina.getElementos().size()) : 1;
+            } else if (orden.isEmpty() && pagina.haySiguiente()) {
+                primero += elementos.size();
+                pagina = leer.apply(pagina.getSiguiente(), tamanoPagina);
+            } else if (orden.isEmpty()) {
+                return;      // Enter en la última página
+            }
         }
-        esperarEnter();
     }
 
     // --- Altas ---
@@ -197,10 +386,10 @@ public class Main {
         System.out.println("\n=== ALTA MOTO ===");
         String marca  = leerTextoNoVacio("Marca: ");
         String modelo = leerTextoNoVacio("Modelo: ");
-        double precio = leerPrecio();
+        long precio = leerPrecio();
         int stock = leerStockInicial();
 
-        datos.addMoto(new Moto(marca, modelo, precio, stock));
+        datos.addMoto(Moto.deCentimos(marca, modelo, precio, stock));
         System.out.println("Moto añadida correctamente.");
         esperarEnter();
     }
@@ -219,7 +408,7 @@ public class Main {
         int idx = leerIndiceValido("Elige cliente a eliminar (1-" + lista.size() + "): ", lista.size());
         Cliente c = lista.get(idx);
 
-        if (!datos.ventasPorDni(c.getDni()).isEmpty()) {
+        if (datos.tieneVentas(c.getDni())) {
             System.out.println("No se puede borrar: el cliente tiene ventas registradas.");
             esperarEnter();
             return;
@@ -227,14 +416,13 @@ public class Main {
 
         String conf = leerTextoNoVacio("Confirmar borrado de '" + c + "' (s/n): ");
         if (conf.equalsIgnoreCase("s")) {
-            boolean ok = datos.removeClientePorIndice(idx);
-            if (ok) {
-                System.out.println("Cliente eliminado.");
-                esperarEnter();
-            } else {
-                System.out.println("No se pudo eliminar.");
-                esperarEnter();
+            // se comprueba de nuevo al borrar: la API HTTP puede haberle registrado una venta
+            switch (datos.removeClienteSinVentas(c.getDni())) {
+                case ELIMINADO -> System.out.println("Cliente eliminado.");
+                case CON_VENTAS -> System.out.println("No se puede borrar: el cliente tiene ventas registradas.");
+                case NO_EXISTE -> System.out.println("No se pudo eliminar.");
             }
+            esperarEnter();
         } else {
             System.out.println("Operación cancelada.");
             esperarEnter();
@@ -260,9 +448,7 @@ public class Main {
         String nuevoTel    = leerTextoOpcional("Teléfono (" + c.getTelefono() + "): ");
         String nuevoEmail  = leerTextoOpcional("Email (" + c.getEmail() + "): ");
 
-        if (!nuevoNombre.isEmpty()) c.setNombre(nuevoNombre);
-        if (!nuevoTel.isEmpty())    c.setTelefono(nuevoTel);
-        if (!nuevoEmail.isEmpty())  c.setEmail(nuevoEmail);
+        datos.modificarCliente(c, nuevoNombre, nuevoTel, nuevoEmail);
 
         System.out.println("Cliente actualizado.");
         esperarEnter();
@@ -305,14 +491,29 @@ public class Main {
             esperarEnter();
             return;
         }
-        double subtotal = 0.0;
         System.out.println("\nVentas del cliente " + dni + ":");
         for (int i = 0; i < res.size(); i++) {
-            Venta v = res.get(i);
-            subtotal += v.getImporte();
-            System.out.println((i + 1) + ") " + v);
+            System.out.println((i + 1) + ") " + res.get(i));
+        }
+        System.out.println("Subtotal del cliente: " + Dinero.formatear(datos.totalVentasClienteCentimos(dni)) + " €");
+        esperarEnter();
+    }
+
+    private static void exportarVentas() {
+        System.out.println("\n=== EXPORTAR VENTAS ===");
+        String fichero = leerTextoNoVacio("Fichero de destino (.csv o .jsonl): ");
+        var exportador = new ExportadorVentas(datos);
+        if (fichero.toLowerCase(Locale.ROOT).endsWith(".jsonl")) exportador.formato(ExportadorVentas.Formato.JSONL);
+        String dni = leerTextoOpcional("DNI del cliente (vacío = todos): ");
+        if (!dni.isEmpty()) exportador.cliente(dni);
+        exportador.entre(leerFechaOpcional("Desde (aaaa-mm-dd, vacío = sin límite): "),
+                leerFechaOpcional("Hasta (aaaa-mm-dd, vacío = sin límite): "));
+        try {
+            long n = exportador.exportar(Path.of(fichero));
+            System.out.println(n + " ventas exportadas a " + fichero + ".");
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("No se pudo exportar: " + e.getMessage());
         }
-        System.out.printf("Subtotal del cliente: %.2f €%n", subtotal);
         esperarEnter();
     }
 
@@ -339,95 +540,85 @@ public class Main {
         int idxCliente = leerIndiceValido("\nElige cliente (1-" + lc.size() + "): ", lc.size());
         Cliente c = lc.get(idxCliente);
 
-        // Selección MÚLTIPLE
-        ArrayList<Moto> elegidas = seleccionarMotos();
+        // Selección MÚLTIPLE: cada moto elegida queda reservada hasta confirmar o cancelar
+        List<Reserva> reservas = seleccionarMotos();
 
         // Confirmación de la venta con resumen
         System.out.println("\nResumen de la venta:");
-        for (int i = 0; i < elegidas.size(); i++) {
-            System.out.println((i + 1) + ") " + elegidas.get(i));
+        long total = 0;
+        for (int i = 0; i < reservas.size(); i++) {
+            Reserva r = reservas.get(i);
+            System.out.println((i + 1) + ") " + r.getUnidades() + " x " + r.getMoto());
+            total += r.getUnidades() * r.getMoto().getPrecioCentimos();
         }
-        System.out.printf("TOTAL: %.2f €%n", sumaPrecios(elegidas));
+        System.out.println("TOTAL: " + Dinero.formatear(total) + " €");
         String conf = leerTextoNoVacio("Confirmar venta (s/n): ");
         if (!conf.equalsIgnoreCase("s")) {
+            for (Reserva r : reservas) datos.cancelarReserva(r);
             System.out.println("Operación cancelada.");
             esperarEnter();
             return;
         }
 
-        if (!datos.descontarStock(elegidas)) {
-            System.out.println("Stock insuficiente. No se ha registrado la venta.");
+        Venta v = datos.confirmarReservas(c, reservas);
+        if (v == null) {
+            for (Reserva r : reservas) datos.cancelarReserva(r);
+            System.out.println("Alguna reserva ha caducado. No se ha registrado la venta.");
             return;
         }
 
-        Venta v = new Venta(c, elegidas);
-        datos.addVenta(v);
-
         System.out.println("\nVenta registrada:");
         System.out.println(" - " + v);
         esperarEnter();
     }
 
-    private static String resumenVentaSinImporte(Venta v) {
-        return String.format("%s compró %d moto(s) el %s", v.getCliente().getNombre(), v.getMotos().size(), v.getFecha());
-    }
-
     private static void mostrarTotalesVentas() {
-        List<Venta> lv = datos.getVentas();
-        if (lv.isEmpty()) {
-            System.out.println("No hay ventas registradas.");
-            esperarEnter();
-            return;
-        }
-
-        System.out.println("\nImporte de cada venta:");
-        for (int i = 0; i < lv.size(); i++) {
-            Venta v = lv.get(i);
-            System.out.printf("%d) %.2f € — %s%n",
-                    i + 1, v.getImporte(), resumenVentaSinImporte(v));
-        }
-
-        double total = datos.totalVentas();
-        System.out.printf("TOTAL acumulado: %.2f €%n", total);
-        esperarEnter();
+        String total = "TOTAL acumulado: " + Dinero.formatear(datos.totalVentasCentimos()) + " €";
+        listarPaginado("Importe de cada venta:", "No hay ventas registradas.", datos::paginaVentas,
+                (sb, v) -> Dinero.anadir(sb, v.getImporteCentimos()).append(" € — ").append(v.getCliente().getNombre())
+                        .append(" compró ").append(v.getMotos().size()).append(" moto(s) el ").append(v.getFecha()),
+                total);
     }
 
-    private static ArrayList<Moto> seleccionarMotos() {
+    private static List<Reserva> seleccionarMotos() {
         List<Moto> lm = datos.getMotos();
-        ArrayList<Moto> elegidas = new ArrayList<>();
-        Map<Moto, Integer> parciales = new HashMap<>();
+        List<Reserva> reservas = new ArrayList<>();
+        long subtotal = 0;
 
         System.out.println("\nSelecciona una o más motos. Escribe 0 para terminar.");
         while (true) {
             for (int i = 0; i < lm.size(); i++) {
                 Moto m = lm.get(i);
-                int ya = parciales.getOrDefault(m, 0);
-                int disp = m.getStock() - ya;
-                System.out.println((i + 1) + ") " + vistaMotoConStock(m) + "  -> disp. para añadir ahora: " + disp);
+                System.out.println((i + 1) + ") " + vistaMotoConStock(m) + "  -> disp. para añadir ahora: " + m.getStock());
             }
             int opt = leerEntero("Moto (0 para terminar): ");
             if (opt == 0) {
-                if (elegidas.isEmpty()) {
+                if (reservas.isEmpty()) {
                     System.out.println("Debes seleccionar al menos una moto.");
                     esperarEnter();
                 } else {
-                    return elegidas;
+                    return reservas;
                 }
             } else if (opt >= 1 && opt <= lm.size()) {
                 Moto m = lm.get(opt - 1);
-                int ya  = parciales.getOrDefault(m, 0);
-                int disp = m.getStock() - ya;
-                if (disp <= 0) {
+                if (m.getStock() <= 0) {
                     System.out.println("Sin stock disponible para añadir más de esta moto.");
                     esperarEnter();
                     continue;
                 }
-                int cant = leerCantidad(disp);
-
-                for (int i = 0; i < cant; i++) elegidas.add(m);
-                parciales.put(m, ya + cant);
+                int cant = leerCantidad(m.getStock());
+                Reserva r = datos.reservar(m, cant);
+                if (r == null) {                    // otro vendedor se ha llevado las unidades
+                    System.out.println("Ya no quedan " + cant + " unidades disponibles de esta moto.");
+                    esperarEnter();
+                    continue;
+                }
+                reservas.add(r);
+                subtotal += cant * m.getPrecioCentimos();
 
-                System.out.printf("Añadidas %d. Seleccionadas: %d, subtotal: %.2f €%n", cant, elegidas.size(), sumaPrecios(elegidas));
+                int unidades = 0;
+                for (Reserva x : reservas) unidades += x.getUnidades();
+                System.out.printf("Reservadas %d. Seleccionadas: %d, subtotal: %s €%n", cant, unidades, Dinero.formatear(subtotal));
             } else {
                 System.out.println("Índice fuera de rango.");
                 esperarEnter();
@@ -435,12 +626,6 @@ public class Main {
         }
     }
 
-    private static double sumaPrecios(List<Moto> lista) {
-        double t = 0.0;
-        for (Moto m : lista) t += m.getPrecio();
-        return t;
-    }
-
     // --- Stock ---
 
     private static void reponerStock() {
@@ -460,39 +645,26 @@ public class Main {
         esperarEnter();
     }
 
+    private static void anadirMotoConStock(StringBuilder sb, Moto m) {
+        sb.append(m.getMarca()).append(' ').append(m.getModelo()).append(" (");
+        Dinero.anadir(sb, m.getPrecioCentimos()).append(" €) [stock: ").append(m.getStock()).append(']');
+    }
+
     private static String vistaMotoConStock(Moto m) {
-        return String.format("%s %s (%.2f €) [stock: %d]",
-                m.getMarca(), m.getModelo(), m.getPrecio(), m.getStock());
+        return String.format("%s %s (%s €) [stock: %d]",
+                m.getMarca(), m.getModelo(), Dinero.formatear(m.getPrecioCentimos()), m.getStock());
     }
 
     // --- Ordenado ---
 
     private static void listarClientesOrdenados() {
-        List<Cliente> lista = datos.clientesOrdenadosPorNombre();
-        if (lista.isEmpty()) {
-            System.out.println("\nNo hay clientes.");
-            esperarEnter();
-            return;
-        }
-        System.out.println("\nClientes (ordenados por nombre):");
-        for (int i = 0; i < lista.size(); i++) {
-            System.out.println((i + 1) + ") " + lista.get(i));
-        }
-        esperarEnter();
+        listarPaginado("Clientes (ordenados por nombre):", "\nNo hay clientes.", datos::paginaClientesPorNombre,
+                (sb, c) -> sb.append(c), null);
     }
 
     private static void listarMotosOrdenadas() {
-        List<Moto> lista = datos.motosOrdenadasPorMarca();
-        if (lista.isEmpty()) {
-            System.out.println("\nNo hay motos.");
-            esperarEnter();
-            return;
-        }
-        System.out.println("\nMotos (ordenadas por marca):");
-        for (int i = 0; i < lista.size(); i++) {
-            System.out.println((i + 1) + ") " + vistaMotoConStock(lista.get(i)));
-        }
-        esperarEnter();
+        listarPaginado("Motos (ordenadas por marca):", "\nNo hay motos.", datos::paginaMotosPorMarca,
+                Main::anadirMotoConStock, null);
     }
 
     // --- Utilidades de lectura ---
@@ -545,16 +717,16 @@ public class Main {
         }
     }
 
-    private static double leerPrecio() {
+    private static long leerPrecio() {
         while (true) {
             System.out.print("Precio (€): ");
-            String s = sc.nextLine().trim().replace(',', '.');
+            String s = sc.nextLine().trim();
             try {
-                double v = Double.parseDouble(s);
+                long v = Dinero.parsear(s);
                 if (v >= 0) return v;
                 System.out.println("Debe ser un número >= 0.");
             } catch (NumberFormatException e) {
-                System.out.println("Introduce un número válido (ej. 7899.99).");
+                System.out.println("Introduce un número válido con hasta 2 decimales (ej. 7899.99).");
             }
         }
     }
@@ -564,6 +736,18 @@ public class Main {
         return sc.nextLine().trim();
     }
 
+    private static LocalDate leerFechaOpcional(String prompt) {
+        while (true) {
+            String s = leerTextoOpcional(prompt);
+            if (s.isEmpty()) return null;
+            try {
+                return LocalDate.parse(s);
+            } catch (DateTimeParseException e) {
+                System.out.println("Fecha no válida (ej. 2025-03-14).");
+            }
+        }
+    }
+
     private static int leerIndiceValido(String prompt, int size) {
         while (true) {
             int num = leerEntero(prompt);
@@ -0,0 +1,223 @@
+package concesionario.http;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON mínimo para la API HTTP: lectura de documentos pequeños y escritura sobre un
+ * {@link StringBuilder}.
+ * <p>La lectura devuelve {@link Map} (objetos, en orden), {@link List} (arrays),
+ * {@link String}, {@link Long} (números enteros), {@link Double} (resto de números),
+ * {@link Boolean} o {@code null}. Los objetos y arrays pueden anidarse hasta
+ * {@value #PROFUNDIDAD_MAXIMA} niveles; más se rechaza como texto no válido en lugar de
+ * agotar la pila del hilo.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+final class Json {
+    /** Niveles de objetos y arrays anidados que se aceptan al leer. */
+    static final int PROFUNDIDAD_MAXIMA = 64;
+
+    private final String texto;
+    private int pos;
+    private int profundidad;
+
+    private Json(String texto) { this.texto = texto; }
+
+    // Lectura
+
+    /**
+     * Lee un documento cuyo valor raíz debe ser un objeto.
+     * @param texto documento JSON
+     * @return objeto leído
+     * @throws IllegalArgumentException si el texto no es un objeto JSON válido
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> leerObjeto(String texto) {
+        Json p = new Json(texto);
+        p.espacios();
+        if (p.pos >= texto.length() || texto.charAt(p.pos) != '{') throw p.error("se esperaba un objeto");
+        Object valor = p.valor();
+        p.espacios();
+        if (p.pos != texto.length()) throw p.error("texto sobrante");
+        return (Map<String, Object>) valor;
+    }
+
+    private Object valor() {
+        espacios();
+        if (pos >= texto.length()) throw error("fin inesperado");
+        char ch = texto.charAt(pos);
+        if ((ch == '{' || ch == '[') && profundidad == PROFUNDIDAD_MAXIMA) throw error("demasiados niveles anidados");
+        return switch (ch) {
+            case '{' -> objeto();
+            case '[' -> array();
+            case '"' -> cadena();
+            case 't' -> literal("true", Boolean.TRUE);
+            case 'f' -> literal("false", Boolean.FALSE);
+            case 'n' -> literal("null", null);
+            default -> {
+                if (ch == '-' || (ch >= '0' && ch <= '9')) yield numero();
+                throw error("carácter inesperado '" + ch + "'");
+            }
+        };
+    }
+
+    private Map<String, Object> objeto() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        pos++;
+        profundidad++;
+        espacios();
+        if (consumir('}')) {
+            profundidad--;
+            return res;
+        }
+        do {
+            espacios();
+            if (pos >= texto.length() || texto.charAt(pos) != '"') throw error("se esperaba una clave");
+            String clave = cadena();
+            espacios();
+            if (!consumir(':')) throw error("se esperaba ':'");
+            res.put(clave, valor());
+            espacios();
+        } while (consumir(','));
+        if (!consumir('}')) throw error("se esperaba '}'");
+        profundidad--;
+        return res;
+    }
+
+    private List<Object> array() {
+        List<Object> res = new ArrayList<>();
+        pos++;
+        profundidad++;
+        espacios();
+        if (consumir(']')) {
+            profundidad--;
+            return res;
+        }
+        do {
+            res.add(valor());
+            espacios();
+        } while (consumir(','));
+        if (!consumir(']')) throw error("se esperaba ']'");
+        profundidad--;
+        return res;
+    }
+
+    private String cadena() {
+        pos++;                                          // comilla inicial
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (pos >= texto.length()) throw error("cadena sin cerrar");
+            char ch = texto.charAt(pos++);
+            if (ch == '"') return sb.toString();
+            if (ch != '\\') {
+                sb.append(ch);
+                continue;
+            }
+            if (pos >= texto.length()) throw error("cadena sin cerrar");
+            char esc = texto.charAt(pos++);
+            switch (esc) {
+                case '"', '\\', '/' -> sb.append(esc);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > texto.length()) throw error("escape \\u incompleto");
+                    try {
+                        sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("escape \\u no válido");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("escape no válido");
+            }
+        }
+    }
+
+    private Object numero() {
+        int inicio = pos;
+        if (texto.charAt(pos) == '-') pos++;
+        boolean entero = true;
+        while (pos < texto.length()) {
+            char ch = texto.charAt(pos);
+            if (ch >= '0' && ch <= '9') pos++;
+            else if (ch == '.' || ch == 'e' || ch == 'E' || ch == '+' || ch == '-') {
+                entero = false;
+                pos++;
+            } else break;
+        }
+        String s = texto.substring(inicio, pos);
+        try {
+            return entero ? (Object) Long.parseLong(s) : (Object) Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw error("número no válido: " + s);
+        }
+    }
+
+    private Object literal(String palabra, Object valor) {
+        if (!texto.startsWith(palabra, pos)) throw error("se esperaba " + palabra);
+        pos += palabra.length();
+        return valor;
+    }
+
+    private boolean consumir(char ch) {
+        if (pos < texto.length() && texto.charAt(pos) == ch) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void espacios() {
+        while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String motivo) {
+        return new IllegalArgumentException("JSON no válido (posición " + pos + "): " + motivo);
+    }
+
+    // Escritura
+
+    /**
+     * Añade una cadena JSON entrecomillada ({@code null} si {@code s} es null).
+     * @param sb destino
+     * @param s  texto
+     * @return {@code sb}
+     */
+    static StringBuilder cadena(StringBuilder sb, String s) {
+        if (s == null) return sb.append("null");
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (ch < 0x20) sb.append(String.format("\\u%04x", (int) ch));
+                    else sb.append(ch);
+                }
+            }
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * Añade {@code "clave":} (con coma delante si no es el primer campo del objeto).
+     * @param sb    destino
+     * @param clave nombre del campo
+     * @return {@code sb}
+     */
+    static StringBuilder campo(StringBuilder sb, String clave) {
+        char ultimo = sb.length() == 0 ? ' ' : sb.charAt(sb.length() - 1);
+        if (ultimo != '{' && ultimo != '[') sb.append(',');
+        return cadena(sb, clave).append(':');
+    }
+}
@@ -0,0 +1,332 @@
+package concesionario.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Dinero;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+import concesionario.servicio.DatosConcurrentes;
+
+/**
+ * API HTTP/JSON sobre {@link DatosConcurrentes}, con el servidor incluido en el JDK
+ * ({@code com.sun.net.httpserver}). Cada petición se atiende en su propio hilo virtual,
+ * así que las conexiones lentas o en espera no ocupan hilos del sistema.
+ * <ul>
+ *   <li>{@code GET /clientes}, {@code POST /clientes} ({@code nombre, dni, telefono, email})</li>
+ *   <li>{@code GET|PUT|DELETE /clientes/{dni}} (en {@code PUT}, los campos ausentes o vacíos
+ *   se conservan; no se borra un cliente con ventas)</li>
+ *   <li>{@code GET /motos?q=texto} (sin {@code q}, todo el catálogo; {@code id} es la posición)</li>
+ *   <li>{@code POST /ventas} ({@code dni, motos: [id, ...]}, una posición por unidad):
+ *   descuenta el stock y registra la venta; {@code GET /ventas?dni=...}</li>
+ *   <li>{@code GET /totales} y {@code GET /totales?dni=...}</li>
+ * </ul>
+ * <p>Los importes se escriben como números con dos decimales. Los errores devuelven
+ * {@code {"error": "..."}} con 400 (petición mal formada), 404, 405 o 409 (DNI repetido,
+ * cliente con ventas o stock insuficiente).</p>
+ * <p>Con {@link #iniciarSoloLectura(DatosConcurrentes, int)} (por ejemplo, sobre una
+ * {@link concesionario.servicio.Replica}) solo se atienden peticiones {@code GET}; el
+ * resto devuelven 405.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class ServidorHttp implements Closeable {
+    private static final int COLA_CONEXIONES = 4096;
+
+    private final DatosConcurrentes datos;
+    private final boolean soloLectura;
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+
+    private ServidorHttp(DatosConcurrentes datos, int puerto, boolean soloLectura) throws IOException {
+        this.datos = datos;
+        this.soloLectura = soloLectura;
+        this.servidor = HttpServer.create(new InetSocketAddress(puerto), COLA_CONEXIONES);
+        this.hilos = Executors.newVirtualThreadPerTaskExecutor();
+        servidor.setExecutor(hilos);
+        servidor.createContext("/clientes", ex -> atender(ex, permitido(this::clientes)));
+        servidor.createContext("/motos", ex -> atender(ex, permitido(this::motos)));
+        servidor.createContext("/ventas", ex -> atender(ex, permitido(this::ventas)));
+        servidor.createContext("/totales", ex -> atender(ex, permitido(this::totales)));
+    }
+
+    /**
+     * Arranca el servidor.
+     * @param datos  servicio a exponer
+     * @param puerto puerto TCP (0 para uno libre cualquiera)
+     * @return servidor en marcha
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public static ServidorHttp iniciar(DatosConcurrentes datos, int puerto) throws IOException {
+        ServidorHttp s = new ServidorHttp(datos, puerto, false);
+        s.servidor.start();
+        return s;
+    }
+
+    /**
+     * Arranca el servidor atendiendo solo consultas ({@code GET}).
+     * @param datos  servicio a exponer
+     * @param puerto puerto TCP (0 para uno libre cualquiera)
+     * @return servidor en marcha
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public static ServidorHttp iniciarSoloLectura(DatosConcurrentes datos, int puerto) throws IOException {
+        ServidorHttp s = new ServidorHttp(datos, puerto, true);
+        s.servidor.start();
+        return s;
+    }
+
+    /** @return puerto en el que escucha el servidor */
+    public int getPuerto() { return servidor.getAddress().getPort(); }
+
+    /** Deja de aceptar peticiones y espera a que terminen las que están en curso. */
+    @Override
+    public void close() {
+        servidor.stop(0);
+        hilos.close();
+    }
+
+    // Recursos
+
+    private Respuesta clientes(HttpExchange ex) throws IOException {
+        String dni = resto(ex, "/clientes");
+        String metodo = ex.getRequestMethod();
+        if (dni.isEmpty()) {
+            if (metodo.equals("GET")) {
+                StringBuilder sb = new StringBuilder("[");
+                for (Cliente c : datos.getClientes()) {
+                    if (sb.length() > 1) sb.append(',');
+                    cliente(sb, c);
+                }
+                return new Respuesta(200, sb.append(']'));
+            }
+            if (metodo.equals("POST")) {
+                Map<String, Object> cuerpo = cuerpo(ex);
+                Cliente c = new Cliente(texto(cuerpo, "nombre", true), texto(cuerpo, "dni", true),
+                        texto(cuerpo, "telefono", true), texto(cuerpo, "email", true));
+                if (!datos.addCliente(c)) return error(409, "ya existe un cliente con ese DNI");
+                return new Respuesta(201, cliente(new StringBuilder(), c));
+            }
+            return error(405, "método no permitido");
+        }
+        Cliente c = datos.buscarClientePorDni(dni);
+        if (c == null) return error(404, "cliente no encontrado");
+        switch (metodo) {
+            case "GET" -> { return new Respuesta(200, cliente(new StringBuilder(), c)); }
+            case "PUT" -> {
+                Map<String, Object> cuerpo = cuerpo(ex);
+                datos.modificarCliente(c, texto(cuerpo, "nombre", false), texto(cuerpo, "telefono", false),
+                        texto(cuerpo, "email", false));
+                return new Respuesta(200, cliente(new StringBuilder(), c));
+            }
+            case "DELETE" -> {
+                return switch (datos.removeClienteSinVentas(dni)) {
+                    case ELIMINADO -> new Respuesta(204, new StringBuilder());
+                    case CON_VENTAS -> error(409, "el cliente tiene ventas registradas");
+                    case NO_EXISTE -> error(404, "cliente no encontrado");
+                };
+            }
+            default -> { return error(405, "método no permitido"); }
+        }
+    }
+
+    private Respuesta motos(HttpExchange ex) {
+        if (!resto(ex, "/motos").isEmpty()) return error(404, "recurso no encontrado");
+        if (!ex.getRequestMethod().equals("GET")) return error(405, "método no permitido");
+        String q = parametro(ex, "q");
+        StringBuilder sb = new StringBuilder("[");
+        if (q == null || q.isBlank()) {
+            List<Moto> catalogo = datos.getMotos();
+            for (int i = 0; i < catalogo.size(); i++) {
+                if (i > 0) sb.append(',');
+                moto(sb, i, catalogo.get(i));
+            }
+        } else {
+            for (Moto m : datos.buscarMotosPorTexto(q)) {
+                if (sb.length() > 1) sb.append(',');
+                moto(sb, datos.indiceMoto(m), m);
+            }
+        }
+        return new Respuesta(200, sb.append(']'));
+    }
+
+    private Respuesta ventas(HttpExchange ex) throws IOException {
+        if (!resto(ex, "/ventas").isEmpty()) return error(404, "recurso no encontrado");
+        String metodo = ex.getRequestMethod();
+        if (metodo.equals("GET")) {
+            String dni = parametro(ex, "dni");
+            if (dni == null) throw new IllegalArgumentException("falta el parámetro dni");
+            StringBuilder sb = new StringBuilder("[");
+            for (Venta v : datos.ventasPorDni(dni)) {
+                if (sb.length() > 1) sb.append(',');
+                venta(sb, v);
+            }
+            return new Respuesta(200, sb.append(']'));
+        }
+        if (!metodo.equals("POST")) return error(405, "método no permitido");
+
+        Map<String, Object> cuerpo = cuerpo(ex);
+        Cliente c = datos.buscarClientePorDni(texto(cuerpo, "dni", true));
+        if (c == null) return error(404, "cliente no encontrado");
+        if (!(cuerpo.get("motos") instanceof List<?> ids) || ids.isEmpty()) {
+            throw new IllegalArgumentException("motos debe ser una lista de posiciones no vacía");
+        }
+        List<Moto> seleccion = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            Moto m = id instanceof Long n && n >= 0 && n <= Integer.MAX_VALUE
+                    ? datos.buscarMotoPorIndice(n.intValue()) : null;
+            if (m == null) throw new IllegalArgumentException("moto no válida: " + id);
+            seleccion.add(m);
+        }
+        if (!datos.descontarStock(seleccion)) return error(409, "stock insuficiente");
+        Venta v = new Venta(c, seleccion);
+        datos.addVenta(v);
+        return new Respuesta(201, venta(new StringBuilder(), v));
+    }
+
+    private Respuesta totales(HttpExchange ex) {
+        if (!resto(ex, "/totales").isEmpty()) return error(404, "recurso no encontrado");
+        if (!ex.getRequestMethod().equals("GET")) return error(405, "método no permitido");
+        String dni = parametro(ex, "dni");
+        long importe = dni == null ? datos.totalVentasCentimos() : datos.totalVentasClienteCentimos(dni);
+        long unidades = dni == null ? datos.unidadesVendidas() : datos.unidadesVendidasCliente(dni);
+        StringBuilder sb = new StringBuilder("{");
+        Dinero.anadir(Json.campo(sb, "importe"), importe);
+        Json.campo(sb, "unidades").append(unidades);
+        return new Respuesta(200, sb.append('}'));
+    }
+
+    // Representación JSON
+
+    private static StringBuilder cliente(StringBuilder sb, Cliente c) {
+        sb.append('{');
+        Json.cadena(Json.campo(sb, "nombre"), c.getNombre());
+        Json.cadena(Json.campo(sb, "dni"), c.getDni());
+        Json.cadena(Json.campo(sb, "telefono"), c.getTelefono());
+        Json.cadena(Json.campo(sb, "email"), c.getEmail());
+        return sb.append('}');
+    }
+
+    private static void moto(StringBuilder sb, int id, Moto m) {
+        sb.append('{');
+        Json.campo(sb, "id").append(id);
+        Json.cadena(Json.campo(sb, "marca"), m.getMarca());
+        Json.cadena(Json.campo(sb, "modelo"), m.getModelo());
+        Dinero.anadir(Json.campo(sb, "precio"), m.getPrecioCentimos());
+        Json.campo(sb, "stock").append(m.getStock());
+        sb.append('}');
+    }
+
+    private static StringBuilder venta(StringBuilder sb, Venta v) {
+        sb.append('{');
+        Json.cadena(Json.campo(sb, "dni"), v.getCliente().getDni());
+        Json.cadena(Json.campo(sb, "fecha"), v.getFecha() == null ? null : v.getFecha().toString());
+        Json.campo(sb, "unidades").append(v.getMotos().size());
+        Dinero.anadir(Json.campo(sb, "importe"), v.getImporteCentimos());
+        return sb.append('}');
+    }
+
+    // Peticiones y respuestas
+
+    /** Atiende un recurso concreto a partir de la petición. */
+    private interface Recurso {
+        Respuesta atender(HttpExchange ex) throws IOException;
+    }
+
+    /** Código de estado y cuerpo JSON de una respuesta. */
+    private static final class Respuesta {
+        final int estado;
+        final CharSequence cuerpo;
+
+        Respuesta(int estado, CharSequence cuerpo) {
+            this.estado = estado;
+            this.cuerpo = cuerpo;
+        }
+    }
+
+    /** En modo solo lectura, rechaza lo que no sea {@code GET} antes de llegar al recurso. */
+    private Recurso permitido(Recurso recurso) {
+        if (!soloLectura) return recurso;
+        return ex -> ex.getRequestMethod().equals("GET") ? recurso.atender(ex) : error(405, "servidor de solo lectura");
+    }
+
+    private static Respuesta error(int estado, String mensaje) {
+        StringBuilder sb = new StringBuilder("{");
+        Json.cadena(Json.campo(sb, "error"), mensaje);
+        return new Respuesta(estado, sb.append('}'));
+    }
+
+    private static void atender(HttpExchange ex, Recurso recurso) throws IOException {
+        try (ex) {
+            Respuesta r;
+            try {
+                r = recurso.atender(ex);
+            } catch (IllegalArgumentException e) {
+                r = error(400, e.getMessage());
+            } catch (RuntimeException e) {
+                r = error(500, "error interno");
+            }
+            byte[] cuerpo = r.cuerpo.toString().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(r.estado, cuerpo.length == 0 ? -1 : cuerpo.length);
+            if (cuerpo.length > 0) {
+                try (OutputStream out = ex.getResponseBody()) {
+                    out.write(cuerpo);
+                }
+            }
+        }
+    }
+
+    /** @return la parte de la ruta que sigue a {@code base} (sin barras iniciales) */
+    private static String resto(HttpExchange ex, String base) {
+        String ruta = ex.getRequestURI().getPath();
+        int i = base.length();
+        while (i < ruta.length() && ruta.charAt(i) == '/') i++;
+        return i >= ruta.length() ? "" : ruta.substring(i);
+    }
+
+    private static String parametro(HttpExchange ex, String nombre) {
+        String query = ex.getRequestURI().getRawQuery();
+        if (query == null) return null;
+        for (String par : query.split("&")) {
+            int eq = par.indexOf('=');
+            String clave = eq < 0 ? par : par.substring(0, eq);
+            if (URLDecoder.decode(clave, StandardCharsets.UTF_8).equals(nombre)) {
+                return eq < 0 ? "" : URLDecoder.decode(par.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Object> cuerpo(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            return Json.leerObjeto(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Campo de texto de un cuerpo JSON.
+     * @throws IllegalArgumentException si no es texto, o si es obligatorio y falta o está vacío
+     */
+    private static String texto(Map<String, Object> cuerpo, String campo, boolean obligatorio) {
+        Object v = cuerpo.get(campo);
+        if (v != null && !(v instanceof String)) throw new IllegalArgumentException(campo + " debe ser texto");
+        String s = v == null ? null : ((String) v).trim();
+        if (obligatorio && (s == null || s.isEmpty())) throw new IllegalArgumentException("falta el campo " + campo);
+        return s;
+    }
+}
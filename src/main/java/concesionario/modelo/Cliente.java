@@ -4,6 +4,8 @@ package concesionario.modelo;
  * Cliente del concesionario, identificado por su DNI (inmutable).
  * Contiene nombre, teléfono y correo de contacto.
  * <p>El DNI es único en el sistema y no se puede modificar una vez creado.</p>
+ * <p>Guarda además las claves de comparación del DNI y del nombre (ver {@link Textos}),
+ * que {@link #setNombre(String)} mantiene al día.</p>
  * @author Víctor
  * @version 1.0
  */
@@ -12,6 +14,8 @@ public class Cliente {
     private final String dni;
     private String telefono;
     private String email;
+    private final String claveDni;
+    private String claveNombre;
 
     /**
      * Crea un cliente.
@@ -25,6 +29,8 @@ public class Cliente {
         this.dni = dni;
         this.telefono = telefono;
         this.email = email;
+        this.claveDni = dni == null ? null : Textos.clave(dni);
+        this.claveNombre = Textos.clave(nombre);
     }
 
     // Getters
@@ -41,10 +47,19 @@ public class Cliente {
     /** @return email del cliente */
     public String getEmail() { return email; }
 
+    /** @return DNI en minúsculas y sin acentos, para comparar (null si no tiene DNI) */
+    public String getClaveDni() { return claveDni; }
+
+    /** @return nombre en minúsculas y sin acentos, para comparar y ordenar ({@code ""} si no tiene) */
+    public String getClaveNombre() { return claveNombre; }
+
     // Setters
 
     /** Cambia el nombre del cliente. */
-    public void setNombre(String nombre) { this.nombre = nombre; }
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+        this.claveNombre = Textos.clave(nombre);
+    }
 
     /** Actualiza el teléfono de contacto. */
     public void setTelefono(String telefono) { this.telefono = telefono; }
@@ -52,8 +67,6 @@ public class Cliente {
     /** Actualiza el correo electrónico. */
     public void setEmail(String email) { this.email = email; }
 
-
-
     /** @return representación corta: "Nombre - DNI" */
     @Override
     public String toString() { return nombre + " - " + dni; }
@@ -0,0 +1,103 @@
+package concesionario.modelo;
+
+/**
+ * Utilidades para importes en céntimos de euro guardados en un {@code long}.
+ * <p>Los importes se representan como un número entero de céntimos: las sumas son
+ * exactas y no crean objetos (a diferencia de {@code double} o {@code BigDecimal}).</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Dinero {
+
+    private Dinero() { }
+
+    /**
+     * Convierte euros a céntimos redondeando al céntimo más cercano.
+     * @param euros importe en euros
+     * @return importe en céntimos
+     */
+    public static long deEuros(double euros) { return Math.round(euros * 100.0); }
+
+    /**
+     * Convierte céntimos a euros (para cálculos aproximados o compatibilidad).
+     * @param centimos importe en céntimos
+     * @return importe en euros
+     */
+    public static double aEuros(long centimos) { return centimos / 100.0; }
+
+    /**
+     * Interpreta un importe escrito en euros con hasta dos decimales.
+     * Acepta coma o punto como separador decimal (ej. {@code "7899,99"}, {@code "7899.9"}, {@code "7899"}).
+     * @param texto importe en euros
+     * @return importe en céntimos
+     * @throws NumberFormatException si el texto no es un importe válido o no cabe en un {@code long}
+     */
+    public static long parsear(String texto) {
+        try {
+            return leerCentimos(texto.trim());
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("importe demasiado grande: " + texto);
+        }
+    }
+
+    private static long leerCentimos(String s) {
+        int i = 0;
+        int n = s.length();
+        boolean negativo = false;
+        if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negativo = s.charAt(i) == '-';
+            i++;
+        }
+        long euros = 0;
+        int digitosEnteros = 0;
+        while (i < n && esDigito(s.charAt(i))) {
+            euros = Math.addExact(Math.multiplyExact(euros, 10), s.charAt(i) - '0');
+            digitosEnteros++;
+            i++;
+        }
+        long centimos = 0;
+        int decimales = 0;
+        if (i < n && (s.charAt(i) == ',' || s.charAt(i) == '.')) {
+            i++;
+            while (i < n && esDigito(s.charAt(i))) {
+                if (++decimales > 2) throw new NumberFormatException("más de dos decimales: " + s);
+                centimos = centimos * 10 + (s.charAt(i) - '0');
+                i++;
+            }
+            if (decimales == 1) centimos *= 10;
+        }
+        if (i != n || digitosEnteros + decimales == 0) throw new NumberFormatException("importe no válido: " + s);
+        long total = Math.addExact(Math.multiplyExact(euros, 100), centimos);
+        return negativo ? -total : total;
+    }
+
+    private static boolean esDigito(char c) { return c >= '0' && c <= '9'; }
+
+    /**
+     * Escribe el importe con dos decimales exactos (ej. {@code 789999} → {@code "7899.99"}).
+     * @param centimos importe en céntimos
+     * @return texto con el importe en euros
+     */
+    public static String formatear(long centimos) {
+        return anadir(new StringBuilder(24), centimos).toString();
+    }
+
+    /**
+     * Añade el importe con dos decimales a un {@link StringBuilder} sin crear objetos intermedios.
+     * @param sb       destino
+     * @param centimos importe en céntimos
+     * @return el mismo {@code sb}
+     */
+    public static StringBuilder anadir(StringBuilder sb, long centimos) {
+        long euros = centimos / 100;
+        long resto = centimos % 100;
+        if (centimos < 0) {     // se niegan por separado para no desbordar con Long.MIN_VALUE
+            sb.append('-');
+            euros = -euros;
+            resto = -resto;
+        }
+        sb.append(euros).append('.');
+        if (resto < 10) sb.append('0');
+        return sb.append(resto);
+    }
+}
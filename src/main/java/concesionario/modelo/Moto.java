@@ -1,29 +1,56 @@
 package concesionario.modelo;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Moto del catálogo: marca, modelo, precio y stock disponible.
  * Los campos {@code marca}, {@code modelo} y {@code precio} son inmutables; el stock es mutable.
+ * <p>El precio se guarda en céntimos de euro ({@link Dinero}) para que las sumas sean exactas.</p>
+ * <p>El stock se actualiza con operaciones atómicas (compare-and-set), así que varios
+ * hilos pueden vender la misma moto a la vez sin dejar el stock en negativo.</p>
+ * <p>Las claves de comparación de la marca y el modelo (ver {@link Textos}) se calculan
+ * una vez al crearla.</p>
  * @author Víctor
  * @version 1.0
  */
 public class Moto {
     private final String marca;
     private final String modelo;
-    private final double precio;
-    private int stock;
+    private final long precioCentimos;
+    private final AtomicInteger stock;
+    private final String claveMarca;
+    private final String claveModelo;
 
     /**
      * Crea una moto.
      * @param marca   marca comercial
      * @param modelo  modelo concreto
-     * @param precio  precio en euros
+     * @param precio  precio en euros (se redondea al céntimo)
      * @param stock   unidades iniciales (si es negativo se normaliza a 0)
      */
     public Moto(String marca, String modelo, double precio, int stock) {
+        this(marca, modelo, Dinero.deEuros(precio), stock);
+    }
+
+    private Moto(String marca, String modelo, long precioCentimos, int stock) {
         this.marca = marca;
         this.modelo = modelo;
-        this.precio = precio;
-        this.stock = Math.max(0, stock);
+        this.precioCentimos = precioCentimos;
+        this.stock = new AtomicInteger(Math.max(0, stock));
+        this.claveMarca = Textos.clave(marca);
+        this.claveModelo = Textos.clave(modelo);
+    }
+
+    /**
+     * Crea una moto con el precio ya expresado en céntimos.
+     * @param marca          marca comercial
+     * @param modelo         modelo concreto
+     * @param precioCentimos precio en céntimos de euro
+     * @param stock          unidades iniciales (si es negativo se normaliza a 0)
+     * @return moto creada
+     */
+    public static Moto deCentimos(String marca, String modelo, long precioCentimos, int stock) {
+        return new Moto(marca, modelo, precioCentimos, stock);
     }
 
     // Getters
@@ -34,11 +61,20 @@ public class Moto {
     /** @return modelo de la moto */
     public String getModelo() { return modelo; }
 
-    /** @return precio en euros */
-    public double getPrecio() { return precio; }
+    /** @return marca en minúsculas y sin acentos, para comparar ({@code ""} si no tiene) */
+    public String getClaveMarca() { return claveMarca; }
+
+    /** @return modelo en minúsculas y sin acentos, para comparar ({@code ""} si no tiene) */
+    public String getClaveModelo() { return claveModelo; }
+
+    /** @return precio en euros (calculado a partir de los céntimos) */
+    public double getPrecio() { return Dinero.aEuros(precioCentimos); }
+
+    /** @return precio exacto en céntimos de euro */
+    public long getPrecioCentimos() { return precioCentimos; }
 
     /** @return stock disponible */
-    public int getStock() { return stock; }
+    public int getStock() { return stock.get(); }
 
     // Ajustes de Stock
 
@@ -49,8 +85,22 @@ public class Moto {
      */
     public void restarStock(int unidades) {
         if (unidades < 0) throw new IllegalArgumentException("unidades negativas");
-        if (unidades > stock) throw new IllegalArgumentException("sin stock suficiente");
-        stock -= unidades;
+        if (!intentarRestarStock(unidades)) throw new IllegalArgumentException("sin stock suficiente");
+    }
+
+    /**
+     * Resta unidades del stock solo si hay suficientes, de forma atómica.
+     * @param unidades unidades a descontar (&ge; 0)
+     * @return {@code true} si se descontaron; {@code false} si no había stock suficiente
+     * @throws IllegalArgumentException si {@code unidades} es negativo
+     */
+    public boolean intentarRestarStock(int unidades) {
+        if (unidades < 0) throw new IllegalArgumentException("unidades negativas");
+        while (true) {
+            int actual = stock.get();
+            if (unidades > actual) return false;
+            if (stock.compareAndSet(actual, actual - unidades)) return true;
+        }
     }
 
     /**
@@ -60,12 +110,12 @@ public class Moto {
      */
     public void anadirStock(int unidades) {
         if (unidades < 0) throw new IllegalArgumentException("unidades negativas");
-        this.stock += unidades;
+        stock.addAndGet(unidades);
     }
 
 
 
     /** @return representación corta: {@code "Marca Modelo (precio €)"} con 2 decimales */
     @Override
-    public String toString() { return marca + " " + modelo + " (" + String.format("%.2f", precio) + " €)"; }
+    public String toString() { return marca + " " + modelo + " (" + Dinero.formatear(precioCentimos) + " €)"; }
 }
@@ -0,0 +1,73 @@
+package concesionario.modelo;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Claves de comparación de textos sin distinguir mayúsculas ni acentos.
+ * <p>{@link Cliente} y {@link Moto} guardan la clave de sus textos al crearse (o al
+ * cambiar el nombre), así que las búsquedas, índices y ordenaciones comparan claves ya
+ * calculadas en lugar de llamar a {@code toLowerCase()} con cada elemento. Solo se
+ * normaliza la consulta, y si ya es una clave (minúsculas ASCII, el caso habitual) se
+ * devuelve el mismo objeto sin crear ninguno.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Textos {
+
+    /** Clave de cada carácter Latin-1 (U+0000 a U+00FF), o -1 si no cabe en un carácter Latin-1. */
+    private static final short[] LATIN1 = new short[256];
+
+    static {
+        for (int c = 0; c < LATIN1.length; c++) {
+            String k = claveUnicode(String.valueOf((char) c));
+            LATIN1[c] = (short) (k.length() == 1 && k.charAt(0) < 256 ? k.charAt(0) : -1);
+        }
+    }
+
+    private Textos() { }
+
+    /**
+     * Calcula la clave de un texto: en minúsculas ({@link Locale#ROOT}) y sin acentos ni
+     * otras marcas diacríticas ({@code "Café Ñu"} → {@code "cafe nu"}).
+     * @param texto texto original (puede ser null)
+     * @return clave ({@code ""} si {@code texto} es null); el mismo objeto si ya era una clave
+     */
+    public static String clave(String texto) {
+        if (texto == null) return "";
+        int n = texto.length();
+        int i = 0;
+        while (i < n) {
+            char ch = texto.charAt(i);
+            if (ch >= 0x80 || (ch >= 'A' && ch <= 'Z')) break;
+            i++;
+        }
+        if (i == n) return texto;                   // ya es una clave: sin copia
+        boolean ascii = true;
+        for (int j = i; j < n; j++) {
+            char ch = texto.charAt(j);
+            if (ch >= 256) return claveUnicode(texto);
+            if (ch >= 0x80) ascii = false;
+        }
+        if (ascii) return texto.toLowerCase(Locale.ROOT);
+        byte[] res = new byte[n];                   // Latin-1 (el caso de los nombres en español): por tabla
+        for (int j = 0; j < n; j++) {
+            short k = LATIN1[texto.charAt(j)];
+            if (k < 0) return claveUnicode(texto);
+            res[j] = (byte) k;
+        }
+        return new String(res, StandardCharsets.ISO_8859_1);
+    }
+
+    /** Clave de un texto con caracteres no Latin-1: descompone, quita las marcas y pasa a minúsculas. */
+    private static String claveUnicode(String texto) {
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char ch = descompuesto.charAt(i);
+            if (Character.getType(ch) != Character.NON_SPACING_MARK) sb.append(ch);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -6,7 +6,7 @@ import java.util.List;
 
 /**
  * Venta realizada a un cliente con una o más motos.
- * La fecha se fija en el momento de creación ({@link LocalDate#now()}).
+ * La fecha se fija en el momento de creación ({@link LocalDate#now()}) salvo que se indique otra.
  * <p>
  * La lista interna de motos es la que se usa para calcular el importe:
  * cada elemento representa una unidad vendida.
@@ -20,7 +20,7 @@ import java.util.List;
  */
 public class Venta {
     private final Cliente cliente;
-    private final List<Moto> motos = new ArrayList<>();
+    private final List<Moto> motos;
     private final LocalDate fecha;
 
     /**
@@ -30,9 +30,19 @@ public class Venta {
      *                (si es {@code null} se producirá un {@link NullPointerException} al copiar)
      */
     public Venta(Cliente cliente, List<Moto> motos) {
+        this(cliente, motos, LocalDate.now());
+    }
+
+    /**
+     * Crea una venta con una fecha concreta (por ejemplo, al reconstruir el histórico).
+     * @param cliente cliente comprador
+     * @param motos   lista de motos vendidas; cada posición equivale a 1 unidad
+     * @param fecha   fecha de la venta ({@code null} si no se conoce)
+     */
+    public Venta(Cliente cliente, List<Moto> motos, LocalDate fecha) {
         this.cliente = cliente;
-        this.motos.addAll(motos);
-        this.fecha = LocalDate.now();
+        this.motos = new ArrayList<>(motos);
+        this.fecha = fecha;
     }
 
     // Getters
@@ -46,16 +56,22 @@ public class Venta {
      */
     public List<Moto> getMotos() { return motos; }
 
-    /** @return fecha de la venta (día natural) */
+    /** @return fecha de la venta (día natural), o {@code null} si no se conoce */
     public LocalDate getFecha() { return fecha; }
 
     /**
      * Suma los precios de todas las motos de la venta.
      * @return importe total en euros
      */
-    public double getImporte() {
-        double total = 0.0;
-        for (Moto m : motos) total += m.getPrecio();
+    public double getImporte() { return Dinero.aEuros(getImporteCentimos()); }
+
+    /**
+     * Suma exacta de los precios de todas las motos de la venta.
+     * @return importe total en céntimos de euro
+     */
+    public long getImporteCentimos() {
+        long total = 0;
+        for (Moto m : motos) total += m.getPrecioCentimos();
         return total;
     }
 
@@ -64,7 +80,7 @@ public class Venta {
     /** @return descripción legible de la venta */
     @Override
     public String toString() {
-        return String.format("%s compró %d moto(s) el %s por %.2f €",
-                cliente.getNombre(), motos.size(), fecha, getImporte());
+        return String.format("%s compró %d moto(s) el %s por %s €",
+                cliente.getNombre(), motos.size(), fecha, Dinero.formatear(getImporteCentimos()));
     }
 }
@@ -0,0 +1,75 @@
+package concesionario.servicio;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import concesionario.modelo.Venta;
+
+/**
+ * Totales de ventas mantenidos de forma incremental.
+ * <p>Los importes se acumulan en céntimos ({@code long}), sin errores de redondeo.
+ * Cada venta se suma una sola vez, al registrarse, de modo que leer el total
+ * global o el de un cliente cuesta O(1) sea cual sea el histórico.</p>
+ * <p>El importe de cada venta se toma en el momento de registrarla: si después se
+ * modifica la lista de motos de esa {@link Venta}, los totales no lo reflejan.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+class AgregadosVentas {
+    private long total = 0;
+    private long unidades = 0;
+    private final Map<String, Acumulado> porCliente = new HashMap<>();
+
+    /** Vacía todos los totales. */
+    void limpiar() {
+        total = 0;
+        unidades = 0;
+        porCliente.clear();
+    }
+
+    /**
+     * Suma una venta a los totales usando los totales del cliente ya localizados.
+     * @param a totales del cliente (de {@link #acumuladoDe(String)}) o {@code null}
+     * @param v venta registrada
+     * @return importe de la venta en céntimos
+     */
+    long sumar(Acumulado a, Venta v) {
+        long importe = v.getImporteCentimos();
+        int n = v.getMotos().size();
+        total += importe;
+        unidades += n;
+        if (a == null) return importe;
+        a.importe += importe;
+        a.unidades += n;
+        a.ventas++;
+        return importe;
+    }
+
+    /**
+     * Localiza (o crea vacíos) los totales de un cliente.
+     * @param claveDni DNI normalizado
+     * @return totales del cliente
+     */
+    Acumulado acumuladoDe(String claveDni) { return porCliente.computeIfAbsent(claveDni, k -> new Acumulado()); }
+
+    /** @return importe total de todas las ventas, en céntimos */
+    long total() { return total; }
+
+    /** @return unidades vendidas en total */
+    long unidades() { return unidades; }
+
+    /**
+     * @param claveDni DNI normalizado
+     * @return totales del cliente o {@code null} si no tiene ventas
+     */
+    Acumulado cliente(String claveDni) { return porCliente.get(claveDni); }
+
+    /** Totales de un cliente. */
+    static final class Acumulado {
+        long importe;       // céntimos
+        long unidades;
+        int ventas;
+        int idColumnar = -1;    // identificador del cliente en el AlmacenColumnar (si está activo)
+        int idClasificacion = -1;   // identificador del cliente en la clasificación de clientes
+    }
+}
@@ -0,0 +1,187 @@
+package concesionario.servicio;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+/**
+ * Copia por columnas del histórico de ventas para consultas que recorren muchas ventas.
+ * <p>Cada venta ocupa una posición en arrays de tipos primitivos: cliente (un
+ * identificador entero por DNI), día ({@link LocalDate#toEpochDay()}),
+ * importe en céntimos y unidades. Las líneas (una por unidad vendida) van en otra
+ * columna con la posición de la moto en el catálogo, y un array de desplazamientos
+ * indica dónde acaban las líneas de cada venta.</p>
+ * <p>Los totales por fechas no necesitan recorrer ventas (ver {@link IndiceTemporal});
+ * este almacén sirve para los que agrupan por cliente o por moto.</p>
+ * <p>Los recorridos leen solo las columnas que necesitan, de forma secuencial y sin
+ * seguir referencias a {@link Venta}, {@code LocalDate} o listas de motos, así que
+ * están limitados por el ancho de banda de memoria y no por fallos de caché.</p>
+ * <p>Los rangos de días son inclusivos; {@link Integer#MIN_VALUE} y
+ * {@link Integer#MAX_VALUE} significan sin límite.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+final class AlmacenColumnar {
+    /** Día de las ventas sin fecha (solo cuentan en los rangos sin límite inferior). */
+    static final int SIN_FECHA = Integer.MIN_VALUE;
+
+    private int tamano = 0;
+    private int[] cliente = new int[1024];
+    private int[] dia = new int[1024];
+    private long[] importe = new long[1024];
+    private int[] unidades = new int[1024];
+    private int[] finLineas = new int[1024];     // las líneas de la venta i son [finLineas[i-1], finLineas[i])
+
+    private int numLineas = 0;
+    private int[] lineaMoto = new int[2048];
+
+    private int numClientes = 0;
+    private String[] dnis = new String[256];
+
+    /** Vacía el almacén. */
+    void limpiar() {
+        tamano = 0;
+        numLineas = 0;
+        Arrays.fill(dnis, 0, numClientes, null);
+        numClientes = 0;
+    }
+
+    /** @return número de ventas guardadas */
+    int tamano() { return tamano; }
+
+    /** @return número de clientes distintos con ventas */
+    int numClientes() { return numClientes; }
+
+    /**
+     * @param id identificador de cliente
+     * @return DNI del cliente tal y como aparecía en su primera venta
+     */
+    String dniDe(int id) { return dnis[id]; }
+
+    /**
+     * Añade una venta al final.
+     * @param v          venta registrada
+     * @param acumulado  totales del cliente en {@link AgregadosVentas} (guardan su identificador), o {@code null}
+     * @param posicion   posición de cada moto en el catálogo (-1 si no está)
+     */
+    void anadir(Venta v, AgregadosVentas.Acumulado acumulado, ToIntFunction<Moto> posicion) {
+        if (tamano == cliente.length) crecerVentas();
+        List<Moto> motos = v.getMotos();
+        int n = motos.size();
+        while (numLineas + n > lineaMoto.length) crecerLineas();
+        long suma = 0;
+        for (int k = 0; k < n; k++) {
+            Moto m = motos.get(k);
+            lineaMoto[numLineas++] = posicion.applyAsInt(m);
+            suma += m.getPrecioCentimos();
+        }
+        int i = tamano++;
+        cliente[i] = acumulado == null ? -1 : idCliente(acumulado, v.getCliente().getDni());
+        dia[i] = dia(v.getFecha(), SIN_FECHA);
+        importe[i] = suma;
+        unidades[i] = n;
+        finLineas[i] = numLineas;
+    }
+
+    /**
+     * Convierte una fecha a día de la columna.
+     * @param fecha     fecha (o {@code null})
+     * @param sinFecha  valor para {@code null}
+     * @return días desde 1970-01-01, limitados al rango de {@code int} sin sus extremos
+     */
+    static int dia(LocalDate fecha, int sinFecha) {
+        if (fecha == null) return sinFecha;
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, fecha.toEpochDay()));
+    }
+
+    private int idCliente(AgregadosVentas.Acumulado a, String dni) {
+        if (a.idColumnar < 0) {
+            if (numClientes == dnis.length) dnis = Arrays.copyOf(dnis, numClientes * 2);
+            dnis[numClientes] = dni;
+            a.idColumnar = numClientes++;
+        }
+        return a.idColumnar;
+    }
+
+    private void crecerVentas() {
+        int n = cliente.length * 2;
+        cliente = Arrays.copyOf(cliente, n);
+        dia = Arrays.copyOf(dia, n);
+        importe = Arrays.copyOf(importe, n);
+        unidades = Arrays.copyOf(unidades, n);
+        finLineas = Arrays.copyOf(finLineas, n);
+    }
+
+    private void crecerLineas() { lineaMoto = Arrays.copyOf(lineaMoto, lineaMoto.length * 2); }
+
+    // Recorridos
+
+    /**
+     * Comprueba sin saltos si un día cae en el intervalo: con días al azar, un
+     * {@code if} falla la predicción muy a menudo y el recorrido deja de ir a la
+     * velocidad de la memoria.
+     * @return 0 si {@code x} está en {@code [desde, desde + ancho]}; -1 (todo unos) si no
+     */
+    private static long fuera(int x, int desde, long ancho) {
+        long pos = (long) x - desde;
+        return (pos | (ancho - pos)) >> 63;
+    }
+
+    /**
+     * Suma el importe y cuenta las ventas de cada cliente en un intervalo.
+     * @param desde  primer día
+     * @param hasta  último día
+     * @param ventas si no es null, recibe el número de ventas de cada cliente (tamaño &ge; {@link #numClientes()})
+     * @return importe de cada cliente por identificador, en céntimos
+     */
+    long[] totalesPorCliente(int desde, int hasta, int[] ventas) {
+        int m = numClientes;
+        long[] res = new long[m + 1];            // la última posición recoge las ventas de fuera o sin cliente
+        int[] cuenta = new int[m + 1];
+        long[] imp = importe;
+        int[] d = dia;
+        int[] c = cliente;
+        int n = tamano;
+        long ancho = (long) hasta - desde;
+        for (int i = 0; i < n; i++) {
+            int id = c[i];
+            int f = (int) fuera(d[i], desde, ancho) | (id >> 31);
+            int destino = (id & ~f) | (m & f);
+            res[destino] += imp[i];
+            cuenta[destino]++;
+        }
+        if (ventas != null) System.arraycopy(cuenta, 0, ventas, 0, m);
+        return Arrays.copyOf(res, m);
+    }
+
+    /**
+     * Cuenta las unidades vendidas de cada moto del catálogo en un intervalo.
+     * @param desde    primer día
+     * @param hasta    último día
+     * @param numMotos tamaño del catálogo
+     * @return unidades por posición en el catálogo (las motos que ya no están no cuentan)
+     */
+    long[] unidadesPorMoto(int desde, int hasta, int numMotos) {
+        long[] res = new long[numMotos];
+        int[] d = dia;
+        int[] fin = finLineas;
+        int[] moto = lineaMoto;
+        int n = tamano;
+        long ancho = (long) hasta - desde;
+        int inicio = 0;
+        for (int i = 0; i < n; i++) {
+            if (fuera(d[i], desde, ancho) == 0) {
+                for (int k = inicio; k < fin[i]; k++) {
+                    int m = moto[k];
+                    if (m >= 0 && m < numMotos) res[m]++;
+                }
+            }
+            inicio = fin[i];
+        }
+        return res;
+    }
+}
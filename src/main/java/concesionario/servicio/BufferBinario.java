@@ -0,0 +1,115 @@
+package concesionario.servicio;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffer de bytes que crece según se escribe, para codificar registros binarios
+ * (diario, instantáneas y replicación).
+ * <p>Los números se escriben en big-endian, igual que {@link ByteBuffer} por defecto.
+ * Los textos se guardan como longitud + bytes UTF-8 (longitud -1 para {@code null}).</p>
+ * @author Víctor
+ * @version 1.0
+ */
+class BufferBinario {
+    private byte[] datos;
+    private int posicion = 0;
+
+    /** Crea el buffer con una capacidad inicial de 256 bytes. */
+    BufferBinario() { this(256); }
+
+    /**
+     * Crea el buffer.
+     * @param capacidad capacidad inicial en bytes
+     */
+    BufferBinario(int capacidad) { datos = new byte[Math.max(16, capacidad)]; }
+
+    /** @return bytes escritos */
+    int tamano() { return posicion; }
+
+    /** @return array interno (válido hasta {@link #tamano()}) */
+    byte[] array() { return datos; }
+
+    /** Descarta lo escrito y conserva la capacidad. */
+    void limpiar() { posicion = 0; }
+
+    /**
+     * Vuelve a una posición anterior (para sobrescribir o descartar lo escrito después).
+     * @param p nueva posición (&le; tamaño actual)
+     */
+    void volverA(int p) { posicion = p; }
+
+    /** @return vista {@link ByteBuffer} de lo escrito (comparte el array interno) */
+    ByteBuffer comoByteBuffer() { return ByteBuffer.wrap(datos, 0, posicion); }
+
+    void escribirByte(int b) {
+        asegurar(1);
+        datos[posicion++] = (byte) b;
+    }
+
+    void escribirInt(int v) {
+        asegurar(4);
+        ponerInt(posicion, v);
+        posicion += 4;
+    }
+
+    /**
+     * Sobrescribe un entero ya escrito (por ejemplo, una longitud que se conoce al final).
+     * @param en posición del entero
+     * @param v  nuevo valor
+     */
+    void ponerInt(int en, int v) {
+        datos[en] = (byte) (v >>> 24);
+        datos[en + 1] = (byte) (v >>> 16);
+        datos[en + 2] = (byte) (v >>> 8);
+        datos[en + 3] = (byte) v;
+    }
+
+    void escribirLong(long v) {
+        escribirInt((int) (v >>> 32));
+        escribirInt((int) v);
+    }
+
+    void escribirTexto(String s) {
+        if (s == null) {
+            escribirInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        escribirInt(b.length);
+        escribirBytes(b, 0, b.length);
+    }
+
+    void escribirBytes(byte[] b, int desde, int longitud) {
+        asegurar(longitud);
+        System.arraycopy(b, desde, datos, posicion, longitud);
+        posicion += longitud;
+    }
+
+    /**
+     * Lee un texto escrito con {@link #escribirTexto(String)}.
+     * @param in buffer de lectura
+     * @return texto leído (o {@code null})
+     */
+    static String leerTexto(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0) return null;
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), n, StandardCharsets.UTF_8);
+        } else {
+            byte[] b = new byte[n];
+            in.get(in.position(), b);
+            s = new String(b, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + n);
+        return s;
+    }
+
+    private void asegurar(int n) {
+        if (posicion + n > datos.length) {
+            datos = Arrays.copyOf(datos, Math.max(datos.length * 2, posicion + n));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package concesionario.servicio;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+/**
+ * Bus de eventos en memoria sobre un anillo de casillas reservadas de antemano.
+ * <p>Publicar no bloquea ni crea objetos: cada publicador reclama la siguiente
+ * secuencia con un incremento atómico y rellena la casilla {@code secuencia % capacidad}.
+ * Cada casilla guarda aparte la secuencia publicada en ella, que se marca antes de
+ * escribir y se fija al terminar, de modo que los consumidores leen sin cerrojos y
+ * detectan si una casilla se ha reescrito mientras la copiaban.</p>
+ * <p>El anillo no espera a los consumidores lentos: si uno se queda más de
+ * {@code capacidad} eventos por detrás, los que se han sobrescrito se cuentan como
+ * perdidos en su {@link Suscripcion} y sigue por el más antiguo que quede.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class BusEventos implements AutoCloseable {
+    static final long VACIA = -1;
+    static final long ESCRIBIENDO = Long.MIN_VALUE;
+
+    private final Evento[] anillo;
+    private final AtomicLongArray publicadas;
+    private final int mascara;
+    private final AtomicLong siguiente = new AtomicLong();
+    private final LongAdder descartados = new LongAdder();
+    private final List<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+
+    /**
+     * Crea un bus.
+     * @param capacidad eventos que caben en el anillo (potencia de dos)
+     * @throws IllegalArgumentException si no es una potencia de dos positiva
+     */
+    public BusEventos(int capacidad) {
+        if (capacidad <= 0 || Integer.bitCount(capacidad) != 1) {
+            throw new IllegalArgumentException("La capacidad debe ser una potencia de dos: " + capacidad);
+        }
+        anillo = new Evento[capacidad];
+        publicadas = new AtomicLongArray(capacidad);
+        for (int i = 0; i < capacidad; i++) {
+            anillo[i] = new Evento();
+            publicadas.set(i, VACIA);
+        }
+        mascara = capacidad - 1;
+    }
+
+    /** @return eventos que caben en el anillo */
+    public int getCapacidad() { return anillo.length; }
+
+    /** @return número de eventos publicados (la secuencia del siguiente) */
+    public long getPublicados() { return siguiente.get(); }
+
+    /**
+     * @return eventos que no llegaron al anillo porque, antes de escribirlos, su casilla
+     *         ya tenía uno más nuevo (solo pasa si el anillo da una vuelta completa
+     *         mientras un publicador está detenido)
+     */
+    public long getDescartados() { return descartados.sum(); }
+
+    /**
+     * Publica un evento.
+     * @param tipo     tipo de cambio
+     * @param cliente  cliente afectado (o {@code null})
+     * @param moto     moto afectada (o {@code null})
+     * @param unidades unidades del cambio de stock
+     * @param venta    venta registrada (o {@code null})
+     * @return secuencia del evento
+     */
+    long publicar(Evento.Tipo tipo, Cliente cliente, Moto moto, int unidades, Venta venta) {
+        long s = siguiente.getAndIncrement();
+        int i = (int) s & mascara;
+        while (true) {
+            long p = publicadas.get(i);
+            if (p == ESCRIBIENDO) {             // otro publicador de una vuelta anterior está terminando
+                Thread.onSpinWait();
+                continue;
+            }
+            if (p >= s) {                       // ya hay uno más nuevo: este se pierde
+                descartados.increment();
+                return s;
+            }
+            if (publicadas.compareAndSet(i, p, ESCRIBIENDO)) break;
+        }
+        Evento e = anillo[i];
+        e.secuencia = s;
+        e.tipo = tipo;
+        e.cliente = cliente;
+        e.moto = moto;
+        e.venta = venta;
+        e.unidades = unidades;
+        e.stock = moto == null ? 0 : moto.getStock();
+        publicadas.set(i, s);
+        return s;
+    }
+
+    /**
+     * Crea una suscripción que recibe, en su propio hilo, los eventos publicados a partir de ahora.
+     * @param nombre     nombre del hilo
+     * @param consumidor receptor de los eventos
+     * @return suscripción ya en marcha
+     */
+    public Suscripcion suscribir(String nombre, ConsumidorEventos consumidor) {
+        Suscripcion s = new Suscripcion(this, nombre, consumidor, siguiente.get());
+        suscripciones.add(s);
+        s.arrancar();
+        return s;
+    }
+
+    /** Detiene todas las suscripciones (esperando a que terminen sus hilos). */
+    @Override
+    public void close() {
+        for (Suscripcion s : suscripciones) s.close();
+    }
+
+    void quitar(Suscripcion s) { suscripciones.remove(s); }
+
+    // Acceso de las suscripciones
+
+    int casilla(long secuencia) { return (int) secuencia & mascara; }
+
+    long publicada(int casilla) { return publicadas.get(casilla); }
+
+    Evento evento(int casilla) { return anillo[casilla]; }
+
+    /** @return secuencia más antigua que aún puede estar en el anillo */
+    long masAntigua() { return Math.max(0, siguiente.get() - anillo.length); }
+}
@@ -0,0 +1,387 @@
+package concesionario.servicio;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import concesionario.modelo.Dinero;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Textos;
+
+/**
+ * Catálogo de motos fuera del montón de Java, para catálogos de millones de modelos.
+ * <p>Cada moto ocupa una ficha de {@value #FICHA} bytes en buffers directos: precio en
+ * céntimos, stock y dirección y longitudes de su marca y su modelo, que se guardan en UTF-8
+ * en otros buffers directos. Las claves de búsqueda (ver {@link Textos}) van aparte, una
+ * moto tras otra, para que una búsqueda lea solo esa memoria y de forma secuencial. Así el
+ * recolector de basura solo ve unos pocos objetos por cada bloque de 1 MB, en lugar de un
+ * {@link Moto} con dos textos, sus claves y un contador de stock por modelo.</p>
+ * <p>Las motos se identifican por su posición (como en {@link Datos#reponerStockPorIndice(int, int)})
+ * y se leen con una {@link VistaMoto}, que no copia nada y se puede mover a otra posición.</p>
+ * <p>Las altas se hacen de una en una ({@code synchronized}); las búsquedas y los cambios de
+ * stock pueden hacerse desde cualquier hilo. El stock se actualiza con compare-and-set
+ * directamente sobre el buffer (ver {@link #descontarStock(int...)}).</p>
+ * <p>Las búsquedas por texto recorren las claves de todo el catálogo: no hay índice de
+ * trigramas porque ocuparía en el montón lo que este catálogo ahorra. La memoria de los
+ * buffers se libera cuando el catálogo deja de usarse y se recolecta.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class CatalogoDirecto {
+    /** Bytes por ficha: precio (8), dirección de los textos (8), longitud de la marca y del modelo (2 cada una) y stock (4). */
+    static final int FICHA = 24;
+    private static final int PRECIO = 0;
+    private static final int TEXTO = 8;
+    private static final int LONGITUD_MARCA = 16;
+    private static final int LONGITUD_MODELO = 18;
+    private static final int STOCK = 20;
+
+    private static final int BITS_FICHAS = 15;        // 32768 fichas por bloque (768 KB)
+    private static final int FICHAS_POR_BLOQUE = 1 << BITS_FICHAS;
+    private static final int LONGITUD_MAXIMA = 0xFFFF;
+
+    /** Acceso atómico a un {@code int} del buffer (el stock está alineado a 4 bytes). */
+    private static final VarHandle ENTERO = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private volatile ByteBuffer[] fichas = new ByteBuffer[16];
+    private final Area textos = new Area();           // marca y modelo de cada moto
+    private final Area claves = new Area();           // por moto: longitud de cada clave (2 bytes) y las dos claves
+    private volatile int tamano = 0;
+    private final Object descuentosVarios = new Object();   // ver descontarStock
+    private volatile int versionDescuentos;                 // impar mientras uno puede estar deshaciéndose
+
+    /** @return número de motos del catálogo */
+    public int numMotos() { return tamano; }
+
+    /** @return bytes reservados fuera del montón (fichas, textos y claves) */
+    public synchronized long bytesReservados() {
+        return (long) ((tamano + FICHAS_POR_BLOQUE - 1) >>> BITS_FICHAS) * FICHAS_POR_BLOQUE * FICHA
+                + textos.bytesReservados() + claves.bytesReservados();
+    }
+
+    /**
+     * Añade una copia de la moto al final del catálogo (si no es null).
+     * @param m moto a copiar (su stock es el actual)
+     * @return posición de la moto en el catálogo, o -1 si {@code m} es null
+     * @throws IllegalArgumentException si la marca o el modelo ocupan más de 65535 bytes en UTF-8
+     */
+    public int addMoto(Moto m) {
+        if (m == null) return -1;
+        return anadir(m.getMarca(), m.getModelo(), m.getClaveMarca(), m.getClaveModelo(), m.getPrecioCentimos(), m.getStock());
+    }
+
+    /**
+     * Añade una moto al final del catálogo sin crear un {@link Moto}.
+     * @param marca          marca comercial
+     * @param modelo         modelo concreto
+     * @param precioCentimos precio en céntimos de euro
+     * @param stock          unidades iniciales (si es negativo se normaliza a 0)
+     * @return posición de la moto en el catálogo
+     * @throws IllegalArgumentException si la marca o el modelo ocupan más de 65535 bytes en UTF-8
+     */
+    public int addMoto(String marca, String modelo, long precioCentimos, int stock) {
+        return anadir(marca, modelo, Textos.clave(marca), Textos.clave(modelo), precioCentimos, stock);
+    }
+
+    private synchronized int anadir(String marca, String modelo, String claveMarca, String claveModelo,
+                                    long precioCentimos, int stock) {
+        byte[] bMarca = utf8(marca), bModelo = utf8(modelo), cMarca = utf8(claveMarca), cModelo = utf8(claveModelo);
+        for (byte[] p : new byte[][] { bMarca, bModelo, cMarca, cModelo }) {
+            if (p.length > LONGITUD_MAXIMA) throw new IllegalArgumentException("texto demasiado largo");
+        }
+        long direccion = textos.reservar(bMarca.length + bModelo.length);
+        ByteBuffer bt = textos.bloque(direccion);
+        int p = Area.posicion(direccion);
+        bt.put(p, bMarca);
+        bt.put(p + bMarca.length, bModelo);
+
+        long dc = claves.reservar(4 + cMarca.length + cModelo.length);
+        ByteBuffer bc = claves.bloque(dc);
+        p = Area.posicion(dc);
+        bc.put(p, (byte) cMarca.length).put(p + 1, (byte) (cMarca.length >>> 8));     // en little-endian
+        bc.put(p + 2, (byte) cModelo.length).put(p + 3, (byte) (cModelo.length >>> 8));
+        bc.put(p + 4, cMarca);
+        bc.put(p + 4 + cMarca.length, cModelo);
+
+        int id = tamano;
+        if ((id & (FICHAS_POR_BLOQUE - 1)) == 0) nuevoBloqueFichas(id >>> BITS_FICHAS);
+        ByteBuffer bf = fichas[id >>> BITS_FICHAS];
+        int f = desplazamiento(id);
+        bf.putLong(f + PRECIO, precioCentimos);
+        bf.putLong(f + TEXTO, direccion);
+        bf.putShort(f + LONGITUD_MARCA, (short) bMarca.length);
+        bf.putShort(f + LONGITUD_MODELO, (short) bModelo.length);
+        bf.putInt(f + STOCK, Math.max(0, stock));
+        tamano = id + 1;                             // publica la ficha a los demás hilos
+        return id;
+    }
+
+    private void nuevoBloqueFichas(int bloque) {
+        ByteBuffer[] f = fichas;
+        if (bloque == f.length) f = Arrays.copyOf(f, f.length * 2);
+        f[bloque] = ByteBuffer.allocateDirect(FICHAS_POR_BLOQUE * FICHA).order(ByteOrder.nativeOrder());
+        fichas = f;
+    }
+
+    private static byte[] utf8(String s) { return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8); }
+
+    private static int desplazamiento(int id) { return (id & (FICHAS_POR_BLOQUE - 1)) * FICHA; }
+
+    private ByteBuffer ficha(int id) { return fichas[id >>> BITS_FICHAS]; }
+
+    // Lectura
+
+    /**
+     * Devuelve una vista de la moto en la posición indicada.
+     * @param idx índice basado en 0
+     * @return vista de la moto o {@code null} si el índice no es válido
+     */
+    public VistaMoto buscarMotoPorIndice(int idx) {
+        return idx < 0 || idx >= tamano ? null : new VistaMoto(this, idx);
+    }
+
+    /**
+     * Crea una vista sin posición, para recorrer el catálogo con {@link VistaMoto#mover(int)}
+     * sin crear un objeto por moto.
+     * @return vista reutilizable
+     */
+    public VistaMoto vista() { return new VistaMoto(this, -1); }
+
+    /**
+     * Busca motos cuyo modelo o marca contenga el texto (sin distinguir mayúsculas ni acentos),
+     * con el mismo resultado que {@link Datos#buscarMotosPorTexto(String)}.
+     * @param q texto a buscar
+     * @return vistas (una por coincidencia, puede estar vacía) en el orden del catálogo
+     */
+    public List<VistaMoto> buscarMotosPorTexto(String q) {
+        List<VistaMoto> res = new ArrayList<>();
+        byte[] consulta = utf8(Textos.clave(q));
+        int n = tamano;                              // las claves de las motos anteriores ya están escritas
+        ByteBuffer[] bloques = claves.bloques;
+        int[] usados = claves.usados;
+        int id = 0;
+        for (int b = 0; id < n; b++) {
+            ByteBuffer bc = bloques[b];                  // se recorre en el propio buffer, sin copiarlo
+            int fin = usados[b];
+            for (int p = 0; p < fin && id < n; id++) {
+                int marca = (bc.get(p) & 0xFF) | (bc.get(p + 1) & 0xFF) << 8;
+                int modelo = (bc.get(p + 2) & 0xFF) | (bc.get(p + 3) & 0xFF) << 8;
+                p += 4;
+                if (contiene(bc, p, marca, consulta) || contiene(bc, p + marca, modelo, consulta)) {
+                    res.add(new VistaMoto(this, id));
+                }
+                p += marca + modelo;
+            }
+        }
+        return res;
+    }
+
+    /** Indica si los {@code longitud} bytes desde {@code inicio} contienen la consulta. */
+    private static boolean contiene(ByteBuffer texto, int inicio, int longitud, byte[] consulta) {
+        int m = consulta.length;
+        if (m == 0) return true;
+        byte primero = consulta[0];
+        for (int i = inicio, ultimo = inicio + longitud - m; i <= ultimo; i++) {
+            if (texto.get(i) != primero) continue;
+            int k = 1;
+            while (k < m && texto.get(i + k) == consulta[k]) k++;
+            if (k == m) return true;
+        }
+        return false;
+    }
+
+    private String texto(int id, boolean modelo) {
+        ByteBuffer bf = ficha(id);
+        int f = desplazamiento(id);
+        long dir = bf.getLong(f + TEXTO);
+        int marca = Short.toUnsignedInt(bf.getShort(f + LONGITUD_MARCA));
+        byte[] b = new byte[modelo ? Short.toUnsignedInt(bf.getShort(f + LONGITUD_MODELO)) : marca];
+        textos.bloque(dir).get(Area.posicion(dir) + (modelo ? marca : 0), b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private long precio(int id) { return ficha(id).getLong(desplazamiento(id) + PRECIO); }
+
+    private int stock(int id) { return (int) ENTERO.getVolatile(ficha(id), desplazamiento(id) + STOCK); }
+
+    // Stock
+
+    /**
+     * Resta unidades del stock de una moto solo si hay suficientes, de forma atómica.
+     * @return {@code true} si se descontaron
+     */
+    private boolean intentarRestar(int id, int unidades) {
+        ByteBuffer bf = ficha(id);
+        int f = desplazamiento(id) + STOCK;
+        while (true) {
+            int actual = (int) ENTERO.getVolatile(bf, f);
+            if (unidades > actual) return false;
+            if (ENTERO.compareAndSet(bf, f, actual, actual - unidades)) return true;
+        }
+    }
+
+    private void sumar(int id, int unidades) { ENTERO.getAndAdd(ficha(id), desplazamiento(id) + STOCK, unidades); }
+
+    /**
+     * Intenta descontar stock para todas las motos de una selección (cada aparición de una
+     * posición representa 1 unidad). Operación atómica: si falta stock en alguna, no
+     * descuenta ninguna. Como en {@link Datos#descontarStock(List)}, las selecciones de varias
+     * motos se aplican de una en una, así que ninguna ve como falta de stock el descuento a
+     * medias de otra; una de una sola moto no usa bloqueos y solo se repite, esperando, si
+     * falla mientras se aplicaba una de varias.
+     * @param seleccion posiciones de las motos a descontar (con repetidos si se venden varias unidades)
+     * @return {@code true} si se descontó; {@code false} si faltaba stock o alguna posición no es válida
+     */
+    public boolean descontarStock(int... seleccion) {
+        // agrupar las unidades pedidas de cada moto
+        int[] ids = seleccion.clone();
+        Arrays.sort(ids);
+        int n = tamano;
+        int distintas = 0;
+        int[] unidades = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] < 0 || ids[i] >= n) return false;
+            if (distintas > 0 && ids[distintas - 1] == ids[i]) {
+                unidades[distintas - 1]++;
+            } else {
+                ids[distintas] = ids[i];
+                unidades[distintas++] = 1;
+            }
+        }
+
+        if (distintas <= 1) {
+            int version = versionDescuentos;
+            if (restarTodas(ids, unidades, distintas)) return true;
+            if ((version & 1) == 0 && version == versionDescuentos) return false;
+            synchronized (descuentosVarios) { return restarTodas(ids, unidades, distintas); }
+        }
+        synchronized (descuentosVarios) {
+            versionDescuentos++;
+            try {
+                return restarTodas(ids, unidades, distintas);
+            } finally {
+                versionDescuentos++;
+            }
+        }
+    }
+
+    /** Resta las unidades de cada moto o, si falta stock en alguna, deshace lo ya restado. */
+    private boolean restarTodas(int[] ids, int[] unidades, int distintas) {
+        for (int i = 0; i < distintas; i++) {
+            if (intentarRestar(ids[i], unidades[i])) continue;
+            for (int j = 0; j < i; j++) sumar(ids[j], unidades[j]);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Añade unidades al stock de la moto en el índice indicado.
+     * @param idx índice de la moto (basado en 0)
+     * @param unidades unidades a añadir (debe ser &gt; 0)
+     * @return {@code true} si se repuso; {@code false} si el índice es inválido o {@code unidades} &le; 0
+     */
+    public boolean reponerStockPorIndice(int idx, int unidades) {
+        boolean ok = idx >= 0 && idx < tamano && unidades > 0;
+        if (ok) sumar(idx, unidades);
+        return ok;
+    }
+
+    /**
+     * Vista de una moto de un {@link CatalogoDirecto}: lee sus datos del buffer en cada
+     * llamada, así que siempre muestra el stock actual. No es segura entre hilos si se mueve.
+     */
+    public static final class VistaMoto {
+        private final CatalogoDirecto catalogo;
+        private int indice;
+
+        private VistaMoto(CatalogoDirecto catalogo, int indice) {
+            this.catalogo = catalogo;
+            this.indice = indice;
+        }
+
+        /**
+         * Cambia la moto que muestra la vista.
+         * @param idx índice basado en 0
+         * @return esta misma vista
+         * @throws IndexOutOfBoundsException si el índice no es válido
+         */
+        public VistaMoto mover(int idx) {
+            indice = Objects.checkIndex(idx, catalogo.tamano);
+            return this;
+        }
+
+        /** @return posición de la moto en el catálogo */
+        public int getIndice() { return indice; }
+
+        /** @return marca de la moto */
+        public String getMarca() { return catalogo.texto(indice, false); }
+
+        /** @return modelo de la moto */
+        public String getModelo() { return catalogo.texto(indice, true); }
+
+        /** @return precio en euros */
+        public double getPrecio() { return Dinero.aEuros(getPrecioCentimos()); }
+
+        /** @return precio exacto en céntimos de euro */
+        public long getPrecioCentimos() { return catalogo.precio(indice); }
+
+        /** @return stock disponible */
+        public int getStock() { return catalogo.stock(indice); }
+
+        /**
+         * Copia la moto en un {@link Moto} del montón (por ejemplo, para registrar una venta en {@link Datos}).
+         * El stock de la copia es independiente del catálogo.
+         * @return copia con el stock actual
+         */
+        public Moto aMoto() { return Moto.deCentimos(getMarca(), getModelo(), getPrecioCentimos(), getStock()); }
+
+        /** @return representación corta: {@code "Marca Modelo (precio €)"} con 2 decimales */
+        @Override
+        public String toString() { return getMarca() + " " + getModelo() + " (" + Dinero.formatear(getPrecioCentimos()) + " €)"; }
+    }
+
+    /**
+     * Memoria fuera del montón que solo crece, en bloques directos de 1 MB. Cada reserva
+     * cabe entera en un bloque y se identifica por una dirección: número de bloque y posición.
+     */
+    private static final class Area {
+        static final int BITS = 20;
+        static final int BLOQUE = 1 << BITS;
+
+        volatile ByteBuffer[] bloques = new ByteBuffer[16];
+        volatile int[] usados = new int[16];         // bytes ocupados de cada bloque
+        private int numBloques = 0;
+
+        static int posicion(long direccion) { return (int) (direccion & (BLOQUE - 1)); }
+
+        ByteBuffer bloque(long direccion) { return bloques[(int) (direccion >>> BITS)]; }
+
+        long bytesReservados() { return (long) numBloques * BLOQUE; }
+
+        /** Reserva {@code bytes} seguidos (como mucho un bloque) y devuelve su dirección. */
+        long reservar(int bytes) {
+            if (numBloques == 0 || usados[numBloques - 1] + bytes > BLOQUE) {
+                ByteBuffer[] b = bloques;
+                int[] u = usados;
+                if (numBloques == b.length) {
+                    b = Arrays.copyOf(b, b.length * 2);
+                    u = Arrays.copyOf(u, u.length * 2);
+                }
+                b[numBloques++] = ByteBuffer.allocateDirect(BLOQUE).order(ByteOrder.nativeOrder());
+                usados = u;
+                bloques = b;
+            }
+            int ultimo = numBloques - 1;
+            int p = usados[ultimo];
+            usados[ultimo] = p + bytes;
+            return ((long) ultimo << BITS) | p;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package concesionario.servicio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Contadores exactos por elemento con consulta de los N mejores.
+ * <p>Cada elemento recibe un identificador, localizado por una clave que se compara
+ * por identidad (las motos) o con {@code equals} (el DNI normalizado de los clientes).
+ * Los valores se guardan en un array indexado por ese identificador: sumar cuesta una
+ * búsqueda en el mapa (ninguna si se guarda el identificador) y los N mejores se
+ * obtienen recorriendo el array con un montículo de N identificadores, en
+ * O(M log N) para M elementos, sin depender del número de ventas.</p>
+ * <p>A igual valor va antes el elemento que entró antes en la clasificación.</p>
+ * @param <T> tipo de los elementos
+ * @author Víctor
+ * @version 1.0
+ */
+final class Clasificacion<T> {
+    private static final long LIBRE = -1;
+
+    private final Map<Object, Integer> ids;
+    private long[] valores = new long[16];
+    private long[] ordenes = new long[16];      // orden de entrada, o LIBRE
+    private Object[] elementos = new Object[16];
+    private int alto = 0;                       // identificadores usados alguna vez
+    private int[] libres = new int[16];
+    private int numLibres = 0;
+    private long siguienteOrden = 0;
+
+    /**
+     * @param porIdentidad {@code true} para comparar las claves por identidad
+     */
+    Clasificacion(boolean porIdentidad) { this.ids = porIdentidad ? new IdentityHashMap<>() : new HashMap<>(); }
+
+    /** Vacía la clasificación. */
+    void limpiar() {
+        ids.clear();
+        Arrays.fill(elementos, 0, alto, null);
+        alto = 0;
+        numLibres = 0;
+        siguienteOrden = 0;
+    }
+
+    /** @return número de elementos en la clasificación */
+    int tamano() { return ids.size(); }
+
+    /**
+     * Localiza (o da de alta a cero) un elemento. Quien guarde el identificador puede
+     * sumar después con {@link #sumar(int, long)} sin buscarlo, mientras no se reste
+     * hasta cero.
+     * @param clave    clave del elemento
+     * @param elemento elemento (se guarda la primera vez que aparece la clave)
+     * @return identificador del elemento
+     */
+    int id(Object clave, T elemento) {
+        Integer id = ids.get(clave);
+        if (id != null) return id;
+        int nuevo;
+        if (numLibres > 0) nuevo = libres[--numLibres];
+        else {
+            if (alto == valores.length) {
+                int capacidad = alto * 2;
+                valores = Arrays.copyOf(valores, capacidad);
+                ordenes = Arrays.copyOf(ordenes, capacidad);
+                elementos = Arrays.copyOf(elementos, capacidad);
+            }
+            nuevo = alto++;
+        }
+        valores[nuevo] = 0;
+        ordenes[nuevo] = siguienteOrden++;
+        elementos[nuevo] = elemento;
+        ids.put(clave, nuevo);
+        return nuevo;
+    }
+
+    /**
+     * Suma una cantidad al valor de un elemento.
+     * @param id       identificador (de {@link #id(Object, Object)})
+     * @param cantidad cantidad a sumar
+     */
+    void sumar(int id, long cantidad) { valores[id] += cantidad; }
+
+    /**
+     * Suma una cantidad al valor de un elemento.
+     * @param clave    clave del elemento
+     * @param elemento elemento (se guarda la primera vez que aparece la clave)
+     * @param cantidad cantidad a sumar
+     */
+    void sumar(Object clave, T elemento, long cantidad) {
+        int id = id(clave, elemento);          // puede ampliar los arrays
+        valores[id] += cantidad;
+    }
+
+    /**
+     * Resta una cantidad al valor de un elemento; si queda a cero, sale de la clasificación.
+     * @param clave    clave del elemento
+     * @param cantidad cantidad a restar
+     */
+    void restar(Object clave, long cantidad) {
+        Integer id = ids.get(clave);
+        if (id == null) return;
+        if ((valores[id] -= cantidad) != 0) return;
+        ids.remove(clave);
+        ordenes[id] = LIBRE;
+        elementos[id] = null;
+        if (numLibres == libres.length) libres = Arrays.copyOf(libres, numLibres * 2);
+        libres[numLibres++] = id;
+    }
+
+    /**
+     * @param clave clave del elemento
+     * @return valor del elemento (0 si no está)
+     */
+    long valor(Object clave) {
+        Integer id = ids.get(clave);
+        return id == null ? 0 : valores[id];
+    }
+
+    /** Indica si el elemento {@code a} va por delante del {@code b}. */
+    private boolean mejor(int a, int b) {
+        return valores[a] != valores[b] ? valores[a] > valores[b] : ordenes[a] < ordenes[b];
+    }
+
+    /**
+     * @param n número máximo de puestos
+     * @return los {@code n} elementos de mayor valor, del primero al último
+     */
+    @SuppressWarnings("unchecked")
+    List<Puesto<T>> mejores(int n) {
+        if (n <= 0) throw new IllegalArgumentException("Número de puestos no válido: " + n);
+        // montículo con el peor de los candidatos en la cima
+        PriorityQueue<Integer> candidatos = new PriorityQueue<>(Math.min(n, ids.size()) + 1,
+                (a, b) -> a.equals(b) ? 0 : mejor(a, b) ? 1 : -1);
+        long umbral = Long.MIN_VALUE;           // valor del peor candidato cuando el montículo está lleno
+        for (int id = 0; id < alto; id++) {
+            if (ordenes[id] == LIBRE || valores[id] < umbral) continue;
+            if (candidatos.size() < n) candidatos.add(id);
+            else if (mejor(id, candidatos.peek())) {
+                candidatos.poll();
+                candidatos.add(id);
+            } else continue;
+            if (candidatos.size() == n) umbral = valores[candidatos.peek()];
+        }
+        List<Puesto<T>> res = new ArrayList<>(candidatos.size());
+        while (!candidatos.isEmpty()) {
+            int id = candidatos.poll();
+            res.add(new Puesto<>((T) elementos[id], valores[id]));
+        }
+        Collections.reverse(res);
+        return res;
+    }
+}
@@ -0,0 +1,117 @@
+package concesionario.servicio;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Clasificacion} limitada a los últimos días.
+ * <p>La ventana termina en la fecha más reciente registrada, o en la indicada con
+ * {@link #avanzarHasta(LocalDate)} si es posterior, y abarca {@code dias} días. Cada día
+ * tiene un cubo con lo sumado ese día; los cubos forman un anillo indexado por el día.
+ * Cuando el final avanza, los cubos que salen de la ventana se restan de la
+ * clasificación y se vacían, uno por día avanzado, así que el coste de caducar se
+ * reparte entre las altas y las consultas, y la consulta no recorre nada fuera de la
+ * ventana.</p>
+ * <p>Lo que se suma con una fecha anterior a la ventana (o sin fecha) se descarta. El
+ * resultado no depende del orden en que lleguen las fechas.</p>
+ * @param <T> tipo de los elementos
+ * @author Víctor
+ * @version 1.0
+ */
+final class ClasificacionVentana<T> {
+
+    /** Cantidad sumada a un elemento en un día. */
+    private static final class Apunte {
+        long cantidad;
+    }
+
+    private final int dias;
+    private final Clasificacion<T> total;
+    private final List<Map<Object, Apunte>> cubos;
+    private long ultimoDia = Long.MIN_VALUE;
+
+    /**
+     * @param dias         días de la ventana (al menos 1)
+     * @param porIdentidad {@code true} para comparar las claves por identidad
+     */
+    ClasificacionVentana(int dias, boolean porIdentidad) {
+        if (dias < 1) throw new IllegalArgumentException("Días de ventana no válidos: " + dias);
+        this.dias = dias;
+        this.total = new Clasificacion<>(porIdentidad);
+        this.cubos = new ArrayList<>(dias);
+        for (int i = 0; i < dias; i++) cubos.add(porIdentidad ? new IdentityHashMap<>() : new HashMap<>());
+    }
+
+    /** @return días de la ventana */
+    int dias() { return dias; }
+
+    /** @return último día de la ventana o {@code null} si aún no hay nada */
+    LocalDate hasta() { return ultimoDia == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(ultimoDia); }
+
+    /** Vacía la ventana. */
+    void limpiar() {
+        total.limpiar();
+        for (Map<Object, Apunte> c : cubos) c.clear();
+        ultimoDia = Long.MIN_VALUE;
+    }
+
+    /**
+     * Suma una cantidad al valor de un elemento en un día.
+     * @param fecha    día (las fechas {@code null} o anteriores a la ventana se descartan)
+     * @param clave    clave del elemento
+     * @param elemento elemento
+     * @param cantidad cantidad a sumar
+     */
+    void sumar(LocalDate fecha, Object clave, T elemento, long cantidad) {
+        if (fecha == null) return;
+        long dia = fecha.toEpochDay();
+        if (dia > ultimoDia) avanzar(dia);
+        else if (dia <= ultimoDia - dias) return;
+        Map<Object, Apunte> cubo = cubos.get((int) Math.floorMod(dia, (long) dias));
+        Apunte a = cubo.get(clave);
+        if (a == null) cubo.put(clave, a = new Apunte());
+        a.cantidad += cantidad;
+        total.sumar(clave, elemento, cantidad);
+    }
+
+    /**
+     * Lleva el final de la ventana hasta un día (si aún no ha llegado), para que lo sumado
+     * antes de la ventana salga aunque no se sume nada nuevo.
+     * @param hoy día en que debe terminar la ventana como pronto
+     */
+    void avanzarHasta(LocalDate hoy) {
+        long dia = hoy.toEpochDay();
+        if (dia > ultimoDia) avanzar(dia);
+    }
+
+    /** Mueve el final de la ventana a {@code dia}, caducando los cubos que quedan fuera. */
+    private void avanzar(long dia) {
+        if (ultimoDia == Long.MIN_VALUE || dia - ultimoDia >= dias) {
+            limpiar();
+        } else {
+            for (long d = ultimoDia + 1; d <= dia; d++) {
+                // el cubo de d es el del día d - dias, que sale de la ventana
+                Map<Object, Apunte> cubo = cubos.get((int) Math.floorMod(d, (long) dias));
+                for (Map.Entry<Object, Apunte> e : cubo.entrySet()) total.restar(e.getKey(), e.getValue().cantidad);
+                cubo.clear();
+            }
+        }
+        ultimoDia = dia;
+    }
+
+    /**
+     * @param clave clave del elemento
+     * @return valor del elemento dentro de la ventana (0 si no está)
+     */
+    long valor(Object clave) { return total.valor(clave); }
+
+    /**
+     * @param n número máximo de puestos
+     * @return los {@code n} elementos de mayor valor dentro de la ventana, del primero al último
+     */
+    List<Puesto<T>> mejores(int n) { return total.mejores(n); }
+}
@@ -0,0 +1,19 @@
+package concesionario.servicio;
+
+/**
+ * Receptor de los eventos de un {@link BusEventos} (ver {@link BusEventos#suscribir(String, ConsumidorEventos)}).
+ * @author Víctor
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface ConsumidorEventos {
+
+    /**
+     * Procesa un evento. Se llama siempre desde el hilo de la suscripción, en orden de
+     * secuencia. Las excepciones se cuentan y no detienen la suscripción.
+     * @param evento    evento (casilla reutilizada: solo es válido durante la llamada)
+     * @param finDeLote {@code true} si es el último evento disponible por ahora (buen
+     *                  momento para volcar lo acumulado)
+     */
+    void alEvento(Evento evento, boolean finDeLote);
+}
@@ -0,0 +1,44 @@
+package concesionario.servicio;
+
+/**
+ * Posición dentro de un listado ordenado, para leerlo por páginas.
+ * <p>En los listados ordenados, un cursor guarda la clave del último elemento visto
+ * (no su posición), así que sigue siendo válido aunque entre una página y la siguiente
+ * se añadan o eliminen elementos: la siguiente página empieza justo después de esa
+ * clave. En los listados en el orden de alta guarda la posición, y cada cursor solo
+ * sirve para el listado que lo devolvió.</p>
+ * @author Víctor
+ * @version 1.0
+ * @see Pagina
+ */
+public final class Cursor {
+    /** Clave de ordenación, o {@code null} en los listados por posición. */
+    final String clave;
+    final long secuencia;
+    final boolean haciaAtras;
+
+    Cursor(String clave, long secuencia, boolean haciaAtras) {
+        this.clave = clave;
+        this.secuencia = secuencia;
+        this.haciaAtras = haciaAtras;
+    }
+
+    /**
+     * Cursor que empieza en el primer elemento cuyo texto de ordenación es mayor o igual
+     * que el dado (sin distinguir mayúsculas/minúsculas). Por ejemplo, {@code desde("m")}
+     * salta a los clientes cuyo nombre empieza por M.
+     * @param texto texto inicial
+     * @return cursor hacia delante
+     */
+    public static Cursor desde(String texto) {
+        return new Cursor(IndiceOrdenado.normalizar(texto), Long.MIN_VALUE, false);
+    }
+
+    /** @return {@code true} si lee la página anterior a la clave */
+    public boolean isHaciaAtras() { return haciaAtras; }
+
+    @Override
+    public String toString() {
+        return (haciaAtras ? "antes de " : "después de ") + (clave == null ? "la posición " + secuencia : clave);
+    }
+}
@@ -1,25 +1,123 @@
 package concesionario.servicio;
 
-import java.util.Comparator;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 import concesionario.modelo.Cliente;
+import concesionario.modelo.Dinero;
 import concesionario.modelo.Moto;
+import concesionario.modelo.Textos;
 import concesionario.modelo.Venta;
+import concesionario.servicio.Metricas.Operacion;
 
 /**
  * Servicio en memoria que gestiona las colecciones de clientes, motos y ventas.
- * <p>No hay persistencia: los datos se pierden al cerrar la aplicación.</p>
+ * <p>Por defecto no hay persistencia: los datos se pierden al cerrar la aplicación.
+ * Si se asigna un {@link Diario} con {@link #setDiario(Diario)}, cada modificación
+ * hecha a través de los métodos del servicio se anota en él (las hechas directamente
+ * sobre las listas vivas o sobre los objetos no se anotan).</p>
  * <p><b>Importante:</b> los getters de listas devuelven <i>listas vivas</i>;
  * modificarlas afecta al estado interno del servicio.</p>
+ * <p>Los clientes se indexan por DNI normalizado, de modo que las altas y las
+ * búsquedas por DNI no recorren la lista. Índices, búsquedas y ordenaciones usan las
+ * claves sin mayúsculas ni acentos que guardan {@link Cliente} y {@link Moto}, así que
+ * no normalizan cada elemento en cada llamada. Las ventas se indexan también por el DNI
+ * de su cliente y por fecha (con totales por día y por mes), y las motos mantienen un
+ * índice de trigramas para las búsquedas por texto. Los totales de ventas se acumulan al
+ * registrar cada venta. Clientes y motos se mantienen además ordenados por nombre y por
+ * marca/modelo, así que los listados ordenados no ordenan de nuevo. Las unidades vendidas
+ * de cada moto y el gasto de cada cliente se cuentan también al registrar cada venta, para
+ * las clasificaciones. Si una lista viva se modifica desde fuera, sus índices se
+ * reconstruyen en el siguiente acceso.</p>
+ * <p>Con {@link #setAlmacenColumnar(boolean)} se guarda además una copia de las ventas
+ * por columnas que acelera las consultas por fechas, por cliente y por moto.</p>
+ * <p>Las ventas en curso pueden apartar stock con {@link #reservar(Moto, int)} y
+ * registrarse después con {@link #confirmarReservas(Cliente, List)}; las reservas no
+ * confirmadas caducan y su stock vuelve a estar disponible.</p>
+ * <p>Con {@link #setBusEventos(BusEventos)} cada modificación hecha a través de los
+ * métodos del servicio se publica además como {@link Evento}.</p>
+ * <p>Con {@link #setVentanaClasificacion(int)} se mantienen además las clasificaciones
+ * de los últimos días.</p>
+ * <p>Con {@link #setMetricas(Metricas)} se cuentan las llamadas y fallos de cada método
+ * público y se mide su latencia (ver {@link Metricas}).</p>
  * @author Víctor
  * @version 1.0
  */
 public class Datos {
+
+    /** Resultado de {@link #removeClienteSinVentas(String)}. */
+    public enum Baja {
+        /** El cliente se eliminó. */
+        ELIMINADO,
+        /** No hay ningún cliente con ese DNI. */
+        NO_EXISTE,
+        /** El cliente tiene ventas registradas y se conserva. */
+        CON_VENTAS
+    }
+
     private final List<Cliente> clientes = new ArrayList<>();
     private final List<Moto> motos = new ArrayList<>();
-    private final List<Venta> ventas = new ArrayList<>();
+    private final ArrayList<Venta> ventas = new ArrayList<>();
+
+    // Índices
+    private final Map<String, Cliente> clientesPorDni = new HashMap<>();
+    private final List<Cliente> vistaClientes = new ListaVigilada<>(clientes, this::invalidarIndiceClientes);
+    private boolean indiceClientesValido = true;
+    private boolean hayDniRepetidos = false;
+    private final Map<String, List<Venta>> ventasPorCliente = new HashMap<>();
+    private final List<Venta> vistaVentas = new ListaVigilada<>(ventas, this::invalidarIndicesVentas);
+    private boolean indicesVentasValidos = true;
+    private final AgregadosVentas agregados = new AgregadosVentas();
+    private final IndiceTemporal indiceFechas = new IndiceTemporal();
+    private final Clasificacion<Moto> clasificacionMotos = new Clasificacion<>(true);
+    private final Clasificacion<Cliente> clasificacionClientes = new Clasificacion<>(true);    // por Acumulado
+    private ClasificacionVentana<Moto> recientesMotos;          // null si no hay ventana
+    private ClasificacionVentana<Cliente> recientesClientes;
+    private Supplier<LocalDate> hoyVentana = LocalDate::now;
+    private final IndiceTrigramas indiceTexto = new IndiceTrigramas();
+    private final List<Moto> vistaMotos = new ListaVigilada<>(motos, this::invalidarIndiceMotos);
+    private boolean indiceMotosValido = true;
+    private final Map<Moto, Integer> posicionesMotos = new IdentityHashMap<>();
+    private final IndiceOrdenado<Cliente> ordenClientes = new IndiceOrdenado<>(Cliente::getClaveNombre);
+    private boolean ordenClientesValido = true;
+    private final IndiceOrdenado<Moto> ordenMotos = new IndiceOrdenado<>(Datos::textoOrdenMoto);
+    private boolean ordenMotosValido = true;
+
+    // Descuentos de stock de varias motos (se aplican de uno en uno, ver descontarStock)
+    private final Object descuentosVarios = new Object();
+    private volatile int versionDescuentos;     // impar mientras uno puede estar deshaciéndose
+
+    // Reservas de stock
+    private Reservas reservas = new Reservas(System::currentTimeMillis, this::reservaCaducada);
+    private ScheduledExecutorService caducidadReservas;     // null si no está iniciada
+
+    // Eventos
+    private BusEventos eventos;
+
+    // Copia por columnas de las ventas (opcional)
+    private AlmacenColumnar columnas;
+    private final ToIntFunction<Moto> posicionEnCatalogo = this::posicionMoto;
+
+    // Persistencia
+    private Diario diario;
+
+    // Métricas
+    private Metricas metricas = Metricas.DESACTIVADAS;
 
     // Constructor
 
@@ -34,41 +132,163 @@ public class Datos {
     // Getters
 
     /** @return lista viva de clientes (modificarla afecta al servicio) */
-    public List<Cliente> getClientes() { return clientes; }
+    public List<Cliente> getClientes() { return vistaClientes; }
+
+    /** @return número de clientes */
+    public int numClientes() { return clientes.size(); }
 
     /** @return lista viva de motos (modificarla afecta al servicio) */
-    public List<Moto> getMotos() { return motos; }
+    public List<Moto> getMotos() { return vistaMotos; }
 
     /** @return lista viva de ventas (modificarla afecta al servicio) */
-    public List<Venta> getVentas() { return ventas; }
+    public List<Venta> getVentas() { return vistaVentas; }
+
+    // Páginas en el orden de alta
+
+    /**
+     * Devuelve una página de los clientes en el orden de la lista.
+     * @param cursor posición ({@code null} para la primera página)
+     * @param tamano número máximo de clientes
+     * @return página con los cursores de la anterior y la siguiente
+     * @throws IllegalArgumentException si {@code tamano} &le; 0 o el cursor es de un listado ordenado
+     */
+    public Pagina<Cliente> paginaClientes(Cursor cursor, int tamano) {
+        long t = metricas.empezar();
+        Pagina<Cliente> p = pagina(clientes, cursor, tamano);
+        metricas.anotar(Operacion.LISTADO_CLIENTES, t, true);
+        return p;
+    }
+
+    /**
+     * Devuelve una página de las motos en el orden del catálogo.
+     * @param cursor posición ({@code null} para la primera página)
+     * @param tamano número máximo de motos
+     * @return página con los cursores de la anterior y la siguiente
+     * @throws IllegalArgumentException si {@code tamano} &le; 0 o el cursor es de un listado ordenado
+     */
+    public Pagina<Moto> paginaMotos(Cursor cursor, int tamano) {
+        long t = metricas.empezar();
+        Pagina<Moto> p = pagina(motos, cursor, tamano);
+        metricas.anotar(Operacion.LISTADO_MOTOS, t, true);
+        return p;
+    }
+
+    /**
+     * Devuelve una página de las ventas en el orden en que se registraron.
+     * @param cursor posición ({@code null} para la primera página)
+     * @param tamano número máximo de ventas
+     * @return página con los cursores de la anterior y la siguiente
+     * @throws IllegalArgumentException si {@code tamano} &le; 0 o el cursor es de un listado ordenado
+     */
+    public Pagina<Venta> paginaVentas(Cursor cursor, int tamano) {
+        long t = metricas.empezar();
+        Pagina<Venta> p = pagina(ventas, cursor, tamano);
+        metricas.anotar(Operacion.LISTADO_VENTAS, t, true);
+        return p;
+    }
 
     // Altas
 
     /**
      * Añade un cliente si el DNI no existe (comparación sin distinguir mayúsculas/minúsculas).
      * @param c cliente a añadir
-     * @return {@code true} si se añadió; {@code false} si ya existía ese DNI o {@code c} es null
+     * @return {@code true} si se añadió; {@code false} si ya existía ese DNI, no tiene DNI o {@code c} es null
      */
     public boolean addCliente(Cliente c) {    // validamos DNI
-        if (c == null) return false;
-        for (Cliente x : clientes) {
-            if (x.getDni().equalsIgnoreCase(c.getDni())) return false;
-        }
-        clientes.add(c);
-        return true;
+        long t = metricas.empezar();
+        boolean ok = altaCliente(c);
+        if (ok) confirmarDiario();
+        metricas.anotar(Operacion.ALTA_CLIENTE, t, ok);
+        return ok;
     }
 
     /**
      * Añade una moto al catálogo (si no es null).
      * @param m moto a añadir
      */
-    public void addMoto(Moto m) { if (m != null) motos.add(m); }
+    public void addMoto(Moto m) {
+        long t = metricas.empezar();
+        if (m != null) {
+            altaMoto(m);
+            confirmarDiario();
+        }
+        metricas.anotar(Operacion.ALTA_MOTO, t, m != null);
+    }
 
     /**
      * Registra una venta (si no es null).
      * @param v venta a registrar
      */
-    public void addVenta(Venta v) { if (v != null) ventas.add(v); }
+    public void addVenta(Venta v) {
+        long t = metricas.empezar();
+        if (v != null) {
+            altaVenta(v);
+            confirmarDiario();
+        }
+        metricas.anotar(Operacion.ALTA_VENTA, t, v != null);
+    }
+
+    /**
+     * Registra un lote de ventas: descuenta el stock de todas y las añade de una vez.
+     * <p>Las peticiones se revisan en orden en una sola pasada, contando el stock que ya
+     * han reservado las anteriores del lote; las que no caben o no son válidas se
+     * rechazan sin afectar a las demás. Después se descuenta el total de cada moto y
+     * se añaden las ventas aceptadas. Con diario, todo el lote se confirma con una
+     * sola espera de durabilidad.</p>
+     * @param peticiones ventas a registrar, en orden de prioridad
+     * @return resultado de cada petición, en el mismo orden
+     */
+    public List<ResultadoVenta> registrarVentas(List<PeticionVenta> peticiones) {
+        long t = metricas.empezar();
+        ResultadoVenta.Estado[] estados = new ResultadoVenta.Estado[peticiones.size()];
+        Map<Moto, int[]> total = new IdentityHashMap<>();
+        synchronized (descuentosVarios) {           // ver descontarStock
+            versionDescuentos++;
+            while (true) {
+                total.clear();
+                planificarLote(peticiones, estados, total);
+                Moto sinStock = null;
+                for (var e : total.entrySet()) {
+                    if (!e.getKey().intentarRestarStock(e.getValue()[0])) {
+                        sinStock = e.getKey();
+                        break;
+                    }
+                }
+                if (sinStock == null) break;
+                // otro hilo ha vendido entre la revisión y el descuento: deshacer y revisar de nuevo
+                for (var e : total.entrySet()) {
+                    if (e.getKey() == sinStock) break;
+                    e.getKey().anadirStock(e.getValue()[0]);
+                }
+                Thread.onSpinWait();
+            }
+            versionDescuentos++;
+        }
+        if (diario != null && !total.isEmpty()) {
+            Map<Moto, Integer> descuento = new HashMap<>();
+            for (var e : total.entrySet()) descuento.put(e.getKey(), e.getValue()[0]);
+            anotarDescuento(descuento);
+        }
+        if (eventos != null) for (var e : total.entrySet()) publicar(Evento.Tipo.DESCUENTO_STOCK, null, e.getKey(), e.getValue()[0], null);
+
+        List<ResultadoVenta> res = new ArrayList<>(estados.length);
+        LocalDate hoy = LocalDate.now();
+        boolean todas = true;
+        for (int i = 0; i < estados.length; i++) {
+            Venta v = null;
+            if (estados[i] == ResultadoVenta.Estado.REGISTRADA) {
+                PeticionVenta p = peticiones.get(i);
+                v = new Venta(p.getCliente(), p.getMotos(), p.getFecha() == null ? hoy : p.getFecha());
+                altaVenta(v);
+            } else {
+                todas = false;
+            }
+            res.add(new ResultadoVenta(estados[i], v));
+        }
+        confirmarDiario();
+        metricas.anotar(Operacion.REGISTRO_VENTAS, t, todas);
+        return res;
+    }
 
     // Bajas
 
@@ -78,8 +298,81 @@ public class Datos {
      * @return {@code true} si se eliminó; {@code false} si el índice no es válido
      */
     public boolean removeClientePorIndice(int idx) {
-        if (idx < 0 || idx >= clientes.size()) return false;
-        clientes.remove(idx);
+        long t = metricas.empezar();
+        boolean ok = bajaCliente(idx);
+        if (ok) confirmarDiario();
+        metricas.anotar(Operacion.BAJA_CLIENTE, t, ok);
+        return ok;
+    }
+
+    /**
+     * Elimina el cliente con el DNI dado (sin distinguir mayúsculas/minúsculas).
+     * @param dni DNI del cliente
+     * @return {@code true} si se eliminó; {@code false} si no existe
+     */
+    public boolean removeClientePorDni(String dni) {
+        long t = metricas.empezar();
+        boolean ok = bajaCliente(posicionCliente(dni));
+        if (ok) confirmarDiario();
+        metricas.anotar(Operacion.BAJA_CLIENTE, t, ok);
+        return ok;
+    }
+
+    /**
+     * Elimina el cliente con el DNI dado solo si no tiene ventas registradas. Comprobarlo
+     * con {@link #tieneVentas(String)} y eliminarlo después no es lo mismo en
+     * {@link DatosConcurrentes}: entre las dos llamadas se le puede registrar una venta.
+     * @param dni DNI del cliente
+     * @return si se eliminó o por qué no
+     */
+    public Baja removeClienteSinVentas(String dni) {
+        long t = metricas.empezar();
+        int idx = posicionCliente(dni);
+        Baja res;
+        if (idx < 0) res = Baja.NO_EXISTE;
+        else if (!listaVentasDe(dni).isEmpty()) res = Baja.CON_VENTAS;
+        else res = bajaCliente(idx) ? Baja.ELIMINADO : Baja.NO_EXISTE;
+        if (res == Baja.ELIMINADO) confirmarDiario();
+        metricas.anotar(Operacion.BAJA_CLIENTE, t, res == Baja.ELIMINADO);
+        return res;
+    }
+
+    /** @return posición en la lista del cliente con ese DNI, o -1 si no existe */
+    private int posicionCliente(String dni) {
+        Cliente c = dni == null ? null : indiceClientes().get(claveDni(dni));
+        for (int i = 0; c != null && i < clientes.size(); i++) {
+            if (clientes.get(i) == c) return i;
+        }
+        return -1;
+    }
+
+    // Modificación
+
+    /**
+     * Modifica los datos de contacto de un cliente. Los valores {@code null} o vacíos
+     * conservan el dato actual. El DNI no se puede cambiar.
+     * @param c        cliente a modificar
+     * @param nombre   nuevo nombre (o {@code null}/vacío para conservarlo)
+     * @param telefono nuevo teléfono (o {@code null}/vacío para conservarlo)
+     * @param email    nuevo email (o {@code null}/vacío para conservarlo)
+     * @return {@code true} si se modificó; {@code false} si {@code c} es null
+     */
+    public boolean modificarCliente(Cliente c, String nombre, String telefono, String email) {
+        long t = metricas.empezar();
+        if (c == null) {
+            metricas.anotar(Operacion.MODIFICACION_CLIENTE, t, false);
+            return false;
+        }
+        if (nombre != null && !nombre.isEmpty()) {
+            c.setNombre(nombre);
+            if (ordenClientesValido) ordenClientes.actualizar(c);
+        }
+        if (telefono != null && !telefono.isEmpty()) c.setTelefono(telefono);
+        if (email != null && !email.isEmpty()) c.setEmail(email);
+        if (diario != null) diario.anotarModificacionCliente(c.getDni(), nombre, telefono, email);
+        publicar(Evento.Tipo.MODIFICACION_CLIENTE, c, null, 0, null);
+        confirmarDiario();
+        metricas.anotar(Operacion.MODIFICACION_CLIENTE, t, true);
         return true;
     }
 
@@ -91,23 +384,36 @@ public class Datos {
      * @return cliente encontrado o {@code null} si no existe
      */
     public Cliente buscarClientePorDni(String dni) {
-        for (Cliente c : clientes) if (c.getDni().equalsIgnoreCase(dni)) return c;
-        return null;
+        long t = metricas.empezar();
+        Cliente c = dni == null ? null : indiceClientes().get(claveDni(dni));
+        metricas.anotar(Operacion.BUSQUEDA_CLIENTE, t, true);
+        return c;
+    }
+
+    /**
+     * Devuelve la moto en la posición indicada del catálogo.
+     * @param idx índice basado en 0
+     * @return moto en esa posición o {@code null} si el índice no es válido
+     */
+    public Moto buscarMotoPorIndice(int idx) {
+        long t = metricas.empezar();
+        Moto m = idx < 0 || idx >= motos.size() ? null : motos.get(idx);
+        metricas.anotar(Operacion.BUSQUEDA_MOTO, t, true);
+        return m;
     }
 
     /**
      * Busca motos cuyo modelo o marca contenga el texto (ignorando mayúsculas/minúsculas).
+     * Usa el índice de trigramas, por lo que solo se revisan las motos candidatas.
      * @param q texto a buscar
-     * @return lista (puede estar vacía) de coincidencias
+     * @return lista (puede estar vacía) de coincidencias, en el orden del catálogo
      */
     public List<Moto> buscarMotosPorTexto(String q) {
+        long t = metricas.empezar();
         List<Moto> res = new ArrayList<>();
-        String s = q.toLowerCase();
-        for (Moto m : motos) {
-            if (m.getMarca().toLowerCase().contains(s) || m.getModelo().toLowerCase().contains(s)) {
-                res.add(m);
-            }
-        }
+        String s = IndiceTrigramas.normalizar(q);
+        indiceMotos().buscar(s, id -> res.add(motos.get(id)));
+        metricas.anotar(Operacion.BUSQUEDA_MOTOS_TEXTO, t, true);
         return res;
     }
 
@@ -117,51 +423,368 @@ public class Datos {
      * @return lista de ventas (puede estar vacía)
      */
     public List<Venta> ventasPorDni(String dni) {
-        List<Venta> res = new ArrayList<>();
-        for (Venta v : ventas) {
-            if (v.getCliente().getDni().equalsIgnoreCase(dni)) {
-                res.add(v);
-            }
-        }
+        long t = metricas.empezar();
+        List<Venta> res = new ArrayList<>(listaVentasDe(dni));
+        metricas.anotar(Operacion.VENTAS_CLIENTE, t, true);
+        return res;
+    }
+
+    /**
+     * Indica si el cliente con el DNI dado tiene alguna venta registrada.
+     * @param dni DNI del cliente
+     * @return {@code true} si tiene al menos una venta
+     */
+    public boolean tieneVentas(String dni) {
+        long t = metricas.empezar();
+        boolean res = !listaVentasDe(dni).isEmpty();
+        metricas.anotar(Operacion.TIENE_VENTAS, t, true);
         return res;
     }
 
     /**
      * Suma el importe de todas las ventas registradas.
+     * El total se mantiene al registrar cada venta, así que no recorre el histórico.
      * @return total acumulado en euros
      */
-    public double totalVentas() {
-        double total = 0.0;
-        for (Venta v : ventas) total += v.getImporte();
+    public double totalVentas() { return Dinero.aEuros(totalVentasCentimos()); }
+
+    /**
+     * Suma exacta del importe de todas las ventas registradas.
+     * @return total acumulado en céntimos de euro
+     */
+    public long totalVentasCentimos() {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        long total = agregados.total();
+        metricas.anotar(Operacion.TOTAL_VENTAS, t, true);
         return total;
     }
 
+    /**
+     * Suma el importe de las ventas del cliente con el DNI dado.
+     * @param dni DNI del cliente
+     * @return total acumulado en euros (0 si no tiene ventas)
+     */
+    public double totalVentasCliente(String dni) { return Dinero.aEuros(totalVentasClienteCentimos(dni)); }
+
+    /**
+     * Suma exacta del importe de las ventas del cliente con el DNI dado.
+     * @param dni DNI del cliente
+     * @return total acumulado en céntimos de euro (0 si no tiene ventas)
+     */
+    public long totalVentasClienteCentimos(String dni) {
+        long t = metricas.empezar();
+        AgregadosVentas.Acumulado a = acumuladoCliente(dni);
+        metricas.anotar(Operacion.TOTAL_CLIENTE, t, true);
+        return a == null ? 0 : a.importe;
+    }
+
+    /** @return número total de motos vendidas (una por unidad) */
+    public long unidadesVendidas() {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        long unidades = agregados.unidades();
+        metricas.anotar(Operacion.UNIDADES, t, true);
+        return unidades;
+    }
+
+    /**
+     * Cuenta las motos vendidas al cliente con el DNI dado.
+     * @param dni DNI del cliente
+     * @return unidades compradas por el cliente (0 si no tiene ventas)
+     */
+    public long unidadesVendidasCliente(String dni) {
+        long t = metricas.empezar();
+        AgregadosVentas.Acumulado a = acumuladoCliente(dni);
+        metricas.anotar(Operacion.UNIDADES_CLIENTE, t, true);
+        return a == null ? 0 : a.unidades;
+    }
+
+    // Análisis por fechas
+
+    /**
+     * Resume (importe, unidades y número) las ventas entre dos fechas (ambas incluidas).
+     * Usa los totales por día y por mes, así que solo lee los días sueltos de los meses
+     * de los extremos y un total por cada mes completo intermedio.
+     * Las ventas sin fecha solo cuentan si no hay fecha inicial.
+     * @param desde primer día (o {@code null} para no limitar)
+     * @param hasta último día (o {@code null} para no limitar)
+     * @return resumen del intervalo
+     */
+    public Resumen resumenVentasEntre(LocalDate desde, LocalDate hasta) {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        Resumen r = indiceFechas.resumen(desde, hasta);
+        metricas.anotar(Operacion.RESUMEN_ENTRE_FECHAS, t, true);
+        return r;
+    }
+
+    /**
+     * Suma el importe de las ventas entre dos fechas (ambas incluidas).
+     * @param desde primer día (o {@code null} para no limitar)
+     * @param hasta último día (o {@code null} para no limitar)
+     * @return total en céntimos de euro
+     * @see #resumenVentasEntre(LocalDate, LocalDate)
+     */
+    public long totalVentasEntreCentimos(LocalDate desde, LocalDate hasta) {
+        return resumenVentasEntre(desde, hasta).getImporteCentimos();
+    }
+
+    /**
+     * Resume las ventas de cada mes entre dos meses (ambos incluidos).
+     * @param desde primer mes
+     * @param hasta último mes
+     * @return mes → resumen, en orden y solo de los meses con ventas
+     */
+    public SortedMap<YearMonth, Resumen> resumenVentasPorMes(YearMonth desde, YearMonth hasta) {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        SortedMap<YearMonth, Resumen> res = indiceFechas.porMes(desde, hasta);
+        metricas.anotar(Operacion.RESUMEN_POR_MES, t, true);
+        return res;
+    }
+
+    /**
+     * Devuelve las ventas entre dos fechas (ambas incluidas), por fecha y, dentro de
+     * cada día, en el orden en que se registraron. Las ventas sin fecha no se incluyen.
+     * @param desde primer día (o {@code null} para no limitar)
+     * @param hasta último día (o {@code null} para no limitar)
+     * @return nueva lista de ventas
+     */
+    public List<Venta> ventasEntre(LocalDate desde, LocalDate hasta) {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        List<Venta> res = new ArrayList<>();
+        indiceFechas.recorrer(desde, hasta, res::add);
+        metricas.anotar(Operacion.VENTAS_ENTRE_FECHAS, t, true);
+        return res;
+    }
+
+    /**
+     * Suma el importe de las ventas de cada día de un intervalo.
+     * @param desde primer día
+     * @param hasta último día (no anterior a {@code desde})
+     * @return importe de cada día en céntimos (la posición 0 es {@code desde})
+     * @throws IllegalArgumentException si falta alguna fecha o el intervalo no es válido
+     */
+    public long[] totalesPorDiaCentimos(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null || hasta.isBefore(desde)
+                || hasta.toEpochDay() - desde.toEpochDay() >= Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Intervalo no válido: " + desde + " - " + hasta);
+        }
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        long[] res = indiceFechas.importePorDia(desde, hasta);
+        metricas.anotar(Operacion.TOTALES_POR_DIA, t, true);
+        return res;
+    }
+
+    /**
+     * Suma el importe de las ventas de cada cliente entre dos fechas (ambas incluidas).
+     * @param desde primer día (o {@code null} para no limitar)
+     * @param hasta último día (o {@code null} para no limitar)
+     * @return DNI (como aparece en su primera venta) → total en céntimos, solo de los
+     *         clientes con alguna venta en el intervalo; sin orden definido
+     */
+    public Map<String, Long> totalesPorClienteCentimos(LocalDate desde, LocalDate hasta) {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        Map<String, Long> res = new HashMap<>();
+        if (columnas != null) {
+            int[] cuenta = new int[columnas.numClientes()];
+            long[] totales = columnas.totalesPorCliente(AlmacenColumnar.dia(desde, Integer.MIN_VALUE),
+                    AlmacenColumnar.dia(hasta, Integer.MAX_VALUE), cuenta);
+            for (int id = 0; id < totales.length; id++) {
+                if (cuenta[id] > 0) res.put(columnas.dniDe(id), totales[id]);
+            }
+        } else {
+            Map<String, String> dniPorClave = new HashMap<>();
+            for (Venta v : ventas) {
+                if (v == null || v.getCliente().getDni() == null || !enIntervalo(v.getFecha(), desde, hasta)) continue;
+                String dni = dniPorClave.computeIfAbsent(v.getCliente().getClaveDni(), k -> v.getCliente().getDni());
+                res.merge(dni, v.getImporteCentimos(), Long::sum);
+            }
+        }
+        metricas.anotar(Operacion.TOTALES_POR_CLIENTE, t, true);
+        return res;
+    }
+
+    /**
+     * Cuenta las unidades vendidas de cada moto del catálogo entre dos fechas (ambas incluidas).
+     * @param desde primer día (o {@code null} para no limitar)
+     * @param hasta último día (o {@code null} para no limitar)
+     * @return unidades por posición en el catálogo (las motos que no están en él no cuentan)
+     */
+    public long[] unidadesPorMoto(LocalDate desde, LocalDate hasta) {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        indiceMotos();
+        long[] res;
+        if (columnas != null) {
+            res = columnas.unidadesPorMoto(AlmacenColumnar.dia(desde, Integer.MIN_VALUE),
+                    AlmacenColumnar.dia(hasta, Integer.MAX_VALUE), motos.size());
+        } else {
+            res = new long[motos.size()];
+            for (Venta v : ventas) {
+                if (v == null || !enIntervalo(v.getFecha(), desde, hasta)) continue;
+                for (Moto m : v.getMotos()) {
+                    int p = posicionMoto(m);
+                    if (p >= 0) res[p]++;
+                }
+            }
+        }
+        metricas.anotar(Operacion.UNIDADES_POR_MOTO, t, true);
+        return res;
+    }
+
+    // Clasificaciones
+
+    /**
+     * Motos con más unidades vendidas en todo el histórico.
+     * @param n número máximo de puestos
+     * @return las {@code n} motos con más unidades, de más a menos (a igual número, la
+     *         que se vendió antes); el valor de cada puesto son unidades
+     * @throws IllegalArgumentException si {@code n} no es positivo
+     */
+    public List<Puesto<Moto>> motosMasVendidas(int n) {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        List<Puesto<Moto>> res = clasificacionMotos.mejores(n);
+        metricas.anotar(Operacion.MOTOS_MAS_VENDIDAS, t, true);
+        return res;
+    }
+
+    /**
+     * Clientes con mayor importe comprado en todo el histórico.
+     * @param n número máximo de puestos
+     * @return los {@code n} clientes con más gasto, de más a menos (a igual gasto, el que
+     *         compró antes); cada cliente es el de su primera venta y el valor, céntimos
+     * @throws IllegalArgumentException si {@code n} no es positivo
+     */
+    public List<Puesto<Cliente>> mejoresClientes(int n) {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        List<Puesto<Cliente>> res = clasificacionClientes.mejores(n);
+        metricas.anotar(Operacion.MEJORES_CLIENTES, t, true);
+        return res;
+    }
+
+    /**
+     * Como {@link #motosMasVendidas(int)}, pero solo con las ventas de los últimos días
+     * (ver {@link #setVentanaClasificacion(int)}).
+     * @param n número máximo de puestos
+     * @return las {@code n} motos con más unidades vendidas en la ventana
+     * @throws IllegalStateException si la ventana no está activada
+     */
+    public List<Puesto<Moto>> motosMasVendidasRecientes(int n) {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        if (recientesMotos == null) throw new IllegalStateException("Ventana de clasificación no activada");
+        List<Puesto<Moto>> res = recientes(recientesMotos, n);
+        metricas.anotar(Operacion.MOTOS_MAS_VENDIDAS, t, true);
+        return res;
+    }
+
+    /**
+     * Como {@link #mejoresClientes(int)}, pero solo con las ventas de los últimos días
+     * (ver {@link #setVentanaClasificacion(int)}).
+     * @param n número máximo de puestos
+     * @return los {@code n} clientes con más gasto en la ventana
+     * @throws IllegalStateException si la ventana no está activada
+     */
+    public List<Puesto<Cliente>> mejoresClientesRecientes(int n) {
+        long t = metricas.empezar();
+        actualizarIndicesVentas();
+        if (recientesClientes == null) throw new IllegalStateException("Ventana de clasificación no activada");
+        List<Puesto<Cliente>> res = recientes(recientesClientes, n);
+        metricas.anotar(Operacion.MEJORES_CLIENTES, t, true);
+        return res;
+    }
+
+    /** Lleva la ventana hasta hoy y devuelve sus mejores puestos. */
+    private <T> List<Puesto<T>> recientes(ClasificacionVentana<T> ventana, int n) {
+        synchronized (ventana) {        // en DatosConcurrentes varias consultas pueden avanzarla a la vez
+            ventana.avanzarHasta(hoyVentana.get());
+            return ventana.mejores(n);
+        }
+    }
+
+    /** Indica si una fecha cae en el intervalo (las ventas sin fecha solo sin límite inferior). */
+    private static boolean enIntervalo(LocalDate f, LocalDate desde, LocalDate hasta) {
+        if (f == null) return desde == null;
+        return (desde == null || !f.isBefore(desde)) && (hasta == null || !f.isAfter(hasta));
+    }
+
     // Stock
 
     /**
      * Intenta descontar stock para todas las motos de una selección
      * (cada aparición en la lista representa 1 unidad). Operación atómica:
      * si falta stock en alguna, no descuenta ninguna.
+     * <p>Cada moto se descuenta con compare-and-set y, si alguna no tiene stock, se
+     * devuelven las ya descontadas. Las selecciones de varias motos (y los lotes de
+     * {@link #registrarVentas(List)}) se aplican de una en una, así que ninguna ve como
+     * falta de stock el descuento a medias de otra. Una selección de una sola moto no
+     * usa bloqueos; solo si falla mientras se aplicaba una de varias motos (que podía
+     * estar a punto de devolver unidades) se repite esperando a que termine.</p>
      * @param seleccion lista de motos a descontar (con repetidos si se venden varias unidades)
      * @return {@code true} si se descontó; {@code false} si faltaba stock
      */
     public boolean descontarStock(java.util.List<Moto> seleccion) {
+        long t = metricas.empezar();
         // contar cuántas unidades de cada moto se piden
         java.util.Map<Moto, Integer> cnt = new java.util.HashMap<>();
         for (Moto m : seleccion) cnt.merge(m, 1, Integer::sum);
 
-        // comprobar disponibilidad
-        for (var e : cnt.entrySet()) {
-            Moto m = e.getKey();
-            int pedidas = e.getValue();
-            if (m.getStock() < pedidas) return false;
+        boolean ok;
+        if (cnt.size() <= 1) {
+            int version = versionDescuentos;
+            ok = restarTodas(cnt);
+            if (!ok && descuentoVariosCruzado(version)) {
+                synchronized (descuentosVarios) { ok = restarTodas(cnt); }
+            }
+        } else {
+            synchronized (descuentosVarios) {
+                versionDescuentos++;
+                try {
+                    ok = restarTodas(cnt);
+                } finally {
+                    versionDescuentos++;
+                }
+            }
         }
+        if (ok) {
+            if (diario != null) anotarDescuento(cnt);
+            if (eventos != null) for (var e : cnt.entrySet()) publicar(Evento.Tipo.DESCUENTO_STOCK, null, e.getKey(), e.getValue(), null);
+            confirmarDiario();
+        }
+        metricas.anotar(Operacion.DESCUENTO_STOCK, t, ok);
+        return ok;
+    }
 
-        // restar el Stock
+    /** Resta las unidades de cada moto o, si falta stock en alguna, deshace lo ya restado. */
+    private static boolean restarTodas(Map<Moto, Integer> cnt) {
+        Moto sinStock = null;
+        for (var e : cnt.entrySet()) {
+            if (!e.getKey().intentarRestarStock(e.getValue())) {
+                sinStock = e.getKey();
+                break;
+            }
+        }
+        if (sinStock == null) return true;
         for (var e : cnt.entrySet()) {
-            e.getKey().restarStock(e.getValue());
+            if (e.getKey() == sinStock) break;
+            e.getKey().anadirStock(e.getValue());
         }
-        return true;
+        return false;
+    }
+
+    /**
+     * Indica si algún descuento de varias motos ha podido quitar y devolver unidades
+     * desde que se leyó {@code version}: estaba en curso o ha empezado otro después.
+     */
+    private boolean descuentoVariosCruzado(int version) {
+        return (version & 1) != 0 || version != versionDescuentos;
     }
 
     /**
@@ -171,35 +794,721 @@ public class Datos {
      * @return {@code true} si se repuso; {@code false} si el índice es inválido o {@code unidades} &le; 0
      */
     public boolean reponerStockPorIndice(int idx, int unidades) {
-        if (idx < 0 || idx >= motos.size()) return false;
-        if (unidades <= 0) return false;
-        motos.get(idx).anadirStock(unidades);
-        return true;
+        long t = metricas.empezar();
+        boolean ok = idx >= 0 && idx < motos.size() && unidades > 0;
+        if (ok) {
+            motos.get(idx).anadirStock(unidades);
+            if (diario != null) diario.anotarReposicionStock(idx, unidades);
+            publicar(Evento.Tipo.REPOSICION_STOCK, null, motos.get(idx), unidades, null);
+            confirmarDiario();
+        }
+        metricas.anotar(Operacion.REPOSICION_STOCK, t, ok);
+        return ok;
+    }
+
+    // Reservas
+
+    /**
+     * Aparta unidades de una moto para una venta en curso. Mientras la reserva esté
+     * pendiente, esas unidades no cuentan en {@link Moto#getStock()}, así que ninguna
+     * otra venta o reserva puede llevárselas. Si no se confirma antes de su caducidad
+     * (ver {@link #setDuracionReservas(Duration)}), las unidades vuelven al stock.
+     * <p>No usa bloqueos: el stock se aparta con compare-and-set (si falla mientras se
+     * aplicaba un descuento de varias motos, se repite como en {@link #descontarStock(List)}).
+     * Las reservas no se anotan en el diario; el stock solo se descuenta en él al
+     * confirmarlas.</p>
+     * @param m        moto del catálogo
+     * @param unidades unidades a apartar (&gt; 0)
+     * @return reserva pendiente o {@code null} si no hay stock disponible suficiente
+     * @throws IllegalArgumentException si {@code unidades} no es positivo
+     */
+    public Reserva reservar(Moto m, int unidades) {
+        long t = metricas.empezar();
+        int version = versionDescuentos;
+        Reserva r = reservas.reservar(m, unidades);
+        if (r == null && descuentoVariosCruzado(version)) {
+            synchronized (descuentosVarios) { r = reservas.reservar(m, unidades); }
+        }
+        if (r != null) publicar(Evento.Tipo.DESCUENTO_STOCK, null, m, unidades, null);
+        metricas.anotar(Operacion.RESERVA_STOCK, t, r != null);
+        return r;
+    }
+
+    /**
+     * Registra como una sola venta las unidades de varias reservas pendientes (en el
+     * orden de la lista) con fecha de hoy. Operación atómica: si alguna ya no está
+     * pendiente (caducada, cancelada o confirmada), no se registra nada y las demás
+     * siguen pendientes.
+     * @param c        cliente
+     * @param reservas reservas a confirmar
+     * @return venta registrada o {@code null} si alguna reserva no estaba pendiente
+     * @throws IllegalArgumentException si no hay reservas
+     */
+    public Venta confirmarReservas(Cliente c, List<Reserva> reservas) {
+        if (reservas.isEmpty()) throw new IllegalArgumentException("No hay reservas que confirmar");
+        long t = metricas.empezar();
+        int confirmadas = 0;
+        while (confirmadas < reservas.size() && this.reservas.confirmar(reservas.get(confirmadas))) confirmadas++;
+        if (confirmadas < reservas.size()) {
+            for (int i = 0; i < confirmadas; i++) this.reservas.deshacerConfirmacion(reservas.get(i));
+            metricas.anotar(Operacion.CONFIRMACION_RESERVAS, t, false);
+            return null;
+        }
+        List<Moto> lineas = new ArrayList<>();
+        Map<Moto, Integer> cnt = new HashMap<>();
+        for (Reserva r : reservas) {
+            for (int k = 0; k < r.getUnidades(); k++) lineas.add(r.getMoto());
+            cnt.merge(r.getMoto(), r.getUnidades(), Integer::sum);
+        }
+        if (diario != null) anotarDescuento(cnt);
+        Venta v = new Venta(c, lineas);
+        altaVenta(v);
+        confirmarDiario();
+        metricas.anotar(Operacion.CONFIRMACION_RESERVAS, t, true);
+        return v;
+    }
+
+    /**
+     * Cancela una reserva pendiente y devuelve sus unidades al stock.
+     * @param r reserva
+     * @return {@code true} si estaba pendiente
+     */
+    public boolean cancelarReserva(Reserva r) {
+        long t = metricas.empezar();
+        boolean ok = reservas.liberar(r, Reserva.Estado.CANCELADA);
+        if (ok) publicar(Evento.Tipo.REPOSICION_STOCK, null, r.getMoto(), r.getUnidades(), null);
+        metricas.anotar(Operacion.LIBERACION_RESERVAS, t, ok);
+        return ok;
+    }
+
+    /**
+     * Devuelve al stock las unidades de las reservas ya caducadas. Cada
+     * {@link #reservar(Moto, int)} lo hace también; para no depender de que lleguen
+     * reservas nuevas, {@link #iniciarCaducidadReservas(Duration)} lo llama periódicamente.
+     * @return número de reservas que han caducado
+     */
+    public int caducarReservas() {
+        long t = metricas.empezar();
+        int n = reservas.caducar();
+        metricas.anotar(Operacion.LIBERACION_RESERVAS, t, true);
+        return n;
     }
 
+    /**
+     * Llama a {@link #caducarReservas()} cada {@code intervalo} desde un hilo daemon, para
+     * que el stock de las reservas abandonadas vuelva aunque nadie más reserve esa moto.
+     * Si ya estaba iniciada, se reinicia con el nuevo intervalo.
+     * @param intervalo tiempo entre dos recogidas
+     * @throws IllegalArgumentException si no es positivo
+     */
+    public synchronized void iniciarCaducidadReservas(Duration intervalo) {
+        if (intervalo.isNegative() || intervalo.isZero()) throw new IllegalArgumentException("Intervalo no válido: " + intervalo);
+        detenerCaducidadReservas();
+        caducidadReservas = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("caducidad-reservas").factory());
+        long ms = intervalo.toMillis() == 0 ? 1 : intervalo.toMillis();
+        caducidadReservas.scheduleWithFixedDelay(this::caducarReservas, ms, ms, TimeUnit.MILLISECONDS);
+    }
+
+    /** Detiene la recogida periódica de {@link #iniciarCaducidadReservas(Duration)} (si estaba iniciada). */
+    public synchronized void detenerCaducidadReservas() {
+        if (caducidadReservas == null) return;
+        caducidadReservas.shutdownNow();
+        caducidadReservas = null;
+    }
+
+    /**
+     * @param m moto
+     * @return unidades de la moto apartadas en reservas pendientes
+     */
+    public int unidadesReservadas(Moto m) { return reservas.reservadas(m); }
+
+    /**
+     * @param duracion tiempo que dura cada reserva nueva (15 minutos por defecto)
+     * @throws IllegalArgumentException si no es positiva
+     */
+    public void setDuracionReservas(Duration duracion) { reservas.setDuracion(duracion); }
+
+    /** @return tiempo que dura cada reserva nueva */
+    public Duration getDuracionReservas() { return reservas.getDuracion(); }
+
+    /**
+     * Cambia el reloj de las reservas (para pruebas). Las reservas pendientes se olvidan.
+     * @param reloj milisegundos desde la época
+     */
+    void setRelojReservas(LongSupplier reloj) {
+        Duration duracion = reservas.getDuracion();
+        reservas = new Reservas(reloj, this::reservaCaducada);
+        reservas.setDuracion(duracion);
+    }
+
+    private void reservaCaducada(Reserva r) { publicar(Evento.Tipo.REPOSICION_STOCK, null, r.getMoto(), r.getUnidades(), null); }
+
+    /**
+     * Existencias de una moto: stock disponible más unidades reservadas. Es el stock que
+     * refleja el diario, porque las reservas no se anotan.
+     * @param m moto
+     * @return existencias
+     */
+    int existencias(Moto m) { return m.getStock() + reservas.reservadas(m); }
+
     // Ordenar
 
     /**
      * Devuelve una copia de la lista de clientes ordenada por nombre (ascendente, sin distinción de mayúsculas).
+     * Los nombres iguales conservan el orden de la lista. No ordena: recorre el índice ordenado.
+     * Los cambios de nombre solo se reflejan si se hacen con {@link #modificarCliente}.
      * @return nueva lista ordenada por nombre
      */
     public List<Cliente> clientesOrdenadosPorNombre() {
-        List<Cliente> copia = new ArrayList<>(clientes);
-        copia.sort(Comparator.comparing(c -> c.getNombre().toLowerCase()));
+        long t = metricas.empezar();
+        List<Cliente> copia = indiceOrdenClientes().todos();
+        metricas.anotar(Operacion.CLIENTES_ORDENADOS, t, true);
         return copia;
     }
 
+    /**
+     * Devuelve una página de los clientes ordenados por nombre.
+     * @param cursor posición ({@code null} para la primera página; ver {@link Cursor#desde(String)})
+     * @param tamano número máximo de clientes
+     * @return página con los cursores de la anterior y la siguiente
+     * @throws IllegalArgumentException si {@code tamano} &le; 0
+     */
+    public Pagina<Cliente> paginaClientesPorNombre(Cursor cursor, int tamano) {
+        long t = metricas.empezar();
+        Pagina<Cliente> p = indiceOrdenClientes().pagina(cursor, tamano);
+        metricas.anotar(Operacion.PAGINA_CLIENTES, t, true);
+        return p;
+    }
+
     /**
      * Devuelve una copia de la lista de motos ordenada por marca y luego modelo (ascendente).
+     * No ordena: recorre el índice ordenado.
      * @return nueva lista ordenada por marca y modelo
      */
     public List<Moto> motosOrdenadasPorMarca() {
-        List<Moto> copia = new ArrayList<>(motos);
-        copia.sort(Comparator.comparing((Moto m) -> m.getMarca().toLowerCase())
-                .thenComparing(m -> m.getModelo().toLowerCase()));
+        long t = metricas.empezar();
+        List<Moto> copia = indiceOrdenMotos().todos();
+        metricas.anotar(Operacion.MOTOS_ORDENADAS, t, true);
         return copia;
     }
 
+    /**
+     * Devuelve una página de las motos ordenadas por marca y modelo.
+     * @param cursor posición ({@code null} para la primera página; {@link Cursor#desde(String)} compara con la marca)
+     * @param tamano número máximo de motos
+     * @return página con los cursores de la anterior y la siguiente
+     * @throws IllegalArgumentException si {@code tamano} &le; 0
+     */
+    public Pagina<Moto> paginaMotosPorMarca(Cursor cursor, int tamano) {
+        long t = metricas.empezar();
+        Pagina<Moto> p = indiceOrdenMotos().pagina(cursor, tamano);
+        metricas.anotar(Operacion.PAGINA_MOTOS, t, true);
+        return p;
+    }
+
+    /**
+     * Página de una lista por posición; hacia atrás, si no quedan elementos suficientes
+     * antes del cursor, se devuelve la primera página completa.
+     */
+    private static <T> Pagina<T> pagina(List<T> lista, Cursor cursor, int tamano) {
+        if (tamano <= 0) throw new IllegalArgumentException("Tamaño de página no válido: " + tamano);
+        if (cursor != null && cursor.clave != null) throw new IllegalArgumentException("Cursor de otro listado: " + cursor);
+        int n = lista.size();
+        int inicio;
+        if (cursor == null) inicio = 0;
+        else if (cursor.haciaAtras) inicio = (int) Math.max(0, Math.min(cursor.secuencia, n) - tamano);
+        else inicio = (int) Math.min(cursor.secuencia + 1, n);
+        int fin = Math.min(n, inicio + tamano);
+        Cursor anterior = inicio > 0 ? new Cursor(null, inicio, true) : null;
+        Cursor siguiente = fin < n ? new Cursor(null, fin - 1, false) : null;
+        return new Pagina<>(new ArrayList<>(lista.subList(inicio, fin)), anterior, siguiente);
+    }
+
+    // Altas y bajas sin esperar al diario
+
+    /** Alta de cliente sin esperar al diario. */
+    private boolean altaCliente(Cliente c) {
+        if (c == null || c.getDni() == null) return false;
+        Map<String, Cliente> indice = indiceClientes();
+        if (indice.putIfAbsent(c.getClaveDni(), c) != null) return false;
+        clientes.add(c);
+        if (ordenClientesValido) ordenClientes.anadir(c);
+        if (diario != null) diario.anotarAltaCliente(c);
+        publicar(Evento.Tipo.ALTA_CLIENTE, c, null, 0, null);
+        return true;
+    }
+
+    /** Alta de moto sin esperar al diario. */
+    private void altaMoto(Moto m) {
+        motos.add(m);
+        if (indiceMotosValido) {
+            indiceTexto.anadir(m.getClaveMarca(), m.getClaveModelo());
+            posicionesMotos.putIfAbsent(m, motos.size() - 1);
+        }
+        if (ordenMotosValido) ordenMotos.anadir(m);
+        if (diario != null) diario.anotarAltaMoto(m);
+        publicar(Evento.Tipo.ALTA_MOTO, null, m, 0, null);
+    }
+
+    /** Baja de cliente sin esperar al diario. */
+    private boolean bajaCliente(int idx) {
+        if (idx < 0 || idx >= clientes.size()) return false;
+        Cliente eliminado = clientes.remove(idx);
+        if (hayDniRepetidos) indiceClientesValido = false;
+        else if (indiceClientesValido && eliminado != null && eliminado.getDni() != null) {
+            clientesPorDni.remove(eliminado.getClaveDni(), eliminado);
+        }
+        if (ordenClientesValido) ordenClientes.quitar(eliminado);
+        if (diario != null) diario.anotarBajaCliente(idx);
+        publicar(Evento.Tipo.BAJA_CLIENTE, eliminado, null, 0, null);
+        return true;
+    }
+
+    /** Registro de venta sin esperar al diario. */
+    private void altaVenta(Venta v) {
+        ventas.add(v);
+        if (indicesVentasValidos) indexarVenta(v);
+        if (diario != null) {
+            List<Moto> vendidas = v.getMotos();
+            int[] posiciones = new int[vendidas.size()];
+            for (int i = 0; i < posiciones.length; i++) posiciones[i] = posicionMoto(vendidas.get(i));
+            diario.anotarVenta(v, posiciones);
+        }
+        publicar(Evento.Tipo.VENTA, v.getCliente(), null, 0, v);
+    }
+
+    /**
+     * Decide qué peticiones del lote caben en el stock actual y suma en {@code total}
+     * las unidades de cada moto que piden las aceptadas (un contador por moto).
+     */
+    private static void planificarLote(List<PeticionVenta> peticiones, ResultadoVenta.Estado[] estados,
+                                       Map<Moto, int[]> total) {
+        for (int i = 0; i < estados.length; i++) {
+            PeticionVenta p = peticiones.get(i);
+            if (!p.esValida()) estados[i] = ResultadoVenta.Estado.NO_VALIDA;
+            else if (!cabeEnLote(p.getMotos(), total)) estados[i] = ResultadoVenta.Estado.SIN_STOCK;
+            else {
+                for (Moto m : p.getMotos()) total.computeIfAbsent(m, k -> new int[1])[0]++;
+                estados[i] = ResultadoVenta.Estado.REGISTRADA;
+            }
+        }
+    }
+
+    /**
+     * Indica si hay stock para una selección además de lo ya reservado en {@code total}.
+     * Las unidades de cada moto se cuentan recorriendo la selección (suelen ser pocas motos).
+     */
+    private static boolean cabeEnLote(List<Moto> seleccion, Map<Moto, int[]> total) {
+        int n = seleccion.size();
+        for (int k = 0; k < n; k++) {
+            Moto m = seleccion.get(k);
+            int pedidas = 0;
+            boolean yaContada = false;
+            for (int j = 0; j < n && !yaContada; j++) {
+                if (seleccion.get(j) != m) continue;
+                if (j < k) yaContada = true;
+                else pedidas++;
+            }
+            if (yaContada) continue;
+            int[] reservadas = total.get(m);
+            if (m.getStock() - (reservadas == null ? 0 : reservadas[0]) < pedidas) return false;
+        }
+        return true;
+    }
+
+    // Índices
+
+    /**
+     * Normaliza un DNI de consulta para usarlo como clave de los índices (la de cada
+     * cliente ya la guarda {@link Cliente#getClaveDni()}).
+     * @param dni DNI tal y como se introdujo
+     * @return DNI en minúsculas y sin acentos (el mismo objeto si ya lo estaba)
+     */
+    static String claveDni(String dni) { return Textos.clave(dni); }
+
+    /** Marca el índice de clientes como desactualizado (la lista viva se ha tocado desde fuera). */
+    private void invalidarIndiceClientes() {
+        indiceClientesValido = false;
+        ordenClientesValido = false;
+    }
+
+    /**
+     * Devuelve el índice DNI → cliente, reconstruyéndolo si la lista viva se modificó desde fuera.
+     * Si hay DNI repetidos en la lista, el índice apunta al primero (igual que la búsqueda lineal).
+     * @return índice actualizado
+     */
+    private Map<String, Cliente> indiceClientes() {
+        if (!indiceClientesValido) {
+            clientesPorDni.clear();
+            hayDniRepetidos = false;
+            for (Cliente c : clientes) {
+                if (c == null || c.getDni() == null) continue;
+                if (clientesPorDni.putIfAbsent(c.getClaveDni(), c) != null) hayDniRepetidos = true;
+            }
+            indiceClientesValido = true;
+        }
+        return clientesPorDni;
+    }
+
+    /** Marca el índice de texto de motos como desactualizado (la lista viva se ha tocado desde fuera). */
+    private void invalidarIndiceMotos() {
+        indiceMotosValido = false;
+        ordenMotosValido = false;
+        if (columnas != null) indicesVentasValidos = false;     // las líneas guardan posiciones del catálogo
+    }
+
+    /**
+     * Devuelve el índice de clientes por nombre, reconstruyéndolo si la lista viva se modificó desde fuera.
+     * @return índice actualizado
+     */
+    private IndiceOrdenado<Cliente> indiceOrdenClientes() {
+        if (!ordenClientesValido) {
+            ordenClientes.reconstruir(clientes);
+            ordenClientesValido = true;
+        }
+        return ordenClientes;
+    }
+
+    /**
+     * Devuelve el índice de motos por marca y modelo, reconstruyéndolo si la lista viva se modificó desde fuera.
+     * @return índice actualizado
+     */
+    private IndiceOrdenado<Moto> indiceOrdenMotos() {
+        if (!ordenMotosValido) {
+            ordenMotos.reconstruir(motos);
+            ordenMotosValido = true;
+        }
+        return ordenMotos;
+    }
+
+    /** Clave de ordenación de una moto: la marca y, para desempatar, el modelo. */
+    private static String textoOrdenMoto(Moto m) {
+        return m.getModelo() == null ? m.getClaveMarca() : m.getClaveMarca() + '\u0000' + m.getClaveModelo();
+    }
+
+    /**
+     * Devuelve el índice de trigramas, reconstruyéndolo si la lista viva se modificó desde fuera.
+     * @return índice actualizado
+     */
+    private IndiceTrigramas indiceMotos() {
+        if (!indiceMotosValido) {
+            indiceTexto.limpiar();
+            posicionesMotos.clear();
+            for (int i = 0; i < motos.size(); i++) {
+                Moto m = motos.get(i);
+                if (m == null) {
+                    indiceTexto.anadir(null, null);
+                    continue;
+                }
+                indiceTexto.anadir(m.getClaveMarca(), m.getClaveModelo());
+                posicionesMotos.putIfAbsent(m, i);
+            }
+            indiceMotosValido = true;
+        }
+        return indiceTexto;
+    }
+
+    /**
+     * Posición de una moto en el catálogo (la que usa {@link #reponerStockPorIndice(int, int)}).
+     * @param m moto a localizar
+     * @return posición basada en 0, o -1 si la moto no está en el catálogo
+     */
+    public int indiceMoto(Moto m) { return posicionMoto(m); }
+
+    /**
+     * @param m moto a localizar
+     * @return posición de la moto en el catálogo o -1 si no está
+     */
+    int posicionMoto(Moto m) {
+        indiceMotos();
+        Integer p = posicionesMotos.get(m);
+        return p == null ? -1 : p;
+    }
+
+    /**
+     * @param idx posición en el catálogo
+     * @return moto en esa posición
+     */
+    Moto motoEnPosicion(int idx) { return motos.get(idx); }
+
+    /** Marca los índices de ventas como desactualizados (la lista viva se ha tocado desde fuera). */
+    private void invalidarIndicesVentas() { indicesVentasValidos = false; }
+
+    /**
+     * Añade una venta ya guardada en la lista a los índices de ventas.
+     * @param v venta registrada
+     */
+    private void indexarVenta(Venta v) {
+        String clave = v.getCliente().getClaveDni();
+        if (clave == null) {
+            indexarVenta(v, null, null);
+            return;
+        }
+        indexarVenta(v, ventasPorCliente.computeIfAbsent(clave, k -> new ArrayList<>()), agregados.acumuladoDe(clave));
+    }
+
+    /**
+     * Añade una venta a los índices con las entradas de su cliente ya localizadas.
+     * @param v          venta registrada
+     * @param delCliente ventas del cliente (o {@code null} si el cliente no tiene DNI)
+     * @param acumulado  totales del cliente (o {@code null} si el cliente no tiene DNI)
+     */
+    private void indexarVenta(Venta v, List<Venta> delCliente, AgregadosVentas.Acumulado acumulado) {
+        if (delCliente != null) delCliente.add(v);
+        long importe = agregados.sumar(acumulado, v);
+        indiceFechas.anadir(v, importe);
+        clasificar(v, acumulado, importe);
+        if (columnas != null) columnas.anadir(v, acumulado, posicionEnCatalogo);
+    }
+
+    /** Suma una venta a las clasificaciones (los clientes sin DNI no se clasifican). */
+    private void clasificar(Venta v, AgregadosVentas.Acumulado acumulado, long importe) {
+        List<Moto> lineas = v.getMotos();
+        for (int i = 0; i < lineas.size(); i++) {
+            Moto m = lineas.get(i);
+            if (m == null) continue;
+            clasificacionMotos.sumar(m, m, 1);
+            if (recientesMotos != null) recientesMotos.sumar(v.getFecha(), m, m, 1);
+        }
+        if (acumulado == null) return;
+        if (acumulado.idClasificacion < 0) acumulado.idClasificacion = clasificacionClientes.id(acumulado, v.getCliente());
+        clasificacionClientes.sumar(acumulado.idClasificacion, importe);
+        if (recientesClientes != null) recientesClientes.sumar(v.getFecha(), acumulado, v.getCliente(), importe);
+    }
+
+    /** Reconstruye los índices y totales de ventas si la lista viva se modificó desde fuera. */
+    private void actualizarIndicesVentas() {
+        if (indicesVentasValidos) return;
+        ventasPorCliente.clear();
+        agregados.limpiar();
+        indiceFechas.limpiar();
+        clasificacionMotos.limpiar();
+        clasificacionClientes.limpiar();
+        if (recientesMotos != null) {
+            recientesMotos.limpiar();
+            recientesClientes.limpiar();
+        }
+        if (columnas != null) columnas.limpiar();
+        for (Venta v : ventas) if (v != null) indexarVenta(v);
+        indicesVentasValidos = true;
+    }
+
+    /**
+     * @param dni DNI del cliente (puede ser {@code null})
+     * @return totales del cliente o {@code null} si no tiene ventas
+     */
+    private AgregadosVentas.Acumulado acumuladoCliente(String dni) {
+        if (dni == null) return null;
+        actualizarIndicesVentas();
+        return agregados.cliente(claveDni(dni));
+    }
+
+    // Persistencia
+
+    /**
+     * Asigna el diario en el que se anotan las modificaciones ({@code null} para no anotarlas).
+     * @param diario diario abierto con {@link Diario#abrir(java.nio.file.Path)}
+     */
+    public void setDiario(Diario diario) { this.diario = diario; }
+
+    /** @return diario asignado o {@code null} si no hay persistencia */
+    public Diario getDiario() { return diario; }
+
+    // Almacén columnar
+
+    /**
+     * Activa o desactiva la copia de las ventas por columnas ({@link AlmacenColumnar}).
+     * Al activarla se copian todas las ventas ya registradas; después se mantiene en
+     * cada alta. Ocupa unos 24 bytes por venta y 4 por unidad vendida.
+     * @param activo {@code true} para activarla
+     */
+    public void setAlmacenColumnar(boolean activo) {
+        if (activo == (columnas != null)) return;
+        columnas = activo ? new AlmacenColumnar() : null;
+        if (activo) {
+            indicesVentasValidos = false;
+            actualizarIndicesVentas();
+        }
+    }
+
+    /** @return {@code true} si la copia por columnas está activa */
+    public boolean isAlmacenColumnar() { return columnas != null; }
+
+    // Clasificaciones de los últimos días
+
+    /**
+     * Activa, cambia o desactiva las clasificaciones de los últimos días
+     * ({@link #motosMasVendidasRecientes(int)}, {@link #mejoresClientesRecientes(int)}).
+     * Al activarlas se clasifican las ventas ya registradas; después se mantienen en
+     * cada alta.
+     * @param dias días de la ventana, que termina hoy (o en la fecha de la venta más
+     *             reciente, si es posterior); 0 para desactivarlas
+     * @throws IllegalArgumentException si {@code dias} es negativo
+     */
+    public void setVentanaClasificacion(int dias) {
+        if (dias < 0) throw new IllegalArgumentException("Días de ventana no válidos: " + dias);
+        if (dias == getVentanaClasificacion()) return;
+        if (dias == 0) {
+            recientesMotos = null;
+            recientesClientes = null;
+            return;
+        }
+        recientesMotos = new ClasificacionVentana<>(dias, true);
+        recientesClientes = new ClasificacionVentana<>(dias, true);
+        indicesVentasValidos = false;
+        actualizarIndicesVentas();
+    }
+
+    /** @return días de la ventana de las clasificaciones recientes (0 si están desactivadas) */
+    public int getVentanaClasificacion() { return recientesMotos == null ? 0 : recientesMotos.dias(); }
+
+    /**
+     * Cambia el día en que terminan las clasificaciones recientes (para pruebas).
+     * @param hoy día actual
+     */
+    void setHoyVentana(Supplier<LocalDate> hoy) { this.hoyVentana = hoy; }
+
+    // Métricas
+
+    /**
+     * Asigna las métricas en las que se anotan las llamadas a los métodos públicos.
+     * Debe hacerse antes de compartir el servicio entre hilos.
+     * @param metricas métricas a usar ({@code null} para desactivarlas)
+     */
+    public void setMetricas(Metricas metricas) { this.metricas = metricas == null ? Metricas.DESACTIVADAS : metricas; }
+
+    /** @return métricas asignadas (si no se asignaron, unas desactivadas que no cuentan nada) */
+    public Metricas getMetricas() { return metricas; }
+
+    // Eventos
+
+    /**
+     * Asigna el bus en el que se publican las modificaciones ({@code null} para no publicarlas).
+     * Debe hacerse antes de compartir el servicio entre hilos.
+     * @param eventos bus de eventos
+     */
+    public void setBusEventos(BusEventos eventos) { this.eventos = eventos; }
+
+    /** @return bus asignado o {@code null} si no se publican eventos */
+    public BusEventos getBusEventos() { return eventos; }
+
+    private void publicar(Evento.Tipo tipo, Cliente c, Moto m, int unidades, Venta v) {
+        if (eventos != null) eventos.publicar(tipo, c, m, unidades, v);
+    }
+
+    /**
+     * Espera, si el diario es síncrono, a que lo anotado por el hilo actual esté en disco.
+     * Las subclases que usan cerrojos pueden retrasar la espera hasta soltarlos.
+     */
+    protected void confirmarDiario() { if (diario != null) diario.esperarDurabilidad(); }
+
+    /** Lectura del estado que puede fallar con {@link IOException} (instantáneas). */
+    interface LecturaEstado<T> {
+        T leer() throws IOException;
+    }
+
+    /**
+     * Ejecuta una lectura de todo el estado sin que cambie mientras dura.
+     * En {@code Datos} no hay concurrencia, así que solo la ejecuta.
+     * @param lectura lectura a ejecutar
+     * @return resultado de la lectura
+     * @throws IOException si la lectura falla
+     */
+    <T> T conEstadoFijo(LecturaEstado<T> lectura) throws IOException { return lectura.leer(); }
+
+    /** @return lista interna de clientes (sin vigilar: para lecturas internas) */
+    List<Cliente> listaClientes() { return clientes; }
+
+    /** @return lista interna de motos (sin vigilar: para lecturas internas) */
+    List<Moto> listaMotos() { return motos; }
+
+    /** @return lista interna de ventas (sin vigilar: para lecturas internas) */
+    List<Venta> listaVentas() { return ventas; }
+
+    /**
+     * Ventas del cliente tal como están en el índice, sin copiarlas (para lecturas internas).
+     * @param dni DNI del cliente
+     * @return lista interna del índice, o una lista vacía si no tiene ventas
+     */
+    List<Venta> listaVentasDe(String dni) {
+        if (dni == null) return List.of();
+        actualizarIndicesVentas();
+        List<Venta> delCliente = ventasPorCliente.get(claveDni(dni));
+        return delCliente == null ? List.of() : delCliente;
+    }
+
+    /**
+     * Añade un bloque de clientes con las mismas reglas que {@link #addCliente(Cliente)}.
+     * Con diario, la espera de durabilidad se hace una sola vez para todo el bloque.
+     * @param nuevos    clientes a añadir, en orden
+     * @param rechazado recibe la posición en {@code nuevos} de cada cliente no añadido
+     * @return número de clientes añadidos
+     */
+    int addClientesEnBloque(List<Cliente> nuevos, IntConsumer rechazado) {
+        int anadidos = 0;
+        for (int i = 0; i < nuevos.size(); i++) {
+            if (altaCliente(nuevos.get(i))) anadidos++;
+            else rechazado.accept(i);
+        }
+        confirmarDiario();
+        return anadidos;
+    }
+
+    /**
+     * Añade un bloque de motos al catálogo (las {@code null} se ignoran).
+     * Con diario, la espera de durabilidad se hace una sola vez para todo el bloque.
+     * @param nuevas motos a añadir, en orden
+     */
+    void addMotosEnBloque(List<Moto> nuevas) {
+        for (Moto m : nuevas) {
+            if (m != null) altaMoto(m);
+        }
+        confirmarDiario();
+    }
+
+    /**
+     * Añade un bloque de ventas de una carga masiva (por ejemplo, una instantánea).
+     * Las entradas de índice de cada cliente se localizan una sola vez y no una por venta.
+     * @param nuevas   ventas a añadir, en orden
+     * @param refs     posición en {@code clientes} del cliente de cada venta (-1 si no está)
+     * @param clientes clientes a los que apuntan las referencias
+     */
+    @SuppressWarnings("unchecked")
+    void addVentasEnBloque(List<Venta> nuevas, int[] refs, List<Cliente> clientes) {
+        if (diario != null || eventos != null || !indicesVentasValidos) {
+            for (Venta v : nuevas) addVenta(v);
+            return;
+        }
+        ventas.addAll(nuevas);
+        List<Venta>[] listas = (List<Venta>[]) new List<?>[clientes.size()];
+        AgregadosVentas.Acumulado[] acumulados = new AgregadosVentas.Acumulado[clientes.size()];
+        for (int i = 0; i < nuevas.size(); i++) {
+            Venta v = nuevas.get(i);
+            int r = refs[i];
+            if (r < 0 || clientes.get(r).getDni() == null) {
+                indexarVenta(v);
+                continue;
+            }
+            if (listas[r] == null) {
+                String clave = clientes.get(r).getClaveDni();
+                listas[r] = ventasPorCliente.computeIfAbsent(clave, k -> new ArrayList<>());
+                acumulados[r] = agregados.acumuladoDe(clave);
+            }
+            indexarVenta(v, listas[r], acumulados[r]);
+        }
+    }
+
+    /** Anota un descuento de stock ya aplicado, por posición de catálogo. */
+    private void anotarDescuento(Map<Moto, Integer> cnt) {
+        Map<Integer, Integer> porPosicion = new HashMap<>();
+        for (var e : cnt.entrySet()) {
+            int p = posicionMoto(e.getKey());
+            if (p >= 0) porPosicion.merge(p, e.getValue(), Integer::sum);
+        }
+        diario.anotarDescuentoStock(porPosicion);
+    }
+
     // Datos de ejemplo
 
     /**
@@ -207,21 +1516,21 @@ public class Datos {
      * <p><b>Uso:</b> descomentar la llamada en el constructor.</p>
      */
     private void cargarEjemplo() {
-        clientes.add(new Cliente("Ana López", "12345678A", "600111222", "ana@correofalso.com"));
-        clientes.add(new Cliente("Carlos Ruiz", "98765432B", "600333444", "carlos@correofalso.com"));
-        clientes.add(new Cliente("María Torres", "11223344C", "600555666", "maria@correofalso.com"));
-        clientes.add(new Cliente("Javier Gómez", "55667788D", "600777888", "javier@correofalso.com"));
-        clientes.add(new Cliente("Lucía Martín", "33445566E", "600999000", "lucia@correofalso.com"));
-
-        motos.add(new Moto("Honda", "CL500", 6790.00, 3));
-        motos.add(new Moto("Yamaha", "XSR700 XTribute", 8799.00, 2));
-        motos.add(new Moto("Ducati", "Scrambler Icon", 9990.00, 2));
-        motos.add(new Moto("Ducati", "Scrambler Full Throttle", 11990.00, 1));
-        motos.add(new Moto("Triumph", "Scrambler 900", 10995.00, 2));
-        motos.add(new Moto("Triumph", "Scrambler 1200 XC", 14995.00, 1));
-        motos.add(new Moto("Fantic", "Caballero 500 Scrambler", 7390.00, 3));
-        motos.add(new Moto("Benelli", "Leoncino 500 Trail", 6190.00, 4));
-        motos.add(new Moto("Husqvarna", "Svartpilen 401", 5899.00, 5));
-        motos.add(new Moto("Royal Enfield", "Scram 411", 5490.00, 6));
+        addCliente(new Cliente("Ana López", "12345678A", "600111222", "ana@correofalso.com"));
+        addCliente(new Cliente("Carlos Ruiz", "98765432B", "600333444", "carlos@correofalso.com"));
+        addCliente(new Cliente("María Torres", "11223344C", "600555666", "maria@correofalso.com"));
+        addCliente(new Cliente("Javier Gómez", "55667788D", "600777888", "javier@correofalso.com"));
+        addCliente(new Cliente("Lucía Martín", "33445566E", "600999000", "lucia@correofalso.com"));
+
+        addMoto(new Moto("Honda", "CL500", 6790.00, 3));
+        addMoto(new Moto("Yamaha", "XSR700 XTribute", 8799.00, 2));
+        addMoto(new Moto("Ducati", "Scrambler Icon", 9990.00, 2));
+        addMoto(new Moto("Ducati", "Scrambler Full Throttle", 11990.00, 1));
+        addMoto(new Moto("Triumph", "Scrambler 900", 10995.00, 2));
+        addMoto(new Moto("Triumph", "Scrambler 1200 XC", 14995.00, 1));
+        addMoto(new Moto("Fantic", "Caballero 500 Scrambler", 7390.00, 3));
+        addMoto(new Moto("Benelli", "Leoncino 500 Trail", 6190.00, 4));
+        addMoto(new Moto("Husqvarna", "Svartpilen 401", 5899.00, 5));
+        addMoto(new Moto("Royal Enfield", "Scram 411", 5490.00, 6));
     }
 }
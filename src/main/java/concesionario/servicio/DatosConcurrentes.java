@@ -0,0 +1,314 @@
+package concesionario.servicio;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+/**
+ * Variante de {@link Datos} que se puede usar desde varios hilos a la vez.
+ * <p>Las colecciones se protegen con un cerrojo de lectura/escritura: las consultas
+ * se ejecutan en paralelo y las altas y bajas en exclusiva. El stock no usa el
+ * cerrojo: {@link #descontarStock(List)} y {@link #reservar(Moto, int)} trabajan con
+ * compare-and-set sobre cada {@link Moto}, así que las ventas y reservas concurrentes
+ * no se bloquean entre sí ni venden unidades que no existen.</p>
+ * <p>A diferencia de {@link Datos}, los getters de listas devuelven <i>copias</i> no
+ * modificables tomadas en el momento de la llamada.</p>
+ * <p>Con un {@link Diario} asignado, los cambios de stock se anotan en el mismo orden
+ * en que se aplican (se serializan entre sí, pero no bloquean las consultas), y la
+ * espera de durabilidad se hace después de soltar los cerrojos para que varios hilos
+ * compartan el mismo fsync.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public class DatosConcurrentes extends Datos {
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final Object ordenStock = new Object();
+
+    /** Crea el servicio con las listas vacías. */
+    public DatosConcurrentes() { super(); }
+
+    // Getters
+
+    /** @return copia no modificable de los clientes */
+    @Override
+    public List<Cliente> getClientes() { return leyendo(() -> copia(super.getClientes())); }
+
+    /** @return número de clientes (sin copiar la lista) */
+    @Override
+    public int numClientes() { return leyendo(super::numClientes); }
+
+    /** @return copia no modificable de las motos */
+    @Override
+    public List<Moto> getMotos() { return leyendo(() -> copia(super.getMotos())); }
+
+    /** @return copia no modificable de las ventas */
+    @Override
+    public List<Venta> getVentas() { return leyendo(() -> copia(super.getVentas())); }
+
+    @Override
+    public Pagina<Cliente> paginaClientes(Cursor cursor, int tamano) { return leyendo(() -> super.paginaClientes(cursor, tamano)); }
+
+    @Override
+    public Pagina<Moto> paginaMotos(Cursor cursor, int tamano) { return leyendo(() -> super.paginaMotos(cursor, tamano)); }
+
+    @Override
+    public Pagina<Venta> paginaVentas(Cursor cursor, int tamano) { return leyendo(() -> super.paginaVentas(cursor, tamano)); }
+
+    // Altas y bajas
+
+    @Override
+    public boolean addCliente(Cliente c) { return escribiendo(() -> super.addCliente(c)); }
+
+    @Override
+    public void addMoto(Moto m) { escribiendo(() -> { super.addMoto(m); return null; }); }
+
+    @Override
+    public void addVenta(Venta v) { escribiendo(() -> { super.addVenta(v); return null; }); }
+
+    /** Todo el lote se aplica en una sola sección crítica y comparte una espera del diario. */
+    @Override
+    public List<ResultadoVenta> registrarVentas(List<PeticionVenta> peticiones) {
+        return escribiendo(() -> { synchronized (ordenStock) { return super.registrarVentas(peticiones); } });
+    }
+
+    @Override
+    public boolean removeClientePorIndice(int idx) { return escribiendo(() -> super.removeClientePorIndice(idx)); }
+
+    @Override
+    public boolean removeClientePorDni(String dni) { return escribiendo(() -> super.removeClientePorDni(dni)); }
+
+    /** La comprobación de ventas y la baja se hacen con el mismo cerrojo de escritura. */
+    @Override
+    public Baja removeClienteSinVentas(String dni) { return escribiendo(() -> super.removeClienteSinVentas(dni)); }
+
+    @Override
+    public boolean modificarCliente(Cliente c, String nombre, String telefono, String email) {
+        return escribiendo(() -> super.modificarCliente(c, nombre, telefono, email));
+    }
+
+    // Búsquedas y totales
+
+    @Override
+    public Cliente buscarClientePorDni(String dni) { return leyendo(() -> super.buscarClientePorDni(dni)); }
+
+    @Override
+    public List<Moto> buscarMotosPorTexto(String q) { return leyendo(() -> super.buscarMotosPorTexto(q)); }
+
+    @Override
+    public Moto buscarMotoPorIndice(int idx) { return leyendo(() -> super.buscarMotoPorIndice(idx)); }
+
+    @Override
+    public int indiceMoto(Moto m) { return leyendo(() -> super.indiceMoto(m)); }
+
+    @Override
+    public List<Venta> ventasPorDni(String dni) { return leyendo(() -> super.ventasPorDni(dni)); }
+
+    @Override
+    public boolean tieneVentas(String dni) { return leyendo(() -> super.tieneVentas(dni)); }
+
+    @Override
+    public long totalVentasCentimos() { return leyendo(super::totalVentasCentimos); }
+
+    @Override
+    public long totalVentasClienteCentimos(String dni) { return leyendo(() -> super.totalVentasClienteCentimos(dni)); }
+
+    @Override
+    public long unidadesVendidas() { return leyendo(super::unidadesVendidas); }
+
+    @Override
+    public long unidadesVendidasCliente(String dni) { return leyendo(() -> super.unidadesVendidasCliente(dni)); }
+
+    // Stock
+
+    /**
+     * Sin el cerrojo de lectura/escritura: el descuento es atómico por moto y se deshace si
+     * falta stock en alguna (las selecciones de varias motos se aplican de una en una, ver
+     * {@link Datos#descontarStock(List)}). Solo si hay diario se ordena respecto a los demás
+     * cambios de stock.
+     */
+    @Override
+    public boolean descontarStock(List<Moto> seleccion) {
+        if (getDiario() == null) return super.descontarStock(seleccion);
+        return leyendo(() -> { synchronized (ordenStock) { return super.descontarStock(seleccion); } });
+    }
+
+    // Reservas (el stock se aparta con compare-and-set, como en descontarStock)
+
+    @Override
+    public Reserva reservar(Moto m, int unidades) {
+        if (getDiario() == null) return super.reservar(m, unidades);
+        return leyendo(() -> { synchronized (ordenStock) { return super.reservar(m, unidades); } });
+    }
+
+    @Override
+    public Venta confirmarReservas(Cliente c, List<Reserva> reservas) {
+        return escribiendo(() -> { synchronized (ordenStock) { return super.confirmarReservas(c, reservas); } });
+    }
+
+    @Override
+    public boolean cancelarReserva(Reserva r) {
+        if (getDiario() == null) return super.cancelarReserva(r);
+        return leyendo(() -> { synchronized (ordenStock) { return super.cancelarReserva(r); } });
+    }
+
+    @Override
+    public int caducarReservas() {
+        if (getDiario() == null) return super.caducarReservas();
+        return leyendo(() -> { synchronized (ordenStock) { return super.caducarReservas(); } });
+    }
+
+    /** Usa el cerrojo de lectura solo para localizar la moto; el stock se suma de forma atómica. */
+    @Override
+    public boolean reponerStockPorIndice(int idx, int unidades) {
+        return leyendo(() -> { synchronized (ordenStock) { return super.reponerStockPorIndice(idx, unidades); } });
+    }
+
+    // Análisis por fechas
+
+    @Override
+    public Resumen resumenVentasEntre(LocalDate desde, LocalDate hasta) { return leyendo(() -> super.resumenVentasEntre(desde, hasta)); }
+
+    @Override
+    public SortedMap<YearMonth, Resumen> resumenVentasPorMes(YearMonth desde, YearMonth hasta) {
+        return leyendo(() -> super.resumenVentasPorMes(desde, hasta));
+    }
+
+    @Override
+    public List<Venta> ventasEntre(LocalDate desde, LocalDate hasta) { return leyendo(() -> super.ventasEntre(desde, hasta)); }
+
+    @Override
+    public long[] totalesPorDiaCentimos(LocalDate desde, LocalDate hasta) {
+        return leyendo(() -> super.totalesPorDiaCentimos(desde, hasta));
+    }
+
+    @Override
+    public Map<String, Long> totalesPorClienteCentimos(LocalDate desde, LocalDate hasta) {
+        return leyendo(() -> super.totalesPorClienteCentimos(desde, hasta));
+    }
+
+    @Override
+    public long[] unidadesPorMoto(LocalDate desde, LocalDate hasta) { return leyendo(() -> super.unidadesPorMoto(desde, hasta)); }
+
+    @Override
+    public void setAlmacenColumnar(boolean activo) { escribiendo(() -> { super.setAlmacenColumnar(activo); return null; }); }
+
+    // Clasificaciones
+
+    @Override
+    public List<Puesto<Moto>> motosMasVendidas(int n) { return leyendo(() -> super.motosMasVendidas(n)); }
+
+    @Override
+    public List<Puesto<Cliente>> mejoresClientes(int n) { return leyendo(() -> super.mejoresClientes(n)); }
+
+    @Override
+    public List<Puesto<Moto>> motosMasVendidasRecientes(int n) { return leyendo(() -> super.motosMasVendidasRecientes(n)); }
+
+    @Override
+    public List<Puesto<Cliente>> mejoresClientesRecientes(int n) { return leyendo(() -> super.mejoresClientesRecientes(n)); }
+
+    @Override
+    public void setVentanaClasificacion(int dias) { escribiendo(() -> { super.setVentanaClasificacion(dias); return null; }); }
+
+    // Ordenar
+
+    @Override
+    public List<Cliente> clientesOrdenadosPorNombre() { return leyendo(super::clientesOrdenadosPorNombre); }
+
+    @Override
+    public List<Moto> motosOrdenadasPorMarca() { return leyendo(super::motosOrdenadasPorMarca); }
+
+    @Override
+    public Pagina<Cliente> paginaClientesPorNombre(Cursor cursor, int tamano) {
+        return leyendo(() -> super.paginaClientesPorNombre(cursor, tamano));
+    }
+
+    @Override
+    public Pagina<Moto> paginaMotosPorMarca(Cursor cursor, int tamano) {
+        return leyendo(() -> super.paginaMotosPorMarca(cursor, tamano));
+    }
+
+    @Override
+    Moto motoEnPosicion(int idx) { return leyendo(() -> super.motoEnPosicion(idx)); }
+
+    @Override
+    int addClientesEnBloque(List<Cliente> nuevos, IntConsumer rechazado) {
+        return escribiendo(() -> super.addClientesEnBloque(nuevos, rechazado));
+    }
+
+    @Override
+    void addMotosEnBloque(List<Moto> nuevas) { escribiendo(() -> { super.addMotosEnBloque(nuevas); return null; }); }
+
+    @Override
+    void addVentasEnBloque(List<Venta> nuevas, int[] refs, List<Cliente> clientes) {
+        escribiendo(() -> { super.addVentasEnBloque(nuevas, refs, clientes); return null; });
+    }
+
+    /** Bloquea altas, bajas y cambios de stock anotados mientras dura la lectura. */
+    @Override
+    <T> T conEstadoFijo(LecturaEstado<T> lectura) throws IOException {
+        try {
+            return leyendo(() -> {
+                synchronized (ordenStock) {
+                    try {
+                        return lectura.leer();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Cerrojos
+
+    /** La espera de durabilidad se hace al soltar los cerrojos (ver {@link #conCerrojo}). */
+    @Override
+    protected void confirmarDiario() { }
+
+    /**
+     * Ejecuta una consulta con el cerrojo de lectura.
+     * @param accion consulta a ejecutar
+     * @return resultado de la consulta
+     */
+    protected <T> T leyendo(Supplier<T> accion) { return conCerrojo(cerrojo.readLock(), accion); }
+
+    /**
+     * Ejecuta una modificación con el cerrojo de escritura.
+     * @param accion modificación a ejecutar
+     * @return resultado de la modificación
+     */
+    protected <T> T escribiendo(Supplier<T> accion) { return conCerrojo(cerrojo.writeLock(), accion); }
+
+    private <T> T conCerrojo(Lock lock, Supplier<T> accion) {
+        T resultado;
+        lock.lock();
+        try {
+            resultado = accion.get();
+        } finally {
+            lock.unlock();
+        }
+        super.confirmarDiario();
+        return resultado;
+    }
+
+    private static <T> List<T> copia(List<T> lista) {
+        return Collections.unmodifiableList(new ArrayList<>(lista));
+    }
+}
@@ -0,0 +1,416 @@
+package concesionario.servicio;
+
+import java.io.Closeable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Dinero;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+/**
+ * Servicio repartido en varias particiones {@link DatosConcurrentes}, cada una con su
+ * propio cerrojo, para que las altas y consultas de clientes distintos no compitan.
+ * <p>Cada cliente y sus ventas van a la partición que indica el hash de su DNI
+ * normalizado, así que las operaciones de un cliente ({@link #buscarClientePorDni(String)},
+ * {@link #ventasPorDni(String)}, {@link #addVenta(Venta)}...) tocan una sola partición.
+ * Las consultas que recorren todas las ventas ({@link #unidadesPorMoto(LocalDate, LocalDate)},
+ * {@link #totalesPorClienteCentimos(LocalDate, LocalDate)}, los listados ordenados...) se
+ * lanzan en paralelo sobre todas y se combinan. Los totales y los resúmenes por fechas ya
+ * se mantienen al registrar cada venta, así que se piden a cada partición en el propio hilo
+ * y solo se suman: repartirlos costaría más que calcularlos.</p>
+ * <p>El catálogo de motos es común: cada moto se da de alta en todas las particiones (el
+ * mismo objeto, con la misma posición), de modo que el stock es uno solo y las búsquedas
+ * de motos se reparten entre particiones sin tener que combinar resultados.</p>
+ * <p>Los clientes con el mismo nombre aparecen en los listados ordenados por partición,
+ * no por orden de alta.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class DatosParticionados implements Closeable {
+    private final DatosConcurrentes[] particiones;
+    private final ExecutorService hilos;
+
+    /** Crea tantas particiones como procesadores. */
+    public DatosParticionados() { this(Runtime.getRuntime().availableProcessors()); }
+
+    /**
+     * @param numParticiones número de particiones
+     * @throws IllegalArgumentException si no es positivo
+     */
+    public DatosParticionados(int numParticiones) {
+        if (numParticiones <= 0) throw new IllegalArgumentException("Número de particiones no válido: " + numParticiones);
+        particiones = new DatosConcurrentes[numParticiones];
+        for (int i = 0; i < numParticiones; i++) particiones[i] = new DatosConcurrentes();
+        hilos = numParticiones == 1 ? null : Executors.newFixedThreadPool(
+                Math.min(numParticiones - 1, Runtime.getRuntime().availableProcessors()),
+                Thread.ofPlatform().daemon().name("particion-", 0).factory());
+    }
+
+    /** @return número de particiones */
+    public int getNumParticiones() { return particiones.length; }
+
+    /**
+     * @param dni DNI de un cliente
+     * @return partición en la que está (o estaría) ese cliente
+     */
+    int particion(String dni) { return dni == null ? 0 : particionDeClave(Datos.claveDni(dni)); }
+
+    private int particionDeClave(String claveDni) {
+        if (claveDni == null) return 0;
+        int h = claveDni.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), particiones.length);
+    }
+
+    /** @return partición del cliente con ese DNI */
+    private DatosConcurrentes de(String dni) { return particiones[particion(dni)]; }
+
+    /** @return partición de un cliente (con la clave de DNI que ya guarda) */
+    private DatosConcurrentes de(Cliente c) { return particiones[particionDeClave(c.getClaveDni())]; }
+
+    /**
+     * @return una partición al azar, para repartir las consultas del catálogo (sin un
+     *         contador compartido que todos los hilos tendrían que actualizar)
+     */
+    private DatosConcurrentes cualquiera() {
+        return particiones[ThreadLocalRandom.current().nextInt(particiones.length)];
+    }
+
+    /** Detiene los hilos de las consultas en paralelo. */
+    @Override
+    public void close() {
+        if (hilos != null) hilos.shutdown();
+    }
+
+    // Clientes
+
+    /**
+     * Añade un cliente si el DNI no existe.
+     * @param c cliente a añadir
+     * @return {@code true} si se añadió
+     * @see Datos#addCliente(Cliente)
+     */
+    public boolean addCliente(Cliente c) { return c != null && de(c).addCliente(c); }
+
+    /**
+     * @param dni DNI a buscar (sin distinguir mayúsculas/minúsculas)
+     * @return cliente encontrado o {@code null} si no existe
+     */
+    public Cliente buscarClientePorDni(String dni) { return dni == null ? null : de(dni).buscarClientePorDni(dni); }
+
+    /**
+     * Modifica los datos de un cliente.
+     * @see Datos#modificarCliente(Cliente, String, String, String)
+     */
+    public boolean modificarCliente(Cliente c, String nombre, String telefono, String email) {
+        return c != null && de(c).modificarCliente(c, nombre, telefono, email);
+    }
+
+    /**
+     * Elimina el cliente con el DNI dado.
+     * @param dni DNI del cliente
+     * @return {@code true} si se eliminó
+     */
+    public boolean removeClientePorDni(String dni) { return dni != null && de(dni).removeClientePorDni(dni); }
+
+    /** @return número de clientes */
+    public int numClientes() {
+        int n = 0;
+        for (DatosConcurrentes p : particiones) n += p.numClientes();
+        return n;
+    }
+
+    /**
+     * Devuelve todos los clientes ordenados por nombre (sin distinguir mayúsculas).
+     * Cada partición devuelve los suyos ya ordenados y se mezclan.
+     * @return nueva lista ordenada por nombre
+     */
+    public List<Cliente> clientesOrdenadosPorNombre() {
+        return mezclar(enParalelo(Datos::clientesOrdenadosPorNombre), Cliente::getClaveNombre);
+    }
+
+    // Motos
+
+    /**
+     * Añade una moto al catálogo común.
+     * @param m moto a añadir
+     */
+    public void addMoto(Moto m) {
+        if (m == null) return;
+        for (DatosConcurrentes p : particiones) p.addMoto(m);
+    }
+
+    /** @return copia no modificable del catálogo */
+    public List<Moto> getMotos() { return particiones[0].getMotos(); }
+
+    /**
+     * @param idx posición en el catálogo
+     * @return moto en esa posición o {@code null} si no es válida
+     */
+    public Moto buscarMotoPorIndice(int idx) { return cualquiera().buscarMotoPorIndice(idx); }
+
+    /**
+     * Busca motos por marca o modelo (ver {@link Datos#buscarMotosPorTexto(String)}).
+     * @param q texto a buscar
+     * @return coincidencias, en el orden del catálogo
+     */
+    public List<Moto> buscarMotosPorTexto(String q) { return cualquiera().buscarMotosPorTexto(q); }
+
+    /** @return copia del catálogo ordenada por marca y modelo */
+    public List<Moto> motosOrdenadasPorMarca() { return cualquiera().motosOrdenadasPorMarca(); }
+
+    /**
+     * Descuenta el stock de una selección de motos (todo o nada). Siempre en la primera
+     * partición: las motos son las mismas en todas, y los descuentos de varias motos solo
+     * se aplican de uno en uno dentro de una misma partición.
+     * @see Datos#descontarStock(List)
+     */
+    public boolean descontarStock(List<Moto> seleccion) { return particiones[0].descontarStock(seleccion); }
+
+    /**
+     * Añade unidades al stock de la moto en esa posición del catálogo.
+     * @see Datos#reponerStockPorIndice(int, int)
+     */
+    public boolean reponerStockPorIndice(int idx, int unidades) { return particiones[0].reponerStockPorIndice(idx, unidades); }
+
+    // Ventas
+
+    /**
+     * Registra una venta en la partición de su cliente.
+     * @param v venta a registrar
+     */
+    public void addVenta(Venta v) {
+        if (v != null) de(v.getCliente()).addVenta(v);
+    }
+
+    /**
+     * @param dni DNI del cliente
+     * @return ventas del cliente (puede estar vacía)
+     */
+    public List<Venta> ventasPorDni(String dni) { return de(dni).ventasPorDni(dni); }
+
+    /**
+     * @param dni DNI del cliente
+     * @return {@code true} si tiene al menos una venta
+     */
+    public boolean tieneVentas(String dni) { return de(dni).tieneVentas(dni); }
+
+    /**
+     * @param dni DNI del cliente
+     * @return total de sus ventas en céntimos (0 si no tiene)
+     */
+    public long totalVentasClienteCentimos(String dni) { return de(dni).totalVentasClienteCentimos(dni); }
+
+    /**
+     * @param dni DNI del cliente
+     * @return unidades compradas por el cliente
+     */
+    public long unidadesVendidasCliente(String dni) { return de(dni).unidadesVendidasCliente(dni); }
+
+    /** @return número de ventas */
+    public long numVentas() {
+        long n = 0;
+        for (DatosConcurrentes p : particiones) n += p.resumenVentasEntre(null, null).getVentas();
+        return n;
+    }
+
+    /** @return total de todas las ventas en euros */
+    public double totalVentas() { return Dinero.aEuros(totalVentasCentimos()); }
+
+    /** @return total de todas las ventas en céntimos */
+    public long totalVentasCentimos() {
+        long total = 0;
+        for (DatosConcurrentes p : particiones) total += p.totalVentasCentimos();
+        return total;
+    }
+
+    /** @return número total de motos vendidas */
+    public long unidadesVendidas() {
+        long n = 0;
+        for (DatosConcurrentes p : particiones) n += p.unidadesVendidas();
+        return n;
+    }
+
+    /**
+     * Resume las ventas entre dos fechas (ambas incluidas), sumando el de cada partición.
+     * @see Datos#resumenVentasEntre(LocalDate, LocalDate)
+     */
+    public Resumen resumenVentasEntre(LocalDate desde, LocalDate hasta) {
+        Resumen r = new Resumen();
+        for (DatosConcurrentes p : particiones) r.anadir(p.resumenVentasEntre(desde, hasta));
+        return r;
+    }
+
+    /**
+     * Devuelve las ventas entre dos fechas, por fecha (a igual fecha, por partición).
+     * @see Datos#ventasEntre(LocalDate, LocalDate)
+     */
+    public List<Venta> ventasEntre(LocalDate desde, LocalDate hasta) {
+        return mezclar(enParalelo(p -> p.ventasEntre(desde, hasta)), Venta::getFecha);
+    }
+
+    /**
+     * Suma el importe de cada cliente entre dos fechas.
+     * @see Datos#totalesPorClienteCentimos(LocalDate, LocalDate)
+     */
+    public Map<String, Long> totalesPorClienteCentimos(LocalDate desde, LocalDate hasta) {
+        Map<String, Long> res = new HashMap<>();
+        for (Map<String, Long> parcial : enParalelo(p -> p.totalesPorClienteCentimos(desde, hasta))) res.putAll(parcial);
+        return res;
+    }
+
+    /**
+     * Cuenta las unidades vendidas de cada moto del catálogo entre dos fechas.
+     * @see Datos#unidadesPorMoto(LocalDate, LocalDate)
+     */
+    public long[] unidadesPorMoto(LocalDate desde, LocalDate hasta) {
+        long[] res = null;
+        for (long[] parcial : enParalelo(p -> p.unidadesPorMoto(desde, hasta))) {
+            if (res == null || parcial.length > res.length) {
+                long[] mayor = parcial.clone();
+                if (res != null) for (int i = 0; i < res.length; i++) mayor[i] += res[i];
+                res = mayor;
+            } else {
+                for (int i = 0; i < parcial.length; i++) res[i] += parcial[i];
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Clientes con mayor importe comprado. Cada cliente está en una sola partición, así
+     * que basta con mezclar los mejores de cada una.
+     * @see Datos#mejoresClientes(int)
+     */
+    public List<Puesto<Cliente>> mejoresClientes(int n) {
+        if (n <= 0) throw new IllegalArgumentException("Número de puestos no válido: " + n);
+        List<Puesto<Cliente>> todos = new ArrayList<>();
+        for (List<Puesto<Cliente>> parcial : enParalelo(p -> p.mejoresClientes(n))) todos.addAll(parcial);
+        return mejores(todos, n);
+    }
+
+    /**
+     * Motos con más unidades vendidas. Una moto se vende en todas las particiones, así
+     * que se suman sus unidades de cada una antes de elegir.
+     * @see Datos#motosMasVendidas(int)
+     */
+    public List<Puesto<Moto>> motosMasVendidas(int n) {
+        if (n <= 0) throw new IllegalArgumentException("Número de puestos no válido: " + n);
+        Map<Moto, long[]> suma = new IdentityHashMap<>();
+        for (List<Puesto<Moto>> parcial : enParalelo(p -> p.motosMasVendidas(Integer.MAX_VALUE))) {
+            for (Puesto<Moto> puesto : parcial) suma.computeIfAbsent(puesto.getElemento(), m -> new long[1])[0] += puesto.getValor();
+        }
+        List<Puesto<Moto>> todos = new ArrayList<>(suma.size());
+        for (var e : suma.entrySet()) todos.add(new Puesto<>(e.getKey(), e.getValue()[0]));
+        return mejores(todos, n);
+    }
+
+    /**
+     * Activa o desactiva la copia por columnas de las ventas en todas las particiones.
+     * @see Datos#setAlmacenColumnar(boolean)
+     */
+    public void setAlmacenColumnar(boolean activo) {
+        for (DatosConcurrentes p : particiones) p.setAlmacenColumnar(activo);
+    }
+
+    // Reparto y mezcla
+
+    /**
+     * Ejecuta una consulta en todas las particiones a la vez (la primera en el hilo que llama).
+     * @return resultado de cada partición, en orden de partición
+     */
+    private <R> List<R> enParalelo(Function<DatosConcurrentes, R> consulta) {
+        int n = particiones.length;
+        if (n == 1) return List.of(consulta.apply(particiones[0]));
+        List<Future<R>> pendientes = new ArrayList<>(n - 1);
+        for (int i = 1; i < n; i++) {
+            DatosConcurrentes p = particiones[i];
+            pendientes.add(hilos.submit(() -> consulta.apply(p)));
+        }
+        List<R> res = new ArrayList<>(n);
+        res.add(consulta.apply(particiones[0]));
+        boolean interrumpido = false;
+        try {
+            for (Future<R> f : pendientes) {
+                while (true) {
+                    try {
+                        res.add(f.get());
+                        break;
+                    } catch (InterruptedException e) {
+                        interrumpido = true;
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof RuntimeException r) throw r;
+                        if (e.getCause() instanceof Error err) throw err;
+                        throw new IllegalStateException(e.getCause());
+                    }
+                }
+            }
+        } finally {
+            if (interrumpido) Thread.currentThread().interrupt();
+        }
+        return res;
+    }
+
+    /** Cabeza de una de las listas ordenadas que se mezclan. */
+    private static final class Cabeza<T, K> {
+        final List<T> lista;
+        final int particion;
+        int pos;
+        K clave;
+
+        Cabeza(List<T> lista, int particion) {
+            this.lista = lista;
+            this.particion = particion;
+        }
+    }
+
+    /**
+     * Mezcla listas ya ordenadas por la misma clave; a igual clave va antes la de la
+     * partición menor. Cada clave se calcula una sola vez.
+     */
+    private static <T, K extends Comparable<K>> List<T> mezclar(List<List<T>> listas, Function<T, K> clave) {
+        int total = 0;
+        PriorityQueue<Cabeza<T, K>> cabezas = new PriorityQueue<>(Math.max(1, listas.size()), (a, b) -> {
+            int c = a.clave.compareTo(b.clave);
+            return c != 0 ? c : Integer.compare(a.particion, b.particion);
+        });
+        for (int i = 0; i < listas.size(); i++) {
+            List<T> l = listas.get(i);
+            total += l.size();
+            if (l.isEmpty()) continue;
+            Cabeza<T, K> c = new Cabeza<>(l, i);
+            c.clave = clave.apply(l.get(0));
+            cabezas.add(c);
+        }
+        List<T> res = new ArrayList<>(total);
+        while (!cabezas.isEmpty()) {
+            Cabeza<T, K> c = cabezas.poll();
+            res.add(c.lista.get(c.pos++));
+            if (c.pos < c.lista.size()) {
+                c.clave = clave.apply(c.lista.get(c.pos));
+                cabezas.add(c);
+            }
+        }
+        return res;
+    }
+
+    /** Los {@code n} puestos de mayor valor, de más a menos (a igual valor, en el orden recibido). */
+    private static <T> List<Puesto<T>> mejores(List<Puesto<T>> puestos, int n) {
+        List<Puesto<T>> orden = new ArrayList<>(puestos);
+        orden.sort(Collections.reverseOrder((a, b) -> Long.compare(a.getValor(), b.getValor())));
+        return orden.size() > n ? new ArrayList<>(orden.subList(0, n)) : orden;
+    }
+}
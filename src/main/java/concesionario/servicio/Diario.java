@@ -0,0 +1,536 @@
+package concesionario.servicio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+/**
+ * Diario binario de solo anexado (write-ahead log) con las modificaciones de {@link Datos}.
+ * <p>Cada alta, baja, venta, cambio de stock o modificación de cliente se anota como un
+ * registro con número de secuencia (LSN). Un hilo escritor vuelca los registros
+ * pendientes en lotes a través de un {@link FileChannel} y hace un único
+ * {@code fsync} por lote (<i>group commit</i>).</p>
+ * <p>Al arrancar, {@link #reproducir(Datos)} vuelve a aplicar el diario sobre un
+ * {@link Datos} vacío (o sobre una instantánea) para reconstruir el estado.</p>
+ * <p>Formato de cada registro: {@code [int longitud][long lsn][byte tipo][datos][int crc32c]}.
+ * Un registro incompleto o con CRC incorrecto al final del fichero (escritura cortada)
+ * se descarta al abrir el diario.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public class Diario implements Closeable {
+
+    /** Cuándo se considera terminada una operación anotada. */
+    public enum Durabilidad {
+        /** La operación espera a que su lote esté en disco (fsync). */
+        SINCRONA,
+        /** La operación vuelve al anotarse; el lote se escribe y sincroniza en segundo plano. */
+        ASINCRONA
+    }
+
+    // Tipos de registro
+    static final byte ALTA_CLIENTE = 1;
+    static final byte ALTA_MOTO = 2;
+    static final byte VENTA = 3;
+    static final byte DESCUENTO_STOCK = 4;
+    static final byte REPOSICION_STOCK = 5;
+    static final byte BAJA_CLIENTE = 6;
+    static final byte MODIFICACION_CLIENTE = 7;
+
+    /** Día anotado para las ventas sin fecha (no es un {@link LocalDate#toEpochDay()} válido). */
+    static final long SIN_FECHA = Long.MIN_VALUE;
+
+    /** Bytes de cabecera (longitud) y cola (crc) de cada registro. */
+    static final int CABECERA = 4;
+    static final int COLA = 4;
+    private static final int MAX_REGISTRO = 64 * 1024 * 1024;
+
+    private final FileChannel canal;
+    private final Durabilidad durabilidad;
+    private final Thread escritor;
+    private final ThreadLocal<long[]> ultimoDelHilo = ThreadLocal.withInitial(() -> new long[1]);
+    private final CRC32C crc = new CRC32C();
+
+    // protegidos por "this"
+    private BufferBinario pendiente = new BufferBinario(64 * 1024);
+    private BufferBinario enEscritura = new BufferBinario(64 * 1024);
+    private long ultimoLsn;
+    private long lsnDurable;
+    private boolean cerrando = false;
+    private IOException error;
+
+    private Diario(FileChannel canal, Durabilidad durabilidad, long ultimoLsn) {
+        this.canal = canal;
+        this.durabilidad = durabilidad;
+        this.ultimoLsn = ultimoLsn;
+        this.lsnDurable = ultimoLsn;
+        this.escritor = new Thread(this::bucleEscritor, "diario-escritor");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Abre (o crea) un diario con durabilidad {@link Durabilidad#SINCRONA}.
+     * @param ruta fichero del diario
+     * @return diario listo para reproducir y anotar
+     * @throws IOException si no se puede abrir el fichero
+     */
+    public static Diario abrir(Path ruta) throws IOException { return abrir(ruta, Durabilidad.SINCRONA); }
+
+    /**
+     * Abre (o crea) un diario. Si el último registro está incompleto o dañado, se trunca.
+     * @param ruta        fichero del diario
+     * @param durabilidad cuándo se dan por terminadas las operaciones anotadas
+     * @return diario listo para reproducir y anotar
+     * @throws IOException si no se puede abrir el fichero
+     */
+    public static Diario abrir(Path ruta, Durabilidad durabilidad) throws IOException {
+        FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long[] ultimo = {0};
+            long fin = recorrer(canal, 0, (lsn, tipo, datos, finRegistro) -> ultimo[0] = lsn);
+            if (fin < canal.size()) canal.truncate(fin);
+            canal.position(fin);
+            return new Diario(canal, durabilidad, ultimo[0]);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    // Consultas
+
+    /** @return modo de durabilidad */
+    public Durabilidad getDurabilidad() { return durabilidad; }
+
+    /** @return LSN del último registro anotado (0 si el diario está vacío) */
+    public synchronized long ultimoLsn() { return ultimoLsn; }
+
+    /** @return LSN del último registro que ya está en disco */
+    public synchronized long lsnDurable() { return lsnDurable; }
+
+    /** @return si se ha empezado a cerrar el diario */
+    synchronized boolean cerrando() { return cerrando; }
+
+    // Reproducción
+
+    /**
+     * Aplica todos los registros del diario sobre {@code datos}.
+     * @param datos servicio de destino (normalmente vacío)
+     * @return número de registros aplicados
+     * @throws IOException si falla la lectura
+     */
+    public long reproducir(Datos datos) throws IOException { return reproducir(datos, 0); }
+
+    /**
+     * Aplica los registros con LSN mayor que {@code desdeLsn} (por ejemplo, los posteriores a una instantánea).
+     * Mientras se reproduce, el diario de {@code datos} se desactiva para no volver a anotar lo leído.
+     * @param datos    servicio de destino
+     * @param desdeLsn último LSN ya incluido en {@code datos}
+     * @return número de registros aplicados
+     * @throws IOException si falla la lectura
+     */
+    public long reproducir(Datos datos, long desdeLsn) throws IOException {
+        sincronizar();
+        Diario previo = datos.getDiario();
+        datos.setDiario(null);
+        try {
+            long[] aplicados = {0};
+            recorrer(canal, 0, (lsn, tipo, registro, finRegistro) -> {
+                if (lsn <= desdeLsn) return;
+                aplicar(tipo, registro, datos);
+                aplicados[0]++;
+            });
+            return aplicados[0];
+        } finally {
+            datos.setDiario(previo);
+        }
+    }
+
+    // Anotación (la llama Datos)
+
+    long anotarAltaCliente(Cliente c) {
+        synchronized (this) {
+            int inicio = empezar(ALTA_CLIENTE);
+            escribirCliente(pendiente, c);
+            return terminar(inicio);
+        }
+    }
+
+    long anotarAltaMoto(Moto m) {
+        synchronized (this) {
+            int inicio = empezar(ALTA_MOTO);
+            pendiente.escribirTexto(m.getMarca());
+            pendiente.escribirTexto(m.getModelo());
+            pendiente.escribirLong(m.getPrecioCentimos());
+            pendiente.escribirInt(m.getStock());
+            return terminar(inicio);
+        }
+    }
+
+    /**
+     * @param v          venta registrada
+     * @param posiciones posición en el catálogo de cada moto de la venta (-1 si no está en el catálogo)
+     */
+    long anotarVenta(Venta v, int[] posiciones) {
+        synchronized (this) {
+            int inicio = empezar(VENTA);
+            escribirCliente(pendiente, v.getCliente());
+            pendiente.escribirLong(v.getFecha() == null ? SIN_FECHA : v.getFecha().toEpochDay());
+            List<Moto> motos = v.getMotos();
+            pendiente.escribirInt(motos.size());
+            for (int i = 0; i < motos.size(); i++) {
+                pendiente.escribirInt(posiciones[i]);
+                if (posiciones[i] < 0) {        // moto fuera del catálogo: se guarda completa
+                    Moto m = motos.get(i);
+                    pendiente.escribirTexto(m.getMarca());
+                    pendiente.escribirTexto(m.getModelo());
+                    pendiente.escribirLong(m.getPrecioCentimos());
+                }
+            }
+            return terminar(inicio);
+        }
+    }
+
+    /**
+     * @param unidades unidades descontadas por posición de catálogo
+     */
+    long anotarDescuentoStock(Map<Integer, Integer> unidades) {
+        synchronized (this) {
+            int inicio = empezar(DESCUENTO_STOCK);
+            pendiente.escribirInt(unidades.size());
+            for (var e : unidades.entrySet()) {
+                pendiente.escribirInt(e.getKey());
+                pendiente.escribirInt(e.getValue());
+            }
+            return terminar(inicio);
+        }
+    }
+
+    long anotarReposicionStock(int idx, int unidades) {
+        synchronized (this) {
+            int inicio = empezar(REPOSICION_STOCK);
+            pendiente.escribirInt(idx);
+            pendiente.escribirInt(unidades);
+            return terminar(inicio);
+        }
+    }
+
+    long anotarBajaCliente(int idx) {
+        synchronized (this) {
+            int inicio = empezar(BAJA_CLIENTE);
+            pendiente.escribirInt(idx);
+            return terminar(inicio);
+        }
+    }
+
+    long anotarModificacionCliente(String dni, String nombre, String telefono, String email) {
+        synchronized (this) {
+            int inicio = empezar(MODIFICACION_CLIENTE);
+            pendiente.escribirTexto(dni);
+            pendiente.escribirTexto(nombre);
+            pendiente.escribirTexto(telefono);
+            pendiente.escribirTexto(email);
+            return terminar(inicio);
+        }
+    }
+
+    /** Escribe la cabecera provisional, el LSN y el tipo. Debe llamarse con el monitor tomado. */
+    private int empezar(byte tipo) {
+        comprobarError();
+        int inicio = pendiente.tamano();
+        pendiente.escribirInt(0);
+        pendiente.escribirLong(ultimoLsn + 1);
+        pendiente.escribirByte(tipo);
+        return inicio;
+    }
+
+    /** Completa longitud y CRC del registro y avisa al escritor. Debe llamarse con el monitor tomado. */
+    private long terminar(int inicio) {
+        int longitud = pendiente.tamano() - inicio - CABECERA;
+        pendiente.ponerInt(inicio, longitud);
+        crc.reset();
+        crc.update(pendiente.array(), inicio + CABECERA, longitud);
+        pendiente.escribirInt((int) crc.getValue());
+        long lsn = ++ultimoLsn;
+        ultimoDelHilo.get()[0] = lsn;
+        notifyAll();
+        return lsn;
+    }
+
+    // Durabilidad
+
+    /**
+     * Si el diario es {@link Durabilidad#SINCRONA}, espera a que esté en disco todo lo
+     * anotado por el hilo actual. En modo asíncrono vuelve inmediatamente.
+     */
+    void esperarDurabilidad() {
+        if (durabilidad == Durabilidad.ASINCRONA) return;
+        try {
+            esperarHasta(ultimoDelHilo.get()[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Espera a que todo lo anotado hasta ahora esté escrito y sincronizado en disco.
+     * @throws IOException si el escritor falló
+     */
+    public void sincronizar() throws IOException {
+        long lsn;
+        synchronized (this) { lsn = ultimoLsn; }
+        esperarHasta(lsn);
+    }
+
+    /**
+     * Espera a que haya en disco algún registro posterior a {@code lsn}, a que pase el
+     * plazo o a que se cierre el diario (lo usa {@link ServidorReplicacion}).
+     * @param lsn    último LSN ya conocido
+     * @param millis plazo máximo de espera
+     * @return LSN durable al volver
+     */
+    synchronized long esperarDurable(long lsn, long millis) {
+        long limite = System.nanoTime() + millis * 1_000_000L;
+        long resto = millis;
+        while (lsnDurable <= lsn && !cerrando && error == null && resto > 0) {
+            try {
+                wait(resto);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            resto = (limite - System.nanoTime()) / 1_000_000L;
+        }
+        return lsnDurable;
+    }
+
+    private synchronized void esperarHasta(long lsn) throws IOException {
+        boolean interrumpido = false;
+        while (lsnDurable < lsn && error == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) Thread.currentThread().interrupt();
+        if (error != null) throw error;
+    }
+
+    private void comprobarError() {
+        if (error != null) throw new UncheckedIOException("el diario no se pudo escribir", error);
+    }
+
+    /** Bucle del hilo escritor: toma todo lo pendiente, lo escribe y hace un fsync por lote. */
+    private void bucleEscritor() {
+        while (true) {
+            long lsnLote;
+            synchronized (this) {
+                while (pendiente.tamano() == 0 && !cerrando) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // solo se sale al cerrar
+                    }
+                }
+                if (pendiente.tamano() == 0) return;    // cerrando y sin nada pendiente
+                BufferBinario lote = pendiente;
+                pendiente = enEscritura;
+                enEscritura = lote;
+                lsnLote = ultimoLsn;
+            }
+            try {
+                ByteBuffer bb = enEscritura.comoByteBuffer();
+                while (bb.hasRemaining()) canal.write(bb);
+                canal.force(false);
+                enEscritura.limpiar();
+                synchronized (this) {
+                    lsnDurable = lsnLote;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    error = e;
+                    notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Vuelca lo pendiente, detiene el escritor y cierra el fichero.
+     * @throws IOException si falla la escritura o el cierre
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (cerrando) return;
+            cerrando = true;
+            notifyAll();
+        }
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+        if (error != null) throw error;
+    }
+
+    // Lectura
+
+    /** Receptor de cada registro válido leído del diario. */
+    interface Lector {
+        /**
+         * @param lsn         número de secuencia del registro
+         * @param tipo        tipo de registro
+         * @param datos       contenido del registro (sin cabecera, LSN ni tipo)
+         * @param finRegistro posición en el fichero justo después del registro
+         */
+        void leer(long lsn, byte tipo, ByteBuffer datos, long finRegistro) throws IOException;
+    }
+
+    /**
+     * Recorre los registros válidos de un fichero de diario desde una posición.
+     * @param canal  fichero del diario
+     * @param desde  posición de inicio (debe coincidir con el inicio de un registro)
+     * @param lector receptor de cada registro
+     * @return posición justo después del último registro válido
+     * @throws IOException si falla la lectura
+     */
+    static long recorrer(FileChannel canal, long desde, Lector lector) throws IOException {
+        return recorrer(canal, desde, ByteBuffer.allocate(1 << 20), lector);
+    }
+
+    /**
+     * Recorre los registros de este diario que ya están en el fichero, con un buffer
+     * de lectura reutilizable (lo usa {@link ServidorReplicacion}).
+     * @see #recorrer(FileChannel, long, ByteBuffer, Lector)
+     */
+    long recorrer(long desde, ByteBuffer buf, Lector lector) throws IOException {
+        return recorrer(canal, desde, buf, lector);
+    }
+
+    /**
+     * Como {@link #recorrer(FileChannel, long, Lector)}, con el buffer de lectura dado
+     * (se descarta su contenido; si un registro no cabe se usa otro mayor).
+     */
+    static long recorrer(FileChannel canal, long desde, ByteBuffer buf, Lector lector) throws IOException {
+        buf.clear().flip();
+        long posArchivo = desde;      // posición en el fichero del primer byte sin leer al buffer
+        long posRegistro = desde;     // posición en el fichero del registro actual
+        CRC32C crc = new CRC32C();
+        while (true) {
+            if (buf.remaining() < CABECERA) {
+                int leidos = rellenar(canal, buf, posArchivo);
+                if (leidos <= 0 && buf.remaining() < CABECERA) return posRegistro;
+                posArchivo += Math.max(0, leidos);
+                continue;
+            }
+            int longitud = buf.getInt(buf.position());
+            if (longitud < 9 || longitud > MAX_REGISTRO) return posRegistro;   // cabecera dañada
+            int total = CABECERA + longitud + COLA;
+            if (buf.remaining() < total) {
+                if (total > buf.capacity()) {
+                    ByteBuffer mayor = ByteBuffer.allocate(Integer.highestOneBit(total) << 1);
+                    mayor.put(buf).flip();
+                    buf = mayor;
+                }
+                int leidos = rellenar(canal, buf, posArchivo);
+                if (leidos <= 0) return posRegistro;            // registro incompleto al final
+                posArchivo += leidos;
+                continue;
+            }
+            int inicio = buf.position() + CABECERA;
+            crc.reset();
+            crc.update(buf.array(), buf.arrayOffset() + inicio, longitud);
+            if ((int) crc.getValue() != buf.getInt(inicio + longitud)) return posRegistro;
+
+            long lsn = buf.getLong(inicio);
+            byte tipo = buf.get(inicio + 8);
+            ByteBuffer registro = buf.slice(inicio + 9, longitud - 9);
+            posRegistro += total;
+            lector.leer(lsn, tipo, registro, posRegistro);
+            buf.position(buf.position() + total);
+        }
+    }
+
+    /** Compacta el buffer y lee más bytes del fichero. @return bytes leídos o -1 al final */
+    private static int rellenar(FileChannel canal, ByteBuffer buf, long posArchivo) throws IOException {
+        buf.compact();
+        int leidos = canal.read(buf, posArchivo);
+        buf.flip();
+        return leidos;
+    }
+
+    // Aplicación de registros
+
+    /**
+     * Aplica un registro sobre un servicio.
+     * @param tipo    tipo de registro
+     * @param datos   contenido del registro
+     * @param destino servicio al que se aplica
+     */
+    static void aplicar(byte tipo, ByteBuffer datos, Datos destino) {
+        switch (tipo) {
+            case ALTA_CLIENTE -> destino.addCliente(leerCliente(datos));
+            case ALTA_MOTO -> destino.addMoto(Moto.deCentimos(BufferBinario.leerTexto(datos),
+                    BufferBinario.leerTexto(datos), datos.getLong(), datos.getInt()));
+            case VENTA -> {
+                Cliente leido = leerCliente(datos);
+                Cliente c = destino.buscarClientePorDni(leido.getDni());
+                long dia = datos.getLong();
+                LocalDate fecha = dia == SIN_FECHA ? null : LocalDate.ofEpochDay(dia);
+                int n = datos.getInt();
+                List<Moto> motos = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    int idx = datos.getInt();
+                    if (idx >= 0) motos.add(destino.motoEnPosicion(idx));
+                    else motos.add(Moto.deCentimos(BufferBinario.leerTexto(datos),
+                            BufferBinario.leerTexto(datos), datos.getLong(), 0));
+                }
+                destino.addVenta(new Venta(c != null ? c : leido, motos, fecha));
+            }
+            case DESCUENTO_STOCK -> {
+                int n = datos.getInt();
+                for (int i = 0; i < n; i++) destino.motoEnPosicion(datos.getInt()).restarStock(datos.getInt());
+            }
+            case REPOSICION_STOCK -> destino.reponerStockPorIndice(datos.getInt(), datos.getInt());
+            case BAJA_CLIENTE -> destino.removeClientePorIndice(datos.getInt());
+            case MODIFICACION_CLIENTE -> {
+                Cliente c = destino.buscarClientePorDni(BufferBinario.leerTexto(datos));
+                destino.modificarCliente(c, BufferBinario.leerTexto(datos),
+                        BufferBinario.leerTexto(datos), BufferBinario.leerTexto(datos));
+            }
+            default -> throw new IllegalStateException("tipo de registro desconocido: " + tipo);
+        }
+    }
+
+    private static void escribirCliente(BufferBinario out, Cliente c) {
+        out.escribirTexto(c.getNombre());
+        out.escribirTexto(c.getDni());
+        out.escribirTexto(c.getTelefono());
+        out.escribirTexto(c.getEmail());
+    }
+
+    private static Cliente leerCliente(ByteBuffer in) {
+        return new Cliente(BufferBinario.leerTexto(in), BufferBinario.leerTexto(in),
+                BufferBinario.leerTexto(in), BufferBinario.leerTexto(in));
+    }
+}
@@ -0,0 +1,82 @@
+package concesionario.servicio;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+/**
+ * Cambio hecho a través de {@link Datos}, tal como lo recibe un {@link ConsumidorEventos}.
+ * <p>Los eventos son casillas reutilizadas: el consumidor recibe siempre el mismo
+ * objeto con otros valores, así que debe copiar lo que quiera conservar después de
+ * {@link ConsumidorEventos#alEvento(Evento, boolean)}. Las referencias apuntan a los
+ * objetos vivos del servicio.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Evento {
+
+    /** Qué ha cambiado. */
+    public enum Tipo {
+        /** Alta de cliente ({@link #getCliente()}). */
+        ALTA_CLIENTE,
+        /** Baja de cliente ({@link #getCliente()}). */
+        BAJA_CLIENTE,
+        /** Cambio de los datos de contacto de un cliente ({@link #getCliente()}). */
+        MODIFICACION_CLIENTE,
+        /** Alta de moto en el catálogo ({@link #getMoto()}, {@link #getStock()}). */
+        ALTA_MOTO,
+        /** Bajada del stock disponible por una venta o una reserva ({@link #getMoto()}, {@link #getUnidades()}, {@link #getStock()}). */
+        DESCUENTO_STOCK,
+        /** Subida del stock disponible por una reposición o una reserva liberada ({@link #getMoto()}, {@link #getUnidades()}, {@link #getStock()}). */
+        REPOSICION_STOCK,
+        /** Venta registrada ({@link #getVenta()}, {@link #getCliente()}). */
+        VENTA
+    }
+
+    long secuencia;
+    Tipo tipo;
+    Cliente cliente;
+    Moto moto;
+    Venta venta;
+    int unidades;
+    int stock;
+
+    Evento() { }
+
+    void copiarDe(Evento otro) {
+        secuencia = otro.secuencia;
+        tipo = otro.tipo;
+        cliente = otro.cliente;
+        moto = otro.moto;
+        venta = otro.venta;
+        unidades = otro.unidades;
+        stock = otro.stock;
+    }
+
+    /** @return número de orden del evento en el bus (consecutivos, desde 0) */
+    public long getSecuencia() { return secuencia; }
+
+    /** @return tipo de cambio */
+    public Tipo getTipo() { return tipo; }
+
+    /** @return cliente afectado o {@code null} */
+    public Cliente getCliente() { return cliente; }
+
+    /** @return moto afectada o {@code null} */
+    public Moto getMoto() { return moto; }
+
+    /** @return venta registrada o {@code null} */
+    public Venta getVenta() { return venta; }
+
+    /** @return unidades del cambio de stock (0 si no es un cambio de stock) */
+    public int getUnidades() { return unidades; }
+
+    /** @return stock disponible de la moto justo después del cambio (0 si no hay moto) */
+    public int getStock() { return stock; }
+
+    @Override
+    public String toString() {
+        return "#" + secuencia + " " + tipo + (cliente != null ? " " + cliente.getDni() : "")
+                + (moto != null ? " " + moto.getMarca() + " " + moto.getModelo() + " (" + unidades + ", stock " + stock + ")" : "");
+    }
+}
@@ -0,0 +1,294 @@
+package concesionario.servicio;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import concesionario.modelo.Dinero;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+/**
+ * Exportación del histórico de ventas a CSV o JSON Lines.
+ * <p>Las ventas se recorren directamente sobre las listas internas de {@link Datos}
+ * (con el filtro de cliente, sobre el índice por DNI) por tramos de
+ * {@value #VENTAS_POR_TRAMO}: cada tramo se escribe en un único {@link StringBuilder}
+ * reutilizado y se vuelca al {@link Writer}. No se crean listas intermedias ni se usa
+ * {@code String.format}, así que la memoria usada no depende del número de ventas.</p>
+ * <p>Con {@link DatosConcurrentes} cada tramo se lee con el estado fijo, pero el
+ * {@link Writer} se escribe sin cerrojos, así que las altas y el stock solo esperan a que
+ * se dé formato a un tramo y no a toda la exportación. Se exportan las ventas que había al
+ * empezar (las ventas no se borran, así que sus posiciones no cambian entre tramos). Un
+ * mismo exportador no se debe usar desde varios hilos a la vez.</p>
+ * <ul>
+ *   <li>CSV (separador {@code ;}): {@code dni;fecha;unidades;importe;lineas}, donde
+ *   {@code lineas} es {@code marca modelo:precio} de cada unidad separadas por {@code |}
+ *   (un {@code |} o {@code \} dentro de la marca o el modelo va precedido de {@code \})
+ *   y la fecha queda vacía si no se conoce.</li>
+ *   <li>JSONL: un objeto por línea con {@code dni}, {@code fecha} ({@code null} si no se
+ *   conoce), {@code importe} y {@code lineas} ({@code marca}, {@code modelo}, {@code precio}).</li>
+ * </ul>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class ExportadorVentas {
+    private static final int VOLCADO = 8192;
+    /** Ventas que se recorren con el estado fijo antes de soltarlo y escribir. */
+    static final int VENTAS_POR_TRAMO = 1024;
+
+    /** Formato de salida. */
+    public enum Formato { CSV, JSONL }
+
+    private final Datos datos;
+    private Formato formato = Formato.CSV;
+    private LocalDate desde;
+    private LocalDate hasta;
+    private String dni;
+
+    private final StringBuilder sb = new StringBuilder(VOLCADO + 1024);
+    private char[] volcado = new char[VOLCADO + 1024];
+
+    // Progreso de la exportación en curso
+    private int siguiente;
+    private int fin;
+    private long exportadas;
+
+    /**
+     * Crea un exportador de todas las ventas en CSV.
+     * @param datos servicio de origen
+     */
+    public ExportadorVentas(Datos datos) { this.datos = datos; }
+
+    /**
+     * @param formato formato de salida
+     * @return este exportador
+     */
+    public ExportadorVentas formato(Formato formato) {
+        this.formato = formato;
+        return this;
+    }
+
+    /**
+     * Limita la exportación a un intervalo de fechas (ambos extremos incluidos). Si hay algún
+     * límite, las ventas sin fecha no se exportan, igual que en
+     * {@link Datos#ventasEntre(LocalDate, LocalDate)}.
+     * @param desde primer día (o {@code null} para no limitar)
+     * @param hasta último día (o {@code null} para no limitar)
+     * @return este exportador
+     */
+    public ExportadorVentas entre(LocalDate desde, LocalDate hasta) {
+        this.desde = desde;
+        this.hasta = hasta;
+        return this;
+    }
+
+    /**
+     * Limita la exportación a las ventas de un cliente.
+     * @param dni DNI del cliente (o {@code null} para todos)
+     * @return este exportador
+     */
+    public ExportadorVentas cliente(String dni) {
+        this.dni = dni;
+        return this;
+    }
+
+    /**
+     * Exporta a un fichero (UTF-8), reemplazándolo si existe.
+     * @param ruta fichero de destino
+     * @return número de ventas exportadas
+     * @throws IOException si falla la escritura
+     */
+    public long exportar(Path ruta) throws IOException {
+        try (Writer out = new OutputStreamWriter(Files.newOutputStream(ruta), StandardCharsets.UTF_8)) {
+            return exportar(out);
+        }
+    }
+
+    /**
+     * Exporta al {@link Writer} dado (no se cierra).
+     * @param out destino
+     * @return número de ventas exportadas
+     * @throws IOException si falla la escritura
+     */
+    public long exportar(Writer out) throws IOException {
+        sb.setLength(0);
+        if (formato == Formato.CSV) sb.append("dni;fecha;unidades;importe;lineas\n");
+        siguiente = 0;
+        fin = -1;
+        exportadas = 0;
+        boolean quedan = true;
+        while (quedan) {
+            quedan = datos.conEstadoFijo(this::tramo);
+            volcar(out);
+        }
+        out.flush();
+        return exportadas;
+    }
+
+    /**
+     * Da formato a las siguientes {@value #VENTAS_POR_TRAMO} ventas (con el estado fijo).
+     * @return {@code true} si quedan ventas por recorrer
+     */
+    private boolean tramo() {
+        List<Venta> ventas = dni == null ? datos.listaVentas() : datos.listaVentasDe(dni);
+        if (fin < 0) fin = ventas.size();               // las registradas después no se exportan
+        int hastaAqui = Math.min(Math.min(fin, ventas.size()), siguiente + VENTAS_POR_TRAMO);
+        for (; siguiente < hastaAqui; siguiente++) {
+            Venta v = ventas.get(siguiente);
+            LocalDate f = v.getFecha();
+            if ((desde != null || hasta != null) && f == null) continue;
+            if (desde != null && f.isBefore(desde)) continue;
+            if (hasta != null && f.isAfter(hasta)) continue;
+            if (formato == Formato.CSV) filaCsv(v);
+            else filaJson(v);
+            exportadas++;
+        }
+        return siguiente < Math.min(fin, ventas.size());
+    }
+
+    // Filas
+
+    private void filaCsv(Venta v) {
+        List<Moto> lineas = v.getMotos();
+        campoCsv(v.getCliente().getDni());
+        sb.append(';');
+        if (v.getFecha() != null) fecha(v.getFecha());
+        sb.append(';').append(lineas.size()).append(';');
+        Dinero.anadir(sb, v.getImporteCentimos()).append(';');
+        int inicio = sb.length();
+        boolean comillas = false;
+        for (int k = 0; k < lineas.size(); k++) {
+            Moto m = lineas.get(k);
+            if (k > 0) sb.append('|');
+            comillas |= textoLinea(m.getMarca());
+            sb.append(' ');
+            comillas |= textoLinea(m.getModelo());
+            sb.append(':');
+            Dinero.anadir(sb, m.getPrecioCentimos());
+        }
+        if (comillas) entrecomillar(inicio);
+        sb.append('\n');
+    }
+
+    private void filaJson(Venta v) {
+        List<Moto> lineas = v.getMotos();
+        sb.append("{\"dni\":");
+        cadenaJson(v.getCliente().getDni());
+        sb.append(",\"fecha\":");
+        if (v.getFecha() == null) {
+            sb.append("null");
+        } else {
+            sb.append('"');
+            fecha(v.getFecha());
+            sb.append('"');
+        }
+        sb.append(",\"importe\":");
+        Dinero.anadir(sb, v.getImporteCentimos());
+        sb.append(",\"lineas\":[");
+        for (int k = 0; k < lineas.size(); k++) {
+            Moto m = lineas.get(k);
+            if (k > 0) sb.append(',');
+            sb.append("{\"marca\":");
+            cadenaJson(m.getMarca());
+            sb.append(",\"modelo\":");
+            cadenaJson(m.getModelo());
+            sb.append(",\"precio\":");
+            Dinero.anadir(sb, m.getPrecioCentimos());
+            sb.append('}');
+        }
+        sb.append("]}\n");
+    }
+
+    // Campos
+
+    /** Fecha ISO ({@code aaaa-mm-dd}) sin pasar por {@link LocalDate#toString()}. */
+    private void fecha(LocalDate f) {
+        int anio = f.getYear();
+        if (anio < 0 || anio > 9999) {
+            sb.append(f);
+            return;
+        }
+        dosCifras(anio / 100);
+        dosCifras(anio % 100);
+        sb.append('-');
+        dosCifras(f.getMonthValue());
+        sb.append('-');
+        dosCifras(f.getDayOfMonth());
+    }
+
+    private void dosCifras(int n) { sb.append((char) ('0' + n / 10)).append((char) ('0' + n % 10)); }
+
+    /** Añade el texto tal cual e indica si obliga a entrecomillar el campo CSV. */
+    private boolean texto(String s) {
+        if (s == null) return false;
+        sb.append(s);
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == ';' || ch == '"' || ch == '\n' || ch == '\r') return true;
+        }
+        return false;
+    }
+
+    /** Como {@link #texto(String)}, pero con {@code |} y {@code \} precedidos de {@code \}. */
+    private boolean textoLinea(String s) {
+        if (s == null) return false;
+        boolean comillas = false;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '|' || ch == '\\') sb.append('\\');
+            sb.append(ch);
+            comillas |= ch == ';' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        return comillas;
+    }
+
+    private void campoCsv(String s) {
+        int inicio = sb.length();
+        if (texto(s)) entrecomillar(inicio);
+    }
+
+    /** Entrecomilla lo escrito desde {@code inicio}, duplicando las comillas internas. */
+    private void entrecomillar(int inicio) {
+        for (int i = sb.length() - 1; i >= inicio; i--) {
+            if (sb.charAt(i) == '"') sb.insert(i, '"');
+        }
+        sb.insert(inicio, '"').append('"');
+    }
+
+    private void cadenaJson(String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (ch < 0x20) sb.append("\\u00").append(Character.forDigit(ch >> 4, 16)).append(Character.forDigit(ch & 0xF, 16));
+                    else sb.append(ch);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /** Vuelca el contenido del buffer al {@link Writer} sin crear un {@link String}. */
+    private void volcar(Writer out) throws IOException {
+        int n = sb.length();
+        if (n > volcado.length) volcado = new char[n];
+        sb.getChars(0, n, volcado, 0);
+        out.write(volcado, 0, n);
+        sb.setLength(0);
+    }
+}
@@ -0,0 +1,325 @@
+package concesionario.servicio;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Dinero;
+import concesionario.modelo.Moto;
+
+/**
+ * Importación masiva de clientes y motos desde ficheros CSV.
+ * <p>El fichero se lee por bloques de líneas; cada bloque se analiza en un hilo del
+ * grupo y los bloques ya analizados se insertan en {@link Datos} en el orden del
+ * fichero, un bloque cada vez. Solo hay unos pocos bloques en curso a la vez, así que
+ * la memoria usada no depende del tamaño del fichero.</p>
+ * <p>Formato: separador {@code ;}, UTF-8, una fila por línea (sin saltos de línea dentro
+ * de los campos). Los campos pueden ir entre comillas dobles ({@code ""} dentro de
+ * ellas es una comilla). La primera línea se salta si es una cabecera.</p>
+ * <ul>
+ *   <li>Clientes: {@code nombre;dni;telefono;email}. Un DNI repetido (en el fichero o
+ *   ya existente) se rechaza igual que en {@link Datos#addCliente(Cliente)}.</li>
+ *   <li>Motos: {@code marca;modelo;precio;stock}, con el precio en euros
+ *   ({@code 7899.99} o {@code 7899,99}) y el stock entero.</li>
+ * </ul>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class ImportadorCsv {
+    private static final char SEPARADOR = ';';
+    private static final int FILAS_POR_BLOQUE = 4096;
+    /** Máximo de errores que se guardan con detalle (el resto solo se cuentan). */
+    static final int MAX_ERRORES = 100;
+
+    private static final String[] CAMPOS_CLIENTE = {"nombre", "dni", "telefono", "email"};
+    private static final String[] CAMPOS_MOTO = {"marca", "modelo", "precio", "stock"};
+
+    private final Datos datos;
+    private final int hilos;
+
+    /**
+     * Crea un importador que analiza con tantos hilos como procesadores.
+     * @param datos servicio de destino
+     */
+    public ImportadorCsv(Datos datos) { this(datos, Runtime.getRuntime().availableProcessors()); }
+
+    /**
+     * Crea un importador.
+     * @param datos servicio de destino
+     * @param hilos hilos de análisis (al menos 1)
+     */
+    public ImportadorCsv(Datos datos, int hilos) {
+        if (hilos < 1) throw new IllegalArgumentException("hilos debe ser >= 1");
+        this.datos = datos;
+        this.hilos = hilos;
+    }
+
+    /**
+     * Importa clientes ({@code nombre;dni;telefono;email}).
+     * @param ruta fichero CSV
+     * @return resumen de la importación
+     * @throws IOException si falla la lectura del fichero
+     */
+    public Resultado importarClientes(Path ruta) throws IOException {
+        return importar(ruta, CAMPOS_CLIENTE, ImportadorCsv::cliente, (bloque, res) -> {
+            int anadidos = datos.addClientesEnBloque(bloque.filas,
+                    i -> res.error(bloque.lineas[i], "DNI repetido: " + bloque.filas.get(i).getDni()));
+            res.importadas += anadidos;
+        });
+    }
+
+    /**
+     * Importa motos ({@code marca;modelo;precio;stock}).
+     * @param ruta fichero CSV
+     * @return resumen de la importación
+     * @throws IOException si falla la lectura del fichero
+     */
+    public Resultado importarMotos(Path ruta) throws IOException {
+        return importar(ruta, CAMPOS_MOTO, ImportadorCsv::moto, (bloque, res) -> {
+            datos.addMotosEnBloque(bloque.filas);
+            res.importadas += bloque.filas.size();
+        });
+    }
+
+    // Conversión de filas
+
+    private static Cliente cliente(String[] c) {
+        for (int i = 0; i < c.length; i++) {
+            if (c[i].isEmpty()) throw new IllegalArgumentException("campo vacío: " + CAMPOS_CLIENTE[i]);
+        }
+        return new Cliente(c[0], c[1], c[2], c[3]);
+    }
+
+    private static Moto moto(String[] c) {
+        if (c[0].isEmpty()) throw new IllegalArgumentException("campo vacío: marca");
+        if (c[1].isEmpty()) throw new IllegalArgumentException("campo vacío: modelo");
+        long precio;
+        int stock;
+        try {
+            precio = Dinero.parsear(c[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("precio no válido: " + c[2]);
+        }
+        try {
+            stock = Integer.parseInt(c[3]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("stock no válido: " + c[3]);
+        }
+        if (precio < 0) throw new IllegalArgumentException("precio negativo: " + c[2]);
+        if (stock < 0) throw new IllegalArgumentException("stock negativo: " + c[3]);
+        return Moto.deCentimos(c[0], c[1], precio, stock);
+    }
+
+    /**
+     * Separa una línea en exactamente {@code esperados} campos.
+     * Los campos sin comillas se recortan; los entrecomillados se devuelven tal cual.
+     * @throws IllegalArgumentException si el número de campos no cuadra o las comillas están mal
+     */
+    static String[] campos(String linea, int esperados) {
+        String[] res = new String[esperados];
+        int n = 0;
+        int i = 0;
+        int len = linea.length();
+        while (true) {
+            if (n == esperados) throw new IllegalArgumentException("se esperaban " + esperados + " campos y hay más");
+            if (i < len && linea.charAt(i) == '"') {
+                StringBuilder sb = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= len) throw new IllegalArgumentException("comillas sin cerrar");
+                    char ch = linea.charAt(i++);
+                    if (ch != '"') sb.append(ch);
+                    else if (i < len && linea.charAt(i) == '"') { sb.append('"'); i++; }
+                    else break;
+                }
+                if (i < len && linea.charAt(i) != SEPARADOR) throw new IllegalArgumentException("texto tras las comillas");
+                res[n++] = sb.toString();
+            } else {
+                int fin = linea.indexOf(SEPARADOR, i);
+                if (fin < 0) fin = len;
+                res[n++] = linea.substring(i, fin).trim();
+                i = fin;
+            }
+            if (i >= len) break;
+            i++;                                    // separador
+        }
+        if (n != esperados) throw new IllegalArgumentException("se esperaban " + esperados + " campos y hay " + n);
+        return res;
+    }
+
+    // Tubería de lectura, análisis e inserción
+
+    /** Convierte los campos de una fila; lanza {@link IllegalArgumentException} si no son válidos. */
+    private interface Conversor<T> {
+        T convertir(String[] campos);
+    }
+
+    /** Inserta un bloque ya analizado y anota el resultado. */
+    private interface Insercion<T> {
+        void insertar(Bloque<T> bloque, Resultado res);
+    }
+
+    /** Filas válidas de un bloque (con su número de línea) y errores de análisis. */
+    private static final class Bloque<T> {
+        final List<T> filas = new ArrayList<>();
+        long[] lineas;
+        final List<ErrorFila> errores = new ArrayList<>();
+    }
+
+    private <T> Resultado importar(Path ruta, String[] cabecera, Conversor<T> conversor, Insercion<T> insercion)
+            throws IOException {
+        Resultado res = new Resultado();
+        long inicio = System.nanoTime();
+        ExecutorService grupo = Executors.newFixedThreadPool(hilos);
+        ArrayDeque<Future<Bloque<T>>> enCurso = new ArrayDeque<>();
+        try (BufferedReader in = Files.newBufferedReader(ruta, StandardCharsets.UTF_8)) {
+            String[] textos = new String[FILAS_POR_BLOQUE];
+            long[] numeros = new long[FILAS_POR_BLOQUE];
+            int n = 0;
+            long numLinea = 0;
+            String linea;
+            while ((linea = in.readLine()) != null) {
+                numLinea++;
+                if (numLinea == 1) {
+                    if (!linea.isEmpty() && linea.charAt(0) == '\uFEFF') linea = linea.substring(1);   // BOM
+                    if (esCabecera(linea, cabecera[0])) continue;
+                }
+                if (linea.isBlank()) continue;
+                textos[n] = linea;
+                numeros[n] = numLinea;
+                if (++n == FILAS_POR_BLOQUE) {
+                    enCurso.add(enviar(grupo, textos, numeros, n, cabecera.length, conversor));
+                    textos = new String[FILAS_POR_BLOQUE];
+                    numeros = new long[FILAS_POR_BLOQUE];
+                    n = 0;
+                    if (enCurso.size() >= 2 * hilos) insertar(enCurso.poll(), insercion, res);
+                }
+            }
+            if (n > 0) enCurso.add(enviar(grupo, textos, numeros, n, cabecera.length, conversor));
+            while (!enCurso.isEmpty()) insertar(enCurso.poll(), insercion, res);
+        } finally {
+            grupo.shutdownNow();
+        }
+        res.nanos = System.nanoTime() - inicio;
+        return res;
+    }
+
+    private static boolean esCabecera(String linea, String primerCampo) {
+        int fin = linea.indexOf(SEPARADOR);
+        String campo = (fin < 0 ? linea : linea.substring(0, fin)).replace("\"", "").trim();
+        return campo.equalsIgnoreCase(primerCampo);
+    }
+
+    private static <T> Future<Bloque<T>> enviar(ExecutorService grupo, String[] textos, long[] numeros, int n,
+                                               int esperados, Conversor<T> conversor) {
+        return grupo.submit(() -> {
+            Bloque<T> b = new Bloque<>();
+            long[] lineas = new long[n];
+            for (int i = 0; i < n; i++) {
+                try {
+                    T fila = conversor.convertir(campos(textos[i], esperados));
+                    lineas[b.filas.size()] = numeros[i];
+                    b.filas.add(fila);
+                } catch (IllegalArgumentException e) {
+                    b.errores.add(new ErrorFila(numeros[i], e.getMessage()));
+                }
+            }
+            b.lineas = lineas;
+            return b;
+        });
+    }
+
+    private static <T> void insertar(Future<Bloque<T>> pendiente, Insercion<T> insercion, Resultado res)
+            throws IOException {
+        Bloque<T> b;
+        try {
+            b = pendiente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("importación interrumpida");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new IOException(e.getCause());
+        }
+        res.filas += b.filas.size() + b.errores.size();
+        for (ErrorFila err : b.errores) res.error(err);
+        insercion.insertar(b, res);
+    }
+
+    // Resultado
+
+    /** Error en una fila concreta del fichero. */
+    public static final class ErrorFila {
+        private final long linea;
+        private final String motivo;
+
+        ErrorFila(long linea, String motivo) {
+            this.linea = linea;
+            this.motivo = motivo;
+        }
+
+        /** @return número de línea en el fichero (la primera es 1) */
+        public long getLinea() { return linea; }
+
+        /** @return descripción del error */
+        public String getMotivo() { return motivo; }
+
+        @Override
+        public String toString() { return "línea " + linea + ": " + motivo; }
+    }
+
+    /** Resumen de una importación. */
+    public static final class Resultado {
+        private long filas;
+        private long importadas;
+        private long erroneas;
+        private long nanos;
+        private final List<ErrorFila> errores = new ArrayList<>();
+
+        Resultado() { }
+
+        private void error(long linea, String motivo) { error(new ErrorFila(linea, motivo)); }
+
+        private void error(ErrorFila e) {
+            erroneas++;
+            if (errores.size() < MAX_ERRORES) errores.add(e);
+        }
+
+        /** @return filas de datos leídas (sin cabecera ni líneas en blanco) */
+        public long getFilas() { return filas; }
+
+        /** @return filas añadidas a los datos */
+        public long getImportadas() { return importadas; }
+
+        /** @return filas rechazadas (mal formadas o con DNI repetido) */
+        public long getErroneas() { return erroneas; }
+
+        /** @return detalle de los primeros errores (como mucho {@value ImportadorCsv#MAX_ERRORES}) */
+        public List<ErrorFila> getErrores() { return Collections.unmodifiableList(errores); }
+
+        /** @return duración de la importación en milisegundos */
+        public long getMilisegundos() { return nanos / 1_000_000; }
+
+        /** @return filas procesadas por segundo */
+        public double getFilasPorSegundo() { return nanos == 0 ? 0 : filas * 1e9 / nanos; }
+
+        @Override
+        public String toString() {
+            return filas + " filas, " + importadas + " importadas, " + erroneas + " con errores ("
+                    + getMilisegundos() + " ms, " + Math.round(getFilasPorSegundo()) + " filas/s)";
+        }
+    }
+}
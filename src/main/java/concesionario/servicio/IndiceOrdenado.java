@@ -0,0 +1,171 @@
+package concesionario.servicio;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import concesionario.modelo.Textos;
+
+/**
+ * Índice que mantiene una colección ordenada por un texto sin distinguir
+ * mayúsculas/minúsculas, para listarla en orden sin volver a ordenarla.
+ * <p>Cada elemento se guarda en un árbol ({@link TreeMap}) con una clave de ordenación
+ * calculada una sola vez al indexarlo: la clave del texto (que guarda el propio elemento) y un número de alta
+ * creciente que desempata los textos iguales en el orden de la lista original (igual
+ * que la ordenación estable que se hacía antes). Altas, bajas y cambios de texto
+ * cuestan O(log n); el listado completo es un recorrido y una página solo lee sus
+ * elementos.</p>
+ * @param <T> tipo de los elementos (se identifican por referencia)
+ * @author Víctor
+ * @version 1.0
+ */
+final class IndiceOrdenado<T> {
+
+    /** Clave de ordenación de un elemento. */
+    private static final class Clave implements Comparable<Clave> {
+        final String texto;
+        final long secuencia;
+        /** Otra clave del mismo elemento, si está varias veces en la lista. */
+        Clave otra;
+
+        Clave(String texto, long secuencia) {
+            this.texto = texto;
+            this.secuencia = secuencia;
+        }
+
+        @Override
+        public int compareTo(Clave o) {
+            int c = texto.compareTo(o.texto);
+            return c != 0 ? c : Long.compare(secuencia, o.secuencia);
+        }
+    }
+
+    private final Function<T, String> claveOrden;
+    private final TreeMap<Clave, T> arbol = new TreeMap<>();
+    private final Map<T, Clave> claves = new IdentityHashMap<>();
+    private long secuencia = 0;
+
+    /**
+     * @param claveOrden clave ya normalizada (ver {@link Textos#clave(String)}) por la que se
+     *                   ordena cada elemento; normalmente la que guarda el propio elemento
+     */
+    IndiceOrdenado(Function<T, String> claveOrden) { this.claveOrden = claveOrden; }
+
+    /**
+     * Normaliza un texto de consulta igual que las claves de los elementos.
+     * @param texto texto original (puede ser null)
+     * @return clave ({@code ""} si es null)
+     */
+    static String normalizar(String texto) { return Textos.clave(texto); }
+
+    /** @return número de elementos indexados */
+    int tamano() { return arbol.size(); }
+
+    /**
+     * Indexa un elemento detrás de los ya indexados con el mismo texto.
+     * @param e elemento (los null se ignoran)
+     */
+    void anadir(T e) {
+        if (e == null) return;
+        Clave k = new Clave(claveOrden.apply(e), secuencia++);
+        k.otra = claves.put(e, k);
+        arbol.put(k, e);
+    }
+
+    /**
+     * Quita una aparición de un elemento.
+     * @param e elemento
+     */
+    void quitar(T e) {
+        Clave k = claves.remove(e);
+        if (k == null) return;
+        arbol.remove(k);
+        if (k.otra != null) claves.put(e, k.otra);
+    }
+
+    /**
+     * Recalcula la clave de un elemento cuyo texto ha cambiado, conservando su
+     * posición respecto a los elementos con el mismo texto.
+     * @param e elemento (si no está indexado no se hace nada)
+     */
+    void actualizar(T e) {
+        Clave k = claves.get(e);
+        if (k == null) return;
+        String texto = claveOrden.apply(e);
+        if (texto.equals(k.texto)) return;
+        Clave nueva = null;
+        for (Clave vieja = k; vieja != null; vieja = vieja.otra) {
+            arbol.remove(vieja);
+            Clave c = new Clave(texto, vieja.secuencia);
+            if (nueva == null) claves.put(e, c);
+            else nueva.otra = c;
+            nueva = c;
+            arbol.put(c, e);
+        }
+    }
+
+    /**
+     * Vuelve a indexar una lista completa (tras modificarla desde fuera). La secuencia no
+     * vuelve a empezar, para que un cursor anterior no coincida con un elemento nuevo.
+     * @param lista elementos en el orden de la lista
+     */
+    void reconstruir(List<T> lista) {
+        arbol.clear();
+        claves.clear();
+        for (T e : lista) anadir(e);
+    }
+
+    /** @return nueva lista con todos los elementos en orden */
+    List<T> todos() { return new ArrayList<>(arbol.values()); }
+
+    /**
+     * Lee una página a partir de un cursor.
+     * <p>Si el cursor va hacia atrás y no quedan elementos suficientes antes de él, se
+     * devuelve la primera página completa.</p>
+     * @param cursor posición ({@code null} para la primera página)
+     * @param tamano número máximo de elementos
+     * @return página con sus cursores
+     * @throws IllegalArgumentException si {@code tamano} &le; 0 o el cursor es de un listado por posición
+     */
+    Pagina<T> pagina(Cursor cursor, int tamano) {
+        if (tamano <= 0) throw new IllegalArgumentException("Tamaño de página no válido: " + tamano);
+        if (cursor != null && cursor.clave == null) throw new IllegalArgumentException("Cursor de otro listado: " + cursor);
+        Clave desde = cursor == null ? null : new Clave(cursor.clave, cursor.secuencia);
+        List<T> res = new ArrayList<>(Math.min(tamano, 1024));
+        Clave primera = null;
+        Clave ultima = null;
+        if (cursor != null && cursor.haciaAtras) {
+            for (var e : arbol.headMap(desde, false).descendingMap().entrySet()) {
+                if (res.size() == tamano) break;
+                if (ultima == null) ultima = e.getKey();
+                primera = e.getKey();
+                res.add(e.getValue());
+            }
+            if (res.size() < tamano) return pagina(null, tamano);
+            Collections.reverse(res);
+        } else {
+            NavigableMap<Clave, T> resto = desde == null ? arbol : arbol.tailMap(desde, false);
+            for (var e : resto.entrySet()) {
+                if (res.size() == tamano) break;
+                if (primera == null) primera = e.getKey();
+                ultima = e.getKey();
+                res.add(e.getValue());
+            }
+        }
+        if (res.isEmpty()) {
+            // después del final: solo se puede volver atrás
+            Cursor anterior = desde != null && arbol.lowerKey(desde) != null ? cursor(desde, true) : null;
+            return new Pagina<>(res, anterior, null);
+        }
+        Cursor anterior = arbol.lowerKey(primera) != null ? cursor(primera, true) : null;
+        Cursor siguiente = arbol.higherKey(ultima) != null ? cursor(ultima, false) : null;
+        return new Pagina<>(res, anterior, siguiente);
+    }
+
+    private static Cursor cursor(Clave k, boolean haciaAtras) { return new Cursor(k.texto, k.secuencia, haciaAtras); }
+}
@@ -0,0 +1,199 @@
+package concesionario.servicio;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import concesionario.modelo.Venta;
+
+/**
+ * Índice de ventas por fecha con totales por día y por mes.
+ * <p>Cada mes con ventas tiene un cubo con su {@link Resumen} y un cubo por día con
+ * sus ventas (en orden de registro) y sus totales. Ambos se actualizan al indexar
+ * cada venta. Un total entre dos fechas suma los días sueltos de los meses de los
+ * extremos y los meses completos intermedios, así que un trimestre cuesta lo mismo
+ * con un año de histórico que con veinte.</p>
+ * <p>Las ventas sin fecha no están en ningún cubo; se acumulan aparte.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+final class IndiceTemporal {
+
+    /** Cubo de un día: sus ventas en orden de registro y sus totales. */
+    private static final class Dia {
+        Venta[] ventas = new Venta[4];
+        int numVentas;
+        long importe;
+        long unidades;
+
+        void anadir(Venta v, long imp, int uds) {
+            if (numVentas == ventas.length) ventas = Arrays.copyOf(ventas, numVentas * 2);
+            ventas[numVentas++] = v;
+            importe += imp;
+            unidades += uds;
+        }
+
+        void sumarA(Resumen r) { r.anadir(importe, unidades, numVentas); }
+    }
+
+    /** Cubo de un mes: sus totales y los cubos de sus días. */
+    private static final class Mes {
+        final Resumen resumen = new Resumen();
+        final Dia[] dias = new Dia[31];
+    }
+
+    // el mapa desordenado localiza el mes de cada alta; el ordenado sirve para los intervalos
+    private final Map<Integer, Mes> meses = new HashMap<>();
+    private final TreeMap<Integer, Mes> mesesOrdenados = new TreeMap<>();
+    private final Resumen sinFecha = new Resumen();
+    private int ultimaClave = Integer.MIN_VALUE;
+    private Mes ultimoMes;
+
+    /** Vacía el índice. */
+    void limpiar() {
+        meses.clear();
+        mesesOrdenados.clear();
+        sinFecha.limpiar();
+        ultimaClave = Integer.MIN_VALUE;
+        ultimoMes = null;
+    }
+
+    /**
+     * Indexa una venta.
+     * @param v       venta registrada
+     * @param importe importe de la venta en céntimos
+     */
+    void anadir(Venta v, long importe) {
+        int unidades = v.getMotos().size();
+        LocalDate f = v.getFecha();
+        if (f == null) {
+            sinFecha.sumar(importe, unidades);
+            return;
+        }
+        int clave = clave(f.getYear(), f.getMonthValue());
+        Mes mes = ultimoMes;
+        if (clave != ultimaClave) {
+            mes = meses.get(clave);
+            if (mes == null) {
+                mes = new Mes();
+                meses.put(clave, mes);
+                mesesOrdenados.put(clave, mes);
+            }
+            ultimaClave = clave;
+            ultimoMes = mes;
+        }
+        mes.resumen.sumar(importe, unidades);
+        int d = f.getDayOfMonth() - 1;
+        Dia dia = mes.dias[d];
+        if (dia == null) dia = mes.dias[d] = new Dia();
+        dia.anadir(v, importe, unidades);
+    }
+
+    private static int clave(int anio, int mes) { return anio * 12 + (mes - 1); }
+
+    private static int clave(YearMonth ym) { return clave(ym.getYear(), ym.getMonthValue()); }
+
+    private static YearMonth mes(int clave) { return YearMonth.of(Math.floorDiv(clave, 12), Math.floorMod(clave, 12) + 1); }
+
+    /**
+     * Resume las ventas de un intervalo de fechas (ambas incluidas).
+     * @param desde primer día (o {@code null} para no limitar; entonces cuentan también las ventas sin fecha)
+     * @param hasta último día (o {@code null} para no limitar)
+     * @return nuevo resumen del intervalo
+     */
+    Resumen resumen(LocalDate desde, LocalDate hasta) {
+        Resumen res = new Resumen();
+        if (desde == null) res.anadir(sinFecha);
+        if (mesesOrdenados.isEmpty()) return res;
+        YearMonth m0 = desde != null ? YearMonth.from(desde) : mes(mesesOrdenados.firstKey());
+        YearMonth m1 = hasta != null ? YearMonth.from(hasta) : mes(mesesOrdenados.lastKey());
+        int d0 = desde != null ? desde.getDayOfMonth() : 1;
+        int d1 = hasta != null ? hasta.getDayOfMonth() : 31;
+        if (m1.isBefore(m0)) return res;
+        if (m0.equals(m1)) {
+            sumarDias(res, m0, d0, d1);
+            return res;
+        }
+        // meses de los extremos: completos o por días
+        if (d0 == 1) sumarMeses(res, m0, m0);
+        else sumarDias(res, m0, d0, 31);
+        if (m0.plusMonths(1).isBefore(m1)) sumarMeses(res, m0.plusMonths(1), m1.minusMonths(1));
+        if (d1 >= m1.lengthOfMonth()) sumarMeses(res, m1, m1);
+        else sumarDias(res, m1, 1, d1);
+        return res;
+    }
+
+    private void sumarDias(Resumen res, YearMonth ym, int desde, int hasta) {
+        Mes mes = meses.get(clave(ym));
+        if (mes == null) return;
+        for (int d = desde - 1; d < hasta; d++) {
+            if (mes.dias[d] != null) mes.dias[d].sumarA(res);
+        }
+    }
+
+    private void sumarMeses(Resumen res, YearMonth desde, YearMonth hasta) {
+        for (Mes m : mesesOrdenados.subMap(clave(desde), true, clave(hasta), true).values()) res.anadir(m.resumen);
+    }
+
+    /**
+     * Resume cada mes con ventas entre dos meses (ambos incluidos).
+     * @param desde primer mes
+     * @param hasta último mes
+     * @return mes → copia de su resumen, en orden
+     */
+    SortedMap<YearMonth, Resumen> porMes(YearMonth desde, YearMonth hasta) {
+        SortedMap<YearMonth, Resumen> res = new TreeMap<>();
+        if (hasta.isBefore(desde)) return res;
+        for (Map.Entry<Integer, Mes> e : mesesOrdenados.subMap(clave(desde), true, clave(hasta), true).entrySet()) {
+            res.put(mes(e.getKey()), new Resumen(e.getValue().resumen));
+        }
+        return res;
+    }
+
+    /**
+     * Resume cada día de un intervalo.
+     * @param desde primer día
+     * @param hasta último día
+     * @return importe de cada día en céntimos (la posición 0 es {@code desde})
+     */
+    long[] importePorDia(LocalDate desde, LocalDate hasta) {
+        long[] res = new long[(int) (hasta.toEpochDay() - desde.toEpochDay() + 1)];
+        recorrerDias(desde, hasta, (f, d) -> res[(int) (f.toEpochDay() - desde.toEpochDay())] = d.importe);
+        return res;
+    }
+
+    /**
+     * Recorre en orden de fecha (y de registro dentro de cada día) las ventas de un intervalo.
+     * @param desde  primer día (o {@code null} para no limitar; las ventas sin fecha no se recorren)
+     * @param hasta  último día (o {@code null} para no limitar)
+     * @param accion acción para cada venta
+     */
+    void recorrer(LocalDate desde, LocalDate hasta, Consumer<Venta> accion) {
+        recorrerDias(desde, hasta, (f, d) -> {
+            for (int i = 0; i < d.numVentas; i++) accion.accept(d.ventas[i]);
+        });
+    }
+
+    /** Recorre en orden los días con ventas de un intervalo ({@code null}: sin límite). */
+    private void recorrerDias(LocalDate desde, LocalDate hasta, BiConsumer<LocalDate, Dia> accion) {
+        if (mesesOrdenados.isEmpty()) return;
+        int c0 = desde != null ? clave(YearMonth.from(desde)) : mesesOrdenados.firstKey();
+        int c1 = hasta != null ? clave(YearMonth.from(hasta)) : mesesOrdenados.lastKey();
+        if (c1 < c0) return;
+        for (Map.Entry<Integer, Mes> e : mesesOrdenados.subMap(c0, true, c1, true).entrySet()) {
+            YearMonth ym = mes(e.getKey());
+            Dia[] dias = e.getValue().dias;
+            for (int d = 0; d < dias.length; d++) {
+                if (dias[d] == null) continue;
+                LocalDate f = ym.atDay(d + 1);
+                if ((desde == null || !f.isBefore(desde)) && (hasta == null || !f.isAfter(hasta))) accion.accept(f, dias[d]);
+            }
+        }
+    }
+}
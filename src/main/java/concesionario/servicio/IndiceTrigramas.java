@@ -0,0 +1,146 @@
+package concesionario.servicio;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import concesionario.modelo.Textos;
+
+/**
+ * Índice invertido de trigramas sobre la marca y el modelo de las motos.
+ * <p>Cada moto se identifica por su posición en el catálogo. Para cada trigrama
+ * (tres caracteres consecutivos de las claves, en minúsculas y sin acentos) se guarda la
+ * lista ordenada de motos que lo contienen en su marca o en su modelo.</p>
+ * <p>Una búsqueda de 3 o más caracteres intersecta las listas de los trigramas de
+ * la consulta y comprueba cada candidata con {@link String#contains(CharSequence)},
+ * así que el resultado es el mismo que el recorrido completo. Las consultas más
+ * cortas recorren los textos ya normalizados sin crear objetos nuevos.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+class IndiceTrigramas {
+    private final Map<Long, Apariciones> apariciones = new HashMap<>();
+    private String[] marcas = new String[16];
+    private String[] modelos = new String[16];
+    private int tamano = 0;
+
+    /**
+     * Normaliza una consulta igual que las claves de marca y modelo de las motos.
+     * @param texto texto original
+     * @return clave (el mismo objeto si ya lo era)
+     */
+    static String normalizar(String texto) { return Textos.clave(texto); }
+
+    /** @return número de motos indexadas */
+    int tamano() { return tamano; }
+
+    /** Vacía el índice. */
+    void limpiar() {
+        apariciones.clear();
+        Arrays.fill(marcas, 0, tamano, null);
+        Arrays.fill(modelos, 0, tamano, null);
+        tamano = 0;
+    }
+
+    /**
+     * Indexa la siguiente moto del catálogo (su identificador es la posición actual).
+     * @param marca  clave de la marca ({@link concesionario.modelo.Moto#getClaveMarca()}; null para un hueco)
+     * @param modelo clave del modelo
+     */
+    void anadir(String marca, String modelo) {
+        if (tamano == marcas.length) {
+            marcas = Arrays.copyOf(marcas, tamano * 2);
+            modelos = Arrays.copyOf(modelos, tamano * 2);
+        }
+        int id = tamano++;
+        marcas[id] = marca == null ? "" : marca;
+        modelos[id] = modelo == null ? "" : modelo;
+        indexarTexto(id, marcas[id]);
+        indexarTexto(id, modelos[id]);
+    }
+
+    /**
+     * Entrega, en orden de catálogo, las posiciones de las motos cuya marca o modelo contiene la consulta.
+     * @param consulta texto ya normalizado con {@link #normalizar(String)}
+     * @param destino  receptor de cada posición encontrada
+     */
+    void buscar(String consulta, IntConsumer destino) {
+        if (consulta.length() < 3) {
+            for (int id = 0; id < tamano; id++) {
+                if (coincide(id, consulta)) destino.accept(id);
+            }
+            return;
+        }
+
+        // listas de los trigramas de la consulta, de la más corta a la más larga
+        int n = consulta.length() - 2;
+        Apariciones[] listas = new Apariciones[n];
+        for (int i = 0; i < n; i++) {
+            Apariciones a = apariciones.get(trigrama(consulta, i));
+            if (a == null) return;        // algún trigrama no aparece en ninguna moto
+            listas[i] = a;
+        }
+        Arrays.sort(listas, (x, y) -> Integer.compare(x.tamano, y.tamano));
+
+        Apariciones menor = listas[0];
+        int[] pos = new int[n];
+        recorrido:
+        for (int k = 0; k < menor.tamano; k++) {
+            int id = menor.ids[k];
+            for (int j = 1; j < n; j++) {
+                Apariciones a = listas[j];
+                int p = avanzarHasta(a, pos[j], id);
+                pos[j] = p;
+                if (p == a.tamano) break recorrido;   // una lista se ha agotado: no hay más candidatas
+                if (a.ids[p] != id) continue recorrido;
+            }
+            if (coincide(id, consulta)) destino.accept(id);
+        }
+    }
+
+    private boolean coincide(int id, String consulta) {
+        return marcas[id].contains(consulta) || modelos[id].contains(consulta);
+    }
+
+    private void indexarTexto(int id, String texto) {
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            apariciones.computeIfAbsent(trigrama(texto, i), k -> new Apariciones()).anadir(id);
+        }
+    }
+
+    /** Empaqueta los tres caracteres que empiezan en {@code i} en un único {@code long}. */
+    private static long trigrama(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    /**
+     * Búsqueda exponencial seguida de binaria: primera posición desde {@code desde} con id &ge; {@code id}.
+     * @return posición encontrada o {@code a.tamano} si no hay ninguna
+     */
+    private static int avanzarHasta(Apariciones a, int desde, int id) {
+        int salto = 1;
+        int hi = desde;
+        while (hi < a.tamano && a.ids[hi] < id) {
+            desde = hi + 1;
+            hi += salto;
+            salto <<= 1;
+        }
+        hi = Math.min(hi, a.tamano - 1);
+        if (desde > hi) return desde;
+        int r = Arrays.binarySearch(a.ids, desde, hi + 1, id);
+        return r >= 0 ? r : -r - 1;
+    }
+
+    /** Lista creciente de posiciones de motos (sin repetidos). */
+    private static final class Apariciones {
+        int[] ids = new int[4];
+        int tamano = 0;
+
+        void anadir(int id) {
+            if (tamano > 0 && ids[tamano - 1] == id) return;   // el trigrama ya apareció en esta moto
+            if (tamano == ids.length) ids = Arrays.copyOf(ids, tamano * 2);
+            ids[tamano++] = id;
+        }
+    }
+}
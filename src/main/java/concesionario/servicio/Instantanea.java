@@ -0,0 +1,227 @@
+package concesionario.servicio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+/**
+ * Instantánea binaria compacta de todo el estado de {@link Datos}.
+ * <p>Guarda clientes, catálogo (con su stock) y ventas. Cada venta se guarda como
+ * referencias (posición del cliente y de cada moto), no como copias.</p>
+ * <p>La escritura es atómica: se escribe un fichero temporal en la misma carpeta y
+ * se renombra sobre el definitivo. La carga lee el fichero mapeado en memoria con
+ * {@link FileChannel#map}, sin copiarlo antes a un buffer.</p>
+ * <p>La instantánea recuerda el último LSN del {@link Diario} que incluye, de modo que
+ * al arrancar basta con cargarla y aplicar la cola del diario con
+ * {@link Diario#reproducir(Datos, long)}. Tamaño máximo: 2 GB.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Instantanea {
+    private static final int MAGICO = 0x434E4331;      // "CNC1"
+    private static final int VERSION = 1;
+    private static final int BLOQUE = 1 << 20;         // se vuelca al fichero cada 1 MB
+    /** Día guardado para las ventas sin fecha (como {@link Diario#SIN_FECHA}, pero en un {@code int}). */
+    private static final int SIN_FECHA = Integer.MIN_VALUE;
+
+    private Instantanea() { }
+
+    /**
+     * Escribe la instantánea de forma atómica.
+     * <p>Con {@link DatosConcurrentes} el estado se lee con los cambios bloqueados, así que
+     * la instantánea es coherente con el LSN que guarda.</p>
+     * @param datos servicio a guardar
+     * @param ruta  fichero de destino (se reemplaza si existe)
+     * @return último LSN del diario incluido (0 si {@code datos} no tiene diario)
+     * @throws IOException si falla la escritura
+     */
+    public static long escribir(Datos datos, Path ruta) throws IOException {
+        Path absoluta = ruta.toAbsolutePath();
+        Path temporal = Files.createTempFile(absoluta.getParent(), absoluta.getFileName().toString(), ".tmp");
+        try {
+            long lsn;
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                lsn = datos.conEstadoFijo(() -> volcar(datos, canal));
+                canal.force(true);
+            }
+            Files.move(temporal, absoluta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return lsn;
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Carga una instantánea sobre un servicio vacío.
+     * @param ruta    fichero de la instantánea
+     * @param destino servicio de destino (vacío y sin diario asignado)
+     * @return último LSN del diario incluido en la instantánea
+     * @throws IOException si falla la lectura o el fichero no es una instantánea válida
+     */
+    public static long cargar(Path ruta, Datos destino) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) throw new IOException("instantánea demasiado grande");
+            MappedByteBuffer in = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            comprobar(in);
+
+            long lsn = in.getLong();
+            int nClientes = in.getInt();
+            List<Cliente> clientes = new ArrayList<>(nClientes);
+            for (int i = 0; i < nClientes; i++) {
+                Cliente c = leerCliente(in);
+                clientes.add(c);
+                destino.addCliente(c);
+            }
+
+            int nMotos = in.getInt();
+            Moto[] motos = new Moto[nMotos];
+            for (int i = 0; i < nMotos; i++) {
+                motos[i] = Moto.deCentimos(BufferBinario.leerTexto(in), BufferBinario.leerTexto(in),
+                        in.getLong(), in.getInt());
+                destino.addMoto(motos[i]);
+            }
+
+            int nVentas = in.getInt();
+            List<Venta> ventas = new ArrayList<>(nVentas);
+            int[] refs = new int[nVentas];
+            Map<Integer, LocalDate> fechas = new HashMap<>();
+            List<Moto> lineas = new ArrayList<>();
+            for (int i = 0; i < nVentas; i++) {
+                int ref = in.getInt();
+                Cliente c = ref >= 0 ? clientes.get(ref) : leerCliente(in);
+                int dia = in.getInt();
+                LocalDate fecha = dia == SIN_FECHA ? null : fechas.computeIfAbsent(dia, LocalDate::ofEpochDay);
+                int n = in.getInt();
+                lineas.clear();
+                for (int k = 0; k < n; k++) {
+                    int m = in.getInt();
+                    lineas.add(m >= 0 ? motos[m] : Moto.deCentimos(BufferBinario.leerTexto(in),
+                            BufferBinario.leerTexto(in), in.getLong(), 0));
+                }
+                refs[i] = ref;
+                ventas.add(new Venta(c, lineas, fecha));
+            }
+            destino.addVentasEnBloque(ventas, refs, clientes);
+            return lsn;
+        }
+    }
+
+    /** Vuelca el estado al canal por bloques. Se ejecuta con el estado de {@code datos} fijo. */
+    private static long volcar(Datos datos, FileChannel canal) throws IOException {
+        Diario diario = datos.getDiario();
+        long lsn = diario == null ? 0 : diario.ultimoLsn();
+        Salida out = new Salida(canal);
+        out.buf.escribirInt(MAGICO);
+        out.buf.escribirInt(VERSION);
+        out.buf.escribirLong(lsn);
+
+        List<Cliente> clientes = datos.listaClientes();
+        Map<Cliente, Integer> posClientes = new IdentityHashMap<>(clientes.size() * 2);
+        out.buf.escribirInt(clientes.size());
+        for (int i = 0; i < clientes.size(); i++) {
+            Cliente c = clientes.get(i);
+            posClientes.putIfAbsent(c, i);
+            escribirCliente(out.buf, c);
+            out.volcarSiLleno();
+        }
+
+        List<Moto> motos = datos.listaMotos();
+        out.buf.escribirInt(motos.size());
+        for (Moto m : motos) {
+            out.buf.escribirTexto(m.getMarca());
+            out.buf.escribirTexto(m.getModelo());
+            out.buf.escribirLong(m.getPrecioCentimos());
+            out.buf.escribirInt(datos.existencias(m));     // las reservas no sobreviven a un reinicio
+            out.volcarSiLleno();
+        }
+
+        List<Venta> ventas = datos.listaVentas();
+        out.buf.escribirInt(ventas.size());
+        for (Venta v : ventas) {
+            Integer ref = posClientes.get(v.getCliente());
+            out.buf.escribirInt(ref == null ? -1 : ref);
+            if (ref == null) escribirCliente(out.buf, v.getCliente());   // cliente ya dado de baja
+            out.buf.escribirInt(v.getFecha() == null ? SIN_FECHA : (int) v.getFecha().toEpochDay());
+            List<Moto> lineas = v.getMotos();
+            out.buf.escribirInt(lineas.size());
+            for (Moto m : lineas) {
+                int p = datos.posicionMoto(m);
+                out.buf.escribirInt(p);
+                if (p < 0) {                                             // moto fuera del catálogo
+                    out.buf.escribirTexto(m.getMarca());
+                    out.buf.escribirTexto(m.getModelo());
+                    out.buf.escribirLong(m.getPrecioCentimos());
+                }
+            }
+            out.volcarSiLleno();
+        }
+        out.terminar();
+        return lsn;
+    }
+
+    /** Comprueba cabecera y CRC final y deja el buffer justo después de la cabecera. */
+    private static void comprobar(MappedByteBuffer in) throws IOException {
+        if (in.limit() < 12 + 4 || in.getInt(0) != MAGICO) throw new IOException("no es una instantánea");
+        if (in.getInt(4) != VERSION) throw new IOException("versión de instantánea no soportada: " + in.getInt(4));
+        int fin = in.limit() - 4;
+        CRC32C crc = new CRC32C();
+        crc.update(in.slice(0, fin));
+        if ((int) crc.getValue() != in.getInt(fin)) throw new IOException("instantánea dañada (CRC)");
+        in.limit(fin);
+        in.position(8);
+    }
+
+    private static void escribirCliente(BufferBinario out, Cliente c) {
+        out.escribirTexto(c.getNombre());
+        out.escribirTexto(c.getDni());
+        out.escribirTexto(c.getTelefono());
+        out.escribirTexto(c.getEmail());
+    }
+
+    private static Cliente leerCliente(ByteBuffer in) {
+        return new Cliente(BufferBinario.leerTexto(in), BufferBinario.leerTexto(in),
+                BufferBinario.leerTexto(in), BufferBinario.leerTexto(in));
+    }
+
+    /** Escritura por bloques con CRC acumulado. */
+    private static final class Salida {
+        final BufferBinario buf = new BufferBinario(BLOQUE + 4096);
+        final FileChannel canal;
+        final CRC32C crc = new CRC32C();
+
+        Salida(FileChannel canal) { this.canal = canal; }
+
+        void volcarSiLleno() throws IOException { if (buf.tamano() >= BLOQUE) volcar(); }
+
+        void volcar() throws IOException {
+            crc.update(buf.array(), 0, buf.tamano());
+            ByteBuffer bb = buf.comoByteBuffer();
+            while (bb.hasRemaining()) canal.write(bb);
+            buf.limpiar();
+        }
+
+        void terminar() throws IOException {
+            volcar();
+            buf.escribirInt((int) crc.getValue());
+            ByteBuffer bb = buf.comoByteBuffer();
+            while (bb.hasRemaining()) canal.write(bb);
+            buf.limpiar();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package concesionario.servicio;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Vista modificable de una lista interna de {@link Datos} que avisa de cada cambio.
+ * <p>Se usa para devolver las <i>listas vivas</i> de los getters sin perder la
+ * coherencia de los índices: cualquier modificación hecha desde fuera a través de
+ * esta vista ejecuta el aviso, y {@link Datos} marca sus índices como desactualizados
+ * para reconstruirlos en el siguiente acceso.</p>
+ * @param <E> tipo de los elementos
+ * @author Víctor
+ * @version 1.0
+ */
+class ListaVigilada<E> extends AbstractList<E> implements RandomAccess {
+    private final List<E> base;
+    private final Runnable alCambiar;
+
+    /**
+     * Crea la vista.
+     * @param base      lista interna real
+     * @param alCambiar acción a ejecutar tras cada modificación
+     */
+    ListaVigilada(List<E> base, Runnable alCambiar) {
+        this.base = base;
+        this.alCambiar = alCambiar;
+    }
+
+    @Override
+    public E get(int index) { return base.get(index); }
+
+    @Override
+    public int size() { return base.size(); }
+
+    @Override
+    public E set(int index, E elemento) {
+        E anterior = base.set(index, elemento);
+        alCambiar.run();
+        return anterior;
+    }
+
+    @Override
+    public void add(int index, E elemento) {
+        base.add(index, elemento);
+        modCount++;
+        alCambiar.run();
+    }
+
+    @Override
+    public E remove(int index) {
+        E eliminado = base.remove(index);
+        modCount++;
+        alCambiar.run();
+        return eliminado;
+    }
+}
@@ -0,0 +1,124 @@
+package concesionario.servicio;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores e histograma de latencias de una operación.
+ * <p>El histograma es log-lineal: cada potencia de dos se divide en {@value #SUBCUBOS}
+ * cubos iguales, así que un percentil se conoce con un error relativo menor del 7 %
+ * usando un array fijo de contadores (sin reservar memoria al registrar).</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class MetricaOperacion implements MetricaOperacionMBean {
+    private static final int BITS_SUB = 4;
+    private static final int SUBCUBOS = 1 << BITS_SUB;
+    private static final int CUBOS = (64 - BITS_SUB + 1) * SUBCUBOS;
+
+    private final LongAdder llamadas = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder sumaNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray cubos = new AtomicLongArray(CUBOS);
+
+    MetricaOperacion() { }
+
+    /** Cuenta una llamada. */
+    void contar(boolean ok) {
+        llamadas.increment();
+        if (!ok) fallos.increment();
+    }
+
+    /** Registra la latencia de una llamada medida. */
+    void registrar(long nanos) {
+        if (nanos < 0) nanos = 0;
+        cubos.incrementAndGet(cubo(nanos));
+        sumaNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /** @return índice del cubo de {@code v} (&ge; 0) */
+    static int cubo(long v) {
+        if (v < SUBCUBOS) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        return (exp - BITS_SUB + 1) * SUBCUBOS + (int) ((v >>> (exp - BITS_SUB)) & (SUBCUBOS - 1));
+    }
+
+    /** @return mayor valor que cae en el cubo {@code i} */
+    static long limiteSuperior(int i) {
+        if (i < SUBCUBOS) return i;
+        int exp = i / SUBCUBOS + BITS_SUB - 1;
+        long ancho = 1L << (exp - BITS_SUB);
+        return (SUBCUBOS + i % SUBCUBOS) * ancho + ancho - 1;
+    }
+
+    /**
+     * Percentil de la latencia.
+     * @param q fracción entre 0 y 1 (0.99 para el p99)
+     * @return latencia en nanosegundos (límite superior del cubo, sin pasar del máximo), o 0 sin datos
+     */
+    public long percentilNanos(double q) {
+        long[] copia = new long[CUBOS];
+        long total = 0;
+        for (int i = 0; i < CUBOS; i++) {
+            copia[i] = cubos.get(i);
+            total += copia[i];
+        }
+        if (total == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(q * total));
+        long acumulado = 0;
+        for (int i = 0; i < CUBOS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    /** @return llamadas medidas (todas, o una muestra si hay muestreo) */
+    public long getMedidas() {
+        long total = 0;
+        for (int i = 0; i < CUBOS; i++) total += cubos.get(i);
+        return total;
+    }
+
+    @Override
+    public long getLlamadas() { return llamadas.sum(); }
+
+    @Override
+    public long getFallos() { return fallos.sum(); }
+
+    @Override
+    public double getMediaMicros() {
+        long n = getMedidas();
+        return n == 0 ? 0 : sumaNanos.sum() / (n * 1000.0);
+    }
+
+    @Override
+    public double getP50Micros() { return percentilNanos(0.50) / 1000.0; }
+
+    @Override
+    public double getP99Micros() { return percentilNanos(0.99) / 1000.0; }
+
+    @Override
+    public double getP999Micros() { return percentilNanos(0.999) / 1000.0; }
+
+    @Override
+    public double getMaxMicros() { return maxNanos.get() / 1000.0; }
+
+    @Override
+    public void reiniciar() {
+        llamadas.reset();
+        fallos.reset();
+        sumaNanos.reset();
+        maxNanos.reset();
+        for (int i = 0; i < CUBOS; i++) cubos.set(i, 0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d llamadas, %d fallos, p50 %.1f µs, p99 %.1f µs, p99.9 %.1f µs, máx %.1f µs",
+                getLlamadas(), getFallos(), getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
@@ -0,0 +1,34 @@
+package concesionario.servicio;
+
+/**
+ * Vista JMX de las métricas de una operación de {@link Datos}.
+ * Los percentiles se calculan sobre las llamadas medidas desde el último reinicio.
+ * @author Víctor
+ * @version 1.0
+ */
+public interface MetricaOperacionMBean {
+
+    /** @return llamadas a la operación */
+    long getLlamadas();
+
+    /** @return llamadas que no hicieron nada (por ejemplo, falta de stock o DNI repetido) */
+    long getFallos();
+
+    /** @return latencia media en microsegundos */
+    double getMediaMicros();
+
+    /** @return mediana de la latencia en microsegundos */
+    double getP50Micros();
+
+    /** @return percentil 99 de la latencia en microsegundos */
+    double getP99Micros();
+
+    /** @return percentil 99,9 de la latencia en microsegundos */
+    double getP999Micros();
+
+    /** @return latencia máxima en microsegundos */
+    double getMaxMicros();
+
+    /** Pone a cero contadores e histograma. */
+    void reiniciar();
+}
@@ -0,0 +1,135 @@
+package concesionario.servicio;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de las operaciones públicas de {@link Datos}: llamadas, fallos e
+ * histograma de latencias de cada {@link Operacion}.
+ * <p>Todas las llamadas se cuentan, pero la latencia solo se mide en una de cada
+ * {@code muestreo} (elegida al azar), porque leer el reloj dos veces cuesta tanto
+ * como las búsquedas más rápidas. Con muestreo 1 se miden todas.</p>
+ * <p>Con {@link DatosConcurrentes} la latencia medida no incluye la espera por el
+ * cerrojo, solo el trabajo de la operación (y la espera del diario, si la hay).</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Metricas {
+
+    /** Operaciones medidas. */
+    public enum Operacion {
+        ALTA_CLIENTE, ALTA_MOTO, ALTA_VENTA, REGISTRO_VENTAS, BAJA_CLIENTE, MODIFICACION_CLIENTE,
+        BUSQUEDA_CLIENTE, BUSQUEDA_MOTO, BUSQUEDA_MOTOS_TEXTO, VENTAS_CLIENTE, TIENE_VENTAS,
+        TOTAL_VENTAS, TOTAL_CLIENTE, UNIDADES, UNIDADES_CLIENTE, DESCUENTO_STOCK, REPOSICION_STOCK,
+        CLIENTES_ORDENADOS, PAGINA_CLIENTES, MOTOS_ORDENADAS, PAGINA_MOTOS,
+        LISTADO_CLIENTES, LISTADO_MOTOS, LISTADO_VENTAS, RESUMEN_ENTRE_FECHAS, RESUMEN_POR_MES,
+        VENTAS_ENTRE_FECHAS, TOTALES_POR_DIA, TOTALES_POR_CLIENTE, UNIDADES_POR_MOTO,
+        MOTOS_MAS_VENDIDAS, MEJORES_CLIENTES, RESERVA_STOCK, CONFIRMACION_RESERVAS, LIBERACION_RESERVAS
+    }
+
+    private static final Operacion[] OPERACIONES = Operacion.values();
+
+    /** Valor de {@link #empezar()} cuando la llamada no se mide. */
+    static final long SIN_MEDIR = Long.MIN_VALUE;
+
+    /** Métricas que no cuentan nada (las que usa {@link Datos} por defecto). */
+    static final Metricas DESACTIVADAS = new Metricas(false, 1);
+
+    private final boolean activas;
+    private final int mascara;
+    private final MetricaOperacion[] porOperacion = new MetricaOperacion[OPERACIONES.length];
+
+    /** Crea métricas que miden la latencia de todas las llamadas. */
+    public Metricas() { this(1); }
+
+    /**
+     * Crea métricas que miden la latencia de una de cada {@code muestreo} llamadas.
+     * @param muestreo potencia de dos (1 para medir todas)
+     * @throws IllegalArgumentException si no es una potencia de dos positiva
+     */
+    public Metricas(int muestreo) { this(true, muestreo); }
+
+    private Metricas(boolean activas, int muestreo) {
+        if (muestreo <= 0 || Integer.bitCount(muestreo) != 1) {
+            throw new IllegalArgumentException("El muestreo debe ser una potencia de dos: " + muestreo);
+        }
+        this.activas = activas;
+        this.mascara = muestreo - 1;
+        for (int i = 0; i < porOperacion.length; i++) porOperacion[i] = new MetricaOperacion();
+    }
+
+    /**
+     * Marca el comienzo de una llamada.
+     * @return instante en nanosegundos, o {@link #SIN_MEDIR} si esta llamada no se mide
+     */
+    long empezar() {
+        if (!activas) return SIN_MEDIR;
+        if (mascara != 0 && (ThreadLocalRandom.current().nextInt() & mascara) != 0) return SIN_MEDIR;
+        return System.nanoTime();
+    }
+
+    /**
+     * Anota el final de una llamada.
+     * @param op     operación
+     * @param inicio valor devuelto por {@link #empezar()}
+     * @param ok     {@code false} si la operación no hizo nada (stock insuficiente, DNI repetido...)
+     */
+    void anotar(Operacion op, long inicio, boolean ok) {
+        if (!activas) return;
+        MetricaOperacion m = porOperacion[op.ordinal()];
+        m.contar(ok);
+        if (inicio != SIN_MEDIR) m.registrar(System.nanoTime() - inicio);
+    }
+
+    /**
+     * @param op operación
+     * @return métricas de esa operación
+     */
+    public MetricaOperacion de(Operacion op) { return porOperacion[op.ordinal()]; }
+
+    /** @return {@code true} salvo en las métricas desactivadas por defecto */
+    public boolean isActivas() { return activas; }
+
+    /** Pone a cero las métricas de todas las operaciones. */
+    public void reiniciar() {
+        for (MetricaOperacion m : porOperacion) m.reiniciar();
+    }
+
+    /**
+     * Registra un MBean por operación en el servidor de la plataforma, con nombre
+     * {@code concesionario:type=Metricas,operacion=<OPERACION>} (visible en JConsole o VisualVM).
+     * Si ya había uno con ese nombre, se sustituye.
+     * @throws JMException si el registro falla
+     */
+    public void registrarJmx() throws JMException {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        for (Operacion op : OPERACIONES) {
+            ObjectName nombre = nombreJmx(op);
+            if (servidor.isRegistered(nombre)) servidor.unregisterMBean(nombre);
+            servidor.registerMBean(de(op), nombre);
+        }
+    }
+
+    /**
+     * @param op operación
+     * @return nombre JMX del MBean de la operación
+     * @throws JMException si el nombre no es válido
+     */
+    public static ObjectName nombreJmx(Operacion op) throws JMException {
+        return new ObjectName("concesionario:type=Metricas,operacion=" + op.name());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Operacion op : OPERACIONES) {
+            MetricaOperacion m = de(op);
+            if (m.getLlamadas() > 0) sb.append(op).append(": ").append(m).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package concesionario.servicio;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de un listado ordenado con los cursores para moverse a la anterior y la siguiente.
+ * @param <T> tipo de los elementos
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Pagina<T> {
+    private final List<T> elementos;
+    private final Cursor anterior;
+    private final Cursor siguiente;
+
+    Pagina(List<T> elementos, Cursor anterior, Cursor siguiente) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.anterior = anterior;
+        this.siguiente = siguiente;
+    }
+
+    /** @return elementos de la página, en orden (lista no modificable) */
+    public List<T> getElementos() { return elementos; }
+
+    /** @return cursor de la página anterior o {@code null} si esta es la primera */
+    public Cursor getAnterior() { return anterior; }
+
+    /** @return cursor de la página siguiente o {@code null} si esta es la última */
+    public Cursor getSiguiente() { return siguiente; }
+
+    /** @return {@code true} si hay una página anterior */
+    public boolean hayAnterior() { return anterior != null; }
+
+    /** @return {@code true} si hay una página siguiente */
+    public boolean haySiguiente() { return siguiente != null; }
+}
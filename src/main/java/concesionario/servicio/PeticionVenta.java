@@ -0,0 +1,55 @@
+package concesionario.servicio;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+
+/**
+ * Venta pendiente de registrar dentro de un lote ({@link Datos#registrarVentas(List)}).
+ * @author Víctor
+ * @version 1.0
+ */
+public final class PeticionVenta {
+    private final Cliente cliente;
+    private final List<Moto> motos;
+    private final LocalDate fecha;
+
+    /**
+     * Crea una petición con la fecha del día en que se registre.
+     * @param cliente cliente comprador
+     * @param motos   motos vendidas; cada posición equivale a 1 unidad
+     */
+    public PeticionVenta(Cliente cliente, List<Moto> motos) { this(cliente, motos, null); }
+
+    /**
+     * Crea una petición con una fecha concreta (por ejemplo, ventas hechas sin conexión).
+     * @param cliente cliente comprador
+     * @param motos   motos vendidas; cada posición equivale a 1 unidad
+     * @param fecha   fecha de la venta (o {@code null} para la del registro)
+     */
+    public PeticionVenta(Cliente cliente, List<Moto> motos, LocalDate fecha) {
+        this.cliente = cliente;
+        this.motos = motos;
+        this.fecha = fecha;
+    }
+
+    /** @return cliente comprador */
+    public Cliente getCliente() { return cliente; }
+
+    /** @return motos vendidas (una posición por unidad) */
+    public List<Moto> getMotos() { return motos; }
+
+    /** @return fecha de la venta o {@code null} si se usa la del registro */
+    public LocalDate getFecha() { return fecha; }
+
+    /** @return {@code true} si tiene cliente y al menos una moto, sin huecos */
+    boolean esValida() {
+        if (cliente == null || motos == null || motos.isEmpty()) return false;
+        for (Moto m : motos) {
+            if (m == null) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,32 @@
+package concesionario.servicio;
+
+/**
+ * Posición de una clasificación: un elemento (moto o cliente) y su valor.
+ * @param <T> tipo del elemento
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Puesto<T> {
+    private final T elemento;
+    private final long valor;
+
+    Puesto(T elemento, long valor) {
+        this.elemento = elemento;
+        this.valor = valor;
+    }
+
+    /** @return moto o cliente clasificado */
+    public T getElemento() { return elemento; }
+
+    /** @return valor por el que se clasifica (unidades o céntimos, según la clasificación) */
+    public long getValor() { return valor; }
+
+    @Override
+    public boolean equals(Object o) { return o instanceof Puesto<?> p && p.elemento == elemento && p.valor == valor; }
+
+    @Override
+    public int hashCode() { return System.identityHashCode(elemento) * 31 + Long.hashCode(valor); }
+
+    @Override
+    public String toString() { return elemento + " (" + valor + ")"; }
+}
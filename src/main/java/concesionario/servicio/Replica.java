@@ -0,0 +1,240 @@
+package concesionario.servicio;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Réplica en caliente de un primario con {@link ServidorReplicacion}: recibe sus registros
+ * del diario por TCP y los aplica, en orden, sobre un {@link DatosConcurrentes} propio.
+ * <p>La réplica sirve consultas ({@code buscarMotosPorTexto}, {@code ventasPorDni},
+ * totales...) sin pasar por el primario; sus datos se deben usar solo para leer (ver
+ * {@code ServidorHttp.iniciarSoloLectura}). Si se pierde la conexión, se reconecta sola
+ * pidiendo los registros posteriores al último aplicado.</p>
+ * <p>El retraso se mide con los latidos del primario: {@link #getRetrasoRegistros()} es
+ * cuántos registros durables del primario faltan por aplicar y {@link #getRetrasoMillis()}
+ * cuánto hace que la réplica estuvo al día por última vez (0 si lo está ahora).</p>
+ * <p>Si el primario rechaza la réplica (por ejemplo, porque dice tener registros que el
+ * primario no tiene) o un registro no se puede aplicar, la réplica se detiene y
+ * {@link #getError()} indica el motivo.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Replica implements Closeable {
+    private static final int ESPERA_MIN_MS = 50;
+    private static final int ESPERA_MAX_MS = 2000;
+
+    private final DatosConcurrentes datos;
+    private final InetSocketAddress primario;
+    private final Thread hilo;
+    private volatile Socket socket;
+    private volatile boolean cerrada = false;
+    private volatile boolean conectada = false;
+    private volatile String error;
+
+    private volatile long lsnAplicado;
+    private volatile long lsnPrimario;
+    private volatile long alDiaMillis = System.currentTimeMillis();
+    private volatile long ultimoContactoMillis;
+    private volatile long reconexiones = -1;
+    private byte[] registro = new byte[256];
+
+    private Replica(DatosConcurrentes datos, InetSocketAddress primario, long desdeLsn) {
+        if (datos.getDiario() != null) {
+            throw new IllegalArgumentException("los datos de una réplica no pueden tener diario propio");
+        }
+        this.datos = datos;
+        this.primario = primario;
+        this.lsnAplicado = desdeLsn;
+        this.lsnPrimario = desdeLsn;
+        this.hilo = new Thread(this::bucle, "replica-" + primario.getHostString() + ":" + primario.getPort());
+        hilo.setDaemon(true);
+    }
+
+    /**
+     * Empieza a replicar sobre unos datos vacíos.
+     * @param datos  servicio de destino (vacío y sin diario)
+     * @param host   máquina del primario
+     * @param puerto puerto de su {@link ServidorReplicacion}
+     * @return réplica en marcha (se conecta en segundo plano)
+     */
+    public static Replica iniciar(DatosConcurrentes datos, String host, int puerto) {
+        return iniciar(datos, host, puerto, 0);
+    }
+
+    /**
+     * Empieza a replicar sobre unos datos que ya incluyen los registros hasta {@code desdeLsn}
+     * (por ejemplo, cargados de una {@link Instantanea} del primario o de una réplica anterior).
+     * @param datos    servicio de destino (sin diario)
+     * @param host     máquina del primario
+     * @param puerto   puerto de su {@link ServidorReplicacion}
+     * @param desdeLsn último LSN ya incluido en {@code datos}
+     * @return réplica en marcha (se conecta en segundo plano)
+     * @throws IllegalArgumentException si {@code datos} tiene diario
+     */
+    public static Replica iniciar(DatosConcurrentes datos, String host, int puerto, long desdeLsn) {
+        Replica r = new Replica(datos, new InetSocketAddress(host, puerto), desdeLsn);
+        r.hilo.start();
+        return r;
+    }
+
+    // Consultas
+
+    /** @return datos replicados (solo para consultas) */
+    public DatosConcurrentes getDatos() { return datos; }
+
+    /** @return LSN del último registro aplicado */
+    public long getLsnAplicado() { return lsnAplicado; }
+
+    /** @return último LSN durable conocido del primario */
+    public long getLsnPrimario() { return lsnPrimario; }
+
+    /** @return registros del primario pendientes de aplicar */
+    public long getRetrasoRegistros() { return Math.max(0, lsnPrimario - lsnAplicado); }
+
+    /** @return milisegundos desde la última vez que la réplica estuvo al día (0 si lo está) */
+    public long getRetrasoMillis() {
+        if (conectada && lsnAplicado >= lsnPrimario) return 0;
+        return Math.max(0, System.currentTimeMillis() - alDiaMillis);
+    }
+
+    /** @return si hay conexión abierta con el primario */
+    public boolean isConectada() { return conectada; }
+
+    /** @return veces que se ha vuelto a conectar tras perder la conexión */
+    public long getReconexiones() { return Math.max(0, reconexiones); }
+
+    /** @return motivo por el que la réplica se detuvo, o {@code null} si sigue replicando */
+    public String getError() { return error; }
+
+    /**
+     * Espera a que la réplica haya aplicado hasta {@code lsn} (por ejemplo, para leer en la
+     * réplica algo que se acaba de escribir en el primario).
+     * @param lsn    LSN esperado
+     * @param millis plazo máximo
+     * @return si se llegó a ese LSN dentro del plazo
+     */
+    public boolean esperarLsn(long lsn, long millis) {
+        long limite = System.nanoTime() + millis * 1_000_000L;
+        synchronized (this) {
+            while (lsnAplicado < lsn && error == null && !cerrada) {
+                long resto = (limite - System.nanoTime()) / 1_000_000L;
+                if (resto <= 0) break;
+                try {
+                    wait(resto);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return lsnAplicado >= lsn;
+    }
+
+    /** Corta la conexión y detiene la réplica (los datos se conservan). */
+    @Override
+    public void close() throws IOException {
+        cerrada = true;
+        Socket s = socket;
+        if (s != null) s.close();
+        LockSupport.unpark(hilo);
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        avisar();
+    }
+
+    // Replicación
+
+    /** Conecta, aplica lo recibido y, si se corta, vuelve a conectar con espera creciente. */
+    private void bucle() {
+        int espera = ESPERA_MIN_MS;
+        while (!cerrada && error == null) {
+            try (Socket s = new Socket()) {
+                socket = s;
+                if (cerrada) break;
+                s.connect(primario, ESPERA_MAX_MS);
+                s.setTcpNoDelay(true);
+                reconexiones++;
+                DataOutputStream out = new DataOutputStream(s.getOutputStream());
+                out.writeInt(ServidorReplicacion.MAGIA);
+                out.writeInt(ServidorReplicacion.VERSION);
+                out.writeLong(lsnAplicado);
+                out.flush();
+                conectada = true;
+                espera = ESPERA_MIN_MS;
+                recibir(new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024)));
+            } catch (IOException e) {
+                // primario caído o conexión cortada: se reintenta
+            } finally {
+                conectada = false;
+                socket = null;
+            }
+            if (cerrada || error != null) break;
+            LockSupport.parkNanos(espera * 1_000_000L);
+            espera = Math.min(ESPERA_MAX_MS, espera * 2);
+        }
+        avisar();
+    }
+
+    private void recibir(DataInputStream in) throws IOException {
+        while (!cerrada) {
+            byte tipo = in.readByte();
+            ultimoContactoMillis = System.currentTimeMillis();
+            switch (tipo) {
+                case ServidorReplicacion.REGISTRO -> {
+                    long lsn = in.readLong();
+                    byte tipoRegistro = in.readByte();
+                    int n = in.readInt();
+                    if (n > registro.length) registro = new byte[Math.max(n, registro.length * 2)];
+                    in.readFully(registro, 0, n);
+                    if (lsn != lsnAplicado + 1) {
+                        detener("se esperaba el LSN " + (lsnAplicado + 1) + " y llegó el " + lsn);
+                        return;
+                    }
+                    try {
+                        Diario.aplicar(tipoRegistro, ByteBuffer.wrap(registro, 0, n), datos);
+                    } catch (RuntimeException e) {
+                        detener("no se pudo aplicar el registro " + lsn + ": " + e);
+                        return;
+                    }
+                    lsnAplicado = lsn;
+                    if (lsn > lsnPrimario) lsnPrimario = lsn;
+                    if (in.available() == 0) alDia();
+                }
+                case ServidorReplicacion.LATIDO -> {
+                    long durable = in.readLong();
+                    in.readLong();                                  // hora del primario (informativa)
+                    if (durable > lsnPrimario) lsnPrimario = durable;
+                    alDia();
+                }
+                case ServidorReplicacion.ERROR -> {
+                    detener(in.readUTF());
+                    return;
+                }
+                default -> throw new IOException("mensaje de replicación desconocido: " + tipo);
+            }
+        }
+    }
+
+    /** Anota si la réplica está al día y despierta a quien espera un LSN. */
+    private void alDia() {
+        if (lsnAplicado >= lsnPrimario) alDiaMillis = ultimoContactoMillis;
+        avisar();
+    }
+
+    private void detener(String motivo) {
+        error = motivo;
+        avisar();
+    }
+
+    private synchronized void avisar() { notifyAll(); }
+}
@@ -0,0 +1,69 @@
+package concesionario.servicio;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import concesionario.modelo.Moto;
+
+/**
+ * Unidades de una moto apartadas para una venta en curso (ver {@link Datos#reservar(Moto, int)}).
+ * <p>Mientras está pendiente, sus unidades no cuentan en el stock disponible de la
+ * moto. Termina una sola vez: confirmada (pasa a formar parte de una venta),
+ * cancelada o caducada (en estos dos casos las unidades vuelven al stock).</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Reserva {
+
+    /** Situación de la reserva. */
+    public enum Estado {
+        /** Las unidades están apartadas. */
+        PENDIENTE,
+        /** Las unidades se vendieron. */
+        CONFIRMADA,
+        /** Se canceló y las unidades volvieron al stock. */
+        CANCELADA,
+        /** Caducó y las unidades volvieron al stock. */
+        CADUCADA
+    }
+
+    private final Moto moto;
+    private final int unidades;
+    private final long caducidad;          // milisegundos desde la época
+    private final AtomicReference<Estado> estado = new AtomicReference<>(Estado.PENDIENTE);
+    RuedaTemporizadores.Temporizador<Reserva> temporizador;    // protegido por la rueda de Reservas
+
+    Reserva(Moto moto, int unidades, long caducidad) {
+        this.moto = moto;
+        this.unidades = unidades;
+        this.caducidad = caducidad;
+    }
+
+    /** @return moto reservada */
+    public Moto getMoto() { return moto; }
+
+    /** @return unidades reservadas */
+    public int getUnidades() { return unidades; }
+
+    /** @return instante a partir del cual la reserva puede caducar */
+    public Instant getCaducidad() { return Instant.ofEpochMilli(caducidad); }
+
+    /** @return situación actual */
+    public Estado getEstado() { return estado.get(); }
+
+    /** @return {@code true} si las unidades siguen apartadas */
+    public boolean isPendiente() { return estado.get() == Estado.PENDIENTE; }
+
+    long caducidadMillis() { return caducidad; }
+
+    /**
+     * Cambia de estado si sigue en el esperado (solo un hilo gana).
+     * @param esperado estado actual esperado
+     * @param nuevo    nuevo estado
+     * @return {@code true} si se cambió
+     */
+    boolean pasar(Estado esperado, Estado nuevo) { return estado.compareAndSet(esperado, nuevo); }
+
+    @Override
+    public String toString() { return unidades + " x " + moto + " [" + estado.get() + "]"; }
+}
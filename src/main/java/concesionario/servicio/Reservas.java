@@ -0,0 +1,150 @@
+package concesionario.servicio;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import concesionario.modelo.Moto;
+
+/**
+ * Reservas de stock con caducidad.
+ * <p>Reservar resta las unidades del stock disponible de la moto con el mismo
+ * compare-and-set que una venta, así que el stock disponible sigue leyéndose sin
+ * cerrojos y las ventas y reservas concurrentes nunca apartan unidades que no
+ * existen. Las unidades reservadas de cada moto se cuentan aparte para saber las
+ * existencias reales (disponibles + reservadas).</p>
+ * <p>Cada reserva se programa en una {@link RuedaTemporizadores} y se quita de ella al
+ * confirmarla o cancelarla; las vencidas se recogen en la siguiente llamada que
+ * avance la rueda (cada reserva nueva y la recogida periódica de
+ * {@link Datos#iniciarCaducidadReservas(Duration)}) y sus unidades vuelven al
+ * stock. Una reserva solo cambia de estado una vez (compare-and-set), así que confirmar,
+ * cancelar y caducar a la vez no devuelven ni venden unidades de más.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+final class Reservas {
+    private static final long INTERVALO = 1000;       // milisegundos por ranura
+    private static final int RANURAS = 512;
+
+    private final LongSupplier reloj;
+    private final Consumer<Reserva> alCaducar;
+    private final Map<Moto, AtomicInteger> reservadas = new ConcurrentHashMap<>();   // por identidad (Moto no redefine equals)
+    private final RuedaTemporizadores<Reserva> rueda;
+    private volatile long duracion = Duration.ofMinutes(15).toMillis();
+
+    /**
+     * @param reloj     milisegundos desde la época (normalmente {@link System#currentTimeMillis()})
+     * @param alCaducar aviso de cada reserva caducada (con sus unidades ya devueltas al stock)
+     */
+    Reservas(LongSupplier reloj, Consumer<Reserva> alCaducar) {
+        this.reloj = reloj;
+        this.alCaducar = alCaducar;
+        this.rueda = new RuedaTemporizadores<>(INTERVALO, RANURAS, reloj.getAsLong());
+    }
+
+    /** @param duracion tiempo que dura cada reserva nueva */
+    void setDuracion(Duration duracion) {
+        if (duracion.isNegative() || duracion.isZero()) throw new IllegalArgumentException("Duración no válida: " + duracion);
+        this.duracion = duracion.toMillis();
+    }
+
+    /** @return tiempo que dura cada reserva nueva */
+    Duration getDuracion() { return Duration.ofMillis(duracion); }
+
+    /**
+     * Aparta unidades de una moto.
+     * @param m        moto
+     * @param unidades unidades (&gt; 0)
+     * @return reserva pendiente o {@code null} si no hay stock disponible suficiente
+     */
+    Reserva reservar(Moto m, int unidades) {
+        if (unidades <= 0) throw new IllegalArgumentException("Unidades no válidas: " + unidades);
+        long ahora = reloj.getAsLong();
+        caducar(ahora);
+        if (!m.intentarRestarStock(unidades)) return null;
+        reservadas.computeIfAbsent(m, k -> new AtomicInteger()).addAndGet(unidades);
+        Reserva r = new Reserva(m, unidades, ahora + duracion);
+        synchronized (rueda) {
+            r.temporizador = rueda.programar(r, r.caducidadMillis());
+        }
+        return r;
+    }
+
+    /**
+     * Devuelve al stock las unidades de una reserva pendiente.
+     * @param r     reserva
+     * @param estadoFinal {@link Reserva.Estado#CANCELADA} o {@link Reserva.Estado#CADUCADA}
+     * @return {@code true} si estaba pendiente
+     */
+    boolean liberar(Reserva r, Reserva.Estado estadoFinal) {
+        if (!r.pasar(Reserva.Estado.PENDIENTE, estadoFinal)) return false;
+        desprogramar(r);
+        reservadas.get(r.getMoto()).addAndGet(-r.getUnidades());
+        r.getMoto().anadirStock(r.getUnidades());
+        return true;
+    }
+
+    /**
+     * Marca como vendida una reserva pendiente (sus unidades ya no vuelven al stock).
+     * @param r reserva
+     * @return {@code true} si estaba pendiente
+     */
+    boolean confirmar(Reserva r) {
+        if (!r.pasar(Reserva.Estado.PENDIENTE, Reserva.Estado.CONFIRMADA)) return false;
+        desprogramar(r);
+        reservadas.get(r.getMoto()).addAndGet(-r.getUnidades());
+        return true;
+    }
+
+    /**
+     * Deshace {@link #confirmar(Reserva)} cuando la venta no llega a registrarse: la
+     * reserva vuelve a estar pendiente con su caducidad original (si ya pasó, caduca
+     * en el siguiente avance de la rueda).
+     * @param r reserva confirmada por este hilo
+     */
+    void deshacerConfirmacion(Reserva r) {
+        reservadas.get(r.getMoto()).addAndGet(r.getUnidades());
+        r.pasar(Reserva.Estado.CONFIRMADA, Reserva.Estado.PENDIENTE);
+        // se programa ya pendiente: si la rueda la entregase antes, no la podría caducar
+        synchronized (rueda) {
+            r.temporizador = rueda.programar(r, r.caducidadMillis());
+        }
+    }
+
+    private void desprogramar(Reserva r) {
+        synchronized (rueda) {
+            if (r.temporizador != null) rueda.cancelar(r.temporizador);
+        }
+    }
+
+    /**
+     * Recoge las reservas vencidas hasta ahora.
+     * @return número de reservas que han caducado
+     */
+    int caducar() { return caducar(reloj.getAsLong()); }
+
+    private int caducar(long ahora) {
+        int[] caducadas = {0};
+        synchronized (rueda) {
+            rueda.avanzar(ahora, r -> {
+                if (liberar(r, Reserva.Estado.CADUCADA)) {
+                    caducadas[0]++;
+                    alCaducar.accept(r);
+                }
+            });
+        }
+        return caducadas[0];
+    }
+
+    /**
+     * @param m moto
+     * @return unidades de la moto apartadas en reservas pendientes
+     */
+    int reservadas(Moto m) {
+        AtomicInteger n = reservadas.get(m);
+        return n == null ? 0 : n.get();
+    }
+}
@@ -0,0 +1,41 @@
+package concesionario.servicio;
+
+import concesionario.modelo.Venta;
+
+/**
+ * Resultado de cada venta de un lote registrado con {@link Datos#registrarVentas(java.util.List)}.
+ * @author Víctor
+ * @version 1.0
+ */
+public final class ResultadoVenta {
+
+    /** Qué pasó con la venta. */
+    public enum Estado {
+        /** Se descontó el stock y se registró la venta. */
+        REGISTRADA,
+        /** No había stock suficiente (contando las ventas anteriores del mismo lote). */
+        SIN_STOCK,
+        /** La petición no tiene cliente o motos. */
+        NO_VALIDA
+    }
+
+    private final Estado estado;
+    private final Venta venta;
+
+    ResultadoVenta(Estado estado, Venta venta) {
+        this.estado = estado;
+        this.venta = venta;
+    }
+
+    /** @return estado de la venta */
+    public Estado getEstado() { return estado; }
+
+    /** @return {@code true} si la venta quedó registrada */
+    public boolean isRegistrada() { return estado == Estado.REGISTRADA; }
+
+    /** @return venta registrada o {@code null} si no se registró */
+    public Venta getVenta() { return venta; }
+
+    @Override
+    public String toString() { return venta == null ? estado.toString() : estado + ": " + venta; }
+}
@@ -0,0 +1,64 @@
+package concesionario.servicio;
+
+import concesionario.modelo.Dinero;
+
+/**
+ * Importe, unidades y número de ventas de un periodo.
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Resumen {
+    private long importeCentimos;
+    private long unidades;
+    private long ventas;
+
+    Resumen() { }
+
+    Resumen(Resumen otro) { anadir(otro); }
+
+    /** Pone el resumen a cero. */
+    void limpiar() {
+        importeCentimos = 0;
+        unidades = 0;
+        ventas = 0;
+    }
+
+    /** Suma una venta. */
+    void sumar(long importe, int unidades) {
+        this.importeCentimos += importe;
+        this.unidades += unidades;
+        this.ventas++;
+    }
+
+    /** Suma otro resumen. */
+    void anadir(Resumen otro) { anadir(otro.importeCentimos, otro.unidades, otro.ventas); }
+
+    /** Suma los totales de varias ventas. */
+    void anadir(long importe, long unidades, long ventas) {
+        this.importeCentimos += importe;
+        this.unidades += unidades;
+        this.ventas += ventas;
+    }
+
+    /** @return importe total en céntimos de euro */
+    public long getImporteCentimos() { return importeCentimos; }
+
+    /** @return motos vendidas (una por unidad) */
+    public long getUnidades() { return unidades; }
+
+    /** @return número de ventas */
+    public long getVentas() { return ventas; }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Resumen r && r.importeCentimos == importeCentimos && r.unidades == unidades && r.ventas == ventas;
+    }
+
+    @Override
+    public int hashCode() { return Long.hashCode(importeCentimos * 31 + unidades) * 31 + Long.hashCode(ventas); }
+
+    @Override
+    public String toString() {
+        return ventas + " ventas, " + unidades + " unidades, " + Dinero.formatear(importeCentimos) + " €";
+    }
+}
@@ -0,0 +1,116 @@
+package concesionario.servicio;
+
+import java.util.function.Consumer;
+
+/**
+ * Rueda de temporizadores: vencimientos agrupados en ranuras de un intervalo fijo.
+ * <p>Programar un vencimiento lo enlaza en la ranura de su instante y cancelarlo lo
+ * desenlaza, ambos en O(1). Avanzar la rueda recorre solo las ranuras de los
+ * intervalos ya terminados y entrega sus elementos, así que cada uno se entrega con
+ * un retraso de hasta un intervalo; los que vencen en una vuelta posterior se quedan
+ * en su ranura. Si se salta más de una vuelta completa, cada ranura se recorre una
+ * sola vez.</p>
+ * <p>No es segura para varios hilos.</p>
+ * @param <T> tipo de los elementos
+ * @author Víctor
+ * @version 1.0
+ */
+final class RuedaTemporizadores<T> {
+
+    /** Vencimiento programado (nodo de la lista doblemente enlazada de su ranura). */
+    static final class Temporizador<T> {
+        final T elemento;
+        final long vence;
+        private Temporizador<T> anterior;
+        private Temporizador<T> siguiente;
+        private int ranura = -1;            // -1 si no está en la rueda
+
+        private Temporizador(T elemento, long vence) {
+            this.elemento = elemento;
+            this.vence = vence;
+        }
+    }
+
+    private final long intervalo;
+    private final Temporizador<T>[] ranuras;
+    private final int mascara;
+    private long actual;                // último intervalo terminado y recorrido
+    private int tamano = 0;
+
+    /**
+     * @param intervalo duración de cada ranura (en las mismas unidades que los instantes)
+     * @param ranuras   número de ranuras (potencia de dos)
+     * @param ahora     instante actual
+     */
+    @SuppressWarnings("unchecked")
+    RuedaTemporizadores(long intervalo, int ranuras, long ahora) {
+        if (intervalo <= 0) throw new IllegalArgumentException("Intervalo no válido: " + intervalo);
+        if (ranuras <= 0 || Integer.bitCount(ranuras) != 1) {
+            throw new IllegalArgumentException("Las ranuras deben ser una potencia de dos: " + ranuras);
+        }
+        this.intervalo = intervalo;
+        this.mascara = ranuras - 1;
+        this.ranuras = (Temporizador<T>[]) new Temporizador<?>[ranuras];
+        this.actual = Math.floorDiv(ahora, intervalo) - 1;
+    }
+
+    /** @return elementos programados y aún no entregados ni cancelados */
+    int tamano() { return tamano; }
+
+    /**
+     * Programa un elemento.
+     * @param elemento elemento
+     * @param vence    instante a partir del cual se entrega
+     * @return temporizador con el que cancelarlo
+     */
+    Temporizador<T> programar(T elemento, long vence) {
+        Temporizador<T> t = new Temporizador<>(elemento, vence);
+        t.ranura = (int) (Math.max(Math.floorDiv(vence, intervalo), actual + 1) & mascara);
+        t.siguiente = ranuras[t.ranura];
+        if (t.siguiente != null) t.siguiente.anterior = t;
+        ranuras[t.ranura] = t;
+        tamano++;
+        return t;
+    }
+
+    /**
+     * Quita un temporizador de la rueda (si ya se entregó o canceló, no hace nada).
+     * @param t temporizador devuelto por {@link #programar(Object, long)}
+     */
+    void cancelar(Temporizador<T> t) {
+        if (t.ranura < 0) return;
+        if (t.anterior != null) t.anterior.siguiente = t.siguiente;
+        else ranuras[t.ranura] = t.siguiente;
+        if (t.siguiente != null) t.siguiente.anterior = t.anterior;
+        t.anterior = t.siguiente = null;
+        t.ranura = -1;
+        tamano--;
+    }
+
+    /**
+     * Avanza la rueda hasta {@code ahora} y entrega los elementos vencidos.
+     * @param ahora   instante actual
+     * @param vencido acción para cada elemento vencido (ya fuera de la rueda)
+     * @return número de elementos entregados
+     */
+    int avanzar(long ahora, Consumer<T> vencido) {
+        long hasta = Math.floorDiv(ahora, intervalo) - 1;
+        if (hasta <= actual) return 0;
+        long desde = hasta - actual > mascara ? hasta - mascara : actual + 1;
+        actual = hasta;
+        int entregados = 0;
+        for (long r = desde; r <= hasta; r++) {
+            Temporizador<T> t = ranuras[(int) (r & mascara)];
+            while (t != null) {
+                Temporizador<T> siguiente = t.siguiente;
+                if (t.vence <= ahora) {
+                    cancelar(t);
+                    vencido.accept(t.elemento);
+                    entregados++;
+                }
+                t = siguiente;
+            }
+        }
+        return entregados;
+    }
+}
@@ -0,0 +1,181 @@
+package concesionario.servicio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Lado primario de la replicación: envía por TCP los registros del {@link Diario} a las
+ * réplicas ({@link Replica}) en orden de LSN.
+ * <p>Cada réplica abre una conexión e indica el último LSN que ya tiene; el servidor le
+ * envía desde ahí los registros que ya están en disco (nunca algo que se podría perder si
+ * el primario se cae) y después los nuevos según se sincronizan, leyéndolos del propio
+ * fichero del diario. Cuando no hay nada nuevo envía un latido con el último LSN durable
+ * cada {@link #LATIDO_MS} ms, que la réplica usa para calcular su retraso.</p>
+ * <p>Para no recorrer el diario desde el principio en cada reconexión, el servidor guarda
+ * la posición en el fichero de uno de cada {@link #MARCA_CADA} registros enviados.</p>
+ * <p>Protocolo (enteros en big-endian): la réplica envía {@code [int MAGIA][int VERSION][long
+ * desdeLsn]}; el primario responde con mensajes {@code [byte REGISTRO][long lsn][byte tipo][int n][n bytes]},
+ * {@code [byte LATIDO][long lsnDurable][long millis]} o {@code [byte ERROR][utf motivo]}.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class ServidorReplicacion implements Closeable {
+    static final int MAGIA = 0x43524550;              // "CREP"
+    static final int VERSION = 1;
+    static final byte REGISTRO = 1;
+    static final byte LATIDO = 2;
+    static final byte ERROR = 3;
+    /** Intervalo entre latidos cuando no hay registros nuevos. */
+    static final long LATIDO_MS = 200;
+    /** Cada cuántos registros enviados se recuerda su posición en el fichero. */
+    static final int MARCA_CADA = 4096;
+
+    private final Diario diario;
+    private final ServerSocket socket;
+    private final Thread aceptador;
+    private final Set<Socket> conexiones = ConcurrentHashMap.newKeySet();
+    /** LSN → posición en el fichero justo después de ese registro. */
+    private final ConcurrentSkipListMap<Long, Long> marcas = new ConcurrentSkipListMap<>();
+    private volatile boolean cerrado = false;
+
+    private ServidorReplicacion(Diario diario, int puerto) throws IOException {
+        this.diario = diario;
+        this.socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(new InetSocketAddress(puerto));
+        marcas.put(0L, 0L);
+        this.aceptador = new Thread(this::aceptar, "replicacion-" + getPuerto());
+        aceptador.setDaemon(true);
+    }
+
+    /**
+     * Empieza a atender réplicas.
+     * @param diario diario del primario (el que tiene asignado su {@link Datos})
+     * @param puerto puerto TCP (0 para uno libre cualquiera)
+     * @return servidor en marcha
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public static ServidorReplicacion iniciar(Diario diario, int puerto) throws IOException {
+        ServidorReplicacion s = new ServidorReplicacion(diario, puerto);
+        s.aceptador.start();
+        return s;
+    }
+
+    /** @return puerto en el que escucha el servidor */
+    public int getPuerto() { return socket.getLocalPort(); }
+
+    /** @return número de réplicas conectadas */
+    public int getReplicas() { return conexiones.size(); }
+
+    /** Deja de aceptar réplicas y cierra las conexiones abiertas. */
+    @Override
+    public void close() throws IOException {
+        cerrado = true;
+        socket.close();
+        for (Socket s : conexiones) s.close();
+        try {
+            aceptador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void aceptar() {
+        while (!cerrado) {
+            try {
+                Socket s = socket.accept();
+                s.setTcpNoDelay(true);
+                conexiones.add(s);
+                if (cerrado) {
+                    s.close();
+                    break;
+                }
+                Thread.ofVirtual().name("replicacion-" + s.getRemoteSocketAddress()).start(() -> atender(s));
+            } catch (IOException e) {
+                // socket cerrado (se sale del bucle) o fallo de una conexión concreta
+            }
+        }
+    }
+
+    /** Envía registros y latidos a una réplica hasta que se desconecta o se cierra el servidor. */
+    private void atender(Socket s) {
+        try (s) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 64 * 1024));
+            if (in.readInt() != MAGIA || in.readInt() != VERSION) return;
+            long desde = in.readLong();
+            if (desde < 0 || desde > diario.ultimoLsn()) {
+                out.writeByte(ERROR);
+                out.writeUTF("la réplica va por el LSN " + desde + " y el primario por el " + diario.ultimoLsn());
+                out.flush();
+                return;
+            }
+            new Envio(out, desde).enviar();
+        } catch (IOException e) {
+            // réplica desconectada o servidor cerrado
+        } finally {
+            conexiones.remove(s);
+        }
+    }
+
+    /** Estado del envío a una réplica. */
+    private final class Envio {
+        private final DataOutputStream out;
+        private final ByteBuffer buf = ByteBuffer.allocate(256 * 1024);
+        private byte[] copia = new byte[256];
+        private long enviado;
+        private long posicion;
+        private long limite;
+
+        Envio(DataOutputStream out, long desde) {
+            this.out = out;
+            this.enviado = desde;
+            Map.Entry<Long, Long> marca = marcas.floorEntry(desde);
+            this.posicion = marca.getValue();
+        }
+
+        void enviar() throws IOException {
+            long durable = diario.lsnDurable();
+            while (!cerrado && !diario.cerrando()) {
+                if (durable > enviado) {
+                    limite = durable;
+                    diario.recorrer(posicion, buf, this::registro);
+                }
+                out.writeByte(LATIDO);
+                out.writeLong(durable);
+                out.writeLong(System.currentTimeMillis());
+                out.flush();
+                durable = diario.esperarDurable(enviado, LATIDO_MS);
+            }
+        }
+
+        /** Envía un registro si la réplica aún no lo tiene y ya está en disco. */
+        private void registro(long lsn, byte tipo, ByteBuffer datos, long finRegistro) throws IOException {
+            if (lsn > limite) return;                   // escrito pero aún sin sincronizar
+            posicion = finRegistro;
+            if (lsn % MARCA_CADA == 0) marcas.put(lsn, finRegistro);
+            if (lsn <= enviado) return;
+            int n = datos.remaining();
+            if (n > copia.length) copia = new byte[Math.max(n, copia.length * 2)];
+            datos.get(copia, 0, n);
+            out.writeByte(REGISTRO);
+            out.writeLong(lsn);
+            out.writeByte(tipo);
+            out.writeInt(n);
+            out.write(copia, 0, n);
+            enviado = lsn;
+        }
+    }
+}
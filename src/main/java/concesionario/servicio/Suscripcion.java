@@ -0,0 +1,104 @@
+package concesionario.servicio;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Consumo de un {@link BusEventos} desde un hilo propio.
+ * <p>El hilo recorre el anillo en orden de secuencia y entrega cada evento a su
+ * {@link ConsumidorEventos}, copiado en una casilla propia para que un publicador
+ * pueda reutilizar la del anillo. Cuando no hay eventos, espera activamente un
+ * momento y después se duerme a intervalos de 0,1 ms, así que los publicadores no
+ * tienen que avisarle.</p>
+ * @author Víctor
+ * @version 1.0
+ */
+public final class Suscripcion implements AutoCloseable {
+    private static final long DORMIR_NANOS = 100_000;
+
+    private final BusEventos bus;
+    private final ConsumidorEventos consumidor;
+    private final Thread hilo;
+    private final Evento copia = new Evento();
+    private volatile boolean activa = true;
+    private volatile long siguiente;
+    private volatile long procesados;       // un solo escritor: el hilo de la suscripción
+    private volatile long perdidos;
+    private volatile long errores;
+
+    Suscripcion(BusEventos bus, String nombre, ConsumidorEventos consumidor, long desde) {
+        this.bus = bus;
+        this.consumidor = consumidor;
+        this.siguiente = desde;
+        this.hilo = new Thread(this::consumir, nombre);
+        hilo.setDaemon(true);
+    }
+
+    void arrancar() { hilo.start(); }
+
+    /** @return eventos entregados al consumidor */
+    public long getProcesados() { return procesados; }
+
+    /** @return eventos sobrescritos antes de que el consumidor llegara a ellos */
+    public long getPerdidos() { return perdidos; }
+
+    /** @return excepciones lanzadas por el consumidor */
+    public long getErrores() { return errores; }
+
+    /** @return eventos publicados que el consumidor aún no ha recibido */
+    public long getPendientes() { return Math.max(0, bus.getPublicados() - siguiente); }
+
+    private void consumir() {
+        int esperas = 0;
+        while (activa) {
+            long s = siguiente;
+            int i = bus.casilla(s);
+            long p = bus.publicada(i);
+            if (p == s) {
+                copia.copiarDe(bus.evento(i));
+                VarHandle.loadLoadFence();      // la copia se lee entera antes de volver a comprobar
+                siguiente = s + 1;
+                if (bus.publicada(i) != s) {    // reescrita mientras se copiaba
+                    perdidos = perdidos + 1;
+                    continue;
+                }
+                boolean finDeLote = bus.publicada(bus.casilla(s + 1)) != s + 1;
+                try {
+                    consumidor.alEvento(copia, finDeLote);
+                } catch (RuntimeException e) {
+                    errores = errores + 1;
+                }
+                procesados = procesados + 1;
+                esperas = 0;
+            } else if (p != BusEventos.ESCRIBIENDO && p > s) {
+                // el anillo ha dado la vuelta: seguir por el más antiguo que quede
+                long desde = Math.max(s + 1, bus.masAntigua());
+                perdidos = perdidos + (desde - s);
+                siguiente = desde;
+            } else {
+                esperar(esperas++);
+            }
+        }
+    }
+
+    private static void esperar(int esperas) {
+        if (esperas < 64) Thread.onSpinWait();
+        else if (esperas < 128) Thread.yield();
+        else LockSupport.parkNanos(DORMIR_NANOS);
+    }
+
+    /** Detiene la suscripción y espera a que su hilo termine. */
+    @Override
+    public void close() {
+        activa = false;
+        LockSupport.unpark(hilo);
+        if (Thread.currentThread() != hilo) {
+            try {
+                hilo.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        bus.quitar(this);
+    }
+}
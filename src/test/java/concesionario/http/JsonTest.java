@@ -0,0 +1,47 @@
+package concesionario.http;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Map;
+
+public class JsonTest {
+
+    @Test
+    public void leerObjetoConTiposBasicos() {
+        Map<String, Object> o = Json.leerObjeto(
+                " {\"dni\": \"1\\u0041\", \"motos\": [0, 2, 2], \"precio\": 10.5, \"ok\": true, \"x\": null, \"sub\": {}} ");
+        assertEquals("1A", o.get("dni"));
+        assertEquals(List.of(0L, 2L, 2L), o.get("motos"));
+        assertEquals(10.5, o.get("precio"));
+        assertEquals(Boolean.TRUE, o.get("ok"));
+        assertTrue(o.containsKey("x"));
+        assertEquals(Map.of(), o.get("sub"));
+    }
+
+    @Test
+    public void leerObjetoMalFormadoLanzaExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> Json.leerObjeto("[1, 2]"));
+        assertThrows(IllegalArgumentException.class, () -> Json.leerObjeto("{\"a\": 1"));
+        assertThrows(IllegalArgumentException.class, () -> Json.leerObjeto("{\"a\": 1} x"));
+        assertThrows(IllegalArgumentException.class, () -> Json.leerObjeto("{\"a\" 1}"));
+    }
+
+    @Test
+    public void anidamientoLimitado() {
+        String dentro = "{\"a\":" + "[".repeat(Json.PROFUNDIDAD_MAXIMA - 1) + "]".repeat(Json.PROFUNDIDAD_MAXIMA - 1) + "}";
+        assertEquals(1, Json.leerObjeto(dentro).size());
+        String fuera = "{\"a\":" + "[".repeat(Json.PROFUNDIDAD_MAXIMA) + "]".repeat(Json.PROFUNDIDAD_MAXIMA) + "}";
+        assertThrows(IllegalArgumentException.class, () -> Json.leerObjeto(fuera));
+        assertThrows(IllegalArgumentException.class, () -> Json.leerObjeto("{\"a\":" + "[".repeat(1_000_000)));
+    }
+
+    @Test
+    public void escribirEscapaCaracteresEspeciales() {
+        StringBuilder sb = new StringBuilder("{");
+        Json.cadena(Json.campo(sb, "a"), "di \"hola\"\n");
+        Json.cadena(Json.campo(sb, "b"), null);
+        assertEquals("{\"a\":\"di \\\"hola\\\"\\n\",\"b\":null}", sb.append('}').toString());
+        assertEquals("di \"hola\"\n", Json.leerObjeto(sb.toString()).get("a"));
+    }
+}
@@ -0,0 +1,128 @@
+package concesionario.http;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.servicio.DatosConcurrentes;
+
+public class ServidorHttpTest {
+    private DatosConcurrentes datos;
+    private ServidorHttp servidor;
+    private HttpClient cliente;
+
+    @BeforeEach
+    public void arrancar() throws IOException {
+        datos = new DatosConcurrentes();
+        datos.addCliente(new Cliente("Ana", "11111111A", "600", "ana@ex.com"));
+        datos.addMoto(new Moto("Honda", "CL500", 6790.00, 3));
+        datos.addMoto(new Moto("Yamaha", "XSR700", 8799.99, 50));
+        servidor = ServidorHttp.iniciar(datos, 0);
+        cliente = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void parar() {
+        servidor.close();
+    }
+
+    private HttpRequest.Builder peticion(String ruta) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + servidor.getPuerto() + ruta));
+    }
+
+    private HttpResponse<String> enviar(HttpRequest p) throws Exception {
+        return cliente.send(p, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String ruta, String json) throws Exception {
+        return enviar(peticion(ruta).POST(HttpRequest.BodyPublishers.ofString(json)).build());
+    }
+
+    @Test
+    public void altaConsultaModificacionYBajaDeCliente() throws Exception {
+        String luis = "{\"nombre\":\"Luis\",\"dni\":\"22222222B\",\"telefono\":\"611\",\"email\":\"l@ex.com\"}";
+        assertEquals(201, post("/clientes", luis).statusCode());
+        assertEquals(409, post("/clientes", luis).statusCode());
+        assertEquals(400, post("/clientes", "{\"nombre\":\"Sin DNI\"}").statusCode());
+
+        HttpResponse<String> r = enviar(peticion("/clientes/22222222b").GET().build());
+        assertEquals(200, r.statusCode());
+        assertTrue(r.body().contains("\"nombre\":\"Luis\""));
+
+        r = enviar(peticion("/clientes/22222222B")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"telefono\":\"699\"}")).build());
+        assertEquals(200, r.statusCode());
+        assertEquals("699", datos.buscarClientePorDni("22222222B").getTelefono());
+        assertEquals("Luis", datos.buscarClientePorDni("22222222B").getNombre());
+
+        assertEquals(204, enviar(peticion("/clientes/22222222B").DELETE().build()).statusCode());
+        assertEquals(404, enviar(peticion("/clientes/22222222B").GET().build()).statusCode());
+        assertEquals(1, datos.getClientes().size());
+    }
+
+    @Test
+    public void soloLecturaRechazaLasModificaciones() throws Exception {
+        servidor.close();
+        servidor = ServidorHttp.iniciarSoloLectura(datos, 0);
+
+        assertEquals(200, enviar(peticion("/motos?q=cl500").GET().build()).statusCode());
+        assertEquals(200, enviar(peticion("/clientes/11111111A").GET().build()).statusCode());
+        assertEquals(405, post("/clientes", "{\"nombre\":\"Luis\",\"dni\":\"22222222B\",\"telefono\":\"611\",\"email\":\"l@ex.com\"}").statusCode());
+        assertEquals(405, post("/ventas", "{\"dni\":\"11111111A\",\"motos\":[0]}").statusCode());
+        assertEquals(405, enviar(peticion("/clientes/11111111A").DELETE().build()).statusCode());
+        assertEquals(1, datos.getClientes().size());
+        assertEquals(3, datos.getMotos().get(0).getStock());
+    }
+
+    @Test
+    public void busquedaDeMotosDevuelveSuPosicion() throws Exception {
+        HttpResponse<String> r = enviar(peticion("/motos?q=xsr").GET().build());
+        assertEquals(200, r.statusCode());
+        assertEquals("[{\"id\":1,\"marca\":\"Yamaha\",\"modelo\":\"XSR700\",\"precio\":8799.99,\"stock\":50}]", r.body());
+    }
+
+    @Test
+    public void ventaDescuentaStockYActualizaTotales() throws Exception {
+        HttpResponse<String> r = post("/ventas", "{\"dni\":\"11111111A\",\"motos\":[0,0,1]}");
+        assertEquals(201, r.statusCode());
+        assertTrue(r.body().contains("\"importe\":22379.99"));
+        assertEquals(1, datos.getMotos().get(0).getStock());
+
+        assertEquals(409, post("/ventas", "{\"dni\":\"11111111A\",\"motos\":[0,0]}").statusCode());
+        assertEquals(400, post("/ventas", "{\"dni\":\"11111111A\",\"motos\":[7]}").statusCode());
+        assertEquals(404, post("/ventas", "{\"dni\":\"99999999Z\",\"motos\":[0]}").statusCode());
+        assertEquals(400, post("/ventas", "{\"motos\":" + "[".repeat(100_000)).statusCode());
+        assertEquals(409, enviar(peticion("/clientes/11111111A").DELETE().build()).statusCode());
+
+        r = enviar(peticion("/totales?dni=11111111A").GET().build());
+        assertEquals("{\"importe\":22379.99,\"unidades\":3}", r.body());
+    }
+
+    @Test
+    public void ventasConcurrentesNoVendenMasDelStock() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> pendientes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            HttpRequest p = peticion("/ventas")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"dni\":\"11111111A\",\"motos\":[1]}")).build();
+            pendientes.add(cliente.sendAsync(p, HttpResponse.BodyHandlers.ofString()));
+        }
+        int vendidas = 0;
+        for (CompletableFuture<HttpResponse<String>> f : pendientes) {
+            if (f.get().statusCode() == 201) vendidas++;
+        }
+        assertEquals(50, vendidas);
+        assertEquals(0, datos.getMotos().get(1).getStock());
+        assertEquals(50, datos.unidadesVendidas());
+    }
+}
@@ -0,0 +1,48 @@
+package concesionario.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class DineroTest {
+
+    @Test
+    public void parsearAceptaComaYPunto() {
+        assertEquals(789999, Dinero.parsear("7899,99"));
+        assertEquals(789999, Dinero.parsear("7899.99"));
+    }
+
+    @Test
+    public void parsearCompletaDecimales() {
+        assertEquals(789990, Dinero.parsear("7899.9"));
+        assertEquals(789900, Dinero.parsear("7899"));
+        assertEquals(50, Dinero.parsear(",5"));
+    }
+
+    @Test
+    public void parsearRechazaTextoNoValido() {
+        assertThrows(NumberFormatException.class, () -> Dinero.parsear("12.345"));
+        assertThrows(NumberFormatException.class, () -> Dinero.parsear("12a"));
+        assertThrows(NumberFormatException.class, () -> Dinero.parsear("."));
+        assertThrows(NumberFormatException.class, () -> Dinero.parsear("99999999999999999999"));
+    }
+
+    @Test
+    public void formatearConDosDecimales() {
+        assertEquals("7899.99", Dinero.formatear(789999));
+        assertEquals("0.05", Dinero.formatear(5));
+        assertEquals("-1.50", Dinero.formatear(-150));
+        assertEquals("-92233720368547758.08", Dinero.formatear(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void sumaEnCentimosEsExacta() {
+        long centimos = 0;
+        double euros = 0.0;
+        for (int i = 0; i < 1_000_000; i++) {
+            centimos += Dinero.deEuros(0.10);
+            euros += 0.10;
+        }
+        assertEquals(10_000_000, centimos);
+        assertNotEquals(100_000.00, euros);     // el double acumula error
+    }
+}
@@ -18,8 +18,22 @@ public class MotoTest {
         assertEquals(6790.00, m.getPrecio(), 0.01);
     }
 
+    @Test
+    public void precioSeGuardaEnCentimos() {
+        assertEquals(679000, m.getPrecioCentimos());
+        assertEquals(879999, new Moto("Yamaha", "XSR700", 8799.99, 1).getPrecioCentimos());
+    }
+
     @Test
     public void constructorGuardaStock() {
         assertEquals(5, m.getStock());
     }
+
+    @Test
+    public void intentarRestarStockSinSuficienteNoCambiaStock() {
+        assertFalse(m.intentarRestarStock(6));
+        assertEquals(5, m.getStock());
+        assertTrue(m.intentarRestarStock(5));
+        assertEquals(0, m.getStock());
+    }
 }
@@ -0,0 +1,40 @@
+package concesionario.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class TextosTest {
+
+    @Test
+    public void claveSinMayusculasNiAcentos() {
+        assertEquals("12345678a", Textos.clave("12345678A"));
+        assertEquals("jose nunez", Textos.clave("José Núñez"));
+        assertEquals("cafe racer", Textos.clave("CAFÉ Racer"));
+        assertEquals("", Textos.clave(null));
+        assertEquals("lodz", Textos.clave("Lódź"));               // fuera de Latin-1
+        assertEquals("cafe", Textos.clave("Cafe\u0301"));         // acento combinado
+        assertEquals("strasse", Textos.clave("STRASSE"));
+        assertEquals(Textos.clave("\u0178"), Textos.clave("\u00ff"));   // Ÿ (por Normalizer) y ÿ (por tabla)
+    }
+
+    @Test
+    public void unaClaveNoSeCopia() {
+        String clave = "xsr 700";
+        assertSame(clave, Textos.clave(clave));
+        assertSame(clave, Textos.clave(Textos.clave(clave)));
+    }
+
+    @Test
+    public void losSettersMantienenLaClave() {
+        Cliente c = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        assertEquals("11111111a", c.getClaveDni());
+        assertEquals("ana", c.getClaveNombre());
+        c.setNombre("Ángela");
+        assertEquals("angela", c.getClaveNombre());
+        assertNull(new Cliente("Sin DNI", null, "", "").getClaveDni());
+
+        Moto m = new Moto("Ducati", "Scrambler Café", 9000, 1);
+        assertEquals("ducati", m.getClaveMarca());
+        assertEquals("scrambler cafe", m.getClaveModelo());
+    }
+}
@@ -25,6 +25,11 @@ class VentaTest {
         assertEquals(esperado, v.getImporte(), 0.01);
     }
 
+    @Test
+    public void importeEnCentimosEsExacto() {
+        assertEquals(679000 + 879999, v.getImporteCentimos());
+    }
+
     @Test
     public void vendeDosMotos() {
         assertEquals(2, v.getMotos().size());
@@ -0,0 +1,104 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+public class BusEventosTest {
+
+    /** Espera a que la suscripción haya recibido o perdido todo lo publicado. */
+    private static void esperarAlDia(BusEventos bus, Suscripcion s) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (s.getProcesados() + s.getPerdidos() < bus.getPublicados()) {
+            assertTrue(System.nanoTime() < limite, "la suscripción no avanza");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void capacidadDebeSerPotenciaDeDos() {
+        assertThrows(IllegalArgumentException.class, () -> new BusEventos(1000));
+    }
+
+    @Test
+    public void variosPublicadoresEntreganCadaEventoUnaVezYEnOrden() throws InterruptedException {
+        try (BusEventos bus = new BusEventos(1 << 16)) {
+            List<Long> recibidos = Collections.synchronizedList(new ArrayList<>());
+            int[] lotes = {0};
+            Suscripcion s = bus.suscribir("prueba", (e, fin) -> {
+                recibidos.add(e.getSecuencia());
+                if (fin) lotes[0]++;
+            });
+            List<Thread> hilos = new ArrayList<>();
+            for (int h = 0; h < 4; h++) {
+                Thread t = new Thread(() -> {
+                    for (int i = 0; i < 10_000; i++) bus.publicar(Evento.Tipo.VENTA, null, null, 0, null);
+                });
+                hilos.add(t);
+                t.start();
+            }
+            for (Thread t : hilos) t.join();
+            esperarAlDia(bus, s);
+
+            assertEquals(40_000, recibidos.size());
+            for (int i = 0; i < recibidos.size(); i++) assertEquals(i, recibidos.get(i));
+            assertEquals(0, s.getPerdidos());
+            assertTrue(lotes[0] >= 1 && lotes[0] <= 40_000);
+        }
+    }
+
+    @Test
+    public void consumidorLentoPierdeLosSobrescritosSinFrenarAlPublicador() throws InterruptedException {
+        try (BusEventos bus = new BusEventos(64)) {
+            CountDownLatch soltar = new CountDownLatch(1);
+            List<Long> recibidos = Collections.synchronizedList(new ArrayList<>());
+            Suscripcion s = bus.suscribir("lento", (e, fin) -> {
+                try { soltar.await(); } catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+                recibidos.add(e.getSecuencia());
+            });
+            for (int i = 0; i < 1_000; i++) bus.publicar(Evento.Tipo.VENTA, null, null, 0, null);
+            soltar.countDown();
+            esperarAlDia(bus, s);
+
+            assertEquals(1_000, s.getProcesados() + s.getPerdidos());
+            assertTrue(s.getPerdidos() > 0);
+            for (int i = 1; i < recibidos.size(); i++) assertTrue(recibidos.get(i) > recibidos.get(i - 1));
+            assertEquals(999, recibidos.get(recibidos.size() - 1));
+        }
+    }
+
+    @Test
+    public void datosPublicaSusModificaciones() throws InterruptedException {
+        Datos datos = new Datos();
+        try (BusEventos bus = new BusEventos(1024)) {
+            datos.setBusEventos(bus);
+            List<String> recibidos = Collections.synchronizedList(new ArrayList<>());
+            Suscripcion s = bus.suscribir("prueba", (e, fin) -> recibidos.add(e.getTipo() + ":" + e.getUnidades() + ":" + e.getStock()));
+
+            Cliente ana = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+            Moto cl500 = new Moto("Honda", "CL500", 6790.00, 3);
+            datos.addCliente(ana);
+            datos.addMoto(cl500);
+            datos.descontarStock(List.of(cl500, cl500));
+            datos.addVenta(new Venta(ana, List.of(cl500, cl500)));
+            datos.reponerStockPorIndice(0, 4);
+            datos.cancelarReserva(datos.reservar(cl500, 1));
+            datos.modificarCliente(ana, "Ana María", null, null);
+            datos.removeClientePorDni("11111111A");
+            esperarAlDia(bus, s);
+
+            assertEquals(List.of("ALTA_CLIENTE:0:0", "ALTA_MOTO:0:3", "DESCUENTO_STOCK:2:1", "VENTA:0:0",
+                    "REPOSICION_STOCK:4:5", "DESCUENTO_STOCK:1:4", "REPOSICION_STOCK:1:5",
+                    "MODIFICACION_CLIENTE:0:0", "BAJA_CLIENTE:0:0"), recibidos);
+            assertEquals(0, s.getErrores());
+        }
+    }
+}
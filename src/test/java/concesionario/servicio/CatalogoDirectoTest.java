@@ -0,0 +1,129 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import concesionario.modelo.Moto;
+
+public class CatalogoDirectoTest {
+
+    @Test
+    public void lasBusquedasCoincidenConLasDeDatos() {
+        Datos datos = new Datos();
+        CatalogoDirecto catalogo = new CatalogoDirecto();
+        String[] marcas = { "Honda", "Yamaha", "Ducati", "Royal Enfield" };
+        String[] familias = { "CL", "XSR", "Scrambler Café", "Scram", "Niña" };
+        Random r = new Random(5);
+        for (int i = 0; i < 100_000; i++) {        // varios bloques de fichas y de textos
+            Moto m = new Moto(marcas[r.nextInt(marcas.length)], familias[r.nextInt(familias.length)] + " " + i, 5000 + i, 1 + i % 7);
+            datos.addMoto(m);
+            assertEquals(i, catalogo.addMoto(m));
+        }
+        assertEquals(100_000, catalogo.numMotos());
+        assertTrue(catalogo.bytesReservados() >= 100_000L * CatalogoDirecto.FICHA);
+
+        for (String q : List.of("cafe", "CAFÉ", "nina 99", "enfield", "xsr 1234", "z", "", "no existe")) {
+            List<Integer> esperadas = datos.buscarMotosPorTexto(q).stream().map(datos::indiceMoto).toList();
+            assertEquals(esperadas, catalogo.buscarMotosPorTexto(q).stream().map(CatalogoDirecto.VistaMoto::getIndice).toList(), q);
+        }
+
+        CatalogoDirecto.VistaMoto v = catalogo.vista();
+        for (int i : new int[] { 0, 40_000, 99_999 }) {
+            Moto m = datos.buscarMotoPorIndice(i);
+            v.mover(i);
+            assertEquals(m.getMarca(), v.getMarca());
+            assertEquals(m.getModelo(), v.getModelo());
+            assertEquals(m.getPrecioCentimos(), v.getPrecioCentimos());
+            assertEquals(m.getStock(), v.getStock());
+            assertEquals(m.toString(), v.toString());
+        }
+        assertNull(catalogo.buscarMotoPorIndice(100_000));
+        assertThrows(IndexOutOfBoundsException.class, () -> v.mover(-1));
+    }
+
+    @Test
+    public void descontarStockEsTodoONada() {
+        CatalogoDirecto catalogo = new CatalogoDirecto();
+        int cl500 = catalogo.addMoto("Honda", "CL500", 679000, 3);
+        int xsr700 = catalogo.addMoto("Yamaha", "XSR700", 879999, 2);
+
+        assertFalse(catalogo.descontarStock(cl500, xsr700, xsr700, xsr700));   // pido 3 y solo hay 2
+        assertEquals(3, catalogo.buscarMotoPorIndice(cl500).getStock());
+        assertEquals(2, catalogo.buscarMotoPorIndice(xsr700).getStock());
+
+        assertTrue(catalogo.descontarStock(xsr700, cl500, cl500));
+        assertEquals(1, catalogo.buscarMotoPorIndice(cl500).getStock());
+        assertEquals(1, catalogo.buscarMotoPorIndice(xsr700).getStock());
+        assertFalse(catalogo.descontarStock(cl500, 7));
+
+        assertTrue(catalogo.reponerStockPorIndice(xsr700, 4));
+        assertFalse(catalogo.reponerStockPorIndice(2, 1));
+        assertFalse(catalogo.reponerStockPorIndice(cl500, 0));
+        Moto copia = catalogo.buscarMotoPorIndice(xsr700).aMoto();
+        assertEquals(5, copia.getStock());
+        assertEquals(879999, copia.getPrecioCentimos());
+        assertEquals("xsr700", copia.getClaveModelo());
+    }
+
+    @Test
+    public void ventasDesdeVariosHilos() throws InterruptedException {
+        CatalogoDirecto catalogo = new CatalogoDirecto();
+        int a = catalogo.addMoto("Honda", "CL500", 679000, 10_000);
+        int b = catalogo.addMoto("Yamaha", "XSR700", 879999, 5_000);
+        int hilos = 4;
+        int[] vendidas = new int[hilos];
+        Thread[] ts = new Thread[hilos];
+        for (int h = 0; h < hilos; h++) {
+            int yo = h;
+            ts[h] = new Thread(() -> {
+                for (int i = 0; i < 4000; i++) {
+                    if (catalogo.descontarStock(a, b, a)) vendidas[yo]++;
+                }
+            });
+            ts[h].start();
+        }
+        for (Thread t : ts) t.join();
+        int total = 0;
+        for (int n : vendidas) total += n;
+        assertEquals(5_000, total);
+        assertEquals(0, catalogo.buscarMotoPorIndice(b).getStock());
+        assertEquals(0, catalogo.buscarMotoPorIndice(a).getStock());
+    }
+
+    @Test
+    public void seleccionesSolapadasNoFallanPorDescuentosAjenos() throws InterruptedException {
+        CatalogoDirecto catalogo = new CatalogoDirecto();
+        int[] posible = new int[9];
+        int[] imposible = new int[9];
+        for (int i = 0; i < 8; i++) {
+            posible[i] = imposible[i] = catalogo.addMoto("Honda", "C" + i, 100000, 1);
+        }
+        posible[8] = catalogo.addMoto("Yamaha", "XSR700", 879999, 1);
+        imposible[8] = catalogo.addMoto("Ducati", "Monster", 1100000, 0);   // las comunes van antes
+
+        AtomicBoolean fin = new AtomicBoolean();
+        AtomicInteger descontadasDeMas = new AtomicInteger();
+        Thread otro = new Thread(() -> {
+            while (!fin.get()) if (catalogo.descontarStock(imposible)) descontadasDeMas.incrementAndGet();
+        });
+        otro.start();
+        try {
+            for (int n = 0; n < 200_000; n++) {
+                assertTrue(catalogo.descontarStock(posible), "falta de stock aparente en el intento " + n);
+                for (int i : posible) catalogo.reponerStockPorIndice(i, 1);
+                int una = posible[n % posible.length];
+                assertTrue(catalogo.descontarStock(una), "falta de stock aparente en el intento " + n);
+                catalogo.reponerStockPorIndice(una, 1);
+            }
+        } finally {
+            fin.set(true);
+            otro.join();
+        }
+        assertEquals(0, descontadasDeMas.get());
+        for (int i : posible) assertEquals(1, catalogo.buscarMotoPorIndice(i).getStock());
+    }
+}
@@ -0,0 +1,90 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ClasificacionTest {
+
+    private static List<String> nombres(List<Puesto<String>> puestos) {
+        return puestos.stream().map(Puesto::getElemento).toList();
+    }
+
+    @Test
+    public void mejoresDeMayorAMenorYEmpateParaElMasAntiguo() {
+        Clasificacion<String> c = new Clasificacion<>(false);
+        c.sumar("a", "a", 5);
+        c.sumar("b", "b", 7);
+        c.sumar("c", "c", 5);
+        c.sumar("d", "d", 1);
+
+        assertEquals(List.of("b", "a", "c"), nombres(c.mejores(3)));
+        assertEquals(7, c.mejores(1).get(0).getValor());
+        assertEquals(4, c.mejores(10).size());
+        assertThrows(IllegalArgumentException.class, () -> c.mejores(0));
+    }
+
+    @Test
+    public void restarHastaCeroSacaDeLaClasificacion() {
+        Clasificacion<String> c = new Clasificacion<>(false);
+        c.sumar("a", "a", 2);
+        c.restar("a", 2);
+        c.restar("x", 1);
+        assertEquals(0, c.tamano());
+        assertTrue(c.mejores(5).isEmpty());
+    }
+
+    @Test
+    public void ventanaCaducaLosDiasAntiguos() {
+        ClasificacionVentana<String> v = new ClasificacionVentana<>(3, false);
+        LocalDate d = LocalDate.of(2024, 1, 1);
+        v.sumar(d, "a", "a", 10);
+        v.sumar(d.plusDays(1), "b", "b", 4);
+        v.sumar(d.plusDays(2), "b", "b", 4);
+        assertEquals(List.of("a", "b"), nombres(v.mejores(5)));
+
+        v.sumar(d.plusDays(3), "c", "c", 1);       // "a" sale de la ventana
+        assertEquals(List.of("b", "c"), nombres(v.mejores(5)));
+        v.sumar(d, "a", "a", 99);                  // anterior a la ventana: se descarta
+        v.sumar(null, "a", "a", 99);
+        assertEquals(0, v.valor("a"));
+
+        v.sumar(d.plusDays(30), "d", "d", 1);      // salto mayor que la ventana
+        assertEquals(List.of("d"), nombres(v.mejores(5)));
+        assertEquals(d.plusDays(30), v.hasta());
+
+        v.avanzarHasta(d.plusDays(31));            // sin altas nuevas
+        assertEquals(List.of("d"), nombres(v.mejores(5)));
+        v.avanzarHasta(d.plusDays(20));            // anterior al final: no hace nada
+        v.avanzarHasta(d.plusDays(33));
+        assertTrue(v.mejores(5).isEmpty());
+        assertEquals(d.plusDays(33), v.hasta());
+    }
+
+    @Test
+    public void ventanaNoDependeDelOrdenDeLlegada() {
+        Random r = new Random(5);
+        LocalDate inicio = LocalDate.of(2024, 1, 1);
+        int dias = 7;
+        ClasificacionVentana<String> v = new ClasificacionVentana<>(dias, false);
+        LocalDate[] fechas = new LocalDate[5000];
+        String[] claves = new String[fechas.length];
+        for (int i = 0; i < fechas.length; i++) {
+            fechas[i] = inicio.plusDays(r.nextInt(60));
+            claves[i] = "k" + r.nextInt(40);
+            v.sumar(fechas[i], claves[i], claves[i], 1);
+        }
+
+        LocalDate ultimo = v.hasta();
+        Map<String, Long> esperado = new HashMap<>();
+        for (int i = 0; i < fechas.length; i++) {
+            if (fechas[i].isAfter(ultimo.minusDays(dias))) esperado.merge(claves[i], 1L, Long::sum);
+        }
+        for (Map.Entry<String, Long> e : esperado.entrySet()) assertEquals(e.getValue(), v.valor(e.getKey()), e.getKey());
+        assertEquals(esperado.size(), v.mejores(100).size());
+    }
+}
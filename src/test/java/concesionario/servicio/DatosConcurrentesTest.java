@@ -0,0 +1,205 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+public class DatosConcurrentesTest {
+
+    private static final int HILOS = 4;
+    private static final int MOTOS = 8;
+    private static final int STOCK_INICIAL = 20_000;
+    private static final int VENTAS_POR_HILO = 20_000;
+
+    @Test
+    public void getClientesDevuelveCopiaNoModificable() {
+        DatosConcurrentes datos = new DatosConcurrentes();
+        datos.addCliente(new Cliente("Ana", "11111111A", "600", "ana@ex.com"));
+        assertThrows(UnsupportedOperationException.class, () -> datos.getClientes().clear());
+        assertEquals(1, datos.getClientes().size());
+        assertEquals(1, datos.numClientes());
+    }
+
+    @Test
+    public void ventasConcurrentesNoVendenMasDeLoQueHay() throws InterruptedException {
+        DatosConcurrentes datos = new DatosConcurrentes();
+        List<Moto> motos = new ArrayList<>();
+        for (int i = 0; i < MOTOS; i++) {
+            Moto m = new Moto("Marca" + i, "Modelo" + i, 1000 + i, STOCK_INICIAL);
+            motos.add(m);
+            datos.addMoto(m);
+        }
+        Cliente cliente = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        datos.addCliente(cliente);
+
+        long[][] vendidas = new long[HILOS][MOTOS];
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Thread> lista = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            final long[] mias = vendidas[h];
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                try { salida.await(); } catch (InterruptedException e) { return; }
+                for (int n = 0; n < VENTAS_POR_HILO; n++) {
+                    // selección de 1 a 3 motos, con repetidos (varias unidades)
+                    List<Moto> sel = new ArrayList<>();
+                    int[] idx = new int[1 + r.nextInt(3)];
+                    for (int k = 0; k < idx.length; k++) {
+                        idx[k] = r.nextInt(MOTOS);
+                        sel.add(motos.get(idx[k]));
+                    }
+                    if (datos.descontarStock(sel)) {
+                        for (int k : idx) mias[k]++;
+                        datos.addVenta(new Venta(cliente, sel));
+                    }
+                }
+            });
+            lista.add(t);
+            t.start();
+        }
+        salida.countDown();
+        for (Thread t : lista) t.join();
+
+        long totalVendidas = 0;
+        for (int i = 0; i < MOTOS; i++) {
+            long vendidasMoto = 0;
+            for (long[] mias : vendidas) vendidasMoto += mias[i];
+            Moto m = motos.get(i);
+            assertTrue(m.getStock() >= 0, "stock negativo");
+            assertEquals(STOCK_INICIAL, m.getStock() + vendidasMoto, "unidades perdidas o vendidas de más");
+            totalVendidas += vendidasMoto;
+        }
+        assertEquals(totalVendidas, datos.unidadesVendidas());
+    }
+
+    @Test
+    public void seleccionesSolapadasNoFallanPorDescuentosAjenos() throws InterruptedException {
+        DatosConcurrentes datos = new DatosConcurrentes();
+        List<Moto> comunes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) comunes.add(new Moto("Honda", "C" + i, 1000, 1));
+        Moto conStock = new Moto("Yamaha", "XSR700", 8799.99, 1);
+        Moto agotada = new Moto("Ducati", "Monster", 11000, 0);
+        List<Moto> posible = new ArrayList<>(comunes);
+        posible.add(conStock);
+        List<Moto> imposible = new ArrayList<>(comunes);     // alguna común va antes que la agotada
+        imposible.add(agotada);
+
+        AtomicBoolean fin = new AtomicBoolean();
+        AtomicInteger descontadasDeMas = new AtomicInteger();
+        Thread otro = new Thread(() -> {
+            while (!fin.get()) if (datos.descontarStock(imposible)) descontadasDeMas.incrementAndGet();
+        });
+        otro.start();
+        try {
+            for (int n = 0; n < 200_000; n++) {
+                assertTrue(datos.descontarStock(posible), "falta de stock aparente en el intento " + n);
+                for (Moto m : posible) m.anadirStock(1);
+            }
+        } finally {
+            fin.set(true);
+            otro.join();
+        }
+        assertEquals(0, descontadasDeMas.get());
+        for (Moto m : posible) assertEquals(1, m.getStock());
+        assertEquals(0, agotada.getStock());
+    }
+
+    @Test
+    public void ventasYReservasDeUnaMotoNoFallanPorDescuentosAjenos() throws InterruptedException {
+        DatosConcurrentes datos = new DatosConcurrentes();
+        List<Moto> comunes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) comunes.add(new Moto("Honda", "C" + i, 1000, 1));
+        Moto agotada = new Moto("Ducati", "Monster", 11000, 0);
+        List<Moto> imposible = new ArrayList<>(comunes);
+        imposible.add(agotada);
+
+        AtomicBoolean fin = new AtomicBoolean();
+        AtomicInteger descontadasDeMas = new AtomicInteger();
+        Thread otro = new Thread(() -> {
+            while (!fin.get()) if (datos.descontarStock(imposible)) descontadasDeMas.incrementAndGet();
+        });
+        otro.start();
+        try {
+            for (int n = 0; n < 200_000; n++) {
+                Moto m = comunes.get(n % comunes.size());
+                assertTrue(datos.descontarStock(List.of(m)), "falta de stock aparente en el intento " + n);
+                m.anadirStock(1);
+                Reserva r = datos.reservar(m, 1);
+                assertNotNull(r, "reserva rechazada en el intento " + n);
+                assertTrue(datos.cancelarReserva(r));
+            }
+        } finally {
+            fin.set(true);
+            otro.join();
+        }
+        assertEquals(0, descontadasDeMas.get());
+        for (Moto m : comunes) assertEquals(1, m.getStock());
+    }
+
+    @Test
+    public void lotesYVentasSueltasConcurrentesNoVendenDeMas() throws InterruptedException {
+        DatosConcurrentes datos = new DatosConcurrentes();
+        Moto m = new Moto("Honda", "CL500", 6790.00, 5_000);
+        datos.addMoto(m);
+        Cliente cliente = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        datos.addCliente(cliente);
+
+        Thread sueltas = new Thread(() -> {
+            for (int n = 0; n < 4_000; n++) {
+                if (datos.descontarStock(List.of(m))) datos.addVenta(new Venta(cliente, List.of(m)));
+            }
+        });
+        sueltas.start();
+        List<PeticionVenta> lote = new ArrayList<>();
+        for (int i = 0; i < 100; i++) lote.add(new PeticionVenta(cliente, List.of(m, m)));
+        for (int n = 0; n < 40; n++) datos.registrarVentas(lote);
+        sueltas.join();
+
+        assertTrue(m.getStock() >= 0, "stock negativo");
+        assertEquals(5_000, m.getStock() + datos.unidadesVendidas());
+    }
+
+    @Test
+    public void reservasConcurrentesNoAPartanMasDeLoQueHay() throws InterruptedException {
+        DatosConcurrentes datos = new DatosConcurrentes();
+        Moto m = new Moto("Honda", "CL500", 6790.00, 1_000);
+        datos.addMoto(m);
+        Cliente cliente = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        datos.addCliente(cliente);
+
+        AtomicLong vendidas = new AtomicLong();
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Thread> lista = new ArrayList<>();
+        for (int h = 0; h < 4; h++) {
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                try { salida.await(); } catch (InterruptedException e) { return; }
+                for (int n = 0; n < 2_000; n++) {
+                    int unidades = 1 + r.nextInt(3);
+                    Reserva res = datos.reservar(m, unidades);
+                    if (res == null) continue;
+                    if (r.nextBoolean()) datos.cancelarReserva(res);
+                    else if (datos.confirmarReservas(cliente, List.of(res)) != null) vendidas.addAndGet(unidades);
+                }
+            });
+            lista.add(t);
+            t.start();
+        }
+        salida.countDown();
+        for (Thread t : lista) t.join();
+
+        assertEquals(0, datos.unidadesReservadas(m));
+        assertEquals(1_000, m.getStock() + vendidas.get());
+        assertEquals(vendidas.get(), datos.unidadesVendidas());
+    }
+}
@@ -0,0 +1,157 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+public class DatosParticionadosTest {
+
+    /** Carga los mismos clientes, motos y ventas en un Datos normal y en uno particionado. */
+    private static void cargar(Datos unico, DatosParticionados particionado, int clientes, int ventas) {
+        Random r = new Random(7);
+        List<Moto> motos = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Moto m = new Moto("Marca" + (i % 5), "M" + i, 1000 + i * 100, 1000);
+            motos.add(m);
+            unico.addMoto(m);
+            particionado.addMoto(m);
+        }
+        List<Cliente> lista = new ArrayList<>();
+        for (int i = 0; i < clientes; i++) {
+            Cliente c = new Cliente("Nombre" + r.nextInt(clientes / 2), i + "Z", "600", "c@ex.com");
+            lista.add(c);
+            assertTrue(unico.addCliente(c));
+            assertTrue(particionado.addCliente(c));
+        }
+        for (int i = 0; i < ventas; i++) {
+            List<Moto> sel = List.of(motos.get(r.nextInt(motos.size())), motos.get(r.nextInt(motos.size())));
+            Venta v = new Venta(lista.get(r.nextInt(lista.size())), sel, LocalDate.of(2024, 1, 1).plusDays(r.nextInt(700)));
+            unico.addVenta(v);
+            particionado.addVenta(v);
+        }
+    }
+
+    @Test
+    public void lasConsultasCoincidenConLasDeUnSoloDatos() {
+        Datos unico = new Datos();
+        try (DatosParticionados p = new DatosParticionados(4)) {
+            cargar(unico, p, 500, 3000);
+            LocalDate desde = LocalDate.of(2024, 3, 10);
+            LocalDate hasta = LocalDate.of(2025, 2, 3);
+
+            assertEquals(unico.totalVentasCentimos(), p.totalVentasCentimos());
+            assertEquals(unico.unidadesVendidas(), p.unidadesVendidas());
+            assertEquals(3000, p.numVentas());
+            assertEquals(500, p.numClientes());
+            assertEquals(unico.resumenVentasEntre(desde, hasta), p.resumenVentasEntre(desde, hasta));
+            assertArrayEquals(unico.unidadesPorMoto(desde, hasta), p.unidadesPorMoto(desde, hasta));
+            assertEquals(unico.totalesPorClienteCentimos(desde, hasta), p.totalesPorClienteCentimos(desde, hasta));
+            assertEquals(unico.ventasEntre(desde, hasta).size(), p.ventasEntre(desde, hasta).size());
+            List<Venta> porFecha = p.ventasEntre(desde, hasta);
+            for (int i = 1; i < porFecha.size(); i++) assertFalse(porFecha.get(i).getFecha().isBefore(porFecha.get(i - 1).getFecha()));
+
+            List<Cliente> ordenados = p.clientesOrdenadosPorNombre();
+            assertEquals(unico.clientesOrdenadosPorNombre().stream().map(Cliente::getNombre).toList(),
+                    ordenados.stream().map(Cliente::getNombre).toList());
+
+            assertEquals(unico.mejoresClientes(10).stream().map(Puesto::getValor).toList(),
+                    p.mejoresClientes(10).stream().map(Puesto::getValor).toList());
+            assertEquals(unico.motosMasVendidas(5).stream().map(Puesto::getValor).toList(),
+                    p.motosMasVendidas(5).stream().map(Puesto::getValor).toList());
+
+            assertEquals(unico.ventasPorDni("17z"), p.ventasPorDni("17z"));
+            assertEquals(unico.totalVentasClienteCentimos("17Z"), p.totalVentasClienteCentimos("17Z"));
+            assertEquals(unico.buscarMotosPorTexto("m1"), p.buscarMotosPorTexto("m1"));
+            assertFalse(p.addCliente(new Cliente("Otro", "17z", "600", "o@ex.com")));
+        }
+    }
+
+    @Test
+    public void losClientesSeRepartenYElStockEsComun() {
+        try (DatosParticionados p = new DatosParticionados(8)) {
+            int[] porParticion = new int[8];
+            for (int i = 0; i < 1000; i++) porParticion[p.particion(i + "A")]++;
+            for (int n : porParticion) assertTrue(n > 60, "reparto desigual: " + n);
+            assertEquals(p.particion("12345678a"), p.particion("12345678A"));
+
+            Moto m = new Moto("Honda", "CL500", 6790.00, 2);
+            p.addMoto(m);
+            assertTrue(p.descontarStock(List.of(m, m)));
+            assertFalse(p.descontarStock(List.of(m)));
+            assertTrue(p.reponerStockPorIndice(0, 3));
+            assertEquals(3, m.getStock());
+            assertSame(m, p.buscarMotoPorIndice(0));
+        }
+    }
+
+    @Test
+    public void ventasDesdeVariosHilos() throws InterruptedException {
+        try (DatosParticionados p = new DatosParticionados(4)) {
+            Moto m = new Moto("Yamaha", "XSR700", 8799.99, 100_000);
+            p.addMoto(m);
+            int hilos = 4;
+            int porHilo = 2000;
+            Thread[] ts = new Thread[hilos];
+            for (int h = 0; h < hilos; h++) {
+                int base = h * porHilo;
+                ts[h] = new Thread(() -> {
+                    for (int i = base; i < base + porHilo; i++) {
+                        Cliente c = new Cliente("C" + i, i + "H", "600", "c@ex.com");
+                        p.addCliente(c);
+                        if (p.descontarStock(List.of(m))) p.addVenta(new Venta(c, List.of(m), LocalDate.of(2025, 1, 1)));
+                    }
+                });
+                ts[h].start();
+            }
+            for (Thread t : ts) t.join();
+            assertEquals(hilos * porHilo, p.numVentas());
+            assertEquals(100_000 - hilos * porHilo, m.getStock());
+            assertEquals(hilos * porHilo * 879999L, p.totalVentasCentimos());
+            assertEquals(1, p.ventasPorDni("123H").size());
+        }
+    }
+
+    @Test
+    public void seleccionesSolapadasEnParticionesDistintasNoFallanPorDescuentosAjenos() throws InterruptedException {
+        try (DatosParticionados p = new DatosParticionados(4)) {
+            List<Moto> comunes = new ArrayList<>();
+            for (int i = 0; i < 8; i++) comunes.add(new Moto("Honda", "C" + i, 1000, 1));
+            Moto conStock = new Moto("Yamaha", "XSR700", 8799.99, 1);
+            Moto agotada = new Moto("Ducati", "Monster", 11000, 0);
+            for (Moto m : comunes) p.addMoto(m);
+            p.addMoto(conStock);
+            p.addMoto(agotada);
+            List<Moto> posible = new ArrayList<>(comunes);
+            posible.add(conStock);
+            List<Moto> imposible = new ArrayList<>(comunes);
+            imposible.add(agotada);
+
+            AtomicBoolean fin = new AtomicBoolean();
+            AtomicInteger descontadasDeMas = new AtomicInteger();
+            Thread otro = new Thread(() -> {
+                while (!fin.get()) if (p.descontarStock(imposible)) descontadasDeMas.incrementAndGet();
+            });
+            otro.start();
+            try {
+                for (int n = 0; n < 200_000; n++) {
+                    assertTrue(p.descontarStock(posible), "falta de stock aparente en el intento " + n);
+                    for (Moto m : posible) m.anadirStock(1);
+                }
+            } finally {
+                fin.set(true);
+                otro.join();
+            }
+            assertEquals(0, descontadasDeMas.get());
+            for (Moto m : posible) assertEquals(1, m.getStock());
+        }
+    }
+}
@@ -7,6 +7,8 @@ import java.util.ArrayList;
 
 import concesionario.modelo.Cliente;
 import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+import java.util.List;
 
 public class DatosTest {
 
@@ -36,6 +38,110 @@ public class DatosTest {
         assertFalse(ok);
     }
 
+    @Test
+    public void removeClientePorDniEliminaYDejaLibreElDni() {
+        datos.addCliente(new Cliente("Carlos", "22222222B", "600", "c@ex.com"));
+        assertTrue(datos.removeClientePorDni("11111111a"));
+        assertFalse(datos.removeClientePorDni("11111111A"));
+        assertEquals("Carlos", datos.getClientes().get(0).getNombre());
+        assertTrue(datos.addCliente(new Cliente("Ana", "11111111A", "600", "ana@ex.com")));
+    }
+
+    @Test
+    public void removeClienteSinVentasConservaLosQueTienenVentas() {
+        Cliente carlos = new Cliente("Carlos", "22222222B", "600", "c@ex.com");
+        datos.addCliente(carlos);
+        datos.addVenta(new Venta(carlos, List.of(cl500)));
+        assertEquals(Datos.Baja.CON_VENTAS, datos.removeClienteSinVentas("22222222b"));
+        assertNotNull(datos.buscarClientePorDni("22222222B"));
+        assertEquals(Datos.Baja.ELIMINADO, datos.removeClienteSinVentas("11111111a"));
+        assertEquals(Datos.Baja.NO_EXISTE, datos.removeClienteSinVentas("11111111A"));
+        assertEquals(Datos.Baja.NO_EXISTE, datos.removeClienteSinVentas(null));
+    }
+
+    @Test
+    public void buscarMotoPorIndiceEIndiceMotoSonInversos() {
+        assertSame(xsr700, datos.buscarMotoPorIndice(1));
+        assertEquals(1, datos.indiceMoto(xsr700));
+        assertNull(datos.buscarMotoPorIndice(2));
+        assertEquals(-1, datos.indiceMoto(new Moto("Otra", "X", 1, 1)));
+    }
+
+    @Test
+    public void buscarClientePorDniIgnoraMayusculas() {
+        assertEquals("Ana", datos.buscarClientePorDni("11111111a").getNombre());
+    }
+
+    @Test
+    public void removeClienteLiberaElDni() {
+        datos.removeClientePorIndice(0);
+        assertNull(datos.buscarClientePorDni("11111111A"));
+        assertTrue(datos.addCliente(new Cliente("Ana Nueva", "11111111a", "600", "ana2@ex.com")));
+    }
+
+    @Test
+    public void cambiosEnListaVivaActualizanIndice() {
+        datos.getClientes().add(new Cliente("Eva", "33333333C", "600", "eva@ex.com"));
+        datos.getClientes().remove(0);
+        assertNotNull(datos.buscarClientePorDni("33333333C"));
+        assertNull(datos.buscarClientePorDni("11111111A"));
+        assertFalse(datos.addCliente(new Cliente("Eva Dup", "33333333c", "600", "dup@ex.com")));
+    }
+
+    @Test
+    public void ventasPorDniSoloDevuelveLasDelCliente() {
+        Cliente carlos = new Cliente("Carlos", "22222222B", "600", "c@ex.com");
+        datos.addCliente(carlos);
+        datos.addVenta(new Venta(datos.buscarClientePorDni("11111111A"), List.of(cl500)));
+        datos.addVenta(new Venta(carlos, List.of(xsr700)));
+        datos.addVenta(new Venta(carlos, List.of(cl500, cl500)));
+        assertEquals(2, datos.ventasPorDni("22222222b").size());
+        assertEquals(1, datos.ventasPorDni("11111111A").size());
+    }
+
+    @Test
+    public void tieneVentasSoloTrasRegistrarUna() {
+        assertFalse(datos.tieneVentas("11111111A"));
+        datos.addVenta(new Venta(datos.buscarClientePorDni("11111111A"), List.of(cl500)));
+        assertTrue(datos.tieneVentas("11111111a"));
+        datos.getVentas().clear();
+        assertFalse(datos.tieneVentas("11111111A"));
+    }
+
+    @Test
+    public void totalesSeAcumulanAlRegistrarVentas() {
+        Cliente ana = datos.buscarClientePorDni("11111111A");
+        datos.addVenta(new Venta(ana, List.of(cl500, xsr700)));
+        datos.addVenta(new Venta(ana, List.of(cl500)));
+        assertEquals(6790.00 * 2 + 8799.99, datos.totalVentas(), 0.001);
+        assertEquals(6790.00 * 2 + 8799.99, datos.totalVentasCliente("11111111a"), 0.001);
+        assertEquals(3, datos.unidadesVendidasCliente("11111111A"));
+        assertEquals(0, datos.unidadesVendidasCliente("99999999Z"));
+    }
+
+    @Test
+    public void totalesSeRecalculanSiCambiaLaListaViva() {
+        Cliente ana = datos.buscarClientePorDni("11111111A");
+        datos.addVenta(new Venta(ana, List.of(cl500)));
+        datos.addVenta(new Venta(ana, List.of(xsr700)));
+        datos.getVentas().remove(0);
+        assertEquals(8799.99, datos.totalVentas(), 0.001);
+        assertEquals(1, datos.unidadesVendidas());
+    }
+
+    @Test
+    public void buscarMotosPorTextoIgnoraMayusculas() {
+        assertEquals(List.of(xsr700), datos.buscarMotosPorTexto("xsr"));
+        assertEquals(List.of(cl500, xsr700), datos.buscarMotosPorTexto("0"));
+    }
+
+    @Test
+    public void buscarMotosVeLasAnadidasALaListaViva() {
+        Moto scram = new Moto("Royal Enfield", "Scram 411", 5490.00, 6);
+        datos.getMotos().add(0, scram);
+        assertEquals(List.of(scram), datos.buscarMotosPorTexto("enfield"));
+    }
+
     @Test
     public void descontarStockSuficienteDevuelveTrue() {
         var sel = new ArrayList<Moto>();
@@ -73,4 +179,286 @@ public class DatosTest {
         datos.descontarStock(sel);
         assertEquals(2, xsr700.getStock()); // debe permanecer igual
     }
+
+    @Test
+    public void registrarVentasRechazaLasQueNoCabenEnElLote() {
+        Cliente ana = datos.buscarClientePorDni("11111111A");
+        List<ResultadoVenta> res = datos.registrarVentas(List.of(
+                new PeticionVenta(ana, List.of(xsr700)),
+                new PeticionVenta(ana, List.of(xsr700, xsr700, cl500)),   // solo queda 1 XSR700
+                new PeticionVenta(null, List.of(cl500)),
+                new PeticionVenta(ana, List.of(xsr700, cl500))));
+
+        assertEquals(ResultadoVenta.Estado.REGISTRADA, res.get(0).getEstado());
+        assertEquals(ResultadoVenta.Estado.SIN_STOCK, res.get(1).getEstado());
+        assertEquals(ResultadoVenta.Estado.NO_VALIDA, res.get(2).getEstado());
+        assertTrue(res.get(3).isRegistrada());
+        assertEquals(0, xsr700.getStock());
+        assertEquals(2, cl500.getStock());
+        assertEquals(2, datos.getVentas().size());
+        assertSame(res.get(3).getVenta(), datos.ventasPorDni("11111111A").get(1));
+        assertEquals(879999 * 2 + 679000, datos.totalVentasCentimos());
+    }
+
+    @Test
+    public void clientesOrdenadosSeMantienenConAltasBajasYCambiosDeNombre() {
+        datos.addCliente(new Cliente("carlos", "22222222B", "600", "c@ex.com"));
+        datos.addCliente(new Cliente("Beatriz", "33333333C", "600", "b@ex.com"));
+        datos.addCliente(new Cliente("ana", "44444444D", "600", "a2@ex.com"));
+        assertEquals(List.of("Ana", "ana", "Beatriz", "carlos"),
+                datos.clientesOrdenadosPorNombre().stream().map(Cliente::getNombre).toList());
+
+        datos.modificarCliente(datos.buscarClientePorDni("11111111A"), "Zoe", null, null);
+        datos.removeClientePorDni("33333333C");
+        assertEquals(List.of("ana", "carlos", "Zoe"),
+                datos.clientesOrdenadosPorNombre().stream().map(Cliente::getNombre).toList());
+
+        datos.getClientes().add(0, new Cliente("Bruno", "55555555E", "600", "b@ex.com"));   // lista viva
+        assertEquals(List.of("ana", "Bruno", "carlos", "Zoe"),
+                datos.clientesOrdenadosPorNombre().stream().map(Cliente::getNombre).toList());
+    }
+
+    @Test
+    public void cursorSigueSiendoValidoTrasReconstruirElOrden() {
+        datos.addCliente(new Cliente("Eva", "22222222B", "600", "e1@ex.com"));
+        datos.addCliente(new Cliente("Eva", "33333333C", "600", "e2@ex.com"));
+        Pagina<Cliente> primera = datos.paginaClientesPorNombre(null, 2);
+        assertEquals(List.of("11111111A", "22222222B"), primera.getElementos().stream().map(Cliente::getDni).toList());
+
+        datos.getClientes().remove(1);                  // lista viva: el orden se reconstruye
+        assertEquals(List.of("33333333C"),
+                datos.paginaClientesPorNombre(primera.getSiguiente(), 2).getElementos().stream().map(Cliente::getDni).toList());
+    }
+
+    @Test
+    public void motosOrdenadasPorMarcaYModelo() {
+        Moto cb = new Moto("honda", "CB650R", 8000, 1);
+        datos.addMoto(cb);
+        assertEquals(List.of(cb, cl500, xsr700), datos.motosOrdenadasPorMarca());
+    }
+
+    @Test
+    public void paginasConCursoresHaciaDelanteYAtras() {
+        for (int i = 0; i < 9; i++) datos.addCliente(new Cliente("C" + i, i + "X", "600", "c@ex.com"));
+        // orden: Ana, C0 .. C8
+
+        Pagina<Cliente> p1 = datos.paginaClientesPorNombre(null, 4);
+        assertEquals(List.of("Ana", "C0", "C1", "C2"), p1.getElementos().stream().map(Cliente::getNombre).toList());
+        assertFalse(p1.hayAnterior());
+
+        datos.removeClientePorDni("3X");                          // el cursor sigue siendo válido
+        Pagina<Cliente> p2 = datos.paginaClientesPorNombre(p1.getSiguiente(), 4);
+        assertEquals(List.of("C4", "C5", "C6", "C7"), p2.getElementos().stream().map(Cliente::getNombre).toList());
+        Pagina<Cliente> p3 = datos.paginaClientesPorNombre(p2.getSiguiente(), 4);
+        assertEquals(List.of("C8"), p3.getElementos().stream().map(Cliente::getNombre).toList());
+        assertFalse(p3.haySiguiente());
+
+        Pagina<Cliente> atras = datos.paginaClientesPorNombre(p3.getAnterior(), 4);
+        assertEquals(p2.getElementos(), atras.getElementos());
+        Pagina<Cliente> inicio = datos.paginaClientesPorNombre(atras.getAnterior(), 4);
+        assertEquals(List.of("Ana", "C0", "C1", "C2"), inicio.getElementos().stream().map(Cliente::getNombre).toList());
+
+        Pagina<Cliente> c5 = datos.paginaClientesPorNombre(Cursor.desde("c5"), 2);
+        assertEquals(List.of("C5", "C6"), c5.getElementos().stream().map(Cliente::getNombre).toList());
+        assertThrows(IllegalArgumentException.class, () -> datos.paginaClientesPorNombre(null, 0));
+    }
+
+    @Test
+    public void paginasPorPosicion() {
+        for (int i = 0; i < 6; i++) datos.addCliente(new Cliente("C" + i, i + "X", "600", "c@ex.com"));
+        // clientes: Ana, C0 .. C5
+
+        Pagina<Cliente> p1 = datos.paginaClientes(null, 3);
+        assertEquals(datos.getClientes().subList(0, 3), p1.getElementos());
+        Pagina<Cliente> p2 = datos.paginaClientes(p1.getSiguiente(), 3);
+        assertEquals(datos.getClientes().subList(3, 6), p2.getElementos());
+        Pagina<Cliente> p3 = datos.paginaClientes(p2.getSiguiente(), 3);
+        assertEquals(List.of("C5"), p3.getElementos().stream().map(Cliente::getNombre).toList());
+        assertFalse(p3.haySiguiente());
+        assertEquals(p2.getElementos(), datos.paginaClientes(p3.getAnterior(), 3).getElementos());
+        assertEquals(p1.getElementos(), datos.paginaClientes(p2.getAnterior(), 5).getElementos().subList(0, 3));
+
+        assertTrue(datos.paginaVentas(null, 10).getElementos().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> datos.paginaClientes(Cursor.desde("c"), 3));
+        assertThrows(IllegalArgumentException.class, () -> datos.paginaClientesPorNombre(p1.getSiguiente(), 3));
+    }
+
+    @Test
+    public void consultasPorFechasIgualesConYSinAlmacenColumnar() {
+        Datos columnar = new Datos();
+        columnar.setAlmacenColumnar(true);
+        Datos objetos = new Datos();
+        java.util.Random r = new java.util.Random(7);
+        List<Moto> catalogo = new ArrayList<>();
+        for (int i = 0; i < 5; i++) catalogo.add(new Moto("M" + i, "X", 1000 + i * 250.5, 1000));
+        List<Cliente> cs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) cs.add(new Cliente("C" + i, i + "Z", "600", "c@ex.com"));
+        for (Datos d : List.of(columnar, objetos)) {
+            catalogo.forEach(d::addMoto);
+            cs.forEach(d::addCliente);
+        }
+        java.time.LocalDate inicio = java.time.LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 3000; i++) {
+            List<Moto> sel = List.of(catalogo.get(r.nextInt(5)), catalogo.get(r.nextInt(5)));
+            Venta v = new Venta(cs.get(r.nextInt(cs.size())), sel, inicio.plusDays(r.nextInt(365)));
+            columnar.addVenta(v);
+            objetos.addVenta(v);
+        }
+        Datos tarde = new Datos();                                 // activado con ventas ya registradas
+        objetos.getMotos().forEach(tarde::addMoto);
+        objetos.getVentas().forEach(tarde::addVenta);
+        tarde.setAlmacenColumnar(true);
+
+        java.time.LocalDate desde = inicio.plusDays(40);
+        java.time.LocalDate hasta = inicio.plusDays(100);
+        for (Datos d : List.of(columnar, tarde)) {
+            assertTrue(d.isAlmacenColumnar());
+            assertEquals(objetos.totalVentasCentimos(), d.totalVentasEntreCentimos(null, null));
+            assertEquals(objetos.totalVentasEntreCentimos(desde, hasta), d.totalVentasEntreCentimos(desde, hasta));
+            assertEquals(objetos.totalVentasEntreCentimos(null, hasta), d.totalVentasEntreCentimos(null, hasta));
+            assertArrayEquals(objetos.totalesPorDiaCentimos(desde, hasta), d.totalesPorDiaCentimos(desde, hasta));
+            assertEquals(objetos.totalesPorClienteCentimos(desde, hasta), d.totalesPorClienteCentimos(desde, hasta));
+            assertArrayEquals(objetos.unidadesPorMoto(desde, null), d.unidadesPorMoto(desde, null));
+        }
+        assertEquals(6000, java.util.Arrays.stream(columnar.unidadesPorMoto(null, null)).sum());
+        long dia40 = objetos.totalesPorDiaCentimos(desde, hasta)[0];
+        assertEquals(dia40, objetos.totalVentasEntreCentimos(desde, desde));
+        assertThrows(IllegalArgumentException.class, () -> columnar.totalesPorDiaCentimos(hasta, desde));
+
+        columnar.getVentas().remove(0);                            // la lista viva invalida también las columnas
+        assertEquals(objetos.totalVentasCentimos() - objetos.getVentas().get(0).getImporteCentimos(),
+                columnar.totalVentasEntreCentimos(null, null));
+    }
+
+    @Test
+    public void busquedasYOrdenNoDistinguenAcentos() {
+        Moto cafe = new Moto("Ducati", "Scrambler Café", 11990.00, 1);
+        datos.addMoto(cafe);
+        assertEquals(List.of(cafe), datos.buscarMotosPorTexto("cafe"));
+        assertEquals(List.of(cafe), datos.buscarMotosPorTexto("CAFÉ"));
+
+        datos.addCliente(new Cliente("Álvaro", "22222222B", "600", "al@ex.com"));
+        datos.addCliente(new Cliente("Beatriz", "33333333C", "600", "be@ex.com"));
+        assertEquals(List.of("Álvaro", "Ana", "Beatriz"),
+                datos.clientesOrdenadosPorNombre().stream().map(Cliente::getNombre).toList());
+
+        datos.modificarCliente(datos.buscarClientePorDni("33333333c"), "Alba", null, null);   // la clave sigue al nombre
+        assertEquals(List.of("Alba", "Álvaro", "Ana"),
+                datos.clientesOrdenadosPorNombre().stream().map(Cliente::getNombre).toList());
+    }
+
+    @Test
+    public void resumenesPorFechasCoincidenConElRecorridoCompleto() {
+        java.util.Random r = new java.util.Random(3);
+        java.time.LocalDate inicio = java.time.LocalDate.of(2020, 1, 1);
+        Cliente ana = datos.buscarClientePorDni("11111111A");
+        for (int i = 0; i < 2000; i++) {
+            List<Moto> sel = r.nextBoolean() ? List.of(cl500) : List.of(cl500, xsr700);
+            datos.addVenta(new Venta(ana, sel, inicio.plusDays(r.nextInt(1500))));
+        }
+        datos.addVenta(new Venta(ana, List.of(xsr700), null));     // sin fecha
+
+        for (int k = 0; k < 200; k++) {
+            java.time.LocalDate desde = inicio.plusDays(r.nextInt(1600) - 50);
+            java.time.LocalDate hasta = desde.plusDays(r.nextInt(400));
+            long importe = 0, unidades = 0, n = 0;
+            for (Venta v : datos.getVentas()) {
+                if (v.getFecha() == null || v.getFecha().isBefore(desde) || v.getFecha().isAfter(hasta)) continue;
+                importe += v.getImporteCentimos();
+                unidades += v.getMotos().size();
+                n++;
+            }
+            Resumen res = datos.resumenVentasEntre(desde, hasta);
+            assertEquals(importe, res.getImporteCentimos(), desde + " - " + hasta);
+            assertEquals(unidades, res.getUnidades());
+            assertEquals(n, res.getVentas());
+            assertEquals(n, datos.ventasEntre(desde, hasta).size());
+        }
+
+        assertEquals(datos.totalVentasCentimos(), datos.totalVentasEntreCentimos(null, null));
+        assertEquals(datos.getVentas().size() - 1, datos.ventasEntre(null, null).size());
+        List<Venta> enOrden = datos.ventasEntre(null, null);
+        for (int i = 1; i < enOrden.size(); i++) assertFalse(enOrden.get(i).getFecha().isBefore(enOrden.get(i - 1).getFecha()));
+
+        var meses = datos.resumenVentasPorMes(java.time.YearMonth.of(2020, 3), java.time.YearMonth.of(2020, 5));
+        assertEquals(List.of(java.time.YearMonth.of(2020, 3), java.time.YearMonth.of(2020, 4), java.time.YearMonth.of(2020, 5)),
+                new ArrayList<>(meses.keySet()));
+        assertEquals(datos.resumenVentasEntre(java.time.LocalDate.of(2020, 4, 1), java.time.LocalDate.of(2020, 4, 30)),
+                meses.get(java.time.YearMonth.of(2020, 4)));
+    }
+
+    @Test
+    public void clasificacionesCoincidenConElRecuentoCompleto() {
+        java.util.Random r = new java.util.Random(8);
+        java.time.LocalDate inicio = java.time.LocalDate.of(2023, 1, 1);
+        Moto[] catalogo = new Moto[20];
+        for (int i = 0; i < catalogo.length; i++) {
+            catalogo[i] = new Moto("Marca" + i, "M" + i, 1000 + i, 1000);
+            datos.addMoto(catalogo[i]);
+        }
+        Cliente[] clientes = new Cliente[30];
+        for (int i = 0; i < clientes.length; i++) {
+            clientes[i] = new Cliente("C" + i, i + "Z", "600", "c@ex.com");
+            datos.addCliente(clientes[i]);
+        }
+        for (int i = 0; i < 3000; i++) {
+            List<Moto> sel = new ArrayList<>();
+            for (int k = 1 + r.nextInt(3); k > 0; k--) sel.add(catalogo[r.nextInt(Math.min(catalogo.length, 1 + r.nextInt(catalogo.length)))]);
+            datos.addVenta(new Venta(clientes[r.nextInt(clientes.length)], sel, inicio.plusDays(r.nextInt(365))));
+        }
+        datos.setVentanaClasificacion(30);
+
+        java.util.Map<Moto, Long> unidades = new java.util.IdentityHashMap<>();
+        java.util.Map<Moto, Long> unidadesRecientes = new java.util.IdentityHashMap<>();
+        java.time.LocalDate ultimo = datos.getVentas().stream().map(Venta::getFecha).max(java.util.Comparator.naturalOrder()).get();
+        datos.setHoyVentana(() -> ultimo);         // la ventana termina en la última venta
+        for (Venta v : datos.getVentas()) {
+            for (Moto m : v.getMotos()) {
+                unidades.merge(m, 1L, Long::sum);
+                if (v.getFecha().isAfter(ultimo.minusDays(30))) unidadesRecientes.merge(m, 1L, Long::sum);
+            }
+        }
+        List<Puesto<Moto>> top = datos.motosMasVendidas(5);
+        assertEquals(5, top.size());
+        long maximo = unidades.values().stream().mapToLong(Long::longValue).max().getAsLong();
+        assertEquals(maximo, top.get(0).getValor());
+        for (Puesto<Moto> p : top) assertEquals(unidades.get(p.getElemento()), p.getValor());
+        for (int i = 1; i < top.size(); i++) assertTrue(top.get(i - 1).getValor() >= top.get(i).getValor());
+        for (Puesto<Moto> p : datos.motosMasVendidasRecientes(50)) assertEquals(unidadesRecientes.get(p.getElemento()), p.getValor());
+        assertEquals(unidadesRecientes.size(), datos.motosMasVendidasRecientes(50).size());
+
+        List<Puesto<Cliente>> mejores = datos.mejoresClientes(3);
+        for (Puesto<Cliente> p : mejores) assertEquals(datos.totalVentasClienteCentimos(p.getElemento().getDni()), p.getValor());
+        long mayorGasto = 0;
+        for (Cliente c : clientes) mayorGasto = Math.max(mayorGasto, datos.totalVentasClienteCentimos(c.getDni()));
+        assertEquals(mayorGasto, mejores.get(0).getValor());
+
+        // al quitar una venta desde la lista viva las clasificaciones se recalculan
+        Venta quitada = datos.getVentas().remove(0);
+        long antes = unidades.get(quitada.getMotos().get(0));
+        long despues = datos.motosMasVendidas(50).stream()
+                .filter(p -> p.getElemento() == quitada.getMotos().get(0)).findFirst().get().getValor();
+        assertTrue(despues < antes);
+
+        datos.setVentanaClasificacion(0);
+        assertThrows(IllegalStateException.class, () -> datos.mejoresClientesRecientes(3));
+    }
+
+    @Test
+    public void lasVentasRecientesCaducanAunqueNoHayaVentasNuevas() {
+        java.time.LocalDate[] hoy = { java.time.LocalDate.of(2025, 6, 1) };
+        datos.setHoyVentana(() -> hoy[0]);
+        datos.setVentanaClasificacion(7);
+        Cliente ana = datos.buscarClientePorDni("11111111A");
+        datos.addVenta(new Venta(ana, List.of(cl500, xsr700), hoy[0].minusDays(2)));
+        datos.addVenta(new Venta(ana, List.of(cl500), hoy[0].minusDays(30)));        // ya fuera de la ventana
+        assertEquals(2, datos.motosMasVendidasRecientes(5).size());
+        assertEquals(1, datos.motosMasVendidasRecientes(5).get(0).getValor());
+        assertEquals(1, datos.mejoresClientesRecientes(5).size());
+
+        hoy[0] = hoy[0].plusDays(5);
+        assertTrue(datos.motosMasVendidasRecientes(5).isEmpty());
+        assertTrue(datos.mejoresClientesRecientes(5).isEmpty());
+        assertEquals(3, datos.motosMasVendidas(5).stream().mapToLong(Puesto::getValor).sum());
+    }
 }
@@ -0,0 +1,186 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+public class DiarioTest {
+
+    @TempDir
+    Path dir;
+
+    /** Aplica una serie de operaciones sobre un Datos con diario. */
+    private static void operar(Datos datos) {
+        Cliente ana = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        datos.addCliente(ana);
+        datos.addCliente(new Cliente("Carlos", "22222222B", "611", "c@ex.com"));
+        Moto cl500 = new Moto("Honda", "CL500", 6790.00, 3);
+        Moto xsr = new Moto("Yamaha", "XSR700", 8799.99, 2);
+        datos.addMoto(cl500);
+        datos.addMoto(xsr);
+        List<Moto> sel = List.of(cl500, cl500, xsr);
+        assertTrue(datos.descontarStock(sel));
+        datos.addVenta(new Venta(ana, sel, LocalDate.of(2025, 3, 14)));
+        datos.reponerStockPorIndice(1, 5);
+        datos.modificarCliente(ana, "Ana López", "", null);
+        datos.removeClientePorIndice(1);
+    }
+
+    @Test
+    public void reproducirReconstruyeElEstado() throws IOException {
+        Path fichero = dir.resolve("datos.diario");
+        try (Diario diario = Diario.abrir(fichero)) {
+            Datos datos = new Datos();
+            datos.setDiario(diario);
+            operar(datos);
+            assertEquals(9, diario.ultimoLsn());
+        }
+
+        Datos recuperado = new Datos();
+        try (Diario diario = Diario.abrir(fichero)) {
+            assertEquals(9, diario.reproducir(recuperado));
+        }
+        assertEquals(1, recuperado.getClientes().size());
+        Cliente ana = recuperado.buscarClientePorDni("11111111A");
+        assertEquals("Ana López", ana.getNombre());
+        assertEquals("600", ana.getTelefono());
+        assertEquals(1, recuperado.getMotos().get(0).getStock());
+        assertEquals(6, recuperado.getMotos().get(1).getStock());
+        Venta v = recuperado.getVentas().get(0);
+        assertSame(ana, v.getCliente());
+        assertSame(recuperado.getMotos().get(0), v.getMotos().get(0));
+        assertEquals(LocalDate.of(2025, 3, 14), v.getFecha());
+        assertEquals(679000 * 2 + 879999, recuperado.totalVentasCentimos());
+    }
+
+    @Test
+    public void loteDeVentasSeReproduce() throws IOException {
+        Path fichero = dir.resolve("datos.diario");
+        try (Diario diario = Diario.abrir(fichero)) {
+            Datos datos = new DatosConcurrentes();
+            datos.setDiario(diario);
+            Cliente ana = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+            datos.addCliente(ana);
+            Moto cl500 = new Moto("Honda", "CL500", 6790.00, 3);
+            datos.addMoto(cl500);
+            datos.registrarVentas(List.of(
+                    new PeticionVenta(ana, List.of(cl500, cl500), LocalDate.of(2025, 3, 14)),
+                    new PeticionVenta(ana, List.of(cl500, cl500)),
+                    new PeticionVenta(ana, List.of(cl500))));
+            assertEquals(2 + 1 + 2, diario.lsnDurable());     // altas, un descuento y dos ventas
+        }
+
+        Datos recuperado = new Datos();
+        try (Diario diario = Diario.abrir(fichero)) {
+            diario.reproducir(recuperado);
+        }
+        assertEquals(0, recuperado.getMotos().get(0).getStock());
+        assertEquals(2, recuperado.getVentas().size());
+        assertEquals(LocalDate.of(2025, 3, 14), recuperado.getVentas().get(0).getFecha());
+    }
+
+    @Test
+    public void ventaSinFechaSeReproduce() throws IOException {
+        Path fichero = dir.resolve("datos.diario");
+        try (Diario diario = Diario.abrir(fichero)) {
+            Datos datos = new Datos();
+            datos.setDiario(diario);
+            Cliente ana = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+            datos.addCliente(ana);
+            Moto cl500 = new Moto("Honda", "CL500", 6790.00, 3);
+            datos.addMoto(cl500);
+            datos.addVenta(new Venta(ana, List.of(cl500), null));
+            datos.addVenta(new Venta(ana, List.of(cl500), LocalDate.of(2025, 3, 14)));
+            assertEquals(4, diario.ultimoLsn());
+        }
+
+        Datos recuperado = new Datos();
+        try (Diario diario = Diario.abrir(fichero)) {
+            assertEquals(4, diario.reproducir(recuperado));
+        }
+        assertEquals(2, recuperado.getVentas().size());
+        assertNull(recuperado.getVentas().get(0).getFecha());
+        assertEquals(LocalDate.of(2025, 3, 14), recuperado.getVentas().get(1).getFecha());
+        assertEquals(679000, recuperado.totalVentasEntreCentimos(LocalDate.of(2025, 1, 1), null));
+        assertEquals(679000 * 2, recuperado.totalVentasCentimos());
+    }
+
+    @Test
+    public void reproducirNoVuelveAAnotar() throws IOException {
+        Path fichero = dir.resolve("datos.diario");
+        try (Diario diario = Diario.abrir(fichero)) {
+            Datos datos = new Datos();
+            datos.setDiario(diario);
+            operar(datos);
+        }
+        try (Diario diario = Diario.abrir(fichero)) {
+            Datos datos = new Datos();
+            datos.setDiario(diario);
+            diario.reproducir(datos);
+            assertEquals(9, diario.ultimoLsn());
+            assertSame(diario, datos.getDiario());
+        }
+    }
+
+    @Test
+    public void registroCortadoAlFinalSeDescarta() throws IOException {
+        Path fichero = dir.resolve("datos.diario");
+        try (Diario diario = Diario.abrir(fichero, Diario.Durabilidad.ASINCRONA)) {
+            Datos datos = new Datos();
+            datos.setDiario(diario);
+            operar(datos);
+        }
+        long tamano = Files.size(fichero);
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.WRITE)) {
+            canal.truncate(tamano - 3);       // se corta el último registro
+            canal.write(ByteBuffer.wrap(new byte[] {1, 2}), tamano - 3);
+        }
+
+        Datos recuperado = new Datos();
+        try (Diario diario = Diario.abrir(fichero)) {
+            assertEquals(8, diario.reproducir(recuperado));
+            assertEquals(8, diario.ultimoLsn());
+        }
+        assertEquals(2, recuperado.getClientes().size());   // la baja se perdió
+    }
+
+    @Test
+    public void variosHilosCompartenElFsync() throws Exception {
+        Path fichero = dir.resolve("datos.diario");
+        int hilos = 8;
+        int porHilo = 500;
+        try (Diario diario = Diario.abrir(fichero)) {
+            DatosConcurrentes datos = new DatosConcurrentes();
+            datos.setDiario(diario);
+            Thread[] ts = new Thread[hilos];
+            for (int h = 0; h < hilos; h++) {
+                final int base = h * porHilo;
+                ts[h] = new Thread(() -> {
+                    for (int i = 0; i < porHilo; i++) {
+                        datos.addCliente(new Cliente("C" + (base + i), "DNI" + (base + i), "600", "x@ex.com"));
+                    }
+                });
+                ts[h].start();
+            }
+            for (Thread t : ts) t.join();
+            assertEquals(hilos * porHilo, diario.lsnDurable());
+        }
+        Datos recuperado = new Datos();
+        try (Diario diario = Diario.abrir(fichero)) {
+            diario.reproducir(recuperado);
+        }
+        assertEquals(hilos * porHilo, recuperado.getClientes().size());
+    }
+}
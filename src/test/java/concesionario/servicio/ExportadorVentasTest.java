@@ -0,0 +1,122 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.List;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+public class ExportadorVentasTest {
+
+    private static Datos ejemplo() {
+        Datos datos = new Datos();
+        Cliente ana = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        Cliente luis = new Cliente("Luis", "22222222B", "611", "l@ex.com");
+        datos.addCliente(ana);
+        datos.addCliente(luis);
+        Moto cl500 = new Moto("Honda", "CL500", 6790.00, 3);
+        Moto raro = new Moto("Marca \"X\"", "A;B", 10.5, 1);
+        datos.addVenta(new Venta(ana, List.of(cl500, cl500), LocalDate.of(2025, 1, 2)));
+        datos.addVenta(new Venta(luis, List.of(raro), LocalDate.of(2025, 2, 3)));
+        datos.addVenta(new Venta(ana, List.of(cl500), LocalDate.of(2025, 3, 4)));
+        return datos;
+    }
+
+    private static String exportar(ExportadorVentas e) throws IOException {
+        StringWriter out = new StringWriter();
+        e.exportar(out);
+        return out.toString();
+    }
+
+    @Test
+    public void csvConCabeceraYCamposEntrecomillados() throws IOException {
+        String csv = exportar(new ExportadorVentas(ejemplo()));
+        assertEquals("dni;fecha;unidades;importe;lineas\n"
+                + "11111111A;2025-01-02;2;13580.00;Honda CL500:6790.00|Honda CL500:6790.00\n"
+                + "22222222B;2025-02-03;1;10.50;\"Marca \"\"X\"\" A;B:10.50\"\n"
+                + "11111111A;2025-03-04;1;6790.00;Honda CL500:6790.00\n", csv);
+    }
+
+    @Test
+    public void jsonlFiltradoPorClienteYFechas() throws IOException {
+        Datos datos = ejemplo();
+        String json = exportar(new ExportadorVentas(datos)
+                .formato(ExportadorVentas.Formato.JSONL)
+                .cliente("11111111a")
+                .entre(LocalDate.of(2025, 2, 1), null));
+        assertEquals("{\"dni\":\"11111111A\",\"fecha\":\"2025-03-04\",\"importe\":6790.00,"
+                + "\"lineas\":[{\"marca\":\"Honda\",\"modelo\":\"CL500\",\"precio\":6790.00}]}\n", json);
+
+        String escapado = exportar(new ExportadorVentas(datos)
+                .formato(ExportadorVentas.Formato.JSONL)
+                .cliente("22222222B"));
+        assertTrue(escapado.contains("\"marca\":\"Marca \\\"X\\\"\""));
+    }
+
+    @Test
+    public void exportarDevuelveElNumeroDeVentas() throws IOException {
+        ExportadorVentas e = new ExportadorVentas(ejemplo()).entre(null, LocalDate.of(2025, 2, 3));
+        assertEquals(2, e.exportar(new StringWriter()));
+        assertEquals(0, e.cliente("99999999Z").exportar(new StringWriter()));
+    }
+
+    @Test
+    public void ventasSinFechaSeExportanSinFiltroDeFechas() throws IOException {
+        Datos datos = ejemplo();
+        datos.addVenta(new Venta(datos.getClientes().get(1), List.of(new Moto("Honda", "CL500", 6790.00, 3)), null));
+
+        String csv = exportar(new ExportadorVentas(datos).cliente("22222222B"));
+        assertTrue(csv.endsWith("\n22222222B;;1;6790.00;Honda CL500:6790.00\n"), csv);
+        String json = exportar(new ExportadorVentas(datos).formato(ExportadorVentas.Formato.JSONL).cliente("22222222B"));
+        assertTrue(json.contains("{\"dni\":\"22222222B\",\"fecha\":null,\"importe\":6790.00,"), json);
+
+        assertEquals(4, new ExportadorVentas(datos).exportar(new StringWriter()));
+        assertEquals(3, new ExportadorVentas(datos).entre(null, LocalDate.of(2030, 1, 1)).exportar(new StringWriter()));
+    }
+
+    @Test
+    public void csvEscapaElSeparadorDeLineas() throws IOException {
+        Datos datos = ejemplo();
+        Moto rara = new Moto("A|B", "C\\D", 1, 1);
+        datos.addVenta(new Venta(datos.getClientes().get(0), List.of(rara, rara), LocalDate.of(2025, 4, 5)));
+        String csv = exportar(new ExportadorVentas(datos).entre(LocalDate.of(2025, 4, 1), null));
+        assertEquals("dni;fecha;unidades;importe;lineas\n"
+                + "11111111A;2025-04-05;2;2.00;A\\|B C\\\\D:1.00|A\\|B C\\\\D:1.00\n", csv);
+    }
+
+    @Test
+    public void lasVentasNoEsperanAQueTermineLaEscritura() throws IOException {
+        DatosConcurrentes datos = new DatosConcurrentes();
+        Cliente ana = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        datos.addCliente(ana);
+        Moto cl500 = new Moto("Honda", "CL500", 6790.00, 3);
+        datos.addMoto(cl500);
+        int ventas = ExportadorVentas.VENTAS_POR_TRAMO * 3;
+        for (int i = 0; i < ventas; i++) datos.addVenta(new Venta(ana, List.of(cl500), LocalDate.of(2025, 1, 1)));
+
+        // cada escritura registra una venta desde otro hilo y espera a que termine
+        Writer lento = new StringWriter() {
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                super.write(cbuf, off, len);
+                Thread t = new Thread(() -> datos.addVenta(new Venta(ana, List.of(cl500), LocalDate.of(2025, 1, 1))));
+                t.start();
+                try {
+                    t.join(5_000);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                assertFalse(t.isAlive(), "la venta espera a la exportación");
+            }
+        };
+        assertEquals(ventas, new ExportadorVentas(datos).exportar(lento));
+        assertEquals(ventas + 3, datos.getVentas().size());      // una por tramo; no se exportan
+        assertEquals(ventas + 1, lento.toString().lines().count());
+    }
+}
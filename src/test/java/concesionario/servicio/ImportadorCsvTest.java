@@ -0,0 +1,102 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+
+public class ImportadorCsvTest {
+
+    @TempDir
+    Path dir;
+
+    private Path fichero(String... lineas) throws IOException {
+        Path f = dir.resolve("datos.csv");
+        Files.write(f, List.of(lineas), StandardCharsets.UTF_8);
+        return f;
+    }
+
+    @Test
+    public void camposConComillasYSeparadorDentro() {
+        String[] c = ImportadorCsv.campos("\"López; Ana\";1A;\"di \"\"hola\"\"\"; x@ex.com ", 4);
+        assertArrayEquals(new String[] {"López; Ana", "1A", "di \"hola\"", "x@ex.com"}, c);
+        assertThrows(IllegalArgumentException.class, () -> ImportadorCsv.campos("a;b;c", 4));
+        assertThrows(IllegalArgumentException.class, () -> ImportadorCsv.campos("a;b;c;d;e", 4));
+        assertThrows(IllegalArgumentException.class, () -> ImportadorCsv.campos("\"a;b;c;d", 4));
+    }
+
+    @Test
+    public void importarClientesRechazaDniRepetidoComoAddCliente() throws IOException {
+        Datos datos = new Datos();
+        datos.addCliente(new Cliente("Ana", "11111111A", "600", "ana@ex.com"));
+        Path f = fichero(
+                "nombre;dni;telefono;email",
+                "Luis;22222222B;611;l@ex.com",
+                "Otra Ana;11111111a;622;otra@ex.com",      // ya existía (sin distinguir mayúsculas)
+                "",
+                "Luis bis;22222222B;633;lb@ex.com",        // repetido dentro del fichero
+                "Sin datos;33333333C;;x@ex.com");
+
+        ImportadorCsv.Resultado r = new ImportadorCsv(datos, 2).importarClientes(f);
+
+        assertEquals(4, r.getFilas());
+        assertEquals(1, r.getImportadas());
+        assertEquals(3, r.getErroneas());
+        assertEquals(List.of(3L, 5L, 6L), r.getErrores().stream().map(ImportadorCsv.ErrorFila::getLinea).sorted().toList());
+        assertEquals(2, datos.getClientes().size());
+        assertEquals("Luis", datos.buscarClientePorDni("22222222B").getNombre());
+    }
+
+    @Test
+    public void importarMotosConErroresPorFila() throws IOException {
+        Datos datos = new Datos();
+        Path f = fichero(
+                "Honda;CL500;6790,00;3",
+                "Yamaha;XSR700;8799.99;2",
+                "Yamaha;MT-07;caro;2",
+                "Kawasaki;Z650;7000;-1");
+
+        ImportadorCsv.Resultado r = new ImportadorCsv(datos, 1).importarMotos(f);
+
+        assertEquals(2, r.getImportadas());
+        assertEquals(2, r.getErroneas());
+        assertEquals("línea 3: precio no válido: caro", r.getErrores().get(0).toString());
+        Moto xsr = datos.getMotos().get(1);
+        assertEquals(879999, xsr.getPrecioCentimos());
+        assertEquals(1, datos.buscarMotosPorTexto("xsr").size());
+    }
+
+    @Test
+    public void ficheroGrandeMantieneElOrdenYLimitaLosErrores() throws IOException {
+        int filas = 20_000;
+        Path f = dir.resolve("grande.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(f, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < filas; i++) {
+                out.write(i % 100 == 99 ? "mal" : "C" + i + ";" + i + "X;600;c@ex.com");
+                out.newLine();
+            }
+        }
+        DatosConcurrentes datos = new DatosConcurrentes();
+
+        ImportadorCsv.Resultado r = new ImportadorCsv(datos, 4).importarClientes(f);
+
+        assertEquals(filas, r.getFilas());
+        assertEquals(filas / 100, r.getErroneas());
+        assertEquals(ImportadorCsv.MAX_ERRORES, r.getErrores().size());
+        List<Cliente> clientes = datos.getClientes();
+        assertEquals(filas - filas / 100, clientes.size());
+        for (int i = 1; i < clientes.size(); i++) {
+            int anterior = Integer.parseInt(clientes.get(i - 1).getNombre().substring(1));
+            assertTrue(anterior < Integer.parseInt(clientes.get(i).getNombre().substring(1)));
+        }
+        assertTrue(r.getFilasPorSegundo() > 0);
+    }
+}
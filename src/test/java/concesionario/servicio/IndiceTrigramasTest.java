@@ -0,0 +1,93 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import concesionario.modelo.Moto;
+
+public class IndiceTrigramasTest {
+
+    private IndiceTrigramas indice;
+
+    @BeforeEach
+    public void setUp() {
+        indice = new IndiceTrigramas();
+        anadir(indice, "Honda", "CL500");
+        anadir(indice, "Ducati", "Scrambler Icon");
+        anadir(indice, "Triumph", "Scrambler 900");
+        anadir(indice, "Ducati", "Scrambler Café Racer");
+    }
+
+    /** El índice recibe las claves que guarda cada moto. */
+    private static void anadir(IndiceTrigramas indice, String marca, String modelo) {
+        Moto m = new Moto(marca, modelo, 1000, 1);
+        indice.anadir(m.getClaveMarca(), m.getClaveModelo());
+    }
+
+    private List<Integer> buscar(String q) {
+        List<Integer> res = new ArrayList<>();
+        indice.buscar(IndiceTrigramas.normalizar(q), res::add);
+        return res;
+    }
+
+    @Test
+    public void consultaLargaDevuelveCoincidenciasEnOrden() {
+        assertEquals(List.of(1, 2, 3), buscar("SCRAMBLER"));
+    }
+
+    @Test
+    public void consultaCortaRecorreTodo() {
+        assertEquals(List.of(0, 1, 2, 3), buscar("c"));
+    }
+
+    @Test
+    public void noDistingueAcentos() {
+        assertEquals(List.of(3), buscar("cafe"));
+        assertEquals(List.of(3), buscar("CAFÉ r"));
+    }
+
+    @Test
+    public void trigramaInexistenteNoDevuelveNada() {
+        assertTrue(buscar("xyz").isEmpty());
+    }
+
+    @Test
+    public void trigramasEnCamposDistintosNoCoinciden() {
+        // "ducati scr" no está en un único campo aunque sus trigramas sí estén en la moto
+        assertTrue(buscar("cati scr").isEmpty());
+    }
+
+    @Test
+    public void mismoResultadoQueElRecorridoCompleto() {
+        Random r = new Random(42);
+        IndiceTrigramas grande = new IndiceTrigramas();
+        List<String> textos = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String marca = palabra(r, 2 + r.nextInt(6));
+            String modelo = palabra(r, 2 + r.nextInt(8));
+            anadir(grande, marca, modelo);
+            textos.add(marca.toLowerCase() + "\n" + modelo.toLowerCase());
+        }
+        for (int q = 0; q < 200; q++) {
+            String consulta = palabra(r, 1 + r.nextInt(4)).toLowerCase();
+            List<Integer> esperado = new ArrayList<>();
+            for (int i = 0; i < textos.size(); i++) {
+                String[] campos = textos.get(i).split("\n");
+                if (campos[0].contains(consulta) || campos[1].contains(consulta)) esperado.add(i);
+            }
+            List<Integer> obtenido = new ArrayList<>();
+            grande.buscar(consulta, obtenido::add);
+            assertEquals(esperado, obtenido, consulta);
+        }
+    }
+
+    private static String palabra(Random r, int longitud) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < longitud; i++) sb.append("abcdeABC".charAt(r.nextInt(8)));
+        return sb.toString();
+    }
+}
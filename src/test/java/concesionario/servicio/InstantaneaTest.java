@@ -0,0 +1,108 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+public class InstantaneaTest {
+
+    @TempDir
+    Path dir;
+
+    private static Datos ejemplo() {
+        Datos datos = new Datos();
+        Cliente ana = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        Cliente luis = new Cliente("Luis", "22222222B", "611", "l@ex.com");
+        datos.addCliente(ana);
+        datos.addCliente(luis);
+        Moto cl500 = new Moto("Honda", "CL500", 6790.00, 3);
+        Moto xsr = new Moto("Yamaha", "XSR700", 8799.99, 2);
+        datos.addMoto(cl500);
+        datos.addMoto(xsr);
+        datos.addVenta(new Venta(ana, List.of(cl500, cl500, xsr), LocalDate.of(2025, 1, 2)));
+        datos.addVenta(new Venta(luis, List.of(xsr), LocalDate.of(2025, 2, 3)));
+        datos.removeClientePorIndice(1);      // la venta de Luis queda con un cliente dado de baja
+        return datos;
+    }
+
+    @Test
+    public void cargarDevuelveElMismoEstado() throws IOException {
+        Path fichero = dir.resolve("datos.inst");
+        Instantanea.escribir(ejemplo(), fichero);
+
+        Datos cargado = new Datos();
+        assertEquals(0, Instantanea.cargar(fichero, cargado));
+        assertEquals(1, cargado.getClientes().size());
+        assertEquals(2, cargado.getMotos().size());
+        assertEquals(3, cargado.getMotos().get(0).getStock());
+        Venta v = cargado.getVentas().get(0);
+        assertSame(cargado.getClientes().get(0), v.getCliente());
+        assertSame(cargado.getMotos().get(0), v.getMotos().get(1));
+        assertEquals(LocalDate.of(2025, 1, 2), v.getFecha());
+        assertEquals("Luis", cargado.getVentas().get(1).getCliente().getNombre());
+        assertEquals(679000 * 2 + 879999 * 2, cargado.totalVentasCentimos());
+    }
+
+    @Test
+    public void ventaSinFechaSeConserva() throws IOException {
+        Path fichero = dir.resolve("datos.inst");
+        Datos datos = ejemplo();
+        datos.addVenta(new Venta(datos.getClientes().get(0), List.of(datos.getMotos().get(1)), null));
+        Instantanea.escribir(datos, fichero);
+
+        Datos cargado = new Datos();
+        Instantanea.cargar(fichero, cargado);
+        assertEquals(3, cargado.getVentas().size());
+        assertNull(cargado.getVentas().get(2).getFecha());
+        assertEquals(LocalDate.of(2025, 2, 3), cargado.getVentas().get(1).getFecha());
+        assertEquals(datos.totalVentasCentimos(), cargado.totalVentasCentimos());
+    }
+
+    @Test
+    public void instantaneaDanadaSeRechaza() throws IOException {
+        Path fichero = dir.resolve("datos.inst");
+        Instantanea.escribir(ejemplo(), fichero);
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[] {42}), 40);
+        }
+        assertThrows(IOException.class, () -> Instantanea.cargar(fichero, new Datos()));
+    }
+
+    @Test
+    public void instantaneaMasColaDelDiario() throws IOException {
+        Path diarioFichero = dir.resolve("datos.diario");
+        Path instFichero = dir.resolve("datos.inst");
+        try (Diario diario = Diario.abrir(diarioFichero)) {
+            Datos datos = new DatosConcurrentes();
+            datos.setDiario(diario);
+            Cliente ana = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+            datos.addCliente(ana);
+            Moto cl500 = new Moto("Honda", "CL500", 6790.00, 3);
+            datos.addMoto(cl500);
+            assertEquals(2, Instantanea.escribir(datos, instFichero));
+            // cola posterior a la instantánea
+            assertTrue(datos.descontarStock(List.of(cl500)));
+            datos.addVenta(new Venta(ana, List.of(cl500)));
+        }
+
+        Datos recuperado = new Datos();
+        long lsn = Instantanea.cargar(instFichero, recuperado);
+        try (Diario diario = Diario.abrir(diarioFichero)) {
+            assertEquals(2, diario.reproducir(recuperado, lsn));
+        }
+        assertEquals(1, recuperado.getClientes().size());
+        assertEquals(2, recuperado.getMotos().get(0).getStock());
+        assertEquals(1, recuperado.getVentas().size());
+    }
+}
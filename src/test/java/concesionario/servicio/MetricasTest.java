@@ -0,0 +1,96 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.MBeanServer;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.servicio.Metricas.Operacion;
+
+public class MetricasTest {
+
+    @Test
+    public void cubosCubrenTodosLosValoresEnOrden() {
+        for (long v = 0; v < 100_000; v++) {
+            int i = MetricaOperacion.cubo(v);
+            assertTrue(v <= MetricaOperacion.limiteSuperior(i), "valor " + v);
+            assertTrue(i == 0 || v > MetricaOperacion.limiteSuperior(i - 1), "valor " + v);
+        }
+        assertTrue(MetricaOperacion.cubo(Long.MAX_VALUE) < 61 * 16);
+    }
+
+    @Test
+    public void percentilesConErrorAcotado() {
+        MetricaOperacion m = new MetricaOperacion();
+        for (long v = 1; v <= 10_000; v++) m.registrar(v * 1000);   // 1 µs .. 10 ms
+
+        assertEquals(5_000_000, m.percentilNanos(0.50), 5_000_000 * 0.07);
+        assertEquals(9_900_000, m.percentilNanos(0.99), 9_900_000 * 0.07);
+        assertEquals(10_000_000, m.percentilNanos(1.0));             // nunca pasa del máximo
+        assertEquals(10_000.0, m.getMaxMicros());
+        assertEquals(5000.5, m.getMediaMicros(), 0.001);
+
+        m.reiniciar();
+        assertEquals(0, m.percentilNanos(0.5));
+        assertEquals(0, m.getMedidas());
+    }
+
+    @Test
+    public void cuentaLlamadasYFallosDeDatos() {
+        Datos datos = new Datos();
+        Metricas metricas = new Metricas();
+        datos.setMetricas(metricas);
+        Cliente ana = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        Moto m = new Moto("Honda", "CL500", 6790, 1);
+
+        assertTrue(datos.addCliente(ana));
+        assertFalse(datos.addCliente(new Cliente("Otra", "11111111a", "601", "o@ex.com")));
+        datos.addMoto(m);
+        assertTrue(datos.descontarStock(List.of(m)));
+        assertFalse(datos.descontarStock(List.of(m)));           // sin stock: cuenta como fallo
+        datos.buscarClientePorDni("11111111A");
+        datos.totalVentas();                                     // delega en totalVentasCentimos: una sola llamada
+
+        assertEquals(2, metricas.de(Operacion.ALTA_CLIENTE).getLlamadas());
+        assertEquals(1, metricas.de(Operacion.ALTA_CLIENTE).getFallos());
+        assertEquals(2, metricas.de(Operacion.DESCUENTO_STOCK).getLlamadas());
+        assertEquals(1, metricas.de(Operacion.DESCUENTO_STOCK).getFallos());
+        assertEquals(1, metricas.de(Operacion.BUSQUEDA_CLIENTE).getMedidas());
+        assertEquals(1, metricas.de(Operacion.TOTAL_VENTAS).getLlamadas());
+        assertEquals(0, metricas.de(Operacion.MOTOS_ORDENADAS).getLlamadas());
+    }
+
+    @Test
+    public void muestreoCuentaTodasPeroMideAlgunas() {
+        assertThrows(IllegalArgumentException.class, () -> new Metricas(3));
+        DatosConcurrentes datos = new DatosConcurrentes();
+        Metricas metricas = new Metricas(8);
+        datos.setMetricas(metricas);
+        for (int i = 0; i < 10_000; i++) datos.buscarClientePorDni("X");
+
+        MetricaOperacion m = metricas.de(Operacion.BUSQUEDA_CLIENTE);
+        assertEquals(10_000, m.getLlamadas());
+        assertTrue(m.getMedidas() > 800 && m.getMedidas() < 1700, "medidas: " + m.getMedidas());
+    }
+
+    @Test
+    public void sePublicanPorJmx() throws Exception {
+        Metricas metricas = new Metricas();
+        Datos datos = new Datos();
+        datos.setMetricas(metricas);
+        metricas.registrarJmx();
+        metricas.registrarJmx();                                 // volver a registrar sustituye
+        datos.clientesOrdenadosPorNombre();
+
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        var nombre = Metricas.nombreJmx(Operacion.CLIENTES_ORDENADOS);
+        assertEquals(1L, servidor.getAttribute(nombre, "Llamadas"));
+        assertTrue((Double) servidor.getAttribute(nombre, "P99Micros") > 0);
+        servidor.invoke(nombre, "reiniciar", null, null);
+        assertEquals(0L, metricas.de(Operacion.CLIENTES_ORDENADOS).getLlamadas());
+    }
+}
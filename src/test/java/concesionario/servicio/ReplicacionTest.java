@@ -0,0 +1,119 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+public class ReplicacionTest {
+    private static final long PLAZO = 10_000;
+
+    @TempDir
+    Path dir;
+
+    private static void vender(Datos datos, int desde, int hasta) {
+        Moto m = datos.getMotos().get(0);
+        for (int i = desde; i < hasta; i++) {
+            Cliente c = new Cliente("C" + i, i + "X", "600", "c@ex.com");
+            datos.addCliente(c);
+            assertTrue(datos.descontarStock(List.of(m)));
+            datos.addVenta(new Venta(c, List.of(m), LocalDate.of(2025, 1, 1).plusDays(i % 365)));
+        }
+    }
+
+    private static void comprobarIguales(Datos primario, Datos replica) {
+        assertEquals(primario.getClientes().size(), replica.getClientes().size());
+        assertEquals(primario.getVentas().size(), replica.getVentas().size());
+        assertEquals(primario.totalVentasCentimos(), replica.totalVentasCentimos());
+        for (int i = 0; i < primario.getMotos().size(); i++) {
+            assertEquals(primario.getMotos().get(i).getStock(), replica.getMotos().get(i).getStock());
+        }
+    }
+
+    @Test
+    public void laReplicaRecibeLoAnteriorYLoNuevo() throws IOException {
+        DatosConcurrentes primario = new DatosConcurrentes();
+        try (Diario diario = Diario.abrir(dir.resolve("primario.diario"));
+             ServidorReplicacion servidor = ServidorReplicacion.iniciar(diario, 0)) {
+            primario.setDiario(diario);
+            primario.addMoto(new Moto("Yamaha", "XSR700", 8799.99, 1000));
+            vender(primario, 0, 100);
+
+            try (Replica replica = Replica.iniciar(new DatosConcurrentes(), "localhost", servidor.getPuerto())) {
+                assertTrue(replica.esperarLsn(diario.ultimoLsn(), PLAZO));
+                comprobarIguales(primario, replica.getDatos());
+
+                vender(primario, 100, 150);
+                primario.modificarCliente(primario.buscarClientePorDni("7X"), "Siete", null, null);
+                assertTrue(replica.esperarLsn(diario.ultimoLsn(), PLAZO));
+                comprobarIguales(primario, replica.getDatos());
+                assertEquals("Siete", replica.getDatos().buscarClientePorDni("7X").getNombre());
+                assertEquals(1, replica.getDatos().ventasPorDni("120X").size());
+                assertEquals(1, replica.getDatos().buscarMotosPorTexto("xsr").size());
+                assertEquals(0, replica.getRetrasoRegistros());
+                assertEquals(1, servidor.getReplicas());
+            }
+        }
+    }
+
+    @Test
+    public void seReconectaYSigueDesdeElUltimoLsnAplicado() throws IOException {
+        DatosConcurrentes primario = new DatosConcurrentes();
+        DatosConcurrentes copia = new DatosConcurrentes();
+        try (Diario diario = Diario.abrir(dir.resolve("primario.diario"))) {
+            primario.setDiario(diario);
+            primario.addMoto(new Moto("Honda", "CL500", 6790.00, 100_000));
+            vender(primario, 0, 5000);
+
+            ServidorReplicacion servidor = ServidorReplicacion.iniciar(diario, 0);
+            int puerto = servidor.getPuerto();
+            try (Replica replica = Replica.iniciar(copia, "localhost", puerto)) {
+                assertTrue(replica.esperarLsn(diario.ultimoLsn(), PLAZO));
+                servidor.close();                           // el primario deja de servir
+
+                vender(primario, 5000, 9000);
+                assertFalse(replica.esperarLsn(diario.ultimoLsn(), 300));
+                assertTrue(replica.getLsnAplicado() < diario.ultimoLsn());
+
+                servidor = ServidorReplicacion.iniciar(diario, puerto);
+                assertTrue(replica.esperarLsn(diario.ultimoLsn(), PLAZO));
+                assertTrue(replica.getReconexiones() >= 1);
+                comprobarIguales(primario, copia);
+            } finally {
+                servidor.close();
+            }
+
+            // Una réplica nueva sobre los mismos datos retoma desde su LSN
+            long aplicado = diario.ultimoLsn();
+            vender(primario, 9000, 9100);
+            try (ServidorReplicacion otro = ServidorReplicacion.iniciar(diario, 0);
+                 Replica replica = Replica.iniciar(copia, "localhost", otro.getPuerto(), aplicado)) {
+                assertTrue(replica.esperarLsn(diario.ultimoLsn(), PLAZO));
+                comprobarIguales(primario, copia);
+            }
+        }
+    }
+
+    @Test
+    public void unaReplicaAdelantadaSeDetieneConError() throws IOException {
+        try (Diario diario = Diario.abrir(dir.resolve("primario.diario"));
+             ServidorReplicacion servidor = ServidorReplicacion.iniciar(diario, 0);
+             Replica replica = Replica.iniciar(new DatosConcurrentes(), "localhost", servidor.getPuerto(), 50)) {
+            assertFalse(replica.esperarLsn(51, PLAZO));
+            assertNotNull(replica.getError());
+            assertEquals(50, replica.getLsnAplicado());
+        }
+        DatosConcurrentes conDiario = new DatosConcurrentes();
+        try (Diario otro = Diario.abrir(dir.resolve("replica.diario"))) {
+            conDiario.setDiario(otro);
+            assertThrows(IllegalArgumentException.class, () -> Replica.iniciar(conDiario, "localhost", 1));
+        }
+    }
+}
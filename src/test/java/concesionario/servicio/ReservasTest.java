@@ -0,0 +1,159 @@
+package concesionario.servicio;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import concesionario.modelo.Cliente;
+import concesionario.modelo.Moto;
+import concesionario.modelo.Venta;
+
+public class ReservasTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong reloj = new AtomicLong(1_000_000);
+    private Datos datos;
+    private Moto cl500;
+    private Cliente ana;
+
+    @BeforeEach
+    public void setUp() {
+        datos = new Datos();
+        datos.setRelojReservas(reloj::get);
+        datos.setDuracionReservas(Duration.ofSeconds(60));
+        cl500 = new Moto("Honda", "CL500", 6790.00, 3);
+        datos.addMoto(cl500);
+        ana = new Cliente("Ana", "11111111A", "600", "ana@ex.com");
+        datos.addCliente(ana);
+    }
+
+    @Test
+    public void ruedaEntregaCadaVencimientoUnaVezYNoAntes() {
+        RuedaTemporizadores<String> rueda = new RuedaTemporizadores<>(10, 8, 0);
+        rueda.programar("a", 25);
+        rueda.programar("b", 25 + 80);          // misma ranura, una vuelta después
+        rueda.programar("c", 5);                // ya vencido: va a la siguiente ranura
+        rueda.cancelar(rueda.programar("d", 25));
+        List<String> entregados = new ArrayList<>();
+
+        rueda.avanzar(29, entregados::add);     // el intervalo 20-29 aún no ha terminado
+        assertEquals(List.of("c"), entregados);
+        rueda.avanzar(30, entregados::add);
+        assertEquals(List.of("c", "a"), entregados);
+        rueda.avanzar(1000, entregados::add);   // más de una vuelta de golpe
+        assertEquals(List.of("c", "a", "b"), entregados);
+        assertEquals(0, rueda.tamano());
+    }
+
+    @Test
+    public void reservaApartaStockYCaducaSiNoSeConfirma() {
+        Reserva r = datos.reservar(cl500, 2);
+        assertNotNull(r);
+        assertEquals(1, cl500.getStock());
+        assertEquals(2, datos.unidadesReservadas(cl500));
+        assertNull(datos.reservar(cl500, 2));
+        assertFalse(datos.descontarStock(List.of(cl500, cl500)));
+
+        reloj.addAndGet(59_000);
+        assertEquals(0, datos.caducarReservas());
+        reloj.addAndGet(2_000);
+        assertEquals(1, datos.caducarReservas());
+        assertEquals(Reserva.Estado.CADUCADA, r.getEstado());
+        assertEquals(3, cl500.getStock());
+        assertEquals(0, datos.unidadesReservadas(cl500));
+        assertNull(datos.confirmarReservas(ana, List.of(r)));
+        assertEquals(3, cl500.getStock());
+    }
+
+    @Test
+    public void laRecogidaPeriodicaDevuelveElStockSinMasReservas() throws InterruptedException {
+        Reserva r = datos.reservar(cl500, 2);
+        reloj.addAndGet(61_000);
+        datos.iniciarCaducidadReservas(Duration.ofMillis(5));
+        try {
+            long limite = System.nanoTime() + 5_000_000_000L;
+            while (r.isPendiente() && System.nanoTime() < limite) Thread.sleep(5);
+        } finally {
+            datos.detenerCaducidadReservas();
+        }
+        assertEquals(Reserva.Estado.CADUCADA, r.getEstado());
+        assertEquals(3, cl500.getStock());
+        assertEquals(0, datos.unidadesReservadas(cl500));
+        assertThrows(IllegalArgumentException.class, () -> datos.iniciarCaducidadReservas(Duration.ZERO));
+    }
+
+    @Test
+    public void confirmarRegistraLaVentaYCancelarDevuelveElStock() {
+        Moto xsr = new Moto("Yamaha", "XSR700", 8799.99, 2);
+        datos.addMoto(xsr);
+        Reserva a = datos.reservar(cl500, 2);
+        Reserva b = datos.reservar(xsr, 1);
+
+        Venta v = datos.confirmarReservas(ana, List.of(a, b));
+        assertNotNull(v);
+        assertEquals(List.of(cl500, cl500, xsr), v.getMotos());
+        assertEquals(Reserva.Estado.CONFIRMADA, a.getEstado());
+        assertEquals(1, cl500.getStock());
+        assertEquals(0, datos.unidadesReservadas(cl500));
+        assertEquals(1, datos.getVentas().size());
+
+        Reserva c = datos.reservar(xsr, 1);
+        assertTrue(datos.cancelarReserva(c));
+        assertFalse(datos.cancelarReserva(c));
+        assertEquals(1, xsr.getStock());
+        reloj.addAndGet(120_000);
+        assertEquals(0, datos.caducarReservas());      // ya no estaban pendientes
+        assertEquals(1, cl500.getStock());
+    }
+
+    @Test
+    public void confirmacionConUnaReservaCaducadaNoRegistraNada() {
+        Reserva a = datos.reservar(cl500, 1);
+        reloj.addAndGet(30_000);
+        Reserva b = datos.reservar(cl500, 1);
+        reloj.addAndGet(40_000);
+        datos.caducarReservas();                        // caduca a, b sigue pendiente
+
+        assertNull(datos.confirmarReservas(ana, List.of(b, a)));
+        assertTrue(b.isPendiente());
+        assertEquals(1, datos.unidadesReservadas(cl500));
+        assertEquals(2, cl500.getStock());
+        assertTrue(datos.getVentas().isEmpty());
+    }
+
+    @Test
+    public void diarioEInstantaneaNoGuardanLasReservasPendientes() throws IOException {
+        Path fichero = dir.resolve("datos.diario");
+        datos = new Datos();
+        try (Diario diario = Diario.abrir(fichero)) {
+            datos.setDiario(diario);
+            datos.addMoto(cl500);
+            datos.addCliente(ana);
+            datos.confirmarReservas(ana, List.of(datos.reservar(cl500, 1)));
+            datos.reservar(cl500, 1);                   // pendiente al "cerrar"
+            Instantanea.escribir(datos, dir.resolve("datos.inst"));
+            datos.setDiario(null);
+        }
+        assertEquals(1, cl500.getStock());
+
+        Datos recuperado = new Datos();
+        try (Diario diario = Diario.abrir(fichero)) {
+            diario.reproducir(recuperado);
+        }
+        assertEquals(2, recuperado.getMotos().get(0).getStock());
+        assertEquals(1, recuperado.getVentas().size());
+
+        Datos cargado = new Datos();
+        Instantanea.cargar(dir.resolve("datos.inst"), cargado);
+        assertEquals(2, cargado.getMotos().get(0).getStock());
+    }
+}